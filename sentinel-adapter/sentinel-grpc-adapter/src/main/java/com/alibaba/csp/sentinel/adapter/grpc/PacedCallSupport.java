@@ -0,0 +1,267 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.adapter.grpc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import io.grpc.ClientCall;
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+
+import javax.annotation.Nullable;
+
+/**
+ * <p>Support for the paced gRPC calls, which are delayed via a scheduler rather than sleeping in
+ * the transport thread (see {@link com.alibaba.csp.sentinel.NonBlockingPacing}).</p>
+ *
+ * <p>The scheduler only times the delay. The held operations of the call are then run in the executor of
+ * the call, and the {@link PendingEvents} keep them serialized with the operations arriving meanwhile.</p>
+ *
+ * @since 1.8.2
+ */
+final class PacedCallSupport {
+
+    @SuppressWarnings("PMD.ThreadPoolCreationRule")
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        new NamedThreadFactory("sentinel-grpc-pacing-task", true));
+
+    /**
+     * Executor for the paced calls that have no executor of their own.
+     */
+    @SuppressWarnings("PMD.ThreadPoolCreationRule")
+    static final ExecutorService DEFAULT_EXECUTOR = Executors.newCachedThreadPool(
+        new NamedThreadFactory("sentinel-grpc-paced-call", true));
+
+    /**
+     * Run the task in given executor after given delay, within current gRPC context.
+     */
+    static void schedule(Runnable task, long delayMs, final Executor executor) {
+        final Runnable contextTask = Context.current().wrap(task);
+        SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    executor.execute(contextTask);
+                } catch (RejectedExecutionException e) {
+                    // The held call should always be released, otherwise its entry never exits.
+                    contextTask.run();
+                }
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Events that are buffered until {@link #drain()}, and run directly afterwards.
+     */
+    static final class PendingEvents {
+
+        private List<Runnable> pending = new ArrayList<>();
+        private volatile boolean passThrough = false;
+
+        void run(Runnable event) {
+            if (!passThrough) {
+                synchronized (this) {
+                    if (!passThrough) {
+                        pending.add(event);
+                        return;
+                    }
+                }
+            }
+            event.run();
+        }
+
+        /**
+         * Run the buffered events in order and pass through the later events.
+         */
+        void drain() {
+            List<Runnable> toRun = new ArrayList<>();
+            while (true) {
+                synchronized (this) {
+                    if (pending.isEmpty()) {
+                        pending = null;
+                        passThrough = true;
+                        return;
+                    }
+                    // Swap the lists so that events arriving meanwhile are kept in order.
+                    List<Runnable> tmp = toRun;
+                    toRun = pending;
+                    pending = tmp;
+                }
+                for (Runnable event : toRun) {
+                    event.run();
+                }
+                toRun.clear();
+            }
+        }
+    }
+
+    /**
+     * A client call that holds all operations until the pacing delay elapses.
+     */
+    static final class PacedClientCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
+
+        private final ClientCall<ReqT, RespT> delegate;
+        private final PendingEvents events = new PendingEvents();
+
+        PacedClientCall(ClientCall<ReqT, RespT> delegate, long delayMs, @Nullable Executor executor) {
+            this.delegate = delegate;
+            schedule(new Runnable() {
+                @Override
+                public void run() {
+                    events.drain();
+                }
+            }, delayMs, executor == null ? DEFAULT_EXECUTOR : executor);
+        }
+
+        @Override
+        public void start(final Listener<RespT> responseListener, final Metadata headers) {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.start(responseListener, headers);
+                }
+            });
+        }
+
+        @Override
+        public void request(final int numMessages) {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.request(numMessages);
+                }
+            });
+        }
+
+        @Override
+        public void cancel(@Nullable final String message, @Nullable final Throwable cause) {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.cancel(message, cause);
+                }
+            });
+        }
+
+        @Override
+        public void halfClose() {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.halfClose();
+                }
+            });
+        }
+
+        @Override
+        public void sendMessage(final ReqT message) {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.sendMessage(message);
+                }
+            });
+        }
+
+        @Override
+        public void setMessageCompression(final boolean enabled) {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.setMessageCompression(enabled);
+                }
+            });
+        }
+    }
+
+    /**
+     * A server call listener that holds all events until the call is started after the pacing delay.
+     */
+    static final class PacedServerCallListener<ReqT> extends ServerCall.Listener<ReqT> {
+
+        private final PendingEvents events = new PendingEvents();
+        private volatile ServerCall.Listener<ReqT> delegate;
+
+        /**
+         * Set the listener of the started call and deliver the buffered events to it.
+         */
+        void start(ServerCall.Listener<ReqT> delegate) {
+            this.delegate = delegate;
+            events.drain();
+        }
+
+        @Override
+        public void onMessage(final ReqT message) {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.onMessage(message);
+                }
+            });
+        }
+
+        @Override
+        public void onHalfClose() {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.onHalfClose();
+                }
+            });
+        }
+
+        @Override
+        public void onCancel() {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.onCancel();
+                }
+            });
+        }
+
+        @Override
+        public void onComplete() {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.onComplete();
+                }
+            });
+        }
+
+        @Override
+        public void onReady() {
+            events.run(new Runnable() {
+                @Override
+                public void run() {
+                    delegate.onReady();
+                }
+            });
+        }
+    }
+
+    private PacedCallSupport() {}
+}
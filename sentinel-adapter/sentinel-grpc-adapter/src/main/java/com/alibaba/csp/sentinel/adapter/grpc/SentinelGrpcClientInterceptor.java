@@ -17,6 +17,7 @@ package com.alibaba.csp.sentinel.adapter.grpc;
 
 import com.alibaba.csp.sentinel.Entry;
 import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.NonBlockingPacing;
 import com.alibaba.csp.sentinel.SphU;
 import com.alibaba.csp.sentinel.Tracer;
 import com.alibaba.csp.sentinel.slots.block.BlockException;
@@ -35,6 +36,9 @@ import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * <p>gRPC client interceptor for Sentinel. Currently it only works with unary methods.</p>
+ * <p>Paced requests (e.g. by the rate limiter) are held and sent after the delay via a scheduler,
+ * rather than blocking the calling thread. The held call is sent in the executor of the call options
+ * if present.</p>
  * <p>
  * Example code:
  * <pre>
@@ -65,11 +69,12 @@ public class SentinelGrpcClientInterceptor implements ClientInterceptor {
                                                                CallOptions callOptions, Channel channel) {
         String fullMethodName = methodDescriptor.getFullMethodName();
         Entry entry = null;
+        NonBlockingPacing.enter();
         try {
             entry = SphU.asyncEntry(fullMethodName, EntryType.OUT);
             final AtomicReference<Entry> atomicReferenceEntry = new AtomicReference<>(entry);
             // Allow access, forward the call.
-            return new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(
+            ClientCall<ReqT, RespT> call = new ForwardingClientCall.SimpleForwardingClientCall<ReqT, RespT>(
                     channel.newCall(methodDescriptor, callOptions)) {
                 @Override
                 public void start(Listener<RespT> responseListener, Metadata headers) {
@@ -106,6 +111,11 @@ public class SentinelGrpcClientInterceptor implements ClientInterceptor {
                     super.cancel(message, cause);
                 }
             };
+            if (entry.getWaitMs() > 0) {
+                // The request is paced, so hold the call until the delay elapses instead of blocking the caller.
+                return new PacedCallSupport.PacedClientCall<>(call, entry.getWaitMs(), callOptions.getExecutor());
+            }
+            return call;
         } catch (BlockException e) {
             // Flow control threshold exceeded, block the call.
             return new ClientCall<ReqT, RespT>() {
@@ -137,6 +147,8 @@ public class SentinelGrpcClientInterceptor implements ClientInterceptor {
                 entry.exit();
             }
             throw e;
+        } finally {
+            NonBlockingPacing.exit();
         }
     }
 }
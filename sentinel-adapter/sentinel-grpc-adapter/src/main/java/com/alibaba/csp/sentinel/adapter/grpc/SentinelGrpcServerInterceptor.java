@@ -17,9 +17,11 @@ package com.alibaba.csp.sentinel.adapter.grpc;
 
 import com.alibaba.csp.sentinel.Entry;
 import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.NonBlockingPacing;
 import com.alibaba.csp.sentinel.SphU;
 import com.alibaba.csp.sentinel.Tracer;
 import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.util.AssertUtil;
 import io.grpc.ForwardingServerCall;
 import io.grpc.ForwardingServerCallListener;
 import io.grpc.Metadata;
@@ -29,10 +31,14 @@ import io.grpc.ServerInterceptor;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * <p>gRPC server interceptor for Sentinel. Currently it only works with unary methods.</p>
+ * <p>Paced requests (e.g. by the rate limiter) are started after the delay via a scheduler,
+ * rather than blocking the transport thread. The paced calls are started in the given executor,
+ * which should usually be the executor of the server.</p>
  * <p>
  * Example code:
  * <pre>
@@ -51,48 +57,73 @@ public class SentinelGrpcServerInterceptor implements ServerInterceptor {
             "Flow control limit exceeded (server side)");
     private static final StatusRuntimeException STATUS_RUNTIME_EXCEPTION = new StatusRuntimeException(Status.CANCELLED);
 
+    private final Executor pacedCallExecutor;
+
+    public SentinelGrpcServerInterceptor() {
+        this(PacedCallSupport.DEFAULT_EXECUTOR);
+    }
+
+    /**
+     * @param pacedCallExecutor executor to start the paced calls in (e.g. the executor of the server)
+     * @since 1.8.2
+     */
+    public SentinelGrpcServerInterceptor(Executor pacedCallExecutor) {
+        AssertUtil.notNull(pacedCallExecutor, "pacedCallExecutor cannot be null");
+        this.pacedCallExecutor = pacedCallExecutor;
+    }
+
     @Override
-    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(final ServerCall<ReqT, RespT> call, final Metadata headers,
+                                                                 final ServerCallHandler<ReqT, RespT> next) {
         String fullMethodName = call.getMethodDescriptor().getFullMethodName();
         // Remote address: serverCall.getAttributes().get(Grpc.TRANSPORT_ATTR_REMOTE_ADDR);
         Entry entry = null;
+        NonBlockingPacing.enter();
         try {
             entry = SphU.asyncEntry(fullMethodName, EntryType.IN);
             final AtomicReference<Entry> atomicReferenceEntry = new AtomicReference<>(entry);
-            // Allow access, forward the call.
-            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(
-                    next.startCall(
-                            new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
-                                @Override
-                                public void close(Status status, Metadata trailers) {
-                                    Entry entry = atomicReferenceEntry.get();
-                                    if (entry != null) {
-                                        // Record the exception metrics.
-                                        if (!status.isOk()) {
-                                            Tracer.traceEntry(status.asRuntimeException(), entry);
-                                        }
-                                        //entry exit when the call be closed
-                                        entry.exit();
-                                    }
-                                    super.close(status, trailers);
-                                }
-                            }, headers)) {
-                /**
-                 * If call was canceled, onCancel will be called. and the close will not be called
-                 * so the server is encouraged to abort processing to save resources by onCancel
-                 * @see ServerCall.Listener#onCancel()
-                 */
+            final ServerCall<ReqT, RespT> wrappedCall = new ForwardingServerCall.SimpleForwardingServerCall<ReqT, RespT>(call) {
                 @Override
-                public void onCancel() {
+                public void close(Status status, Metadata trailers) {
                     Entry entry = atomicReferenceEntry.get();
                     if (entry != null) {
-                        Tracer.traceEntry(STATUS_RUNTIME_EXCEPTION, entry);
+                        // Record the exception metrics.
+                        if (!status.isOk()) {
+                            Tracer.traceEntry(status.asRuntimeException(), entry);
+                        }
+                        //entry exit when the call be closed
                         entry.exit();
-                        atomicReferenceEntry.set(null);
                     }
-                    super.onCancel();
+                    super.close(status, trailers);
                 }
             };
+            if (entry.getWaitMs() > 0) {
+                // The request is paced, so start the call after the delay instead of blocking the transport thread.
+                final PacedCallSupport.PacedServerCallListener<ReqT> pacedListener
+                    = new PacedCallSupport.PacedServerCallListener<>();
+                PacedCallSupport.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        ServerCall.Listener<ReqT> listener;
+                        try {
+                            listener = wrapListener(next.startCall(wrappedCall, headers), atomicReferenceEntry);
+                        } catch (RuntimeException e) {
+                            Entry entry = atomicReferenceEntry.getAndSet(null);
+                            if (entry != null) {
+                                Tracer.traceEntry(e, entry);
+                                entry.exit();
+                            }
+                            call.close(Status.fromThrowable(e), new Metadata());
+                            listener = new ServerCall.Listener<ReqT>() {
+                            };
+                        }
+                        pacedListener.start(listener);
+                    }
+                }, entry.getWaitMs(), pacedCallExecutor);
+                return pacedListener;
+            }
+            // Allow access, forward the call.
+            return wrapListener(next.startCall(wrappedCall, headers), atomicReferenceEntry);
         } catch (BlockException e) {
             call.close(FLOW_CONTROL_BLOCK, new Metadata());
             return new ServerCall.Listener<ReqT>() {
@@ -104,6 +135,29 @@ public class SentinelGrpcServerInterceptor implements ServerInterceptor {
                 entry.exit();
             }
             throw e;
+        } finally {
+            NonBlockingPacing.exit();
         }
     }
+
+    private <ReqT> ServerCall.Listener<ReqT> wrapListener(ServerCall.Listener<ReqT> listener,
+                                                         final AtomicReference<Entry> atomicReferenceEntry) {
+        return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+            /**
+             * If call was canceled, onCancel will be called. and the close will not be called
+             * so the server is encouraged to abort processing to save resources by onCancel
+             * @see ServerCall.Listener#onCancel()
+             */
+            @Override
+            public void onCancel() {
+                Entry entry = atomicReferenceEntry.get();
+                if (entry != null) {
+                    Tracer.traceEntry(STATUS_RUNTIME_EXCEPTION, entry);
+                    entry.exit();
+                    atomicReferenceEntry.set(null);
+                }
+                super.onCancel();
+            }
+        };
+    }
 }
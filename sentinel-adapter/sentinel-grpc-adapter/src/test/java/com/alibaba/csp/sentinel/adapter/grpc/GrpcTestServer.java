@@ -15,26 +15,54 @@
  */
 package com.alibaba.csp.sentinel.adapter.grpc;
 
+import io.grpc.Metadata;
 import io.grpc.Server;
 import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
 
 import java.io.IOException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 class GrpcTestServer {
 
     private Server server;
 
+    /**
+     * Name of the thread that started the latest call behind the Sentinel interceptor.
+     */
+    volatile String lastStartThread;
+
     GrpcTestServer() {}
 
     void start(int port, boolean shouldIntercept) throws IOException {
+        start(port, shouldIntercept, null);
+    }
+
+    void start(int port, boolean shouldIntercept, Executor executor) throws IOException {
         if (server != null) {
             throw new IllegalStateException("Server already running!");
         }
         ServerBuilder<?> serverBuild = ServerBuilder.forPort(port)
             .addService(new FooServiceImpl());
+        if (executor != null) {
+            serverBuild.executor(executor);
+        }
         if (shouldIntercept) {
-            serverBuild.intercept(new SentinelGrpcServerInterceptor());
+            // Interceptors added earlier are called later.
+            serverBuild.intercept(new ServerInterceptor() {
+                @Override
+                public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                             Metadata headers,
+                                                                             ServerCallHandler<ReqT, RespT> next) {
+                    lastStartThread = Thread.currentThread().getName();
+                    return next.startCall(call, headers);
+                }
+            });
+            serverBuild.intercept(executor == null ? new SentinelGrpcServerInterceptor()
+                : new SentinelGrpcServerInterceptor(executor));
         }
         server = serverBuild.build();
         server.start();
@@ -16,6 +16,7 @@
 package com.alibaba.csp.sentinel.adapter.grpc;
 
 import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
 import com.alibaba.csp.sentinel.adapter.grpc.gen.FooRequest;
 import com.alibaba.csp.sentinel.adapter.grpc.gen.FooResponse;
 import com.alibaba.csp.sentinel.node.ClusterNode;
@@ -29,6 +30,8 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -84,6 +87,33 @@ public class SentinelGrpcServerInterceptorTest {
         server.stop();
     }
 
+    @Test
+    public void testPacedRequestsDelayed() throws Exception {
+        final int port = 19330;
+        ExecutorService executor = Executors.newCachedThreadPool(new NamedThreadFactory("grpc-test-server"));
+        server.start(port, true, executor);
+        client = new FooServiceClient("localhost", port);
+
+        String pacedResourceName = "com.alibaba.sentinel.examples.FooService/sayHello";
+        FlowRule rule = new FlowRule(pacedResourceName)
+                .setCount(5)
+                .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER)
+                .setMaxQueueingTimeMs(2000);
+        FlowRuleManager.loadRules(Collections.singletonList(rule));
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(client.sayHello(FooRequest.newBuilder().setName("Sentinel").setId(666).build()));
+        }
+        // The latter requests are started after the delay (200ms each) rather than rejected.
+        assertTrue(System.currentTimeMillis() - start >= 350);
+        // The delayed calls are started in the executor of the server rather than the pacing scheduler.
+        assertTrue(server.lastStartThread.startsWith("grpc-test-server"));
+
+        server.stop();
+        executor.shutdown();
+    }
+
     private boolean sendRequest(FooRequest request) {
         try {
             FooResponse response = client.anotherHello(request);
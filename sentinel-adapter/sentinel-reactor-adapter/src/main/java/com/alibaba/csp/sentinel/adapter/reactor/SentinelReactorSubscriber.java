@@ -15,10 +15,12 @@
  */
 package com.alibaba.csp.sentinel.adapter.reactor;
 
+import java.time.Duration;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.alibaba.csp.sentinel.AsyncEntry;
+import com.alibaba.csp.sentinel.NonBlockingPacing;
 import com.alibaba.csp.sentinel.SphU;
 import com.alibaba.csp.sentinel.Tracer;
 import com.alibaba.csp.sentinel.context.ContextUtil;
@@ -28,6 +30,9 @@ import com.alibaba.csp.sentinel.util.function.Supplier;
 
 import org.reactivestreams.Subscription;
 import reactor.core.CoreSubscriber;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
 import reactor.util.context.Context;
 
 /**
@@ -43,6 +48,7 @@ public class SentinelReactorSubscriber<T> extends InheritableBaseSubscriber<T> {
 
     private volatile AsyncEntry currentEntry;
     private final AtomicBoolean entryExited = new AtomicBoolean(false);
+    private volatile PacedSubscription pacedSubscription;
 
     public SentinelReactorSubscriber(EntryConfig entryConfig,
                                      CoreSubscriber<? super T> actual,
@@ -88,11 +94,23 @@ public class SentinelReactorSubscriber<T> extends InheritableBaseSubscriber<T> {
             // If current we're already in a context, the context config won't work.
             ContextUtil.enter(sentinelContextConfig.getContextName(), sentinelContextConfig.getOrigin());
         }
+        // Paced requests are delayed via the scheduler rather than sleeping in current (maybe event loop) thread.
+        NonBlockingPacing.enter();
         try {
             AsyncEntry entry = SphU.asyncEntry(entryConfig.getResourceName(), entryConfig.getResourceType(),
                 entryConfig.getEntryType(), entryConfig.getAcquireCount(), entryConfig.getArgs());
             this.currentEntry = entry;
-            actual.onSubscribe(this);
+            long waitMs = entry.getWaitMs();
+            if (waitMs > 0) {
+                // The upstream has been subscribed, so only the requests and signals to the actual subscriber
+                // are delayed, and the actual subscriber still receives onSubscribe first.
+                PacedSubscription paced = new PacedSubscription();
+                this.pacedSubscription = paced;
+                actual.onSubscribe(paced);
+                paced.start(waitMs);
+            } else {
+                actual.onSubscribe(this);
+            }
         } catch (BlockException ex) {
             // Mark as completed (exited) explicitly.
             entryExited.set(true);
@@ -101,6 +119,7 @@ public class SentinelReactorSubscriber<T> extends InheritableBaseSubscriber<T> {
             actual.onSubscribe(this);
             actual.onError(ex);
         } finally {
+            NonBlockingPacing.exit();
             if (sentinelContextConfig != null) {
                 ContextUtil.exit();
             }
@@ -132,6 +151,10 @@ public class SentinelReactorSubscriber<T> extends InheritableBaseSubscriber<T> {
 
     @Override
     protected void hookOnComplete() {
+        PacedSubscription paced = pacedSubscription;
+        if (paced != null && paced.holdTerminal(this::hookOnComplete)) {
+            return;
+        }
         tryCompleteEntry();
         actual.onComplete();
     }
@@ -145,6 +168,10 @@ public class SentinelReactorSubscriber<T> extends InheritableBaseSubscriber<T> {
 
     @Override
     protected void hookOnError(Throwable t) {
+        PacedSubscription paced = pacedSubscription;
+        if (paced != null && paced.holdTerminal(() -> hookOnError(t))) {
+            return;
+        }
         if (currentEntry != null && currentEntry.getAsyncContext() != null) {
             // Normal requests with non-BlockException will go through here.
             Tracer.traceContext(t, 1, currentEntry.getAsyncContext());
@@ -165,4 +192,88 @@ public class SentinelReactorSubscriber<T> extends InheritableBaseSubscriber<T> {
         }
         return false;
     }
+
+    /**
+     * The subscription handed to the actual subscriber of a paced entry. Requests and terminal signals
+     * of the upstream are held until the wait elapses, and cancelling during the wait exits the entry.
+     */
+    private final class PacedSubscription implements Subscription {
+
+        private long requested;
+        private Runnable terminal;
+        private boolean released;
+        private boolean cancelled;
+        private Disposable delay;
+
+        void start(long waitMs) {
+            Disposable d = Mono.delay(Duration.ofMillis(waitMs)).subscribe(v -> release(), e -> release());
+            synchronized (this) {
+                if (!cancelled) {
+                    this.delay = d;
+                    return;
+                }
+            }
+            d.dispose();
+        }
+
+        /**
+         * @return true if the terminal signal is held until the wait elapses
+         */
+        synchronized boolean holdTerminal(Runnable signal) {
+            if (released || cancelled) {
+                return false;
+            }
+            this.terminal = signal;
+            return true;
+        }
+
+        private void release() {
+            long n;
+            Runnable t;
+            synchronized (this) {
+                if (cancelled || released) {
+                    return;
+                }
+                released = true;
+                n = requested;
+                t = terminal;
+                terminal = null;
+            }
+            if (t != null) {
+                t.run();
+            } else if (n > 0) {
+                SentinelReactorSubscriber.this.request(n);
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (!Operators.validate(n)) {
+                return;
+            }
+            synchronized (this) {
+                if (!released) {
+                    requested = Operators.addCap(requested, n);
+                    return;
+                }
+            }
+            SentinelReactorSubscriber.this.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            Disposable d;
+            synchronized (this) {
+                cancelled = true;
+                terminal = null;
+                d = delay;
+            }
+            if (d != null) {
+                d.dispose();
+            }
+            SentinelReactorSubscriber.this.cancel();
+            // The upstream may have terminated during the wait, in which case cancel() won't exit the entry.
+            tryCompleteEntry();
+        }
+    }
 }
@@ -9,6 +9,7 @@ import com.alibaba.csp.sentinel.EntryType;
 import com.alibaba.csp.sentinel.node.ClusterNode;
 import com.alibaba.csp.sentinel.node.EntranceNode;
 import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
 import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
 import com.alibaba.csp.sentinel.slots.clusterbuilder.ClusterBuilderSlot;
@@ -184,6 +185,87 @@ public class MonoSentinelOperatorIntegrationTest {
         FlowRuleManager.loadRules(new ArrayList<>());
     }
 
+    @Test
+    public void testPacedRequestDelayedWithoutBlocking() {
+        String resourceName = createResourceName("testPacedRequestDelayedWithoutBlocking");
+        FlowRuleManager.loadRules(Collections.singletonList(
+            new FlowRule(resourceName).setCount(1)
+                .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER)
+                .setMaxQueueingTimeMs(2000)
+        ));
+        StepVerifier.create(Mono.just(1).transform(new SentinelReactorTransformer<>(resourceName)))
+            .expectNext(1)
+            .verifyComplete();
+
+        // The second request should wait for about 1s, which is delayed by the scheduler
+        // rather than blocking the subscribing thread.
+        long start = System.currentTimeMillis();
+        Mono<Integer> paced = Mono.just(2).transform(new SentinelReactorTransformer<>(resourceName)).cache();
+        paced.subscribe();
+        assertTrue(System.currentTimeMillis() - start < 500);
+        StepVerifier.create(paced)
+            .expectNext(2)
+            .verifyComplete();
+
+        ClusterNode cn = ClusterBuilderSlot.getClusterNode(resourceName);
+        assertNotNull(cn);
+        assertEquals(0, cn.blockRequest());
+        FlowRuleManager.loadRules(new ArrayList<>());
+    }
+
+    @Test
+    public void testPacedEmptyAndErrorSignalAfterSubscribe() {
+        String resourceName = createResourceName("testPacedEmptyAndErrorSignalAfterSubscribe");
+        FlowRuleManager.loadRules(Collections.singletonList(
+            new FlowRule(resourceName).setCount(5)
+                .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER)
+                .setMaxQueueingTimeMs(2000)
+        ));
+        StepVerifier.create(Mono.just(1).transform(new SentinelReactorTransformer<>(resourceName)))
+            .expectNext(1)
+            .verifyComplete();
+
+        // The source terminates at once, but the signal should follow onSubscribe after the wait.
+        long start = System.currentTimeMillis();
+        StepVerifier.create(Mono.<Integer>empty().transform(new SentinelReactorTransformer<>(resourceName)))
+            .expectSubscription()
+            .verifyComplete();
+        StepVerifier.create(Mono.<Integer>error(new IllegalStateException("test"))
+            .transform(new SentinelReactorTransformer<>(resourceName)))
+            .expectSubscription()
+            .verifyError(IllegalStateException.class);
+        assertTrue(System.currentTimeMillis() - start >= 300);
+
+        ClusterNode cn = ClusterBuilderSlot.getClusterNode(resourceName);
+        assertNotNull(cn);
+        assertEquals(0, cn.blockRequest());
+        assertEquals(0, cn.curThreadNum());
+        FlowRuleManager.loadRules(new ArrayList<>());
+    }
+
+    @Test
+    public void testCancelDuringPacingExitsEntry() {
+        String resourceName = createResourceName("testCancelDuringPacingExitsEntry");
+        FlowRuleManager.loadRules(Collections.singletonList(
+            new FlowRule(resourceName).setCount(1)
+                .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER)
+                .setMaxQueueingTimeMs(2000)
+        ));
+        StepVerifier.create(Mono.just(1).transform(new SentinelReactorTransformer<>(resourceName)))
+            .expectNext(1)
+            .verifyComplete();
+
+        StepVerifier.create(Mono.just(2).transform(new SentinelReactorTransformer<>(resourceName)))
+            .expectSubscription()
+            .thenCancel()
+            .verify();
+
+        ClusterNode cn = ClusterBuilderSlot.getClusterNode(resourceName);
+        assertNotNull(cn);
+        assertEquals(0, cn.curThreadNum());
+        FlowRuleManager.loadRules(new ArrayList<>());
+    }
+
     private String createResourceName(String resourceName) {
         return "reactor_test_mono_" + resourceName;
     }
@@ -0,0 +1,125 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.ArrayDeque;
+import java.util.PriorityQueue;
+import java.util.Queue;
+
+import com.alibaba.csp.sentinel.node.StatisticNode;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.AdaptiveConcurrencyController;
+import com.alibaba.csp.sentinel.util.Clock;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+/**
+ * <p>Simulation of the {@link AdaptiveConcurrencyController} in front of a service with limited capacity,
+ * showing how the concurrency limit converges when the load and the capacity change.</p>
+ *
+ * <p>The service handles at most {@code capacity} requests in parallel, each taking {@code serviceMs},
+ * and queues the others. The simulation runs on a virtual clock (1ms per step) against a real
+ * {@link StatisticNode}, and prints the limit, the in-flight count and the response time every second.
+ * An ideal limit is slightly above the capacity: enough to keep the service busy, without a long queue.</p>
+ *
+ * <p>Run with {@code java -cp target/benchmarks.jar com.alibaba.csp.sentinel.benchmark.AdaptiveConcurrencySimulation}.</p>
+ */
+public class AdaptiveConcurrencySimulation {
+
+    /**
+     * Phases of the simulation: {duration in seconds, arrivals per ms, capacity, service time in ms}.
+     */
+    private static final int[][] PHASES = {
+        // Moderate load, below the capacity.
+        {20, 5, 50, 5},
+        // Overload.
+        {30, 20, 50, 5},
+        // The service gets slower and has less capacity (e.g. after deploy).
+        {30, 20, 20, 10},
+        // Scale out.
+        {30, 20, 80, 5},
+    };
+
+    private long now = 1000000L;
+    private final StatisticNode node = new StatisticNode();
+    private final AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(1000);
+
+    /**
+     * Arrival time of the queued requests.
+     */
+    private final Queue<Long> waiting = new ArrayDeque<>();
+    /**
+     * Completion time and arrival time of the running requests.
+     */
+    private final PriorityQueue<long[]> running = new PriorityQueue<>(16, (a, b) -> Long.compare(a[0], b[0]));
+
+    private long blocked;
+
+    public static void main(String[] args) {
+        new AdaptiveConcurrencySimulation().run();
+    }
+
+    private void run() {
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+        });
+        try {
+            System.out.printf("%6s %8s %8s %6s %8s %8s %8s %10s%n", "second", "capacity", "limit", "inflight",
+                "avgRt", "minRt", "passQps", "blockQps");
+            int second = 0;
+            for (int[] phase : PHASES) {
+                for (int s = 0; s < phase[0]; s++) {
+                    long blockedBefore = blocked;
+                    for (int ms = 0; ms < 1000; ms++) {
+                        step(phase[1], phase[2], phase[3]);
+                    }
+                    second++;
+                    System.out.printf("%6d %8d %8d %6d %8.1f %8.1f %8.0f %10d%n", second, phase[2],
+                        controller.getLimit(), node.curThreadNum(), node.avgRt(), node.minRt(), node.passQps(),
+                        blocked - blockedBefore);
+                }
+            }
+        } finally {
+            TimeUtil.resetClock();
+        }
+    }
+
+    private void step(int arrivals, int capacity, int serviceMs) {
+        now++;
+        // Complete the finished requests.
+        while (!running.isEmpty() && running.peek()[0] <= now) {
+            long[] request = running.poll();
+            node.addRtAndSuccess(now - request[1], 1);
+            node.decreaseThreadNum();
+        }
+        // Accept new requests.
+        for (int i = 0; i < arrivals; i++) {
+            if (controller.canPass(node, 1)) {
+                node.increaseThreadNum();
+                node.addPassRequest(1);
+                waiting.add(now);
+            } else {
+                node.increaseBlockQps(1);
+                blocked++;
+            }
+        }
+        // Start the queued requests when the service has capacity.
+        while (running.size() < capacity && !waiting.isEmpty()) {
+            running.add(new long[] {now + serviceMs, waiting.poll()});
+        }
+    }
+}
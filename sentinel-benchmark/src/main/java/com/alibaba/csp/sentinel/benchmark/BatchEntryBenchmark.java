@@ -0,0 +1,143 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.BatchEntry;
+import com.alibaba.csp.sentinel.Entry;
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.ResourceHandle;
+import com.alibaba.csp.sentinel.SphU;
+import com.alibaba.csp.sentinel.slots.block.BlockException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for entering many resources per request (fan-out), comparing sequential entries
+ * with {@link SphU#entryBatch(String[])}.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BatchEntryBenchmark {
+
+    @Param({"20", "50"})
+    private int resourceCount;
+
+    private String[] names;
+    private ResourceHandle[] handles;
+
+    @Setup
+    public void prepare() {
+        names = new String[resourceCount];
+        handles = new ResourceHandle[resourceCount];
+        for (int i = 0; i < resourceCount; i++) {
+            names[i] = "benchmark-downstream-" + i;
+            handles[i] = SphU.resource(names[i], EntryType.OUT);
+        }
+    }
+
+    private void doSequentialEntries() {
+        Entry[] entries = new Entry[resourceCount];
+        int i = 0;
+        try {
+            for (; i < resourceCount; i++) {
+                entries[i] = SphU.entry(names[i]);
+            }
+        } catch (BlockException ex) {
+            // Ignore.
+        } finally {
+            for (int j = i - 1; j >= 0; j--) {
+                entries[j].exit();
+            }
+        }
+    }
+
+    private void doBatchEntry() {
+        BatchEntry entry = null;
+        try {
+            entry = SphU.entryBatch(names);
+        } catch (BlockException ex) {
+            // Ignore.
+        } finally {
+            if (entry != null) {
+                entry.exit();
+            }
+        }
+    }
+
+    private void doBatchHandleEntry() {
+        BatchEntry entry = null;
+        try {
+            entry = SphU.entryBatch(handles);
+        } catch (BlockException ex) {
+            // Ignore.
+        } finally {
+            if (entry != null) {
+                entry.exit();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void testSequentialEntries() {
+        doSequentialEntries();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void testBatchEntry() {
+        doBatchEntry();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void testBatchHandleEntry() {
+        doBatchHandleEntry();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void testSequentialEntries8Threads() {
+        doSequentialEntries();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void testBatchEntry8Threads() {
+        doBatchEntry();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void testBatchHandleEntry8Threads() {
+        doBatchHandleEntry();
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.cluster.TokenResult;
+import com.alibaba.csp.sentinel.cluster.TokenResultStatus;
+import com.alibaba.csp.sentinel.cluster.client.ClientConstants;
+import com.alibaba.csp.sentinel.cluster.client.DefaultClusterTokenClient;
+import com.alibaba.csp.sentinel.cluster.client.config.ClusterClientAssignConfig;
+import com.alibaba.csp.sentinel.cluster.client.config.ClusterClientConfig;
+import com.alibaba.csp.sentinel.cluster.client.config.ClusterClientConfigManager;
+import com.alibaba.csp.sentinel.cluster.client.init.DefaultClusterClientInitFunc;
+import com.alibaba.csp.sentinel.cluster.flow.rule.ClusterFlowRuleManager;
+import com.alibaba.csp.sentinel.cluster.server.ClusterTokenServer;
+import com.alibaba.csp.sentinel.cluster.server.SentinelDefaultTokenServer;
+import com.alibaba.csp.sentinel.cluster.server.config.ClusterServerConfigManager;
+import com.alibaba.csp.sentinel.cluster.server.config.ServerFlowConfig;
+import com.alibaba.csp.sentinel.cluster.server.config.ServerTransportConfig;
+import com.alibaba.csp.sentinel.cluster.server.init.DefaultClusterServerInitFunc;
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.slots.block.ClusterRuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.ClusterFlowConfig;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.util.AppNameUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for the flow token requests of the cluster client against a local token server, which sends
+ * each request in its own frame (batch window 0) or coalesces the concurrent requests into batch frames.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ClusterTokenClientBenchmark {
+
+    private static final int FLOW_COUNT = 4;
+
+    /**
+     * Batch window of the client in milliseconds, 0 for no batching.
+     */
+    @Param({"0", "1"})
+    private int batchWindowMs;
+
+    private ClusterTokenServer tokenServer;
+    private DefaultClusterTokenClient tokenClient;
+
+    @Setup
+    public void prepare() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String namespace = AppNameUtil.getAppName();
+
+        new DefaultClusterServerInitFunc().init();
+        ClusterServerConfigManager.loadGlobalTransportConfig(new ServerTransportConfig()
+            .setPort(port).setIdleSeconds(600));
+        ClusterServerConfigManager.loadGlobalFlowConfig(new ServerFlowConfig().setMaxAllowedQps(Integer.MAX_VALUE));
+        ClusterServerConfigManager.loadServerNamespaceSet(Collections.singleton(namespace));
+        List<FlowRule> rules = new ArrayList<>();
+        for (long flowId = 1; flowId <= FLOW_COUNT; flowId++) {
+            rules.add(new FlowRule("clusterResource-" + flowId)
+                .setCount(Integer.MAX_VALUE)
+                .setClusterMode(true)
+                .setClusterConfig(new ClusterFlowConfig()
+                    .setFlowId(flowId)
+                    .setThresholdType(ClusterRuleConstant.FLOW_THRESHOLD_GLOBAL)));
+        }
+        ClusterFlowRuleManager.loadRules(namespace, rules);
+        tokenServer = new SentinelDefaultTokenServer();
+        tokenServer.start();
+
+        SentinelConfig.setConfig("csp.sentinel.cluster.client.batch.window.ms", String.valueOf(batchWindowMs));
+        new DefaultClusterClientInitFunc().init();
+        ClusterClientConfigManager.applyNewConfig(new ClusterClientConfig().setRequestTimeout(200));
+        ClusterClientConfigManager.applyNewAssignConfig(new ClusterClientAssignConfig("127.0.0.1", port));
+        tokenClient = new DefaultClusterTokenClient();
+        tokenClient.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (tokenClient.getState() != ClientConstants.CLIENT_STATUS_STARTED) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Token client not connected");
+            }
+            Thread.sleep(50);
+        }
+        TokenResult result = tokenClient.requestToken(1L, 1, false);
+        if (result.getStatus() != TokenResultStatus.OK) {
+            throw new IllegalStateException("Unexpected token result: " + result);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        tokenClient.stop();
+        tokenServer.stop();
+    }
+
+    private TokenResult doRequestToken() {
+        long flowId = Thread.currentThread().getId() % FLOW_COUNT + 1;
+        return tokenClient.requestToken(flowId, 1, false);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public TokenResult testRequestToken() {
+        return doRequestToken();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public TokenResult testRequestToken32Threads() {
+        return doRequestToken();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.Constants;
+import com.alibaba.csp.sentinel.Entry;
+import com.alibaba.csp.sentinel.SphU;
+import com.alibaba.csp.sentinel.context.ContextUtil;
+import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * <p>Benchmark for object recycling on the synchronous entry path ({@code csp.sentinel.entry.recycle.enabled}).</p>
+ *
+ * <p>Run with the GC profiler and compare {@code gc.alloc.rate.norm} (bytes allocated per operation):</p>
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar EntryRecycleBenchmark -prof gc
+ * </pre>
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class EntryRecycleBenchmark {
+
+    private static final String PASS_RESOURCE = "benchmark-recycle-pass";
+    private static final String BLOCK_RESOURCE = "benchmark-recycle-block";
+
+    @Param({"false", "true"})
+    private boolean recycle;
+
+    @Setup
+    public void prepare() {
+        Constants.RECYCLE = recycle;
+        FlowRuleManager.loadRules(Collections.singletonList(new FlowRule(BLOCK_RESOURCE).setCount(0)));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void testPassInDefaultContext() {
+        Entry entry = null;
+        try {
+            entry = SphU.entry(PASS_RESOURCE);
+        } catch (BlockException ex) {
+            // Ignore.
+        } finally {
+            if (entry != null) {
+                entry.exit();
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void testPassInCustomContext() {
+        ContextUtil.enter("benchmark-recycle-context");
+        Entry entry = null;
+        try {
+            entry = SphU.entry(PASS_RESOURCE);
+        } catch (BlockException ex) {
+            // Ignore.
+        } finally {
+            if (entry != null) {
+                entry.exit();
+            }
+            ContextUtil.exit();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object testBlocked() {
+        Entry entry = null;
+        try {
+            entry = SphU.entry(BLOCK_RESOURCE);
+            return entry;
+        } catch (BlockException ex) {
+            return ex;
+        } finally {
+            if (entry != null) {
+                entry.exit();
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
+import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowChecker;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParameterMetric;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParameterMetricStorage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for checking a per-user parameter flow rule with many distinct users, comparing the
+ * {@code ConcurrentLinkedHashMapWrapper} counters and the primitive counter store with the rule in sketch mode,
+ * whose memory does not grow with the users. See {@link ParamFlowSketchAccuracySimulation} for the accuracy.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class HotParamCounterStoreBenchmark {
+
+    /**
+     * {@code map} or {@code primitive} counter store, or {@code sketch} mode of the rule.
+     */
+    @Param({"map", "primitive", "sketch"})
+    private String counterStore;
+
+    @Param({"200000", "2000000"})
+    private int userCount;
+
+    private ResourceWrapper resourceWrapper;
+    private ParamFlowRule rule;
+    /**
+     * Boxed in advance, so that only the check is measured.
+     */
+    private Object[][] args;
+
+    @Setup
+    public void prepare() {
+        // Each parameter runs in a forked JVM.
+        boolean sketchMode = "sketch".equals(counterStore);
+        SentinelConfig.setConfig(ParameterMetric.COUNTER_STORE_TYPE,
+            sketchMode ? ParameterMetric.COUNTER_STORE_MAP : counterStore);
+        resourceWrapper = new StringResourceWrapper("hotParamBenchmark", EntryType.IN);
+        rule = new ParamFlowRule(resourceWrapper.getName())
+            .setParamIdx(0)
+            .setCount(100)
+            .setDurationInSec(60)
+            .setSketchMode(sketchMode)
+            .setSketchWidth(1 << 16);
+        ParameterMetricStorage.initParamMetricsFor(resourceWrapper, rule);
+        args = new Object[userCount][];
+        for (int i = 0; i < userCount; i++) {
+            args[i] = new Object[] {(long)i};
+        }
+    }
+
+    private boolean doCheck() {
+        Object[] userArgs = args[ThreadLocalRandom.current().nextInt(userCount)];
+        return ParamFlowChecker.passCheck(resourceWrapper, rule, 1, userArgs);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean testCheck() {
+        return doCheck();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean testCheck8Threads() {
+        return doCheck();
+    }
+}
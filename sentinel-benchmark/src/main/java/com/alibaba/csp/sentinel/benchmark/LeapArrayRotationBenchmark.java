@@ -0,0 +1,93 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.slots.statistic.metric.BucketLeapArray;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for bucket rotation of {@link com.alibaba.csp.sentinel.slots.statistic.base.LeapArray}
+ * when many threads hit the same sliding window and cross the window boundary together.
+ *
+ * <p>The window length is tiny so that the buckets are rotated every few milliseconds, which makes
+ * the boundary-crossing path (rather than the up-to-date path) dominate the result.
+ * Compare the results with larger {@code windowLengthInMs} to see the cost of rotation.</p>
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class LeapArrayRotationBenchmark {
+
+    @Param({"1", "10", "500"})
+    private int windowLengthInMs;
+
+    private BucketLeapArray leapArray;
+
+    @Setup
+    public void prepare() {
+        leapArray = new BucketLeapArray(2, windowLengthInMs * 2);
+    }
+
+    private void passWithCurrentTime() {
+        // Use the real clock rather than TimeUtil, so that all threads observe the boundary at the same moment.
+        leapArray.currentWindow(System.currentTimeMillis()).value().addPass(1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void test1ThreadRotation() {
+        passWithCurrentTime();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void test8ThreadsRotation() {
+        passWithCurrentTime();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void test16ThreadsRotation() {
+        passWithCurrentTime();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void test32ThreadsRotation() {
+        passWithCurrentTime();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void test64ThreadsRotation() {
+        passWithCurrentTime();
+    }
+}
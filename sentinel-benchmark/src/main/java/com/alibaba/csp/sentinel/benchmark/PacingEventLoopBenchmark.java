@@ -0,0 +1,122 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.Entry;
+import com.alibaba.csp.sentinel.NonBlockingPacing;
+import com.alibaba.csp.sentinel.SphU;
+import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for an event loop thread handling requests of a paced (rate limiter) resource,
+ * comparing sleeping in the event loop with deferring the wait to a scheduler via {@link NonBlockingPacing}.
+ * The throughput is the amount of requests the event loop could handle, while the auxiliary counters
+ * show how many of them are passed and rejected.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class PacingEventLoopBenchmark {
+
+    private static final String RESOURCE_NAME = "benchmark-paced-resource";
+
+    @Param({"true", "false"})
+    private boolean blocking;
+
+    private ScheduledExecutorService scheduler;
+
+    @Setup
+    public void prepare() {
+        FlowRule rule = new FlowRule(RESOURCE_NAME).setCount(2000)
+            .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER)
+            .setMaxQueueingTimeMs(100);
+        FlowRuleManager.loadRules(Collections.singletonList(rule));
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long passed;
+        public long blocked;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            passed = 0;
+            blocked = 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void testHandlePacedRequest(Counters counters) {
+        if (!blocking) {
+            NonBlockingPacing.enter();
+        }
+        try {
+            final Entry entry = SphU.asyncEntry(RESOURCE_NAME);
+            counters.passed++;
+            long waitMs = entry.getWaitMs();
+            if (waitMs > 0) {
+                // The invocation is delayed by the scheduler, and the event loop moves on.
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        entry.exit();
+                    }
+                }, waitMs, TimeUnit.MILLISECONDS);
+            } else {
+                entry.exit();
+            }
+        } catch (BlockException ex) {
+            counters.blocked++;
+        } finally {
+            if (!blocking) {
+                NonBlockingPacing.exit();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.Random;
+
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
+import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowChecker;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParameterMetric;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParameterMetricStorage;
+import com.alibaba.csp.sentinel.slots.statistic.cache.SlidingWindowCountMinSketch;
+import com.alibaba.csp.sentinel.util.Clock;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+/**
+ * <p>Simulation of the accuracy of a per-user parameter flow rule (10 QPS per user) under a scan of
+ * many distinct users, comparing the counter maps with the rule in sketch mode of several widths.</p>
+ *
+ * <p>Each second, {@code HEAVY_USERS} users send 50 requests each, which should be limited to 10,
+ * {@code NORMAL_USERS} users send 5 requests each, which should all pass, and a scan sends one request
+ * for each of {@code scanRate} new users. The requests are shuffled and spread over the second on a virtual
+ * clock. The simulation prints the pass rate of the heavy users (ideally 20%) and the block rate of the normal
+ * users (ideally 0%): the counter maps keep at most 4000 users per rule, so the heavy users are evicted by
+ * the scan and pass freely, while the sketch never underestimates, but may block normal users when its width
+ * is too small for the total requests in the window.</p>
+ *
+ * <p>Run with {@code java -cp target/benchmarks.jar com.alibaba.csp.sentinel.benchmark.ParamFlowSketchAccuracySimulation}.</p>
+ */
+public class ParamFlowSketchAccuracySimulation {
+
+    private static final int SECONDS = 10;
+    private static final int HEAVY_USERS = 20;
+    private static final int HEAVY_REQUESTS = 50;
+    private static final int NORMAL_USERS = 200;
+    private static final int NORMAL_REQUESTS = 5;
+    private static final int[] SCAN_RATES = {0, 10000, 100000};
+    private static final int[] SKETCH_WIDTHS = {1 << 10, 1 << 14, 1 << 18};
+
+    private long now = 1000000000L;
+    private int resourceId;
+
+    public static void main(String[] args) {
+        new ParamFlowSketchAccuracySimulation().run();
+    }
+
+    private void run() {
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return now;
+            }
+        });
+        try {
+            System.out.printf("%8s %10s %10s %12s %12s%n", "scanRate", "mode", "memoryKB", "heavyPass%",
+                "normalBlock%");
+            for (int scanRate : SCAN_RATES) {
+                simulate(scanRate, 0);
+                for (int width : SKETCH_WIDTHS) {
+                    simulate(scanRate, width);
+                }
+            }
+        } finally {
+            TimeUtil.resetClock();
+        }
+    }
+
+    /**
+     * @param width width of the sketch, or 0 for the counter maps
+     */
+    private void simulate(int scanRate, int width) {
+        SentinelConfig.setConfig(ParameterMetric.COUNTER_STORE_TYPE, ParameterMetric.COUNTER_STORE_MAP);
+        ResourceWrapper resourceWrapper = new StringResourceWrapper("sketchSimulation" + resourceId++, EntryType.IN);
+        ParamFlowRule rule = new ParamFlowRule(resourceWrapper.getName())
+            .setParamIdx(0)
+            .setCount(10)
+            .setSketchMode(width > 0)
+            .setSketchWidth(Math.max(width, 1));
+        ParameterMetricStorage.initParamMetricsFor(resourceWrapper, rule);
+        SlidingWindowCountMinSketch sketch = ParameterMetricStorage.getParamMetric(resourceWrapper)
+            .getRuleSketch(rule);
+
+        Random random = new Random(17);
+        long scanned = 0;
+        long heavyPassed = 0;
+        long normalBlocked = 0;
+        int heavyTotal = HEAVY_USERS * HEAVY_REQUESTS;
+        int normalTotal = NORMAL_USERS * NORMAL_REQUESTS;
+        long[] requests = new long[heavyTotal + normalTotal + scanRate];
+        for (int s = 0; s < SECONDS; s++) {
+            // Users are encoded by ranges: heavy users, then normal users, then the scanned users.
+            int n = 0;
+            for (int i = 0; i < heavyTotal; i++) {
+                requests[n++] = i % HEAVY_USERS;
+            }
+            for (int i = 0; i < normalTotal; i++) {
+                requests[n++] = HEAVY_USERS + i % NORMAL_USERS;
+            }
+            for (int i = 0; i < scanRate; i++) {
+                requests[n++] = HEAVY_USERS + NORMAL_USERS + scanned++;
+            }
+            shuffle(requests, random);
+
+            long secondStart = now;
+            for (int i = 0; i < requests.length; i++) {
+                now = secondStart + i * 1000L / requests.length;
+                long user = requests[i];
+                boolean pass = ParamFlowChecker.passCheck(resourceWrapper, rule, 1, user);
+                if (user < HEAVY_USERS) {
+                    heavyPassed += pass ? 1 : 0;
+                } else if (user < HEAVY_USERS + NORMAL_USERS) {
+                    normalBlocked += pass ? 0 : 1;
+                }
+            }
+            now = secondStart + 1000;
+        }
+
+        System.out.printf("%8d %10s %10s %12.1f %12.2f%n", scanRate, width > 0 ? "sketch" + width : "map",
+            sketch == null ? "-" : String.valueOf(sketch.memoryBytes() / 1024),
+            100.0 * heavyPassed / (heavyTotal * SECONDS), 100.0 * normalBlocked / (normalTotal * SECONDS));
+    }
+
+    private static void shuffle(long[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+}
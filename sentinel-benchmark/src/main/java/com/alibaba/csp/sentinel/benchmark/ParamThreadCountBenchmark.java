@@ -0,0 +1,110 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParameterMetric;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for the thread count of parameters on entry and exit, i.e. what the statistic callbacks of
+ * the parameter flow do for each passed entry. The resource has a QPS rule on the user (index 0) and
+ * a thread-grade rule on the items (index 1), which is a single value or a collection of values.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ParamThreadCountBenchmark {
+
+    private static final int USER_COUNT = 1000;
+    private static final int ITEM_COUNT = 1000;
+
+    /**
+     * Values in the collection-valued arg, or 0 for a single value.
+     */
+    @Param({"0", "8"})
+    private int collectionSize;
+
+    private ParameterMetric metric;
+    /**
+     * Boxed in advance, so that only the counting is measured.
+     */
+    private Object[][] args;
+
+    @Setup
+    public void prepare() {
+        metric = new ParameterMetric();
+        metric.initialize(new ParamFlowRule("paramThreadCountBenchmark")
+            .setParamIdx(0)
+            .setCount(100));
+        metric.initialize(new ParamFlowRule("paramThreadCountBenchmark")
+            .setGrade(RuleConstant.FLOW_GRADE_THREAD)
+            .setParamIdx(1)
+            .setCount(100));
+
+        args = new Object[USER_COUNT][];
+        for (int i = 0; i < USER_COUNT; i++) {
+            Object items;
+            if (collectionSize == 0) {
+                items = (long)(i % ITEM_COUNT);
+            } else {
+                List<Long> list = new ArrayList<>(collectionSize);
+                for (int j = 0; j < collectionSize; j++) {
+                    list.add((long)((i * 7 + j) % ITEM_COUNT));
+                }
+                items = list;
+            }
+            args[i] = new Object[] {"user-" + i, items};
+        }
+    }
+
+    private void doEntryAndExit() {
+        Object[] entryArgs = args[ThreadLocalRandom.current().nextInt(USER_COUNT)];
+        metric.addThreadCount(entryArgs);
+        metric.decreaseThreadCount(entryArgs);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void testEntryAndExit() {
+        doEntryAndExit();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void testEntryAndExit8Threads() {
+        doEntryAndExit();
+    }
+}
@@ -22,6 +22,8 @@ import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 import com.alibaba.csp.sentinel.Entry;
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.ResourceHandle;
 import com.alibaba.csp.sentinel.SphU;
 import com.alibaba.csp.sentinel.slots.block.BlockException;
 
@@ -52,8 +54,11 @@ public class SentinelEntryBenchmark {
 
     private List<Integer> numbers;
 
+    private ResourceHandle handle;
+
     @Setup
     public void prepare() {
+        handle = SphU.resource("benchmark", EntryType.OUT);
         numbers = new ArrayList<>();
         for (int i = 0; i < length; i++) {
             numbers.add(ThreadLocalRandom.current().nextInt());
@@ -78,6 +83,19 @@ public class SentinelEntryBenchmark {
         }
     }
 
+    private void doSomethingWithHandleEntry() {
+        Entry e0 = null;
+        try {
+            e0 = handle.entry();
+            doSomething();
+        } catch (BlockException e) {
+        } finally {
+            if (e0 != null) {
+                e0.exit();
+            }
+        }
+    }
+
     @Benchmark
     @Threads(1)
     public void testSingleThreadDirectly() {
@@ -137,4 +155,28 @@ public class SentinelEntryBenchmark {
     public void test16ThreadsSingleEntry() {
         doSomethingWithEntry();
     }
+
+    @Benchmark
+    @Threads(1)
+    public void testSingleThreadHandleEntry() {
+        doSomethingWithHandleEntry();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void test4ThreadsHandleEntry() {
+        doSomethingWithHandleEntry();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void test8ThreadsHandleEntry() {
+        doSomethingWithHandleEntry();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void test16ThreadsHandleEntry() {
+        doSomethingWithHandleEntry();
+    }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.node.StatisticNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for recording statistics of a single hot resource from many threads,
+ * comparing the plain {@link StatisticNode} with the sharded one.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ShardedStatisticNodeBenchmark {
+
+    @Param({"false", "true"})
+    private boolean sharded;
+
+    private StatisticNode node;
+
+    @Setup
+    public void prepare() {
+        // Disable the automatic sharding so that the plain node stays plain under high concurrency.
+        // Each parameter runs in a forked JVM, so this takes effect before StatisticNode is initialized.
+        SentinelConfig.setConfig(SentinelConfig.STATISTIC_SHARD_THREAD_THRESHOLD, "0");
+        node = new StatisticNode();
+        if (sharded) {
+            node.enableSharding();
+        }
+    }
+
+    private void doRecord() {
+        node.increaseThreadNum();
+        node.addPassRequest(1);
+        node.addRtAndSuccess(5, 1);
+        node.decreaseThreadNum();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void testRecord8Threads() {
+        doRecord();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void testRecord16Threads() {
+        doRecord();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public void testRecord32Threads() {
+        doRecord();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void testRecord64Threads() {
+        doRecord();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double testReadPassQpsAndAvgRt() {
+        return node.passQps() + node.avgRt();
+    }
+}
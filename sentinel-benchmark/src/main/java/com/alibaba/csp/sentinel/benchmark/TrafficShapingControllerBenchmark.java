@@ -0,0 +1,119 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.node.StatisticNode;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.TrafficShapingController;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.DefaultController;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.TokenBucket;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.TokenBucketController;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.WarmUpController;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for the decision cost of traffic shaping controllers, comparing the token bucket (with and
+ * without a parent bucket) with the existing window-based controllers. The thresholds are large enough
+ * so that most requests pass, and the rate limiter is left out as it sleeps to pace requests.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class TrafficShapingControllerBenchmark {
+
+    private static final double COUNT = 1e9;
+
+    private StatisticNode node;
+    private TrafficShapingController defaultController;
+    private TrafficShapingController warmUpController;
+    private TrafficShapingController tokenBucketController;
+    private TrafficShapingController nestedTokenBucketController;
+
+    @Setup
+    public void prepare() {
+        node = new StatisticNode();
+        defaultController = new DefaultController(COUNT, RuleConstant.FLOW_GRADE_QPS);
+        warmUpController = new WarmUpController(COUNT, 10, 3);
+        tokenBucketController = new TokenBucketController(COUNT, TokenBucket.MAX_CAPACITY);
+        TokenBucket tenant = new TokenBucket(COUNT, TokenBucket.MAX_CAPACITY);
+        nestedTokenBucketController = new TokenBucketController(COUNT, TokenBucket.MAX_CAPACITY, tenant);
+    }
+
+    private boolean doCheck(TrafficShapingController controller) {
+        boolean pass = controller.canPass(node, 1);
+        if (pass) {
+            // Window-based controllers read the pass QPS recorded by the statistic slot.
+            node.addPassRequest(1);
+        }
+        return pass;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean testDefaultController() {
+        return doCheck(defaultController);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean testWarmUpController() {
+        return doCheck(warmUpController);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean testTokenBucketController() {
+        return doCheck(tokenBucketController);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean testNestedTokenBucketController() {
+        return doCheck(nestedTokenBucketController);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean testDefaultController8Threads() {
+        return doCheck(defaultController);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean testTokenBucketController8Threads() {
+        return doCheck(tokenBucketController);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean testNestedTokenBucketController8Threads() {
+        return doCheck(nestedTokenBucketController);
+    }
+}
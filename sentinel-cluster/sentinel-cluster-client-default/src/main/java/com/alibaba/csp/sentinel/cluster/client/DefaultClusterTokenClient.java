@@ -26,6 +26,7 @@ import com.alibaba.csp.sentinel.cluster.TokenResultStatus;
 import com.alibaba.csp.sentinel.cluster.TokenServerDescriptor;
 import com.alibaba.csp.sentinel.cluster.client.config.ClusterClientAssignConfig;
 import com.alibaba.csp.sentinel.cluster.client.config.ClusterClientConfigManager;
+import com.alibaba.csp.sentinel.cluster.client.config.ClusterClientStartUpConfig;
 import com.alibaba.csp.sentinel.cluster.client.config.ServerChangeObserver;
 import com.alibaba.csp.sentinel.cluster.log.ClusterClientStatLogUtil;
 import com.alibaba.csp.sentinel.cluster.request.ClusterRequest;
@@ -35,6 +36,7 @@ import com.alibaba.csp.sentinel.cluster.response.ClusterResponse;
 import com.alibaba.csp.sentinel.cluster.response.data.FlowTokenResponseData;
 import com.alibaba.csp.sentinel.log.RecordLog;
 import com.alibaba.csp.sentinel.util.StringUtil;
+import com.alibaba.csp.sentinel.util.function.Supplier;
 
 /**
  * Default implementation of {@link ClusterTokenClient}.
@@ -46,6 +48,10 @@ public class DefaultClusterTokenClient implements ClusterTokenClient {
 
     private ClusterTransportClient transportClient;
     private TokenServerDescriptor serverDescriptor;
+    /**
+     * Batcher of the flow token requests, or null if batching is disabled.
+     */
+    private final FlowTokenBatcher batcher;
 
     private final AtomicBoolean shouldStart = new AtomicBoolean(false);
 
@@ -56,9 +62,26 @@ public class DefaultClusterTokenClient implements ClusterTokenClient {
                 changeServer(assignConfig);
             }
         });
+        this.batcher = createBatcherIfEnabled();
         initNewConnection();
     }
 
+    private FlowTokenBatcher createBatcherIfEnabled() {
+        int batchWindowMs = ClusterClientStartUpConfig.getBatchWindowMs();
+        if (batchWindowMs <= 0) {
+            return null;
+        }
+        int batchMaxSize = ClusterClientStartUpConfig.getBatchMaxSize();
+        RecordLog.info("[DefaultClusterTokenClient] Flow token requests will be sent in batch (window: {} ms, "
+            + "max size: {})", batchWindowMs, batchMaxSize);
+        return new FlowTokenBatcher(batchWindowMs, batchMaxSize, new Supplier<ClusterTransportClient>() {
+            @Override
+            public ClusterTransportClient get() {
+                return transportClient;
+            }
+        });
+    }
+
     private boolean serverEqual(TokenServerDescriptor descriptor, ClusterClientAssignConfig config) {
         if (descriptor == null || config == null) {
             return false;
@@ -96,6 +119,10 @@ public class DefaultClusterTokenClient implements ClusterTokenClient {
             // Replace with new, even if the new client is not ready.
             this.transportClient = new NettyTransportClient(config.getServerHost(), config.getServerPort());
             this.serverDescriptor = new TokenServerDescriptor(config.getServerHost(), config.getServerPort());
+            if (batcher != null) {
+                // The new server may support the batch frames.
+                batcher.resetBatchSupport();
+            }
             startClientIfScheduled();
             RecordLog.info("[DefaultClusterTokenClient] New client created: {}", serverDescriptor);
         } catch (Exception ex) {
@@ -151,6 +178,14 @@ public class DefaultClusterTokenClient implements ClusterTokenClient {
         if (notValidRequest(flowId, acquireCount)) {
             return badRequest();
         }
+        if (batcher != null) {
+            TokenResult result = batcher.requestToken(flowId, acquireCount, prioritized);
+            if (result != null) {
+                logForResult(result);
+                return result;
+            }
+            // The token server does not support the batch frames.
+        }
         FlowRequestData data = new FlowRequestData().setCount(acquireCount)
             .setFlowId(flowId).setPriority(prioritized);
         ClusterRequest<FlowRequestData> request = new ClusterRequest<>(ClusterConstants.MSG_TYPE_FLOW, data);
@@ -0,0 +1,285 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.cluster.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.alibaba.csp.sentinel.cluster.ClusterConstants;
+import com.alibaba.csp.sentinel.cluster.ClusterErrorMessages;
+import com.alibaba.csp.sentinel.cluster.ClusterTransportClient;
+import com.alibaba.csp.sentinel.cluster.TokenResult;
+import com.alibaba.csp.sentinel.cluster.TokenResultStatus;
+import com.alibaba.csp.sentinel.cluster.client.config.ClusterClientConfigManager;
+import com.alibaba.csp.sentinel.cluster.log.ClusterClientStatLogUtil;
+import com.alibaba.csp.sentinel.cluster.request.ClusterRequest;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowBatchRequestData;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowRequestData;
+import com.alibaba.csp.sentinel.cluster.response.ClusterResponse;
+import com.alibaba.csp.sentinel.cluster.response.data.FlowBatchTokenResponseData;
+import com.alibaba.csp.sentinel.log.RecordLog;
+import com.alibaba.csp.sentinel.util.AssertUtil;
+import com.alibaba.csp.sentinel.util.function.Supplier;
+
+/**
+ * <p>Coalesces the flow token requests of concurrent callers into batch frames
+ * ({@link ClusterConstants#MSG_TYPE_FLOW_BATCH}).</p>
+ *
+ * <p>A request is sent at once if there isn't any batch frame in flight, so a lone caller does not wait.
+ * Otherwise it joins the batch that is collecting requests. The collecting batch is sent when the batch
+ * frame in flight completes, when it's full, or at the end of the batch window since its first request,
+ * whichever comes first. The results in the response are fanned out to the callers in the batch.
+ * So there is only one frame and one pending response for each batch rather than for each request.
+ * Requests in the frame are grouped by the flow ID.</p>
+ *
+ * <p>If the token server rejects the batch frames (e.g. a server that predates them), the batcher is disabled
+ * until the server changes, and requests are sent in single frames by the caller.</p>
+ *
+ * @since 1.8.2
+ */
+final class FlowTokenBatcher {
+
+    private static final Comparator<PendingRequest> FLOW_ID_COMPARATOR = new Comparator<PendingRequest>() {
+        @Override
+        public int compare(PendingRequest o1, PendingRequest o2) {
+            return Long.compare(o1.data.getFlowId(), o2.data.getFlowId());
+        }
+    };
+
+    private final int batchWindowMs;
+    private final int batchMaxSize;
+    private final Supplier<ClusterTransportClient> transportClientSupplier;
+
+    private final Object lock = new Object();
+    /**
+     * The batch that is collecting requests, or null if there isn't any.
+     */
+    private Batch currentBatch;
+    private int inFlightBatches;
+    /**
+     * Whether the batch frames are rejected by current token server.
+     */
+    private final AtomicBoolean batchUnsupported = new AtomicBoolean(false);
+
+    FlowTokenBatcher(int batchWindowMs, int batchMaxSize, Supplier<ClusterTransportClient> transportClientSupplier) {
+        AssertUtil.isTrue(batchWindowMs > 0, "batchWindowMs should be positive");
+        AssertUtil.isTrue(batchMaxSize > 0 && batchMaxSize <= ClusterConstants.MAX_FLOW_BATCH_SIZE,
+            "batchMaxSize should be in (0, " + ClusterConstants.MAX_FLOW_BATCH_SIZE + "]");
+        AssertUtil.notNull(transportClientSupplier, "transportClientSupplier cannot be null");
+        this.batchWindowMs = batchWindowMs;
+        this.batchMaxSize = batchMaxSize;
+        this.transportClientSupplier = transportClientSupplier;
+    }
+
+    /**
+     * Request tokens in a batch frame.
+     *
+     * @return the token result, or null if the request should be sent in a single frame
+     */
+    TokenResult requestToken(long flowId, int acquireCount, boolean prioritized) {
+        if (batchUnsupported.get()) {
+            return null;
+        }
+        PendingRequest pending = new PendingRequest(new FlowRequestData().setFlowId(flowId)
+            .setCount(acquireCount).setPriority(prioritized));
+        Batch batch;
+        boolean first = false;
+        boolean sendNow = false;
+        synchronized (lock) {
+            batch = currentBatch;
+            if (batch == null) {
+                batch = new Batch(batchMaxSize);
+                if (inFlightBatches == 0) {
+                    sendNow = true;
+                } else {
+                    first = true;
+                    currentBatch = batch;
+                }
+            }
+            batch.requests.add(pending);
+            if (!sendNow && batch.requests.size() >= batchMaxSize) {
+                currentBatch = null;
+                sendNow = true;
+            }
+            if (sendNow) {
+                inFlightBatches++;
+            }
+        }
+
+        if (sendNow) {
+            send(batch);
+        } else if (first) {
+            // Wait until the batch frame in flight completes or the window ends,
+            // then send the batch unless it's filled up and sent by others.
+            batch.await(batchWindowMs);
+            if (detach(batch)) {
+                send(batch);
+            }
+        }
+        if (!pending.await(batchWindowMs + ClusterClientConfigManager.getRequestTimeout())) {
+            ClusterClientStatLogUtil.log(ClusterErrorMessages.REQUEST_TIME_OUT);
+            return new TokenResult(TokenResultStatus.FAIL);
+        }
+        return pending.result;
+    }
+
+    /**
+     * Enable the batch frames again, e.g. after the token server changes.
+     */
+    void resetBatchSupport() {
+        batchUnsupported.set(false);
+    }
+
+    boolean isBatchSupported() {
+        return !batchUnsupported.get();
+    }
+
+    private boolean detach(Batch batch) {
+        synchronized (lock) {
+            if (currentBatch != batch) {
+                return false;
+            }
+            currentBatch = null;
+            inFlightBatches++;
+            return true;
+        }
+    }
+
+    private void send(Batch batch) {
+        // The first request of the batch doesn't need to wait any longer.
+        batch.signal();
+        try {
+            doSend(batch.requests);
+        } finally {
+            Batch next;
+            synchronized (lock) {
+                inFlightBatches--;
+                next = currentBatch;
+            }
+            if (next != null) {
+                // Wake up the first request of the collecting batch to send it.
+                next.signal();
+            }
+        }
+    }
+
+    private void doSend(List<PendingRequest> batch) {
+        // Requests of the same flow ID should be adjacent, so that the flow ID is written once in the frame.
+        Collections.sort(batch, FLOW_ID_COMPARATOR);
+        List<FlowRequestData> requests = new ArrayList<>(batch.size());
+        for (PendingRequest pending : batch) {
+            requests.add(pending.data);
+        }
+        ClusterTransportClient transportClient = transportClientSupplier.get();
+        if (transportClient == null) {
+            RecordLog.warn("[FlowTokenBatcher] Client not created, please check your config for cluster client");
+            completeAll(batch, TokenResultStatus.FAIL);
+            return;
+        }
+        try {
+            ClusterResponse<?> response = transportClient.sendRequest(new ClusterRequest<>(
+                ClusterConstants.MSG_TYPE_FLOW_BATCH, new FlowBatchRequestData().setRequests(requests)));
+            List<TokenResult> results = null;
+            if (response.getStatus() == ClusterConstants.RESPONSE_STATUS_OK
+                && response.getData() instanceof FlowBatchTokenResponseData) {
+                results = ((FlowBatchTokenResponseData)response.getData()).getResults();
+            }
+            if (results == null || results.size() != batch.size()) {
+                // The server may not support the batch frames, so let the callers send single frames instead.
+                if (batchUnsupported.compareAndSet(false, true)) {
+                    RecordLog.warn("[FlowTokenBatcher] Unexpected response for the batch frame: {}, "
+                        + "falling back to single flow frames", response);
+                }
+                fallBackToSingleFrames(batch);
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).complete(results.get(i));
+            }
+        } catch (Exception ex) {
+            ClusterClientStatLogUtil.log(ex.getMessage());
+            completeAll(batch, TokenResultStatus.FAIL);
+        }
+    }
+
+    private static void completeAll(List<PendingRequest> batch, int status) {
+        for (PendingRequest pending : batch) {
+            pending.complete(new TokenResult(status));
+        }
+    }
+
+    private static void fallBackToSingleFrames(List<PendingRequest> batch) {
+        // A null result tells the caller to send the request in a single frame.
+        for (PendingRequest pending : batch) {
+            pending.complete(null);
+        }
+    }
+
+    private static final class Batch {
+
+        private final List<PendingRequest> requests;
+        private final CountDownLatch sendSignal = new CountDownLatch(1);
+
+        Batch(int maxSize) {
+            this.requests = new ArrayList<>(maxSize);
+        }
+
+        void signal() {
+            sendSignal.countDown();
+        }
+
+        void await(long timeoutMs) {
+            try {
+                sendSignal.await(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static final class PendingRequest {
+
+        private final FlowRequestData data;
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private volatile TokenResult result;
+
+        PendingRequest(FlowRequestData data) {
+            this.data = data;
+        }
+
+        void complete(TokenResult result) {
+            this.result = result;
+            latch.countDown();
+        }
+
+        /**
+         * @return true if the result is ready
+         */
+        boolean await(long timeoutMs) {
+            try {
+                return latch.await(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return latch.getCount() == 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.cluster.client.codec.data;
+
+import java.util.List;
+
+import com.alibaba.csp.sentinel.cluster.codec.EntityWriter;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowBatchRequestData;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowRequestData;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * <p>Writer for {@link FlowBatchRequestData}. Adjacent requests of the same flow ID are coalesced
+ * into a group, so the flow ID is only written once for each group. The layout:</p>
+ * <pre>
+ * | group amount (2) | flow ID (8) | request amount (2) | count (4) | priority flag (1) | ... |
+ * </pre>
+ *
+ * @since 1.8.2
+ */
+public class FlowBatchRequestDataWriter implements EntityWriter<FlowBatchRequestData, ByteBuf> {
+
+    @Override
+    public void writeTo(FlowBatchRequestData entity, ByteBuf target) {
+        List<FlowRequestData> requests = entity.getRequests();
+        int groupAmountIndex = target.writerIndex();
+        target.writeShort(0);
+
+        int groups = 0;
+        int i = 0;
+        while (i < requests.size()) {
+            long flowId = requests.get(i).getFlowId();
+            int end = i + 1;
+            while (end < requests.size() && requests.get(end).getFlowId() == flowId) {
+                end++;
+            }
+            target.writeLong(flowId);
+            target.writeShort(end - i);
+            for (; i < end; i++) {
+                FlowRequestData request = requests.get(i);
+                target.writeInt(request.getCount());
+                target.writeBoolean(request.isPriority());
+            }
+            groups++;
+        }
+        target.setShort(groupAmountIndex, groups);
+    }
+}
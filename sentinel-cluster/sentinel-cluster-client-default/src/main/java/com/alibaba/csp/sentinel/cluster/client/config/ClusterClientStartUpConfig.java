@@ -15,6 +15,7 @@
  */
 package com.alibaba.csp.sentinel.cluster.client.config;
 
+import com.alibaba.csp.sentinel.cluster.ClusterConstants;
 import com.alibaba.csp.sentinel.config.SentinelConfig;
 import com.alibaba.csp.sentinel.log.RecordLog;
 
@@ -29,6 +30,8 @@ import com.alibaba.csp.sentinel.log.RecordLog;
 public class ClusterClientStartUpConfig {
 
     private static final String MAX_PARAM_BYTE_SIZE = "csp.sentinel.cluster.max.param.byte.size";
+    private static final String BATCH_WINDOW_MS = "csp.sentinel.cluster.client.batch.window.ms";
+    private static final String BATCH_MAX_SIZE = "csp.sentinel.cluster.client.batch.max.size";
 
     /**
      * Get the max bytes params can be serialized
@@ -45,5 +48,40 @@ public class ClusterClientStartUpConfig {
         }
     }
 
+    /**
+     * Get the window in which the flow token requests are coalesced into a batch frame.
+     *
+     * @return the batch window in milliseconds, 0 if batching is disabled (by default)
+     * @since 1.8.2
+     */
+    public static int getBatchWindowMs() {
+        String batchWindowMs = SentinelConfig.getConfig(BATCH_WINDOW_MS);
+        try {
+            return batchWindowMs == null ? 0 : Math.max(0, Integer.parseInt(batchWindowMs));
+        } catch (Exception ex) {
+            RecordLog.warn("[ClusterClientStartUpConfig] Failed to parse batchWindowMs: " + batchWindowMs);
+            return 0;
+        }
+    }
 
+    /**
+     * Get the max amount of the flow token requests in a batch frame. A batch is sent immediately
+     * once it's full, without waiting for the end of the batch window.
+     *
+     * @return the max batch size, no more than {@link ClusterConstants#MAX_FLOW_BATCH_SIZE}
+     * @since 1.8.2
+     */
+    public static int getBatchMaxSize() {
+        String batchMaxSize = SentinelConfig.getConfig(BATCH_MAX_SIZE);
+        try {
+            if (batchMaxSize == null) {
+                return ClusterConstants.MAX_FLOW_BATCH_SIZE;
+            }
+            int size = Integer.parseInt(batchMaxSize);
+            return size <= 0 ? ClusterConstants.MAX_FLOW_BATCH_SIZE : Math.min(size, ClusterConstants.MAX_FLOW_BATCH_SIZE);
+        } catch (Exception ex) {
+            RecordLog.warn("[ClusterClientStartUpConfig] Failed to parse batchMaxSize: " + batchMaxSize);
+            return ClusterConstants.MAX_FLOW_BATCH_SIZE;
+        }
+    }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.cluster.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alibaba.csp.sentinel.cluster.ClusterConstants;
+import com.alibaba.csp.sentinel.cluster.ClusterTransportClient;
+import com.alibaba.csp.sentinel.cluster.TokenResult;
+import com.alibaba.csp.sentinel.cluster.TokenResultStatus;
+import com.alibaba.csp.sentinel.cluster.request.ClusterRequest;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowBatchRequestData;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowRequestData;
+import com.alibaba.csp.sentinel.cluster.response.ClusterResponse;
+import com.alibaba.csp.sentinel.cluster.response.data.FlowBatchTokenResponseData;
+import com.alibaba.csp.sentinel.util.function.Supplier;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link FlowTokenBatcher}.
+ */
+public class FlowTokenBatcherTest {
+
+    @Test
+    public void testSendLoneRequestAtOnce() {
+        EchoTransportClient transportClient = new EchoTransportClient();
+        FlowTokenBatcher batcher = new FlowTokenBatcher(60 * 1000, 64, supplierOf(transportClient));
+        long start = System.currentTimeMillis();
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, batcher.requestToken(1L, i, false).getRemaining());
+        }
+        // No batch frame in flight, so there is no need to wait for the window.
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(3, transportClient.frameCount.get());
+    }
+
+    @Test
+    public void testCoalesceConcurrentRequests() throws Exception {
+        final EchoTransportClient transportClient = new EchoTransportClient();
+        transportClient.firstFrameGate = new CountDownLatch(1);
+        int threads = 9;
+        final FlowTokenBatcher batcher = new FlowTokenBatcher(60 * 1000, threads, supplierOf(transportClient));
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        // The first frame is in flight until the gate opens, so all the other requests join the same batch.
+        Future<TokenResult> inFlight = pool.submit(() -> batcher.requestToken(1L, 100, false));
+        while (transportClient.frameCount.get() == 0) {
+            Thread.sleep(5);
+        }
+        List<Future<TokenResult>> futures = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            final long flowId = i % 3 + 1;
+            final int count = i + 1;
+            futures.add(pool.submit(() -> batcher.requestToken(flowId, count, false)));
+        }
+        for (int i = 0; i < threads; i++) {
+            TokenResult result = futures.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(TokenResultStatus.OK, (int)result.getStatus());
+            // Each caller gets the result of its own request.
+            assertEquals(i + 1, result.getRemaining());
+        }
+        assertFalse(inFlight.isDone());
+        transportClient.firstFrameGate.countDown();
+        assertEquals(100, inFlight.get(5, TimeUnit.SECONDS).getRemaining());
+        pool.shutdown();
+
+        assertEquals(threads + 1, transportClient.requestCount.get());
+        assertEquals(2, transportClient.frameCount.get());
+    }
+
+    @Test
+    public void testSendImmediatelyWhenFull() throws Exception {
+        final EchoTransportClient transportClient = new EchoTransportClient();
+        transportClient.firstFrameGate = new CountDownLatch(1);
+        final FlowTokenBatcher batcher = new FlowTokenBatcher(60 * 1000, 2, supplierOf(transportClient));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        long start = System.currentTimeMillis();
+        // The first frame is in flight until the gate opens.
+        Future<TokenResult> inFlight = pool.submit(() -> batcher.requestToken(1L, 1, false));
+        while (transportClient.frameCount.get() == 0) {
+            Thread.sleep(5);
+        }
+        Future<TokenResult> collecting = pool.submit(() -> batcher.requestToken(2L, 2, false));
+
+        // Either of the two requests fills up the batch and sends it, without waiting for the window.
+        assertEquals(3, batcher.requestToken(3L, 3, true).getRemaining());
+        assertEquals(2, collecting.get(5, TimeUnit.SECONDS).getRemaining());
+        assertFalse(inFlight.isDone());
+
+        transportClient.firstFrameGate.countDown();
+        assertEquals(1, inFlight.get(5, TimeUnit.SECONDS).getRemaining());
+        assertTrue(System.currentTimeMillis() - start < 5000);
+        assertEquals(2, transportClient.frameCount.get());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFailWithoutValidResponse() {
+        EchoTransportClient transportClient = new EchoTransportClient();
+        transportClient.ready = false;
+        FlowTokenBatcher batcher = new FlowTokenBatcher(1, 64, supplierOf(transportClient));
+        assertEquals(TokenResultStatus.FAIL, (int)batcher.requestToken(1L, 1, false).getStatus());
+        assertTrue(batcher.isBatchSupported());
+
+        batcher = new FlowTokenBatcher(1, 64, supplierOf(null));
+        assertEquals(TokenResultStatus.FAIL, (int)batcher.requestToken(1L, 1, false).getStatus());
+    }
+
+    @Test
+    public void testFallBackWhenBatchUnsupported() {
+        EchoTransportClient transportClient = new EchoTransportClient();
+        transportClient.status = ClusterConstants.RESPONSE_STATUS_BAD;
+        FlowTokenBatcher batcher = new FlowTokenBatcher(1, 64, supplierOf(transportClient));
+        // The caller should send the request in a single frame instead.
+        assertNull(batcher.requestToken(1L, 1, false));
+        assertFalse(batcher.isBatchSupported());
+        // No more batch frames are sent until the server changes.
+        assertNull(batcher.requestToken(1L, 1, false));
+        assertEquals(1, transportClient.frameCount.get());
+
+        transportClient.status = ClusterConstants.RESPONSE_STATUS_OK;
+        batcher.resetBatchSupport();
+        assertEquals(1, batcher.requestToken(1L, 1, false).getRemaining());
+        assertEquals(2, transportClient.frameCount.get());
+    }
+
+    private static Supplier<ClusterTransportClient> supplierOf(final ClusterTransportClient transportClient) {
+        return () -> transportClient;
+    }
+
+    /**
+     * Returns the acquire count of each request as its remaining count.
+     */
+    private static class EchoTransportClient implements ClusterTransportClient {
+
+        private final AtomicInteger frameCount = new AtomicInteger();
+        private final AtomicInteger requestCount = new AtomicInteger();
+        private volatile int status = ClusterConstants.RESPONSE_STATUS_OK;
+        private volatile boolean ready = true;
+        private volatile CountDownLatch firstFrameGate;
+
+        @Override
+        public void start() {}
+
+        @Override
+        public void stop() {}
+
+        @Override
+        public ClusterResponse sendRequest(ClusterRequest request) throws Exception {
+            if (!ready) {
+                throw new IllegalStateException("not ready");
+            }
+            assertEquals(ClusterConstants.MSG_TYPE_FLOW_BATCH, request.getType());
+            List<FlowRequestData> requests = ((FlowBatchRequestData)request.getData()).getRequests();
+            int frame = frameCount.incrementAndGet();
+            requestCount.addAndGet(requests.size());
+            if (frame == 1 && firstFrameGate != null) {
+                firstFrameGate.await();
+            }
+
+            List<TokenResult> results = new ArrayList<>();
+            for (int i = 0; i < requests.size(); i++) {
+                if (i > 0) {
+                    // Grouped by the flow ID.
+                    assertTrue(requests.get(i - 1).getFlowId() <= requests.get(i).getFlowId());
+                }
+                results.add(new TokenResult(TokenResultStatus.OK).setRemaining(requests.get(i).getCount()));
+            }
+            return new ClusterResponse<>(request.getId(), request.getType(), status,
+                new FlowBatchTokenResponseData().setResults(results));
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.cluster.client.codec.data;
+
+import java.util.Arrays;
+
+import com.alibaba.csp.sentinel.cluster.TokenResult;
+import com.alibaba.csp.sentinel.cluster.TokenResultStatus;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowBatchRequestData;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowRequestData;
+import com.alibaba.csp.sentinel.cluster.response.data.FlowBatchTokenResponseData;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link FlowBatchRequestDataWriter} and {@link FlowBatchResponseDataDecoder}.
+ */
+public class FlowBatchDataCodecTest {
+
+    @Test
+    public void testWriteRequestsGroupedByFlowId() {
+        FlowBatchRequestData data = new FlowBatchRequestData().setRequests(Arrays.asList(
+            new FlowRequestData().setFlowId(1L).setCount(1),
+            new FlowRequestData().setFlowId(1L).setCount(2).setPriority(true),
+            new FlowRequestData().setFlowId(2L).setCount(3)
+        ));
+        ByteBuf buf = Unpooled.buffer();
+        new FlowBatchRequestDataWriter().writeTo(data, buf);
+
+        assertEquals(2 + (8 + 2 + 5 * 2) + (8 + 2 + 5), buf.readableBytes());
+        assertEquals(2, buf.readShort());
+        assertEquals(1L, buf.readLong());
+        assertEquals(2, buf.readShort());
+        assertEquals(1, buf.readInt());
+        assertFalse(buf.readBoolean());
+        assertEquals(2, buf.readInt());
+        assertTrue(buf.readBoolean());
+        assertEquals(2L, buf.readLong());
+        assertEquals(1, buf.readShort());
+        assertEquals(3, buf.readInt());
+        assertFalse(buf.readBoolean());
+    }
+
+    @Test
+    public void testDecodeResults() {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeShort(2);
+        buf.writeByte(TokenResultStatus.OK).writeInt(10).writeInt(0);
+        buf.writeByte(TokenResultStatus.SHOULD_WAIT).writeInt(0).writeInt(20);
+
+        FlowBatchTokenResponseData data = new FlowBatchResponseDataDecoder().decode(buf);
+        assertNotNull(data);
+        assertEquals(2, data.getResults().size());
+        TokenResult first = data.getResults().get(0);
+        assertEquals(TokenResultStatus.OK, (int)first.getStatus());
+        assertEquals(10, first.getRemaining());
+        TokenResult second = data.getResults().get(1);
+        assertEquals(TokenResultStatus.SHOULD_WAIT, (int)second.getStatus());
+        assertEquals(20, second.getWaitInMs());
+
+        // Truncated results.
+        buf = Unpooled.buffer();
+        buf.writeShort(2);
+        buf.writeByte(TokenResultStatus.OK).writeInt(10).writeInt(0);
+        assertNull(new FlowBatchResponseDataDecoder().decode(buf));
+    }
+}
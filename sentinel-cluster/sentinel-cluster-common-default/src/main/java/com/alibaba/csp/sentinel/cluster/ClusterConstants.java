@@ -26,6 +26,7 @@ public final class ClusterConstants {
     public static final int MSG_TYPE_PARAM_FLOW = 2;
     public static final int MSG_TYPE_CONCURRENT_FLOW_ACQUIRE = 3;
     public static final int MSG_TYPE_CONCURRENT_FLOW_RELEASE = 4;
+    public static final int MSG_TYPE_FLOW_BATCH = 5;
 
 
     public static final int RESPONSE_STATUS_BAD = -1;
@@ -44,5 +45,11 @@ public final class ClusterConstants {
     public static final int DEFAULT_REQUEST_TIMEOUT = 20;
     public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 10 * 1000;
 
+    /**
+     * Max amount of the token requests in a batch frame, so that both the request and the response
+     * of a full batch fit in a single frame (1024 bytes).
+     */
+    public static final int MAX_FLOW_BATCH_SIZE = 64;
+
     private ClusterConstants() {}
 }
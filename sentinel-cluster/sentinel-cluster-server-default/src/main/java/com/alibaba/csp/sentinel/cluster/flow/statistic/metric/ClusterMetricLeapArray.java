@@ -47,12 +47,17 @@ public class ClusterMetricLeapArray extends LeapArray<ClusterMetricBucket> {
 
     @Override
     protected WindowWrap<ClusterMetricBucket> resetWindowTo(WindowWrap<ClusterMetricBucket> w, long startTime) {
-        w.resetTo(startTime);
         w.value().reset();
-        transferOccupyToBucket(w.value());
+        w.resetTo(startTime);
         return w;
     }
 
+    @Override
+    protected void onWindowRotated(WindowWrap<ClusterMetricBucket> w) {
+        // Only the published bucket takes the occupied counts.
+        transferOccupyToBucket(w.value());
+    }
+
     private void transferOccupyToBucket(/*@Valid*/ ClusterMetricBucket bucket) {
         if (hasOccupied) {
             transferOccupiedCount(bucket, ClusterFlowEvent.PASS, ClusterFlowEvent.OCCUPIED_PASS);
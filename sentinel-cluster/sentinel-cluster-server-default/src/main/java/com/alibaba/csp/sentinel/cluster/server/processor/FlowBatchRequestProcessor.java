@@ -0,0 +1,58 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.cluster.server.processor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.cluster.ClusterConstants;
+import com.alibaba.csp.sentinel.cluster.TokenResult;
+import com.alibaba.csp.sentinel.cluster.TokenService;
+import com.alibaba.csp.sentinel.cluster.annotation.RequestType;
+import com.alibaba.csp.sentinel.cluster.request.ClusterRequest;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowBatchRequestData;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowRequestData;
+import com.alibaba.csp.sentinel.cluster.response.ClusterResponse;
+import com.alibaba.csp.sentinel.cluster.response.data.FlowBatchTokenResponseData;
+import com.alibaba.csp.sentinel.cluster.server.TokenServiceProvider;
+
+/**
+ * Processor for the batch frames of flow token requests. Each request in the batch is checked
+ * in order, and the results are sent back in one frame.
+ *
+ * @since 1.8.2
+ */
+@RequestType(ClusterConstants.MSG_TYPE_FLOW_BATCH)
+public class FlowBatchRequestProcessor implements RequestProcessor<FlowBatchRequestData, FlowBatchTokenResponseData> {
+
+    @Override
+    public ClusterResponse<FlowBatchTokenResponseData> processRequest(ClusterRequest<FlowBatchRequestData> request) {
+        FlowBatchRequestData data = request.getData();
+        if (data == null || data.getRequests() == null || data.getRequests().isEmpty()) {
+            return new ClusterResponse<>(request.getId(), request.getType(), ClusterConstants.RESPONSE_STATUS_BAD,
+                null);
+        }
+        TokenService tokenService = TokenServiceProvider.getService();
+
+        List<TokenResult> results = new ArrayList<>(data.getRequests().size());
+        for (FlowRequestData requestData : data.getRequests()) {
+            results.add(tokenService.requestToken(requestData.getFlowId(), requestData.getCount(),
+                requestData.isPriority()));
+        }
+        return new ClusterResponse<>(request.getId(), request.getType(), ClusterConstants.RESPONSE_STATUS_OK,
+            new FlowBatchTokenResponseData().setResults(results));
+    }
+}
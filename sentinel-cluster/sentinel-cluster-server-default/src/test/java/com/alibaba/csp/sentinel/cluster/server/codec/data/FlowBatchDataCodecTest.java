@@ -0,0 +1,97 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.cluster.server.codec.data;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.cluster.ClusterConstants;
+import com.alibaba.csp.sentinel.cluster.TokenResult;
+import com.alibaba.csp.sentinel.cluster.TokenResultStatus;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowBatchRequestData;
+import com.alibaba.csp.sentinel.cluster.request.data.FlowRequestData;
+import com.alibaba.csp.sentinel.cluster.response.data.FlowBatchTokenResponseData;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link FlowBatchRequestDataDecoder} and {@link FlowBatchResponseDataWriter}.
+ */
+public class FlowBatchDataCodecTest {
+
+    @Test
+    public void testDecodeGroupedRequests() {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeShort(2);
+        buf.writeLong(1L).writeShort(2);
+        buf.writeInt(1).writeBoolean(false);
+        buf.writeInt(2).writeBoolean(true);
+        buf.writeLong(2L).writeShort(1);
+        buf.writeInt(3).writeBoolean(false);
+
+        FlowBatchRequestData data = new FlowBatchRequestDataDecoder().decode(buf);
+        assertNotNull(data);
+        List<FlowRequestData> requests = data.getRequests();
+        assertEquals(3, requests.size());
+        assertEquals(1L, requests.get(1).getFlowId());
+        assertEquals(2, requests.get(1).getCount());
+        assertTrue(requests.get(1).isPriority());
+        assertEquals(2L, requests.get(2).getFlowId());
+        assertEquals(3, requests.get(2).getCount());
+        assertFalse(requests.get(2).isPriority());
+    }
+
+    @Test
+    public void testDecodeBadRequests() {
+        // Truncated group.
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeShort(1);
+        buf.writeLong(1L).writeShort(2);
+        buf.writeInt(1).writeBoolean(false);
+        assertNull(new FlowBatchRequestDataDecoder().decode(buf));
+
+        // Too many requests in the batch.
+        int amount = ClusterConstants.MAX_FLOW_BATCH_SIZE + 1;
+        buf = Unpooled.buffer();
+        buf.writeShort(1);
+        buf.writeLong(1L).writeShort(amount);
+        for (int i = 0; i < amount; i++) {
+            buf.writeInt(1).writeBoolean(false);
+        }
+        assertNull(new FlowBatchRequestDataDecoder().decode(buf));
+    }
+
+    @Test
+    public void testWriteResults() {
+        List<TokenResult> results = Arrays.asList(
+            new TokenResult(TokenResultStatus.OK).setRemaining(10),
+            new TokenResult(TokenResultStatus.BLOCKED).setRemaining(0).setWaitInMs(0)
+        );
+        ByteBuf buf = Unpooled.buffer();
+        new FlowBatchResponseDataWriter().writeTo(new FlowBatchTokenResponseData().setResults(results), buf);
+
+        assertEquals(2 + 9 * 2, buf.readableBytes());
+        assertEquals(2, buf.readShort());
+        assertEquals(TokenResultStatus.OK, buf.readByte());
+        assertEquals(10, buf.readInt());
+        assertEquals(0, buf.readInt());
+        assertEquals(TokenResultStatus.BLOCKED, buf.readByte());
+    }
+}
@@ -33,6 +33,10 @@ public class AsyncEntry extends CtEntry {
 
     AsyncEntry(ResourceWrapper resourceWrapper, ProcessorSlot<Object> chain, Context context) {
         super(resourceWrapper, chain, context);
+        if (parent instanceof PooledCtEntry) {
+            // The parent is referenced by the async entry even after exiting, so it should not be recycled.
+            ((PooledCtEntry)parent).markAsyncChild();
+        }
     }
 
     /**
@@ -53,7 +57,7 @@ public class AsyncEntry extends CtEntry {
                 }
             } else {
                 String curEntryName = curEntry == null ? "none"
-                    : curEntry.resourceWrapper.getName() + "@" + curEntry.hashCode();
+                    : curEntry.getResourceWrapper().getName() + "@" + curEntry.hashCode();
                 String msg = String.format("Bad async context state, expected entry: %s, but actual: %s",
                     getResourceWrapper().getName() + "@" + hashCode(), curEntryName);
                 throw new IllegalStateException(msg);
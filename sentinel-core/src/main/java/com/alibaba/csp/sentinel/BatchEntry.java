@@ -0,0 +1,118 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel;
+
+/**
+ * <p>A composite entry of several resources acquired together via {@link SphU#entryBatch(String[])}.
+ * Either all resources of the batch pass, or none of them does: if any resource is blocked, the resources
+ * acquired before it will be rolled back (see {@link Entry#isRolledBack()}).</p>
+ *
+ * <p>The rollback is approximate: only the pass and thread count statistics are revoked, and the revoked pass
+ * may fall into a later window than the one it was recorded in. State reserved by the slots is not restored
+ * either (e.g. tokens of hot parameter rules). Resources having cluster or traffic shaping (rate limiter or
+ * token bucket) flow rules are not rolled back at all, as the acquired tokens or pass time cannot be given
+ * back; their entries are exited as completed ones instead.</p>
+ *
+ * <p>The inner entries are nested in the order of the resources, so they are exited in the reverse order
+ * by {@link #exit()}. Same as {@link Entry}, the batch entry should be exited in the thread that creates it.
+ * The batch drops the inner entries once exited, as they may be recycled and reused by later invocations
+ * (see {@link Constants#RECYCLE}).</p>
+ *
+ * <pre>
+ * BatchEntry entry = null;
+ * try {
+ *     entry = SphU.entryBatch(new String[] {"serviceA", "serviceB", "serviceC"});
+ *     // Call the downstream services.
+ * } catch (BlockException ex) {
+ *     // Handle the rejection.
+ * } finally {
+ *     if (entry != null) {
+ *         entry.exit();
+ *     }
+ * }
+ * </pre>
+ *
+ * @since 1.8.2
+ */
+public class BatchEntry implements AutoCloseable {
+
+    private static final Object[] OBJECTS0 = new Object[0];
+
+    private final Entry[] entries;
+    private final int count;
+
+    private boolean exited = false;
+
+    BatchEntry(Entry[] entries, int count) {
+        this.entries = entries;
+        this.count = count;
+    }
+
+    /**
+     * Exit all entries of the batch in the reverse order of entering.
+     *
+     * @throws ErrorEntryFreeException if the entries in current context do not match the batch
+     */
+    public void exit() throws ErrorEntryFreeException {
+        if (exited) {
+            return;
+        }
+        exited = true;
+        for (int i = entries.length - 1; i >= 0; i--) {
+            Entry entry = entries[i];
+            // The entry may be recycled on exit, so the batch must not hold it any longer.
+            entries[i] = null;
+            entry.exit(count, OBJECTS0);
+        }
+    }
+
+    /**
+     * Equivalent to {@link #exit()}. Support try-with-resources.
+     */
+    @Override
+    public void close() {
+        exit();
+    }
+
+    /**
+     * Set the business error of the batch, which will be recorded for all resources on exit.
+     * Takes no effect once the batch has exited.
+     *
+     * @param error the business error
+     */
+    public void setError(Throwable error) {
+        if (exited) {
+            return;
+        }
+        for (Entry entry : entries) {
+            entry.setError(error);
+        }
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    /**
+     * Get the entry of the resource at given index of the batch.
+     *
+     * @param index index of the resource
+     * @return the entry of the resource, or null if the batch has exited
+     */
+    public Entry getEntry(int index) {
+        return entries[index];
+    }
+}
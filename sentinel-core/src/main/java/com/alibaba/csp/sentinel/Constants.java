@@ -15,6 +15,7 @@
  */
 package com.alibaba.csp.sentinel;
 
+import com.alibaba.csp.sentinel.config.SentinelConfig;
 import com.alibaba.csp.sentinel.node.ClusterNode;
 import com.alibaba.csp.sentinel.node.DefaultNode;
 import com.alibaba.csp.sentinel.node.EntranceNode;
@@ -73,6 +74,13 @@ public final class Constants {
      */
     public static volatile boolean ON = true;
 
+    /**
+     * The switch of object recycling on the synchronous entry path (since 1.8.2).
+     *
+     * @see SentinelConfig#entryRecycleEnabled()
+     */
+    public static volatile boolean RECYCLE = SentinelConfig.entryRecycleEnabled();
+
     /**
      * Order of default processor slots
      */
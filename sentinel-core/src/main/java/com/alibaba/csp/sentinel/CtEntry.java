@@ -49,7 +49,18 @@ class CtEntry extends Entry {
         setUpEntryFor(context);
     }
 
-    private void setUpEntryFor(Context context) {
+    /**
+     * Get an entry for the invocation. In recycling mode (see {@link Constants#RECYCLE}) the entry is taken
+     * from the pool of current thread if possible.
+     */
+    static CtEntry obtain(ResourceWrapper resourceWrapper, ProcessorSlot<Object> chain, Context context) {
+        if (Constants.RECYCLE) {
+            return PooledCtEntry.obtain(resourceWrapper, chain, context);
+        }
+        return new CtEntry(resourceWrapper, chain, context);
+    }
+
+    void setUpEntryFor(Context context) {
         // The entry should not be associated to NullContext.
         if (context instanceof NullContext) {
             return;
@@ -76,7 +87,7 @@ class CtEntry extends Entry {
                     handler.accept(ctx, this);
                 } catch (Exception e) {
                     RecordLog.warn("Error occurred when invoking entry exit handler, current entry: "
-                        + resourceWrapper.getName(), e);
+                        + getResourceWrapper().getName(), e);
                 }
             }
             exitHandlers = null;
@@ -96,17 +107,19 @@ class CtEntry extends Entry {
                 // Clean previous call stack.
                 CtEntry e = (CtEntry) context.getCurEntry();
                 while (e != null) {
+                    // Keep the parent as the entry might be recycled on exit.
+                    CtEntry parent = (CtEntry) e.parent;
                     e.exit(count, args);
-                    e = (CtEntry) e.parent;
+                    e = parent;
                 }
                 String errorMessage = String.format("The order of entry exit can't be paired with the order of entry"
                         + ", current entry in context: <%s>, but expected: <%s>", curEntryNameInContext,
-                    resourceWrapper.getName());
+                    getResourceWrapper().getName());
                 throw new ErrorEntryFreeException(errorMessage);
             } else {
                 // Go through the onExit hook of all slots.
                 if (chain != null) {
-                    chain.exit(context, resourceWrapper, count, args);
+                    chain.exit(context, getResourceWrapper(), count, args);
                 }
                 // Go through the existing terminate handlers (associated to this invocation).
                 callExitHandlersAndCleanUp(context);
@@ -124,6 +137,7 @@ class CtEntry extends Entry {
                 }
                 // Clean the reference of context in current entry to avoid duplicate exit.
                 clearEntryContext();
+                onExited();
             }
         }
     }
@@ -132,6 +146,12 @@ class CtEntry extends Entry {
         this.context = null;
     }
 
+    /**
+     * Called after the entry has been exited from its context.
+     */
+    void onExited() {
+    }
+
     @Override
     public void whenTerminate(BiConsumer<Context, Entry> handler) {
         if (this.exitHandlers == null) {
@@ -142,6 +162,7 @@ class CtEntry extends Entry {
 
     @Override
     protected Entry trueExit(int count, Object... args) throws ErrorEntryFreeException {
+        Entry parent = this.parent;
         exitForContext(context, count, args);
 
         return parent;
@@ -151,4 +172,4 @@ class CtEntry extends Entry {
     public Node getLastNode() {
         return parent == null ? null : parent.getCurNode();
     }
-}
\ No newline at end of file
+}
@@ -16,7 +16,6 @@
 package com.alibaba.csp.sentinel;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
 
 import com.alibaba.csp.sentinel.log.RecordLog;
@@ -30,7 +29,12 @@ import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
 import com.alibaba.csp.sentinel.slotchain.SlotChainProvider;
 import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
 import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
 import com.alibaba.csp.sentinel.slots.block.Rule;
+import com.alibaba.csp.sentinel.util.ConcurrentRegistry;
+import com.alibaba.csp.sentinel.util.function.BiConsumer;
+import com.alibaba.csp.sentinel.util.function.Function;
+import com.alibaba.csp.sentinel.util.function.Predicate;
 
 /**
  * {@inheritDoc}
@@ -48,10 +52,28 @@ public class CtSph implements Sph {
      * Same resource({@link ResourceWrapper#equals(Object)}) will share the same
      * {@link ProcessorSlotChain}, no matter in which {@link Context}.
      */
-    private static volatile Map<ResourceWrapper, ProcessorSlotChain> chainMap
-        = new HashMap<ResourceWrapper, ProcessorSlotChain>();
+    private static final ConcurrentRegistry<ResourceWrapper, ProcessorSlotChain> chainMap
+        = new ConcurrentRegistry<ResourceWrapper, ProcessorSlotChain>(Constants.MAX_SLOT_CHAIN_SIZE);
+
+    private static final Function<ResourceWrapper, ProcessorSlotChain> CHAIN_FACTORY
+        = new Function<ResourceWrapper, ProcessorSlotChain>() {
+            @Override
+            public ProcessorSlotChain apply(ResourceWrapper resourceWrapper) {
+                //为指定的资源初始化一个Chain 责任处理链
+                return SlotChainProvider.newSlotChain();
+            }
+        };
+
+    private static volatile boolean shouldWarnChainSize = true;
 
-    private static final Object LOCK = new Object();
+    static {
+        chainMap.setEvictionListener(new BiConsumer<ResourceWrapper, ProcessorSlotChain>() {
+            @Override
+            public void accept(ResourceWrapper resourceWrapper, ProcessorSlotChain chain) {
+                IdleResourceReclaimer.onChainEvicted(resourceWrapper, chain);
+            }
+        });
+    }
 
     private AsyncEntry asyncEntryWithNoChain(ResourceWrapper resourceWrapper, Context context) {
         AsyncEntry entry = new AsyncEntry(resourceWrapper, null, context);
@@ -116,11 +138,22 @@ public class CtSph implements Sph {
 
     private Entry entryWithPriority(ResourceWrapper resourceWrapper, int count, boolean prioritized, Object... args)
         throws BlockException {
+        return entryWithPriority(resourceWrapper, null, count, prioritized, args);
+    }
+
+    /**
+     * Entry the resource with an optional pre-resolved slot chain (e.g. from a {@link ResourceHandle}).
+     *
+     * @param resourceWrapper resource to enter
+     * @param resolvedChain   the pre-resolved slot chain of the resource, or null to look it up
+     */
+    Entry entryWithPriority(ResourceWrapper resourceWrapper, ProcessorSlot<Object> resolvedChain, int count,
+                            boolean prioritized, Object... args) throws BlockException {
         Context context = ContextUtil.getContext();
         if (context instanceof NullContext) {
             // The {@link NullContext} indicates that the amount of context has exceeded the threshold,
             // so here init the entry only. No rule checking will be done.
-            return new CtEntry(resourceWrapper, null, context);
+            return CtEntry.obtain(resourceWrapper, null, context);
         }
 
         if (context == null) {
@@ -130,20 +163,20 @@ public class CtSph implements Sph {
 
         // Global switch is close, no rule checking will do.
         if (!Constants.ON) {
-            return new CtEntry(resourceWrapper, null, context);
+            return CtEntry.obtain(resourceWrapper, null, context);
         }
         //寻找指定资源的 责任处理链
-        ProcessorSlot<Object> chain = lookProcessChain(resourceWrapper);
+        ProcessorSlot<Object> chain = resolvedChain != null ? resolvedChain : lookProcessChain(resourceWrapper);
 
         /*
          * Means amount of resources (slot chain) exceeds {@link Constants.MAX_SLOT_CHAIN_SIZE},
          * so no rule checking will be done.
          */
         if (chain == null) {
-            return new CtEntry(resourceWrapper, null, context);
+            return CtEntry.obtain(resourceWrapper, null, context);
         }
         //再次封装
-        Entry e = new CtEntry(resourceWrapper, chain, context);
+        Entry e = CtEntry.obtain(resourceWrapper, chain, context);
         try {
           //执行链执行
             chain.entry(context, resourceWrapper, null, count, prioritized, args);
@@ -193,27 +226,28 @@ public class CtSph implements Sph {
      * @return {@link ProcessorSlotChain} of the resource
      */
     ProcessorSlot<Object> lookProcessChain(ResourceWrapper resourceWrapper) {
+        return lookProcessChain(resourceWrapper, false);
+    }
+
+    /**
+     * Get {@link ProcessorSlotChain} of the resource, see {@link #lookProcessChain(ResourceWrapper)}.
+     *
+     * @param resourceWrapper target resource
+     * @param pin             whether the slot chain should never be evicted (e.g. held by a {@link ResourceHandle})
+     * @return {@link ProcessorSlotChain} of the resource
+     */
+    ProcessorSlot<Object> lookProcessChain(ResourceWrapper resourceWrapper, boolean pin) {
         //获取资源的处理类
-        ProcessorSlotChain chain = chainMap.get(resourceWrapper);
+        ProcessorSlotChain chain = chainMap.getOrCreate(resourceWrapper, CHAIN_FACTORY, pin);
         if (chain == null) {
-            synchronized (LOCK) {
-                chain = chainMap.get(resourceWrapper);
-                if (chain == null) {
-                    // Entry size limit.
-                    if (chainMap.size() >= Constants.MAX_SLOT_CHAIN_SIZE) {
-
-                        return null;
-                    }
-                    //为指定的资源初始化一个Chain 责任处理链
-                    chain = SlotChainProvider.newSlotChain();
-                    //新创建一个map并把原来的map数据放入
-                    Map<ResourceWrapper, ProcessorSlotChain> newMap = new HashMap<ResourceWrapper, ProcessorSlotChain>(
-                        chainMap.size() + 1);
-                    newMap.putAll(chainMap);
-                    //保存资源-->与处理链的映射关系
-                    newMap.put(resourceWrapper, chain);
-                    chainMap = newMap;
-                }
+            // When the amount of slot chains reaches the limit, the idlest chains are evicted in the background
+            // to make room for new resources.
+            IdleResourceReclaimer.requestEvictionForNewResources();
+            if (shouldWarnChainSize) {
+                shouldWarnChainSize = false;
+                RecordLog.warn("[CtSph] WARN: Amount of slot chains reaches the threshold "
+                    + Constants.MAX_SLOT_CHAIN_SIZE + ". Entries of new resources will NOT take effect"
+                    + " until idle slot chains are evicted!");
             }
         }
         return chain;
@@ -229,6 +263,33 @@ public class CtSph implements Sph {
         return chainMap.size();
     }
 
+    /**
+     * Evict the slot chains that are not pinned, have been idle for at least given time and are accepted
+     * by the filter.
+     *
+     * @param idleMs idle time in milliseconds
+     * @param filter decides whether an idle slot chain could be evicted
+     * @return amount of evicted slot chains
+     * @since 1.8.2
+     */
+    static int evictIdleChains(long idleMs, Predicate<ResourceWrapper> filter) {
+        return chainMap.evictIdle(idleMs, filter);
+    }
+
+    /**
+     * Evict the least-recently-accessed slot chains that are not pinned, have been idle for at least given time
+     * and are accepted by the filter.
+     *
+     * @param count     max amount of slot chains to evict
+     * @param minIdleMs minimal idle time in milliseconds
+     * @param filter    decides whether an idle slot chain could be evicted
+     * @return amount of evicted slot chains
+     * @since 1.8.2
+     */
+    static int evictEldestChains(int count, long minIdleMs, Predicate<ResourceWrapper> filter) {
+        return chainMap.evictEldest(count, minIdleMs, filter);
+    }
+
     /**
      * Reset the slot chain map. Only for internal test.
      *
@@ -360,4 +421,90 @@ public class CtSph implements Sph {
         StringResourceWrapper resource = new StringResourceWrapper(name, entryType, resourceType);
         return asyncEntryWithPriorityInternal(resource, count, prioritized, args);
     }
+
+    @Override
+    public BatchEntry entryBatch(String[] names, int resourceType, EntryType trafficType, int batchCount)
+        throws BlockException {
+        ResourceWrapper[] resources = new ResourceWrapper[names.length];
+        for (int i = 0; i < names.length; i++) {
+            resources[i] = new StringResourceWrapper(names[i], trafficType, resourceType);
+        }
+        return entryBatch(resources, null, batchCount);
+    }
+
+    @Override
+    public BatchEntry entryBatch(ResourceHandle[] handles, int batchCount) throws BlockException {
+        ResourceWrapper[] resources = new ResourceWrapper[handles.length];
+        for (int i = 0; i < handles.length; i++) {
+            resources[i] = handles[i].getResourceWrapper();
+        }
+        return entryBatch(resources, handles, batchCount);
+    }
+
+    /**
+     * Enter the resources in one pass: the context is resolved only once, then the slot chains are
+     * entered in order. Once a resource is blocked, the entries acquired before are rolled back
+     * in reverse order and the {@link BlockException} is thrown.
+     *
+     * @param resources the resources
+     * @param handles   handles holding the resolved slot chains of the resources, could be null
+     * @param count     tokens needed for each resource
+     * @return the composite entry
+     * @throws BlockException if any resource is blocked
+     */
+    private BatchEntry entryBatch(ResourceWrapper[] resources, ResourceHandle[] handles, int count)
+        throws BlockException {
+        Entry[] entries = new Entry[resources.length];
+        Context context = ContextUtil.getContext();
+        if (context instanceof NullContext) {
+            for (int i = 0; i < resources.length; i++) {
+                entries[i] = CtEntry.obtain(resources[i], null, context);
+            }
+            return new BatchEntry(entries, count);
+        }
+
+        if (context == null && resources.length > 0) {
+            // Using default context.
+            context = InternalContextUtil.internalEnter(Constants.CONTEXT_DEFAULT_NAME);
+        }
+
+        for (int i = 0; i < resources.length; i++) {
+            ResourceWrapper resourceWrapper = resources[i];
+            ProcessorSlot<Object> chain = null;
+            // Global switch is close, no rule checking will do.
+            if (Constants.ON) {
+                chain = handles != null ? handles[i].getChain() : null;
+                if (chain == null) {
+                    // The handle may be resolved by another Sph, or the chain amount has exceeded the limit.
+                    chain = lookProcessChain(resourceWrapper);
+                }
+            }
+            Entry e = CtEntry.obtain(resourceWrapper, chain, context);
+            entries[i] = e;
+            if (chain == null) {
+                continue;
+            }
+            try {
+                chain.entry(context, resourceWrapper, null, count, false, OBJECTS0);
+            } catch (BlockException e1) {
+                e.exit(count, OBJECTS0);
+                rollbackBatch(entries, i, count);
+                throw e1;
+            } catch (Throwable e1) {
+                // This should not happen, unless there are errors existing in Sentinel internal.
+                RecordLog.info("Sentinel unexpected exception", e1);
+            }
+        }
+        return new BatchEntry(entries, count);
+    }
+
+    private void rollbackBatch(Entry[] entries, int blockedIndex, int count) {
+        for (int i = blockedIndex - 1; i >= 0; i--) {
+            Entry entry = entries[i];
+            // Tokens reserved by cluster or traffic shaping rules cannot be given back,
+            // so such entries are exited as completed ones.
+            entry.setRolledBack(FlowRuleManager.isRollbackSupported(entry.getResourceWrapper().getName()));
+            entry.exit(count, OBJECTS0);
+        }
+    }
 }
@@ -66,6 +66,8 @@ public abstract class Entry implements AutoCloseable {
 
     private Throwable error;
     private BlockException blockError;
+    private boolean rolledBack;
+    private long waitMs;
 
     protected final ResourceWrapper resourceWrapper;
 
@@ -74,6 +76,19 @@ public abstract class Entry implements AutoCloseable {
         this.createTimestamp = TimeUtil.currentTimeMillis();
     }
 
+    /**
+     * Clear the invocation state of the entry after exit so that it could be recycled.
+     */
+    void recycle() {
+        this.completeTimestamp = 0;
+        this.curNode = null;
+        this.originNode = null;
+        this.error = null;
+        this.blockError = null;
+        this.rolledBack = false;
+        this.waitMs = 0;
+    }
+
     public ResourceWrapper getResourceWrapper() {
         return resourceWrapper;
     }
@@ -157,6 +172,42 @@ public abstract class Entry implements AutoCloseable {
         return this;
     }
 
+    /**
+     * Whether the entry has been rolled back. A rolled-back entry has passed the rule checking but the invocation
+     * is given up (e.g. another resource in the same batch is blocked), so its pass and thread count statistics
+     * are revoked on exit rather than recorded as completed. The rollback is approximate, see {@link BatchEntry}.
+     *
+     * @return true if the entry has been rolled back
+     * @since 1.8.2
+     */
+    public boolean isRolledBack() {
+        return rolledBack;
+    }
+
+    void setRolledBack(boolean rolledBack) {
+        this.rolledBack = rolledBack;
+    }
+
+    /**
+     * Get the time (in milliseconds) that the caller should delay the invocation for. The entry has passed,
+     * but it is paced (e.g. by a rate limiter) and the wait has been deferred to the caller rather than
+     * sleeping in the current thread (see {@link NonBlockingPacing}).
+     *
+     * <p>If several rules pace the entry, only the largest wait counts rather than the sum. All the rules are
+     * checked at the same time, and each of them has reserved its pass time relative to the time of the check,
+     * so the invocation satisfies all the rules once the largest wait elapses.</p>
+     *
+     * @return the time to delay the invocation for, or 0 if the invocation could proceed immediately
+     * @since 1.8.2
+     */
+    public long getWaitMs() {
+        return waitMs;
+    }
+
+    void deferWait(long waitMs) {
+        this.waitMs = Math.max(this.waitMs, waitMs);
+    }
+
     public Throwable getError() {
         return error;
     }
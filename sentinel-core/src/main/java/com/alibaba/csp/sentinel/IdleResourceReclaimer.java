@@ -0,0 +1,366 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.log.RecordLog;
+import com.alibaba.csp.sentinel.node.ClusterNode;
+import com.alibaba.csp.sentinel.node.DefaultNode;
+import com.alibaba.csp.sentinel.node.Node;
+import com.alibaba.csp.sentinel.node.SampleCountProperty;
+import com.alibaba.csp.sentinel.slotchain.AbstractLinkedProcessorSlot;
+import com.alibaba.csp.sentinel.slotchain.ProcessorSlotChain;
+import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.authority.AuthorityRuleManager;
+import com.alibaba.csp.sentinel.slots.block.degrade.DegradeRuleManager;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
+import com.alibaba.csp.sentinel.slots.clusterbuilder.ClusterBuilderSlot;
+import com.alibaba.csp.sentinel.slots.nodeselector.NodeSelectorSlot;
+import com.alibaba.csp.sentinel.util.AssertUtil;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+import com.alibaba.csp.sentinel.util.function.Predicate;
+
+/**
+ * <p>Reclaims resources that have been idle for a long time, so that applications with a large amount of
+ * dynamic resource names (e.g. URLs with path variables) won't keep the slot chains and statistic nodes
+ * of every resource ever visited.</p>
+ *
+ * <p>Every sweep evicts the slot chains which have not been accessed for {@link SentinelConfig#RESOURCE_IDLE_TTL_MS}.
+ * Besides, when the amount of slot chains reaches {@link Constants#MAX_SLOT_CHAIN_SIZE}, the idlest slot chains are
+ * evicted in the background to make room for new resources, even if the periodic sweep is disabled.
+ * Resources referenced by any rule, pinned by a {@link ResourceHandle} or having in-flight invocations are kept.
+ * Along with the slot chain, the {@link ClusterNode} (including its origin nodes) and the {@link DefaultNode}s
+ * in the invocation tree are reclaimed as well. An evicted resource will be created again on next access
+ * with empty statistics.</p>
+ *
+ * <p>Rules of extensions (e.g. hot parameter rules) should register a checker via
+ * {@link #addRuleReferenceChecker(Predicate)} so that their resources won't be reclaimed.</p>
+ *
+ * @since 1.8.2
+ */
+public final class IdleResourceReclaimer {
+
+    /**
+     * Rough size of a metric bucket (counters, window wrap and array slot) in bytes.
+     */
+    private static final int ESTIMATED_BUCKET_BYTES = 320;
+    private static final int ESTIMATED_NODE_BASE_BYTES = 256;
+    private static final int ESTIMATED_CHAIN_BYTES = 1024;
+    private static final int MINUTE_SAMPLE_COUNT = 60;
+
+    private static final long MIN_SWEEP_INTERVAL_MS = 1000;
+    private static final long MAX_SWEEP_INTERVAL_MS = 60 * 1000;
+
+    /**
+     * A resource could only be evicted for new ones after being idle for at least this time.
+     */
+    private static final long EVICT_FOR_NEW_MIN_IDLE_MS = 1000;
+    /**
+     * Eviction for new resources is run at most once during this time, whether it succeeds or not.
+     */
+    private static final long EVICT_FOR_NEW_INTERVAL_MS = 1000;
+    /**
+     * Max amount of slot chains evicted in one run for new resources.
+     */
+    private static final int EVICT_FOR_NEW_BATCH_SIZE = Math.max(1, Constants.MAX_SLOT_CHAIN_SIZE / 100);
+
+    private static final Predicate<ResourceWrapper> RECLAIMABLE_FILTER = new Predicate<ResourceWrapper>() {
+        @Override
+        public boolean test(ResourceWrapper resourceWrapper) {
+            return isReclaimable(resourceWrapper);
+        }
+    };
+
+    private static final Runnable EVICT_FOR_NEW_TASK = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                evictForNewResources();
+            } catch (Throwable e) {
+                RecordLog.warn("[IdleResourceReclaimer] Failed to evict idle resources for new ones", e);
+            }
+        }
+    };
+
+    private static final List<Predicate<String>> ruleReferenceCheckers = new CopyOnWriteArrayList<>();
+
+    private static final AtomicLong reclaimedResourceCount = new AtomicLong();
+    private static final AtomicLong reclaimedNodeCount = new AtomicLong();
+    private static final AtomicLong estimatedReclaimedBytes = new AtomicLong();
+    private static volatile long lastReclaimTime = -1;
+    private static volatile long lastSweepTime = -1;
+    private static volatile long lastEvictForNewTime = -1;
+    private static final AtomicBoolean evictForNewScheduled = new AtomicBoolean(false);
+
+    private static ScheduledExecutorService scheduler;
+    private static boolean sweepStarted;
+
+    /**
+     * Start the periodic sweep if {@link SentinelConfig#resourceIdleTtlMs()} is positive.
+     */
+    public static synchronized void start() {
+        final long ttlMs = SentinelConfig.resourceIdleTtlMs();
+        if (ttlMs <= 0) {
+            RecordLog.info("[IdleResourceReclaimer] Idle resource reclaiming is disabled");
+            return;
+        }
+        if (sweepStarted) {
+            return;
+        }
+        sweepStarted = true;
+        long interval = Math.max(MIN_SWEEP_INTERVAL_MS, Math.min(ttlMs / 2, MAX_SWEEP_INTERVAL_MS));
+        getScheduler().scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    reclaim(ttlMs);
+                } catch (Throwable e) {
+                    RecordLog.warn("[IdleResourceReclaimer] Failed to reclaim idle resources", e);
+                }
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        RecordLog.info("[IdleResourceReclaimer] Idle resource reclaimer started, ttl={}ms, interval={}ms",
+            ttlMs, interval);
+    }
+
+    @SuppressWarnings("PMD.ThreadPoolCreationRule")
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newScheduledThreadPool(1,
+                new NamedThreadFactory("sentinel-idle-resource-reclaimer", true));
+        }
+        return scheduler;
+    }
+
+    /**
+     * Register a checker which tells whether a resource is referenced by rules not managed by
+     * sentinel-core. Resources accepted by any checker won't be reclaimed.
+     *
+     * @param checker accepts the resource name if the resource is referenced by rules
+     */
+    public static void addRuleReferenceChecker(Predicate<String> checker) {
+        AssertUtil.notNull(checker, "checker cannot be null");
+        ruleReferenceCheckers.add(checker);
+    }
+
+    /**
+     * Reclaim all resources that have been idle for at least given time and are not referenced by rules.
+     *
+     * @param idleMs idle time in milliseconds
+     * @return amount of reclaimed resources
+     */
+    public static int reclaim(long idleMs) {
+        int reclaimed = CtSph.evictIdleChains(idleMs, RECLAIMABLE_FILTER);
+        lastSweepTime = TimeUtil.currentTimeMillis();
+        if (reclaimed > 0) {
+            RecordLog.info("[IdleResourceReclaimer] {} idle resources reclaimed", reclaimed);
+        }
+        return reclaimed;
+    }
+
+    /**
+     * Request the background thread to evict the idlest reclaimable resources to make room for new ones,
+     * as the amount of slot chains reaches the limit. Called on the thread that enters a new resource,
+     * so it only schedules the eviction, at most once per {@link #EVICT_FOR_NEW_INTERVAL_MS}.
+     */
+    static void requestEvictionForNewResources() {
+        long last = lastEvictForNewTime;
+        if (last >= 0 && TimeUtil.currentTimeMillis() - last < EVICT_FOR_NEW_INTERVAL_MS) {
+            return;
+        }
+        if (!evictForNewScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            getScheduler().execute(EVICT_FOR_NEW_TASK);
+        } catch (RejectedExecutionException ex) {
+            evictForNewScheduled.set(false);
+        }
+    }
+
+    /**
+     * Evict the idlest reclaimable resources to make room for new ones.
+     *
+     * @return amount of evicted resources
+     */
+    static int evictForNewResources() {
+        try {
+            return CtSph.evictEldestChains(EVICT_FOR_NEW_BATCH_SIZE, EVICT_FOR_NEW_MIN_IDLE_MS, RECLAIMABLE_FILTER);
+        } finally {
+            lastEvictForNewTime = TimeUtil.currentTimeMillis();
+            evictForNewScheduled.set(false);
+        }
+    }
+
+    private static boolean isReclaimable(ResourceWrapper resourceWrapper) {
+        if (isReferencedByRules(resourceWrapper.getName())) {
+            return false;
+        }
+        ClusterNode clusterNode = ClusterBuilderSlot.getClusterNodeMap().get(resourceWrapper);
+        return clusterNode == null || clusterNode.curThreadNum() <= 0;
+    }
+
+    private static boolean isReferencedByRules(String resource) {
+        if (FlowRuleManager.hasConfig(resource) || FlowRuleManager.isRefResource(resource)
+            || DegradeRuleManager.hasConfig(resource)
+            || AuthorityRuleManager.hasConfig(resource)) {
+            return true;
+        }
+        for (Predicate<String> checker : ruleReferenceCheckers) {
+            if (checker.test(resource)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Release the statistic nodes of an evicted slot chain and record the reclaim metrics.
+     *
+     * @param resourceWrapper the resource whose slot chain has been evicted
+     * @param chain           the evicted slot chain
+     */
+    static void onChainEvicted(ResourceWrapper resourceWrapper, ProcessorSlotChain chain) {
+        int nodes = 0;
+        // The cluster node is created by the slot chain, so it goes with the chain.
+        ClusterNode clusterNode = ClusterBuilderSlot.removeClusterNode(resourceWrapper);
+        if (clusterNode != null) {
+            nodes += 1 + clusterNode.getOriginCountMap().size();
+        }
+        nodes += detachFromInvocationTree(collectDefaultNodes(chain));
+
+        reclaimedResourceCount.incrementAndGet();
+        reclaimedNodeCount.addAndGet(nodes);
+        estimatedReclaimedBytes.addAndGet(ESTIMATED_CHAIN_BYTES + (long)nodes * estimateNodeBytes());
+        lastReclaimTime = TimeUtil.currentTimeMillis();
+        RecordLog.info("[IdleResourceReclaimer] Idle resource evicted: {}, nodes={}", resourceWrapper.getName(),
+            nodes);
+    }
+
+    /**
+     * Collect the {@link DefaultNode}s created by the {@link NodeSelectorSlot} of the slot chain.
+     */
+    private static Set<Node> collectDefaultNodes(ProcessorSlotChain chain) {
+        Set<Node> nodes = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        for (AbstractLinkedProcessorSlot<?> slot = chain.getNext(); slot != null; slot = slot.getNext()) {
+            if (slot instanceof NodeSelectorSlot) {
+                nodes.addAll(((NodeSelectorSlot)slot).getDefaultNodes());
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Remove given nodes from the invocation tree. Nodes are matched by identity rather than by name,
+     * so the {@link com.alibaba.csp.sentinel.node.EntranceNode}s of contexts named after the resource
+     * (e.g. in RPC adapters) are kept.
+     *
+     * @return amount of removed nodes
+     */
+    private static int detachFromInvocationTree(Set<Node> nodes) {
+        if (nodes.isEmpty()) {
+            return 0;
+        }
+        Set<Node> visited = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+        int removed = 0;
+        Deque<DefaultNode> stack = new ArrayDeque<>();
+        stack.push(Constants.ROOT);
+        visited.add(Constants.ROOT);
+        while (!stack.isEmpty() && removed < nodes.size()) {
+            DefaultNode parent = stack.pop();
+            for (Node child : parent.getChildList()) {
+                if (!(child instanceof DefaultNode)) {
+                    continue;
+                }
+                if (nodes.contains(child)) {
+                    if (parent.removeChild(child)) {
+                        removed++;
+                    }
+                } else if (visited.add(child)) {
+                    // The invocation tree may contain cycles, so every node is visited only once.
+                    stack.push((DefaultNode)child);
+                }
+            }
+        }
+        return removed;
+    }
+
+    private static long estimateNodeBytes() {
+        return ESTIMATED_NODE_BASE_BYTES
+            + (long)(SampleCountProperty.SAMPLE_COUNT + MINUTE_SAMPLE_COUNT) * ESTIMATED_BUCKET_BYTES;
+    }
+
+    public static long getReclaimedResourceCount() {
+        return reclaimedResourceCount.get();
+    }
+
+    public static long getReclaimedNodeCount() {
+        return reclaimedNodeCount.get();
+    }
+
+    /**
+     * Get the estimated amount of memory released by reclaiming. The value is a rough estimate
+     * based on the amount of reclaimed nodes and buckets, not a measurement.
+     *
+     * @return estimated reclaimed memory in bytes
+     */
+    public static long getEstimatedReclaimedBytes() {
+        return estimatedReclaimedBytes.get();
+    }
+
+    /**
+     * @return time of the last eviction in milliseconds, or -1 if nothing has been reclaimed
+     */
+    public static long getLastReclaimTime() {
+        return lastReclaimTime;
+    }
+
+    /**
+     * @return time of the last sweep in milliseconds, or -1 if never swept
+     */
+    public static long getLastSweepTime() {
+        return lastSweepTime;
+    }
+
+    /**
+     * Only for internal test.
+     */
+    static void resetStatistics() {
+        reclaimedResourceCount.set(0);
+        reclaimedNodeCount.set(0);
+        estimatedReclaimedBytes.set(0);
+        lastReclaimTime = -1;
+        lastSweepTime = -1;
+        lastEvictForNewTime = -1;
+    }
+
+    private IdleResourceReclaimer() {}
+}
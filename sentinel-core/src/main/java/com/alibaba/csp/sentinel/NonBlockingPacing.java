@@ -0,0 +1,102 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel;
+
+import com.alibaba.csp.sentinel.context.Context;
+import com.alibaba.csp.sentinel.context.ContextUtil;
+
+/**
+ * <p>Non-blocking pacing for asynchronous callers (e.g. event loops of Netty or Reactor).</p>
+ *
+ * <p>By default, the traffic shaping controllers that pace requests (e.g. the rate limiter) sleep in the caller's
+ * thread until the request could pass. For the entries created between {@link #enter()} and {@link #exit()},
+ * the wait will be deferred to the caller instead: the entry passes immediately, and the caller should delay
+ * the invocation for {@link Entry#getWaitMs()} milliseconds via its own scheduler. If the entry is paced by
+ * several rules, the largest wait of them is taken.</p>
+ *
+ * <pre>
+ * NonBlockingPacing.enter();
+ * try {
+ *     entry = SphU.asyncEntry(resourceName);
+ * } finally {
+ *     NonBlockingPacing.exit();
+ * }
+ * if (entry.getWaitMs() > 0) {
+ *     scheduler.schedule(invocation, entry.getWaitMs(), TimeUnit.MILLISECONDS);
+ * } else {
+ *     invocation.run();
+ * }
+ * </pre>
+ *
+ * @since 1.8.2
+ */
+public final class NonBlockingPacing {
+
+    /**
+     * Depth of nested non-blocking scopes of current thread.
+     */
+    private static final ThreadLocal<int[]> DEPTH = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    /**
+     * Enable non-blocking pacing for the entries created in current thread, until {@link #exit()}.
+     * The calls can be nested, and each call should be paired with an {@link #exit()}.
+     */
+    public static void enter() {
+        DEPTH.get()[0]++;
+    }
+
+    public static void exit() {
+        int[] depth = DEPTH.get();
+        if (depth[0] > 0) {
+            depth[0]--;
+        }
+    }
+
+    /**
+     * @return whether non-blocking pacing is enabled in current thread
+     */
+    public static boolean isEnabled() {
+        return DEPTH.get()[0] > 0;
+    }
+
+    /**
+     * Defer the wait of the entry being checked in current thread to its caller if non-blocking pacing
+     * is enabled. This is called by traffic shaping controllers before sleeping.
+     *
+     * @param waitMs the time to wait in milliseconds
+     * @return true if the wait is deferred to the caller, so the current thread should not sleep;
+     * otherwise false
+     */
+    public static boolean deferWait(long waitMs) {
+        if (!isEnabled()) {
+            return false;
+        }
+        Context context = ContextUtil.getContext();
+        Entry entry = context == null ? null : context.getCurEntry();
+        if (entry == null) {
+            return false;
+        }
+        entry.deferWait(waitMs);
+        return true;
+    }
+
+    private NonBlockingPacing() {}
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel;
+
+import com.alibaba.csp.sentinel.context.Context;
+import com.alibaba.csp.sentinel.slotchain.ProcessorSlot;
+import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+/**
+ * <p>A {@link CtEntry} which is returned to the pool of current thread on exit and reused by later invocations
+ * in recycling mode (see {@link Constants#RECYCLE}).</p>
+ *
+ * <p>The resource and the create time of the entry change on every reuse, so they are held here rather than
+ * in the final fields of {@link Entry}. An entry that has an {@link AsyncEntry} child is never recycled,
+ * as the async entry keeps the reference to its parent after the parent exits.</p>
+ *
+ * @since 1.8.2
+ */
+final class PooledCtEntry extends CtEntry {
+
+    private static final int MAX_POOLED_ENTRIES_PER_THREAD = 16;
+
+    private static final ThreadLocal<EntryPool> ENTRY_POOL = new ThreadLocal<EntryPool>() {
+        @Override
+        protected EntryPool initialValue() {
+            return new EntryPool();
+        }
+    };
+
+    private ResourceWrapper pooledResourceWrapper;
+    private long pooledCreateTimestamp;
+    private boolean hasAsyncChild;
+
+    private PooledCtEntry(ResourceWrapper resourceWrapper, ProcessorSlot<Object> chain, Context context) {
+        super(null, chain, context);
+        this.pooledResourceWrapper = resourceWrapper;
+        this.pooledCreateTimestamp = TimeUtil.currentTimeMillis();
+    }
+
+    static CtEntry obtain(ResourceWrapper resourceWrapper, ProcessorSlot<Object> chain, Context context) {
+        PooledCtEntry entry = ENTRY_POOL.get().poll();
+        if (entry == null) {
+            return new PooledCtEntry(resourceWrapper, chain, context);
+        }
+        entry.pooledResourceWrapper = resourceWrapper;
+        entry.pooledCreateTimestamp = TimeUtil.currentTimeMillis();
+        entry.chain = chain;
+        entry.context = context;
+        entry.setUpEntryFor(context);
+        return entry;
+    }
+
+    void markAsyncChild() {
+        this.hasAsyncChild = true;
+    }
+
+    @Override
+    public ResourceWrapper getResourceWrapper() {
+        return pooledResourceWrapper;
+    }
+
+    @Override
+    public long getCreateTimestamp() {
+        return pooledCreateTimestamp;
+    }
+
+    @Override
+    void onExited() {
+        if (hasAsyncChild) {
+            return;
+        }
+        recycle();
+        ENTRY_POOL.get().offer(this);
+    }
+
+    @Override
+    void recycle() {
+        super.recycle();
+        this.pooledResourceWrapper = null;
+        this.parent = null;
+        this.child = null;
+        this.chain = null;
+        this.exitHandlers = null;
+    }
+
+    /**
+     * A small stack of recycled entries of a thread. As entries of a thread are nested, the entries
+     * are always exited in the reverse order, so the pool size only depends on the nesting depth.
+     */
+    private static final class EntryPool {
+        private final PooledCtEntry[] entries = new PooledCtEntry[MAX_POOLED_ENTRIES_PER_THREAD];
+        private int size;
+
+        PooledCtEntry poll() {
+            if (size == 0) {
+                return null;
+            }
+            PooledCtEntry entry = entries[--size];
+            entries[size] = null;
+            return entry;
+        }
+
+        void offer(PooledCtEntry entry) {
+            if (size < entries.length) {
+                entries[size++] = entry;
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.alibaba.csp.sentinel.node.ClusterNode;
+import com.alibaba.csp.sentinel.node.DefaultNode;
+import com.alibaba.csp.sentinel.slotchain.ProcessorSlot;
+import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
+import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.clusterbuilder.ClusterBuilderSlot;
+import com.alibaba.csp.sentinel.slots.nodeselector.NodeSelectorSlot;
+
+/**
+ * <p>A reusable handle of a protected resource, resolved once via {@link SphU#resource(String, int, EntryType)}.</p>
+ *
+ * <p>The handle holds the {@link ResourceWrapper}, the slot chain and the {@link ClusterNode} of the resource,
+ * so entries made through the handle neither allocate a resource wrapper nor look up the slot chain map.
+ * The handle also caches the per-context {@link DefaultNode}s of the resource for the {@link NodeSelectorSlot},
+ * so the node of the last context is a field read.
+ * It's suitable for resources known at startup (e.g. RPC methods). The handle is thread-safe.</p>
+ *
+ * <p>Handles of {@link Sph} implementations other than {@link CtSph} simply delegate to
+ * {@link Sph#entryWithType(String, int, EntryType, int, boolean, Object[])}.</p>
+ *
+ * <pre>
+ * private static final ResourceHandle HANDLE = SphU.resource("foo", ResourceTypeConstants.COMMON_RPC, EntryType.IN);
+ *
+ * Entry entry = null;
+ * try {
+ *     entry = HANDLE.entry();
+ *     // Do something.
+ * } catch (BlockException ex) {
+ *     // Handle the rejection.
+ * } finally {
+ *     if (entry != null) {
+ *         entry.exit();
+ *     }
+ * }
+ * </pre>
+ *
+ * @since 1.8.2
+ */
+public class ResourceHandle {
+
+    private static final Object[] OBJECTS0 = new Object[0];
+
+    private final Sph sph;
+    /**
+     * Same as {@link #sph} if it's a {@link CtSph}, otherwise null.
+     */
+    private final CtSph ctSph;
+    private final ResourceWrapper resourceWrapper;
+
+    private volatile ProcessorSlot<Object> chain;
+    private volatile ClusterNode clusterNode;
+
+    /**
+     * The {@link DefaultNode} of the last entered context, and all the cached nodes: context name --> node.
+     */
+    private volatile ContextNode lastContextNode;
+    private final ConcurrentMap<String, ContextNode> contextNodes = new ConcurrentHashMap<>();
+
+    ResourceHandle(Sph sph, String name, int resourceType, EntryType trafficType) {
+        this.sph = sph;
+        this.ctSph = sph instanceof CtSph ? (CtSph)sph : null;
+        this.resourceWrapper = new HandleResourceWrapper(this, name, trafficType, resourceType);
+        if (ctSph != null) {
+            // The chain is held by the handle, so it should never be evicted.
+            this.chain = ctSph.lookProcessChain(resourceWrapper, true);
+        }
+    }
+
+    /**
+     * Record statistics and perform rule checking for the resource.
+     *
+     * @return the {@link Entry} of this invocation
+     * @throws BlockException if the block criteria is met
+     */
+    public Entry entry() throws BlockException {
+        return entry(1, false, OBJECTS0);
+    }
+
+    /**
+     * Record statistics and perform rule checking for the resource.
+     *
+     * @param batchCount the amount of calls within the invocation (e.g. batchCount=2 means request for 2 tokens)
+     * @param args       args for parameter flow control or customized slots
+     * @return the {@link Entry} of this invocation
+     * @throws BlockException if the block criteria is met
+     */
+    public Entry entry(int batchCount, Object... args) throws BlockException {
+        return entry(batchCount, false, args);
+    }
+
+    /**
+     * Record statistics and perform rule checking for the resource with priority.
+     *
+     * @param batchCount the amount of calls within the invocation (e.g. batchCount=2 means request for 2 tokens)
+     * @param args       args for parameter flow control or customized slots
+     * @return the {@link Entry} of this invocation
+     * @throws BlockException if the block criteria is met
+     */
+    public Entry entryWithPriority(int batchCount, Object... args) throws BlockException {
+        return entry(batchCount, true, args);
+    }
+
+    private Entry entry(int batchCount, boolean prioritized, Object[] args) throws BlockException {
+        if (ctSph != null) {
+            return ctSph.entryWithPriority(resourceWrapper, getChain(), batchCount, prioritized, args);
+        }
+        return sph.entryWithType(resourceWrapper.getName(), resourceWrapper.getResourceType(),
+            resourceWrapper.getEntryType(), batchCount, prioritized, args);
+    }
+
+    /**
+     * @return the slot chain of the resource, or null if the handle is not resolved by a {@link CtSph}
+     * or the amount of slot chains has exceeded the limit
+     */
+    ProcessorSlot<Object> getChain() {
+        ProcessorSlot<Object> chain = this.chain;
+        if (chain == null && ctSph != null) {
+            // The slot chain amount has exceeded the limit when resolving, so try again.
+            chain = ctSph.lookProcessChain(resourceWrapper, true);
+            this.chain = chain;
+        }
+        return chain;
+    }
+
+    public ResourceWrapper getResourceWrapper() {
+        return resourceWrapper;
+    }
+
+    public String getName() {
+        return resourceWrapper.getName();
+    }
+
+    /**
+     * Get the {@link ClusterNode} of the resource.
+     *
+     * @return the cluster node, or null if the resource has not been entered yet
+     */
+    public ClusterNode getClusterNode() {
+        ClusterNode node = this.clusterNode;
+        if (node == null) {
+            // The cluster node goes with the slot chain, which is pinned by the handle.
+            node = ClusterBuilderSlot.getClusterNodeMap().get(resourceWrapper);
+            this.clusterNode = node;
+        }
+        return node;
+    }
+
+    /**
+     * Get the cached {@link DefaultNode} of the resource in given context.
+     *
+     * @param contextName name of the context
+     * @return the cached node, or null if not cached yet
+     */
+    public DefaultNode getDefaultNode(String contextName) {
+        ContextNode last = this.lastContextNode;
+        if (last != null && last.contextName.equals(contextName)) {
+            return last.node;
+        }
+        ContextNode cached = contextNodes.get(contextName);
+        if (cached == null) {
+            return null;
+        }
+        this.lastContextNode = cached;
+        return cached.node;
+    }
+
+    /**
+     * Cache the {@link DefaultNode} of the resource in given context. The node should be the one created
+     * by the {@link NodeSelectorSlot} of the slot chain, as the slot chain is pinned by the handle.
+     *
+     * @param contextName name of the context
+     * @param node        the node of the resource in the context
+     */
+    public void cacheDefaultNode(String contextName, DefaultNode node) {
+        ContextNode contextNode = new ContextNode(contextName, node);
+        contextNodes.put(contextName, contextNode);
+        this.lastContextNode = contextNode;
+    }
+
+    private static final class ContextNode {
+        private final String contextName;
+        private final DefaultNode node;
+
+        private ContextNode(String contextName, DefaultNode node) {
+            this.contextName = contextName;
+            this.node = node;
+        }
+    }
+
+    /**
+     * The resource wrapper of a {@link ResourceHandle}, so the slots could reach the handle.
+     */
+    public static final class HandleResourceWrapper extends StringResourceWrapper {
+
+        private final ResourceHandle handle;
+
+        HandleResourceWrapper(ResourceHandle handle, String name, EntryType e, int resType) {
+            super(name, e, resType);
+            this.handle = handle;
+        }
+
+        public ResourceHandle getHandle() {
+            return handle;
+        }
+    }
+}
@@ -193,4 +193,70 @@ public interface Sph extends SphResourceTypeSupport {
      */
     Entry entryWithPriority(String name, EntryType trafficType, int batchCount, boolean prioritized, Object... args)
         throws BlockException;
+
+    /**
+     * Resolve a reusable handle of the given resource. Entries made through the handle skip
+     * the resource wrapper creation and the slot chain lookup of every entry.
+     *
+     * @param name         the unique name for the protected resource
+     * @param resourceType classification of the resource (e.g. Web or RPC)
+     * @param trafficType  the traffic type (inbound, outbound or internal)
+     * @return the handle of the resource
+     * @since 1.8.2
+     */
+    default ResourceHandle resource(String name, int resourceType, EntryType trafficType) {
+        return new ResourceHandle(this, name, resourceType, trafficType);
+    }
+
+    /**
+     * Record statistics and perform rule checking for several resources in one pass. If any resource
+     * is blocked, the resources acquired before it will be rolled back (see {@link BatchEntry}).
+     *
+     * <p>The default implementation enters the resources one by one, and exits the acquired entries
+     * without rolling back their statistics if any resource is blocked.</p>
+     *
+     * @param names        the unique names of the protected resources
+     * @param resourceType classification of the resources (e.g. Web or RPC)
+     * @param trafficType  the traffic type (inbound, outbound or internal)
+     * @param batchCount   the amount of calls within the invocation of each resource
+     * @return the composite entry of the resources
+     * @throws BlockException if the block criteria of any resource is met
+     * @since 1.8.2
+     */
+    default BatchEntry entryBatch(String[] names, int resourceType, EntryType trafficType, int batchCount)
+        throws BlockException {
+        ResourceHandle[] handles = new ResourceHandle[names.length];
+        for (int i = 0; i < names.length; i++) {
+            handles[i] = resource(names[i], resourceType, trafficType);
+        }
+        return entryBatch(handles, batchCount);
+    }
+
+    /**
+     * Record statistics and perform rule checking for several resources in one pass. If any resource
+     * is blocked, the resources acquired before it will be rolled back (see {@link BatchEntry}).
+     *
+     * <p>The default implementation enters the resources one by one, and exits the acquired entries
+     * without rolling back their statistics if any resource is blocked.</p>
+     *
+     * @param handles    handles of the protected resources
+     * @param batchCount the amount of calls within the invocation of each resource
+     * @return the composite entry of the resources
+     * @throws BlockException if the block criteria of any resource is met
+     * @since 1.8.2
+     */
+    default BatchEntry entryBatch(ResourceHandle[] handles, int batchCount) throws BlockException {
+        Entry[] entries = new Entry[handles.length];
+        for (int i = 0; i < handles.length; i++) {
+            try {
+                entries[i] = handles[i].entry(batchCount);
+            } catch (BlockException ex) {
+                for (int j = i - 1; j >= 0; j--) {
+                    entries[j].exit(batchCount);
+                }
+                throw ex;
+            }
+        }
+        return new BatchEntry(entries, batchCount);
+    }
 }
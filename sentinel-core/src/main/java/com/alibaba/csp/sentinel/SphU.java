@@ -365,4 +365,81 @@ public class SphU {
                                         Object[] args) throws BlockException {
         return Env.sph.asyncEntryWithType(name, resourceType, trafficType, batchCount, false, args);
     }
+
+    /**
+     * Resolve a reusable handle of the given resource, which is cheaper to enter than {@code SphU.entry(name)}.
+     * The handle should be resolved once and kept (e.g. in a static field).
+     *
+     * @param name         the unique name for the protected resource
+     * @param resourceType classification of the resource (e.g. Web or RPC)
+     * @param trafficType  the traffic type (inbound, outbound or internal). This is used
+     *                     to mark whether it can be blocked when the system is unstable,
+     *                     only inbound traffic could be blocked by {@link SystemRule}
+     * @return the handle of the resource
+     * @since 1.8.2
+     */
+    public static ResourceHandle resource(String name, int resourceType, EntryType trafficType) {
+        return Env.sph.resource(name, resourceType, trafficType);
+    }
+
+    /**
+     * Resolve a reusable handle of the given resource with the common resource type.
+     *
+     * @param name        the unique name for the protected resource
+     * @param trafficType the traffic type (inbound, outbound or internal)
+     * @return the handle of the resource
+     * @since 1.8.2
+     */
+    public static ResourceHandle resource(String name, EntryType trafficType) {
+        return Env.sph.resource(name, ResourceTypeConstants.COMMON, trafficType);
+    }
+
+    /**
+     * <p>Record statistics and perform rule checking for several outbound resources in one pass, which is cheaper
+     * than entering the resources one by one (e.g. for a service that calls many downstream services for
+     * a single request). Either all resources pass, or none of them does: if any resource is blocked,
+     * the resources acquired before it will be rolled back and the {@link BlockException} is thrown.</p>
+     *
+     * <p>The returned {@link BatchEntry} should be exited via {@link BatchEntry#exit()}, which exits
+     * all resources of the batch.</p>
+     *
+     * @param names the unique names of the protected resources
+     * @return the composite entry of the resources
+     * @throws BlockException if the block criteria of any resource is met
+     * @since 1.8.2
+     */
+    public static BatchEntry entryBatch(String[] names) throws BlockException {
+        return Env.sph.entryBatch(names, ResourceTypeConstants.COMMON, EntryType.OUT, 1);
+    }
+
+    /**
+     * Record statistics and perform rule checking for several resources in one pass.
+     *
+     * @param names        the unique names of the protected resources
+     * @param resourceType classification of the resources (e.g. Web or RPC)
+     * @param trafficType  the traffic type (inbound, outbound or internal)
+     * @param batchCount   the amount of calls within the invocation of each resource
+     * @return the composite entry of the resources
+     * @throws BlockException if the block criteria of any resource is met
+     * @see #entryBatch(String[])
+     * @since 1.8.2
+     */
+    public static BatchEntry entryBatch(String[] names, int resourceType, EntryType trafficType, int batchCount)
+        throws BlockException {
+        return Env.sph.entryBatch(names, resourceType, trafficType, batchCount);
+    }
+
+    /**
+     * Record statistics and perform rule checking for several resources resolved via
+     * {@link #resource(String, int, EntryType)} in one pass, which also skips the slot chain lookup.
+     *
+     * @param handles handles of the protected resources
+     * @return the composite entry of the resources
+     * @throws BlockException if the block criteria of any resource is met
+     * @see #entryBatch(String[])
+     * @since 1.8.2
+     */
+    public static BatchEntry entryBatch(ResourceHandle... handles) throws BlockException {
+        return Env.sph.entryBatch(handles, 1);
+    }
 }
@@ -61,6 +61,17 @@ public final class SentinelConfig {
     public static final String STATISTIC_MAX_RT = "csp.sentinel.statistic.max.rt";
     public static final String SPI_CLASSLOADER = "csp.sentinel.spi.classloader";
     public static final String METRIC_FLUSH_INTERVAL = "csp.sentinel.metric.flush.interval";
+    public static final String STATISTIC_BUCKET_TYPE = "csp.sentinel.statistic.bucket.type";
+    public static final String STATISTIC_BUCKET_STRIPES = "csp.sentinel.statistic.bucket.stripes";
+    public static final String TIME_TICK_MODE = "csp.sentinel.time.tick.mode";
+    public static final String RESOURCE_IDLE_TTL_MS = "csp.sentinel.resource.idle.ttl.ms";
+    public static final String ENTRY_RECYCLE_ENABLED = "csp.sentinel.entry.recycle.enabled";
+    public static final String STATISTIC_SHARD_COUNT = "csp.sentinel.statistic.shard.count";
+    public static final String STATISTIC_SHARD_THREAD_THRESHOLD = "csp.sentinel.statistic.shard.thread.threshold";
+    public static final String STATISTIC_RT_HISTOGRAM_ENABLED = "csp.sentinel.statistic.rt.histogram.enabled";
+    public static final String METRIC_WRITER_ASYNC = "csp.sentinel.metric.writer.async";
+    public static final String METRIC_FILE_FORMAT = "csp.sentinel.metric.file.format";
+    public static final String METRIC_STREAM_CAPACITY = "csp.sentinel.metric.stream.capacity";
 
     public static final String DEFAULT_CHARSET = "UTF-8";
     public static final long DEFAULT_SINGLE_METRIC_FILE_SIZE = 1024 * 1024 * 50;
@@ -68,6 +79,14 @@ public final class SentinelConfig {
     public static final int DEFAULT_COLD_FACTOR = 3;
     public static final int DEFAULT_STATISTIC_MAX_RT = 5000;
     public static final long DEFAULT_METRIC_FLUSH_INTERVAL = 1L;
+    public static final String DEFAULT_STATISTIC_BUCKET_TYPE = "adder";
+    public static final int DEFAULT_STATISTIC_BUCKET_STRIPES = Math.min(8, Runtime.getRuntime().availableProcessors());
+    public static final String DEFAULT_TIME_TICK_MODE = "adaptive";
+    public static final long DEFAULT_RESOURCE_IDLE_TTL_MS = 0;
+    public static final int DEFAULT_STATISTIC_SHARD_COUNT = Math.min(16, Runtime.getRuntime().availableProcessors());
+    public static final int DEFAULT_STATISTIC_SHARD_THREAD_THRESHOLD = 32;
+    public static final String DEFAULT_METRIC_FILE_FORMAT = "text";
+    public static final int DEFAULT_METRIC_STREAM_CAPACITY = 60;
 
     static {
         try {
@@ -261,6 +280,205 @@ public final class SentinelConfig {
         }
     }
 
+    /**
+     * Get the type of the metric buckets of the sliding windows,
+     * see {@link com.alibaba.csp.sentinel.slots.statistic.data.MetricBucketFactory}.
+     *
+     * @return the metric bucket type, {@code adder} by default
+     * @since 1.8.2
+     */
+    public static String statisticBucketType() {
+        String v = props.get(STATISTIC_BUCKET_TYPE);
+        return StringUtil.isBlank(v) ? DEFAULT_STATISTIC_BUCKET_TYPE : v.trim();
+    }
+
+    /**
+     * Get the amount of counter stripes of each striped metric bucket.
+     *
+     * @return the amount of counter stripes
+     * @since 1.8.2
+     */
+    public static int statisticBucketStripes() {
+        String v = props.get(STATISTIC_BUCKET_STRIPES);
+        try {
+            if (StringUtil.isEmpty(v)) {
+                return DEFAULT_STATISTIC_BUCKET_STRIPES;
+            }
+            int stripes = Integer.parseInt(v);
+            if (stripes <= 0) {
+                RecordLog.warn("[SentinelConfig] Invalid statisticBucketStripes value: {}, using the default value instead: "
+                    + DEFAULT_STATISTIC_BUCKET_STRIPES, v);
+                return DEFAULT_STATISTIC_BUCKET_STRIPES;
+            }
+            return stripes;
+        } catch (Throwable throwable) {
+            RecordLog.warn("[SentinelConfig] Invalid statisticBucketStripes value: {}, using the default value instead: "
+                + DEFAULT_STATISTIC_BUCKET_STRIPES, v, throwable);
+            return DEFAULT_STATISTIC_BUCKET_STRIPES;
+        }
+    }
+
+    /**
+     * Get the time source mode of {@link com.alibaba.csp.sentinel.util.TimeUtil}:
+     * {@code adaptive}, {@code tick} or {@code system}.
+     *
+     * @return the time source mode, {@code adaptive} by default
+     * @since 1.8.2
+     */
+    public static String timeTickMode() {
+        String v = props.get(TIME_TICK_MODE);
+        return StringUtil.isBlank(v) ? DEFAULT_TIME_TICK_MODE : v.trim();
+    }
+
+    /**
+     * <p>Get the time-to-live of idle resources. Resources (slot chains and statistic nodes) that have not
+     * been accessed for this period and are not referenced by any rule will be reclaimed periodically.</p>
+     *
+     * <p>Non-positive value means idle resources are never reclaimed (default).</p>
+     *
+     * @return the idle TTL in milliseconds
+     * @since 1.8.2
+     */
+    public static long resourceIdleTtlMs() {
+        String v = props.get(RESOURCE_IDLE_TTL_MS);
+        try {
+            if (StringUtil.isEmpty(v)) {
+                return DEFAULT_RESOURCE_IDLE_TTL_MS;
+            }
+            return Long.parseLong(v);
+        } catch (Throwable throwable) {
+            RecordLog.warn("[SentinelConfig] Invalid resourceIdleTtlMs value: {}, using the default value instead: "
+                + DEFAULT_RESOURCE_IDLE_TTL_MS, v, throwable);
+            return DEFAULT_RESOURCE_IDLE_TTL_MS;
+        }
+    }
+
+    /**
+     * <p>Whether to recycle objects on the synchronous entry path (disabled by default). When enabled,
+     * {@code CtEntry} and {@code Context} objects are returned to a thread-local pool on exit and reused
+     * by later entries of the same thread, and the block exceptions of flow rules and degrade rules
+     * are preallocated per rule and shared.</p>
+     *
+     * <p>Note that in recycling mode entries and contexts MUST NOT be used after exit, and block exceptions
+     * MUST NOT be modified.</p>
+     *
+     * @return whether object recycling is enabled
+     * @since 1.8.2
+     */
+    public static boolean entryRecycleEnabled() {
+        return Boolean.parseBoolean(props.get(ENTRY_RECYCLE_ENABLED));
+    }
+
+    /**
+     * Get the amount of shards of a sharded statistic node. Each shard keeps its own sliding windows,
+     * and the amount will be rounded up to a power of two.
+     *
+     * @return the amount of shards
+     * @since 1.8.2
+     */
+    public static int statisticShardCount() {
+        String v = props.get(STATISTIC_SHARD_COUNT);
+        try {
+            if (StringUtil.isEmpty(v)) {
+                return DEFAULT_STATISTIC_SHARD_COUNT;
+            }
+            int count = Integer.parseInt(v);
+            if (count <= 0) {
+                RecordLog.warn("[SentinelConfig] Invalid statisticShardCount value: {}, using the default value instead: "
+                    + DEFAULT_STATISTIC_SHARD_COUNT, v);
+                return DEFAULT_STATISTIC_SHARD_COUNT;
+            }
+            return count;
+        } catch (Throwable throwable) {
+            RecordLog.warn("[SentinelConfig] Invalid statisticShardCount value: {}, using the default value instead: "
+                + DEFAULT_STATISTIC_SHARD_COUNT, v, throwable);
+            return DEFAULT_STATISTIC_SHARD_COUNT;
+        }
+    }
+
+    /**
+     * Get the concurrent thread count of a statistic node above which the node switches to sharded
+     * statistics. A non-positive value disables the automatic sharding.
+     *
+     * @return the thread count threshold of sharding
+     * @since 1.8.2
+     */
+    public static int statisticShardThreadThreshold() {
+        String v = props.get(STATISTIC_SHARD_THREAD_THRESHOLD);
+        try {
+            if (StringUtil.isEmpty(v)) {
+                return DEFAULT_STATISTIC_SHARD_THREAD_THRESHOLD;
+            }
+            return Integer.parseInt(v);
+        } catch (Throwable throwable) {
+            RecordLog.warn("[SentinelConfig] Invalid statisticShardThreadThreshold value: {}, using the default value instead: "
+                + DEFAULT_STATISTIC_SHARD_THREAD_THRESHOLD, v, throwable);
+            return DEFAULT_STATISTIC_SHARD_THREAD_THRESHOLD;
+        }
+    }
+
+    /**
+     * Whether all statistic nodes record the histogram of response time (disabled by default), which is
+     * required by percentile RT (e.g. {@code Node#percentileRt(double)}). Nodes checked by percentile RT rules
+     * record the histogram regardless of this.
+     *
+     * @return whether RT histogram is enabled for all nodes
+     * @since 1.8.2
+     */
+    public static boolean statisticRtHistogramEnabled() {
+        return Boolean.parseBoolean(props.get(STATISTIC_RT_HISTOGRAM_ENABLED));
+    }
+
+    /**
+     * Whether metric logs are written asynchronously by a dedicated writer thread (disabled by default),
+     * see {@link com.alibaba.csp.sentinel.node.metric.AsyncMetricWriter}.
+     *
+     * @return whether the asynchronous metric writer is enabled
+     * @since 1.8.2
+     */
+    public static boolean metricWriterAsync() {
+        return Boolean.parseBoolean(props.get(METRIC_WRITER_ASYNC));
+    }
+
+    /**
+     * Get the format of metric files: {@code text} or {@code binary},
+     * see {@link com.alibaba.csp.sentinel.node.metric.BinaryMetricWriter}.
+     *
+     * @return the metric file format, {@code text} by default
+     * @since 1.8.2
+     */
+    public static String metricFileFormat() {
+        String v = props.get(METRIC_FILE_FORMAT);
+        return StringUtil.isBlank(v) ? DEFAULT_METRIC_FILE_FORMAT : v.trim();
+    }
+
+    /**
+     * Get the amount of seconds of aggregated metrics kept in memory for metric streaming,
+     * see {@link com.alibaba.csp.sentinel.node.metric.MetricRingBuffer}.
+     *
+     * @return the capacity of the metric ring buffer
+     * @since 1.8.2
+     */
+    public static int metricStreamCapacity() {
+        String v = props.get(METRIC_STREAM_CAPACITY);
+        try {
+            if (StringUtil.isEmpty(v)) {
+                return DEFAULT_METRIC_STREAM_CAPACITY;
+            }
+            int capacity = Integer.parseInt(v);
+            if (capacity <= 0) {
+                RecordLog.warn("[SentinelConfig] Invalid metricStreamCapacity value: {}, using the default value instead: "
+                    + DEFAULT_METRIC_STREAM_CAPACITY, v);
+                return DEFAULT_METRIC_STREAM_CAPACITY;
+            }
+            return capacity;
+        } catch (Throwable throwable) {
+            RecordLog.warn("[SentinelConfig] Invalid metricStreamCapacity value: {}, using the default value instead: "
+                + DEFAULT_METRIC_STREAM_CAPACITY, v, throwable);
+            return DEFAULT_METRIC_STREAM_CAPACITY;
+        }
+    }
+
     /**
      * Function for resolving project name. The order is elaborated below:
      *
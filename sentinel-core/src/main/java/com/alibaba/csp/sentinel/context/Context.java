@@ -59,7 +59,7 @@ public class Context {
     /**
      * Context name.
      */
-    private final String name;
+    private String name;
 
     /**
      * The entrance node of current invocation tree.
@@ -100,6 +100,25 @@ public class Context {
         this.async = async;
     }
 
+    /**
+     * Reinitialize a recycled synchronous context.
+     */
+    Context reuse(DefaultNode entranceNode, String name) {
+        this.entranceNode = entranceNode;
+        this.name = name;
+        return this;
+    }
+
+    /**
+     * Clear the state of the context after exit so that it could be recycled.
+     */
+    void recycle() {
+        this.entranceNode = null;
+        this.name = null;
+        this.curEntry = null;
+        this.origin = "";
+    }
+
     public boolean isAsync() {
         return async;
     }
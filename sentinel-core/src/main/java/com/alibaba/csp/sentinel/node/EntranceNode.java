@@ -19,6 +19,7 @@ import com.alibaba.csp.sentinel.context.Context;
 import com.alibaba.csp.sentinel.context.ContextUtil;
 import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
 import com.alibaba.csp.sentinel.slots.nodeselector.NodeSelectorSlot;
+import com.alibaba.csp.sentinel.slots.statistic.data.RtHistogram;
 
 /**
  * <p>
@@ -53,6 +54,42 @@ public class EntranceNode extends DefaultNode {
         return total / (totalQps == 0 ? 1 : totalQps);
     }
 
+    /**
+     * The entrance node records no RT itself, so the histograms of the children are enabled instead,
+     * including the children added later.
+     */
+    @Override
+    public void enableRtHistogram() {
+        if (isRtHistogramEnabled()) {
+            return;
+        }
+        super.enableRtHistogram();
+        for (Node node : getChildList()) {
+            if (node instanceof StatisticNode) {
+                ((StatisticNode)node).enableRtHistogram();
+            }
+        }
+    }
+
+    @Override
+    public void addChild(Node node) {
+        super.addChild(node);
+        if (node instanceof StatisticNode && isRtHistogramEnabled()) {
+            ((StatisticNode)node).enableRtHistogram();
+        }
+    }
+
+    @Override
+    public double percentileRt(double percentile) {
+        long[] counts = RtHistogram.localCounts();
+        for (Node node : getChildList()) {
+            if (node instanceof StatisticNode) {
+                counts = ((StatisticNode)node).mergeRtHistogram(counts);
+            }
+        }
+        return RtHistogram.valueAtPercentile(counts, percentile);
+    }
+
     @Override
     public double blockQps() {
         double blockQps = 0;
@@ -124,6 +124,18 @@ public interface Node extends OccupySupport, DebugSupport {
      */
     double minRt();
 
+    /**
+     * Get the response time at given percentile in current second. The RT histogram of the node should be
+     * enabled (see {@code StatisticNode#enableRtHistogram()}), otherwise 0 will be returned.
+     *
+     * @param percentile the percentile in (0, 100], e.g. 99 for p99
+     * @return the response time at given percentile
+     * @since 1.8.2
+     */
+    default double percentileRt(double percentile) {
+        return 0;
+    }
+
     /**
      * Get current active thread count.
      *
@@ -18,11 +18,16 @@ package com.alibaba.csp.sentinel.node;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.LongAdder;
 
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.log.RecordLog;
 import com.alibaba.csp.sentinel.node.metric.MetricNode;
+import com.alibaba.csp.sentinel.slots.statistic.data.RtHistogram;
 import com.alibaba.csp.sentinel.slots.statistic.metric.ArrayMetric;
 import com.alibaba.csp.sentinel.slots.statistic.metric.Metric;
+import com.alibaba.csp.sentinel.slots.statistic.metric.ShardedArrayMetric;
 import com.alibaba.csp.sentinel.util.TimeUtil;
 import com.alibaba.csp.sentinel.util.function.Predicate;
 
@@ -84,11 +89,26 @@ import com.alibaba.csp.sentinel.util.function.Predicate;
  *                                                    request
  * </pre>
  *
+ * <p>
+ * For extremely hot resources, all threads recording into the same sliding windows will contend with each other.
+ * When the concurrent thread count of a node reaches {@link SentinelConfig#STATISTIC_SHARD_THREAD_THRESHOLD},
+ * the node switches to sharded statistics ({@link ShardedArrayMetric}): each thread records into one of
+ * several shards of sliding windows, and the statistics are aggregated on read. The statistics recorded before
+ * switching are kept. The switching can also be triggered manually via {@link #enableSharding()}.
+ * </p>
+ *
  * @author qinan.qn
  * @author jialiang.linjl
  */
 public class StatisticNode implements Node {
 
+    private static final int SHARD_COUNT = SentinelConfig.statisticShardCount();
+    private static final int SHARD_THREAD_THRESHOLD = SentinelConfig.statisticShardThreadThreshold();
+    /**
+     * The contention is checked in about 1/64 of {@link #increaseThreadNum()} calls.
+     */
+    private static final int CONTENTION_SAMPLE_MASK = 63;
+
     /** 按秒统计的滚动计数器
      * Holds statistics of the recent {@code INTERVAL} milliseconds. The {@code INTERVAL} is divided into time spans
      * by given {@code sampleCount}.
@@ -102,7 +122,17 @@ public class StatisticNode implements Node {
      * Holds statistics of the recent 60 seconds. The windowLengthInMs is deliberately set to 1000 milliseconds,
      * meaning each bucket per second, in this way we can get accurate statistics of each second.
      */
-    private transient Metric rollingCounterInMinute = new ArrayMetric(60, 60 * 1000, false);
+    private transient volatile Metric rollingCounterInMinute = new ArrayMetric(60, 60 * 1000, false);
+
+    /**
+     * Whether the rolling counters have been switched to sharded ones.
+     */
+    private volatile boolean sharded = false;
+
+    /**
+     * Whether the rolling counters record the histogram of RT.
+     */
+    private volatile boolean rtHistogramEnabled = false;
 
     /**
      * The counter for thread count.
@@ -151,7 +181,45 @@ public class StatisticNode implements Node {
 
     @Override
     public void reset() {
-        rollingCounterInSecond = new ArrayMetric(SampleCountProperty.SAMPLE_COUNT, IntervalProperty.INTERVAL);
+        if (sharded) {
+            rollingCounterInSecond = new ShardedArrayMetric(SHARD_COUNT, SampleCountProperty.SAMPLE_COUNT,
+                IntervalProperty.INTERVAL, true);
+        } else {
+            rollingCounterInSecond = new ArrayMetric(SampleCountProperty.SAMPLE_COUNT, IntervalProperty.INTERVAL);
+        }
+        if (rtHistogramEnabled) {
+            rollingCounterInSecond.enableRtHistogram();
+        }
+    }
+
+    /**
+     * Switch the rolling counters of the node to sharded ones. The statistics recorded before are kept.
+     * This takes no effect if the node has been sharded or the shard count is no more than 1.
+     *
+     * @since 1.8.2
+     */
+    public synchronized void enableSharding() {
+        if (sharded || SHARD_COUNT <= 1) {
+            return;
+        }
+        Metric second = rollingCounterInSecond;
+        Metric minute = rollingCounterInMinute;
+        if (!(second instanceof ArrayMetric) || !(minute instanceof ArrayMetric)) {
+            return;
+        }
+        rollingCounterInSecond = new ShardedArrayMetric((ArrayMetric)second, SHARD_COUNT,
+            SampleCountProperty.SAMPLE_COUNT, IntervalProperty.INTERVAL, true);
+        rollingCounterInMinute = new ShardedArrayMetric((ArrayMetric)minute, SHARD_COUNT, 60, 60 * 1000, false);
+        sharded = true;
+        RecordLog.info("[StatisticNode] Statistic node switched to sharded statistics, shardCount={}", SHARD_COUNT);
+    }
+
+    /**
+     * @return whether the node records statistics in sharded rolling counters
+     * @since 1.8.2
+     */
+    public boolean isSharded() {
+        return sharded;
     }
 
     @Override
@@ -243,6 +311,45 @@ public class StatisticNode implements Node {
         return rollingCounterInSecond.minRt();
     }
 
+    @Override
+    public double percentileRt(double percentile) {
+        return RtHistogram.valueAtPercentile(mergeRtHistogram(RtHistogram.localCounts()), percentile);
+    }
+
+    /**
+     * Record the histogram of RT from now on, which is required by {@link #percentileRt(double)}.
+     * This is called when a rule triggering on percentile RT checks the node.
+     *
+     * @since 1.8.2
+     */
+    public void enableRtHistogram() {
+        if (rtHistogramEnabled) {
+            return;
+        }
+        synchronized (this) {
+            if (!rtHistogramEnabled) {
+                rollingCounterInSecond.enableRtHistogram();
+                rollingCounterInMinute.enableRtHistogram();
+                rtHistogramEnabled = true;
+            }
+        }
+    }
+
+    /**
+     * @return whether the node records the histogram of RT
+     * @since 1.8.2
+     */
+    public boolean isRtHistogramEnabled() {
+        return rtHistogramEnabled || RtHistogram.isEnabledForAll();
+    }
+
+    /**
+     * Add the RT histogram counts of current second to given array.
+     */
+    long[] mergeRtHistogram(long[] target) {
+        return rollingCounterInSecond.mergeRtHistogram(target);
+    }
+
     @Override
     public int curThreadNum() {
         return (int)curThreadNum.sum();
@@ -281,6 +388,11 @@ public class StatisticNode implements Node {
     @Override
     public void increaseThreadNum() {
         curThreadNum.increment();
+        if (!sharded && SHARD_THREAD_THRESHOLD > 0
+            && (ThreadLocalRandom.current().nextInt() & CONTENTION_SAMPLE_MASK) == 0
+            && curThreadNum.sum() >= SHARD_THREAD_THRESHOLD) {
+            enableSharding();
+        }
     }
 
     @Override
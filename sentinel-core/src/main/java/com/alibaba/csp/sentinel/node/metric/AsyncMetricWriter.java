@@ -0,0 +1,406 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.node.metric;
+
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.log.RecordLog;
+import com.alibaba.csp.sentinel.util.MappedBufferUtil;
+
+/**
+ * <p>A {@link MetricWriter} that writes metrics in a dedicated writer thread, so that the caller
+ * (the metric timer) never blocks on disk. The format and the rolling of the files are the same as
+ * {@link MetricWriter}, but:</p>
+ *
+ * <ul>
+ * <li>metric lines are encoded directly into a reusable direct buffer, without formatting strings
+ * for every node, and written to the file channel when the buffer is full or the pending metrics
+ * have all been written;</li>
+ * <li>the index file is memory-mapped (region by region), and truncated to the actual size when
+ * the file is closed. Before that, the unused tail of the index file is filled with zero. Index entries
+ * are written after the metrics of the seconds have been flushed. A region is unmapped once it is full
+ * or the file is closed.</li>
+ * </ul>
+ *
+ * <p>When the writer falls behind (e.g. the disk is stuck), metrics beyond the pending limit are dropped
+ * rather than blocking the caller.</p>
+ *
+ * @since 1.8.2
+ */
+public class AsyncMetricWriter extends MetricWriter {
+
+    private static final int MAX_PENDING_BATCHES = 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /**
+     * Max bytes of a metric line except the resource name: 13 numbers, the date and the separators.
+     */
+    private static final int MAX_LINE_SIZE_WITHOUT_RESOURCE = 13 * 20 + 19 + 14 + 1;
+    private static final int INDEX_ENTRY_SIZE = 16;
+    private static final int INDEX_REGION_SIZE = INDEX_ENTRY_SIZE * 4096;
+    private static final int MAX_CACHED_RESOURCE_NAMES = 64 * 1024;
+    private static final long CLOSE_TIMEOUT_MS = 3000;
+
+    private static final MetricBatch CLOSE = new MetricBatch(-1, null);
+
+    private final BlockingQueue<MetricBatch> pendingBatches = new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+    private final Thread writerThread;
+    private volatile boolean closed = false;
+
+    /*
+     * The fields below are only accessed by the writer thread.
+     */
+    final Charset charset = Charset.forName(SentinelConfig.charset());
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final DateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final byte[] digits = new byte[20];
+    private final Map<String, byte[]> resourceNames = new HashMap<>();
+    private long dateTime = -1;
+    private byte[] dateBytes;
+
+    private FileChannel metricChannel;
+    /**
+     * Size of the metric file, excluding the bytes in the buffer.
+     */
+    private long flushedSize;
+    private FileChannel indexChannel;
+    private MappedByteBuffer indexRegion;
+    private long indexFileSize;
+    /**
+     * Index entries (second, offset) waiting for the metrics of the second to be flushed.
+     */
+    private long[] pendingIndex = new long[16];
+    private int pendingIndexSize;
+
+    public AsyncMetricWriter(long singleFileSize, int totalFileCount) {
+        this(METRIC_BASE_DIR, singleFileSize, totalFileCount);
+    }
+
+    AsyncMetricWriter(String baseDir, long singleFileSize, int totalFileCount) {
+        super(baseDir, singleFileSize, totalFileCount);
+        this.writerThread = new NamedThreadFactory("sentinel-metric-writer", true).newThread(new WriterTask());
+        writerThread.start();
+    }
+
+    /**
+     * Submit the metrics to the writer thread. The metrics will be dropped if there are too many pending metrics.
+     *
+     * @param time  timestamp of the metrics
+     * @param nodes metrics of the timestamp
+     */
+    @Override
+    public void write(long time, List<MetricNode> nodes) {
+        if (nodes == null || closed) {
+            return;
+        }
+        if (!pendingBatches.offer(new MetricBatch(time, nodes))) {
+            RecordLog.warn("[AsyncMetricWriter] Too many pending metrics, dropping metrics of time {}", time);
+        }
+    }
+
+    /**
+     * Write the pending metrics and close the files.
+     */
+    @Override
+    public void close() throws Exception {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pendingBatches.offer(CLOSE, CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            writerThread.join(CLOSE_TIMEOUT_MS);
+        } else {
+            RecordLog.warn("[AsyncMetricWriter] Timeout when closing the writer");
+        }
+    }
+
+    private void writeBatch(MetricBatch batch) {
+        try {
+            super.write(batch.time, batch.nodes);
+        } catch (Throwable e) {
+            RecordLog.warn("[AsyncMetricWriter] Write metric error", e);
+        }
+    }
+
+    private void closeWriter() {
+        try {
+            super.close();
+        } catch (Throwable e) {
+            RecordLog.warn("[AsyncMetricWriter] Close metric files error", e);
+        }
+    }
+
+    @Override
+    void writeNodes(List<MetricNode> nodes) throws Exception {
+        for (MetricNode node : nodes) {
+            byte[] resource = resourceBytes(node.getResource());
+            int maxLineSize = MAX_LINE_SIZE_WITHOUT_RESOURCE + resource.length;
+            if (maxLineSize > BUFFER_SIZE) {
+                // A line longer than the buffer (which should be really rare).
+                flush();
+                byte[] line = node.toFatString().getBytes(charset);
+                flushedSize += writeFully(metricChannel, ByteBuffer.wrap(line));
+                continue;
+            }
+            ensureRemaining(maxLineSize);
+            encodeLine(node, resource);
+        }
+    }
+
+    @Override
+    void writeIndex(long time, long offset) {
+        if (pendingIndexSize + 2 > pendingIndex.length) {
+            pendingIndex = Arrays.copyOf(pendingIndex, pendingIndex.length * 2);
+        }
+        pendingIndex[pendingIndexSize++] = time;
+        pendingIndex[pendingIndexSize++] = offset;
+    }
+
+    /**
+     * Write the pending index entries to the index file. Index entries are visible to the readers once written
+     * to the mapped region, so it should be done only after the metrics of the seconds have been flushed.
+     */
+    private void publishIndex() throws Exception {
+        for (int i = 0; i < pendingIndexSize; i += 2) {
+            if (indexRegion == null || indexRegion.remaining() < INDEX_ENTRY_SIZE) {
+                MappedBufferUtil.unmap(indexRegion);
+                indexRegion = null;
+                indexRegion = indexChannel.map(FileChannel.MapMode.READ_WRITE, indexFileSize, INDEX_REGION_SIZE);
+            }
+            // Same layout (big-endian) as DataOutputStream.
+            indexRegion.putLong(pendingIndex[i]);
+            indexRegion.putLong(pendingIndex[i + 1]);
+            indexFileSize += INDEX_ENTRY_SIZE;
+        }
+        pendingIndexSize = 0;
+    }
+
+    private void flushAndPublishIndex() throws Exception {
+        flush();
+        if (indexChannel != null) {
+            publishIndex();
+        }
+    }
+
+    @Override
+    long metricFileSize() {
+        return flushedSize + buffer.position();
+    }
+
+    @Override
+    void openFiles(String fileName, String idxFileName) throws Exception {
+        metricChannel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        flushedSize = 0;
+        ((Buffer)buffer).clear();
+        RandomAccessFile indexFile = new RandomAccessFile(idxFileName, "rw");
+        indexFile.setLength(0);
+        indexChannel = indexFile.getChannel();
+        indexRegion = null;
+        indexFileSize = 0;
+        pendingIndexSize = 0;
+    }
+
+    @Override
+    void closeFiles() throws Exception {
+        if (metricChannel != null) {
+            try {
+                flush();
+            } finally {
+                metricChannel.close();
+                metricChannel = null;
+            }
+        }
+        if (indexChannel != null) {
+            try {
+                publishIndex();
+            } finally {
+                MappedBufferUtil.unmap(indexRegion);
+                indexRegion = null;
+            }
+            try {
+                // Drop the zero-filled tail of the mapped region.
+                indexChannel.truncate(indexFileSize);
+            } catch (Exception e) {
+                // Some platforms (e.g. Windows) do not allow truncating a file that is still mapped.
+                RecordLog.info("[AsyncMetricWriter] Failed to truncate the metric index file", e);
+            } finally {
+                indexChannel.close();
+                indexChannel = null;
+            }
+        }
+    }
+
+    /**
+     * Make sure that the buffer has enough space for the bytes to put, and it should be no more than the capacity.
+     */
+    void ensureRemaining(int size) throws Exception {
+        if (buffer.remaining() < size) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the bytes in the buffer to the metric file.
+     */
+    void flush() throws Exception {
+        if (metricChannel == null || buffer.position() == 0) {
+            return;
+        }
+        // Call via Buffer, or classes built on JDK 9+ would bind to the ByteBuffer overloads missing in JDK 8.
+        ((Buffer)buffer).flip();
+        try {
+            flushedSize += writeFully(metricChannel, buffer);
+        } finally {
+            ((Buffer)buffer).clear();
+        }
+    }
+
+    static int writeFully(FileChannel channel, ByteBuffer src) throws Exception {
+        int size = src.remaining();
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+        return size;
+    }
+
+    /**
+     * Encode the node in the same format as {@link MetricNode#toFatString()}.
+     */
+    private void encodeLine(MetricNode node, byte[] resource) {
+        long timestamp = node.getTimestamp();
+        putLong(timestamp);
+        buffer.put((byte)'|');
+        buffer.put(dateBytes(timestamp));
+        buffer.put((byte)'|');
+        buffer.put(resource);
+        buffer.put((byte)'|');
+        putLong(node.getPassQps());
+        buffer.put((byte)'|');
+        putLong(node.getBlockQps());
+        buffer.put((byte)'|');
+        putLong(node.getSuccessQps());
+        buffer.put((byte)'|');
+        putLong(node.getExceptionQps());
+        buffer.put((byte)'|');
+        putLong(node.getRt());
+        buffer.put((byte)'|');
+        putLong(node.getOccupiedPassQps());
+        buffer.put((byte)'|');
+        putLong(node.getConcurrency());
+        buffer.put((byte)'|');
+        putLong(node.getClassification());
+        buffer.put((byte)'\n');
+    }
+
+    private void putLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            buffer.put(String.valueOf(value).getBytes(charset));
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte)'-');
+            value = -value;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte)('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        buffer.put(digits, pos, digits.length - pos);
+    }
+
+    private byte[] dateBytes(long timestamp) {
+        // All nodes of a batch share the same timestamp, so the date is formatted once per batch.
+        if (timestamp != dateTime) {
+            dateBytes = df.format(new Date(timestamp)).getBytes(charset);
+            dateTime = timestamp;
+        }
+        return dateBytes;
+    }
+
+    private byte[] resourceBytes(String resource) {
+        byte[] bytes = resourceNames.get(resource);
+        if (bytes == null) {
+            if (resourceNames.size() >= MAX_CACHED_RESOURCE_NAMES) {
+                resourceNames.clear();
+            }
+            bytes = resource.replace('|', '_').getBytes(charset);
+            resourceNames.put(resource, bytes);
+        }
+        return bytes;
+    }
+
+    private final class WriterTask implements Runnable {
+
+        @Override
+        public void run() {
+            List<MetricBatch> batches = new ArrayList<>();
+            while (true) {
+                try {
+                    batches.add(pendingBatches.take());
+                } catch (InterruptedException e) {
+                    closeWriter();
+                    return;
+                }
+                // Write all pending batches, and then flush the buffer once.
+                pendingBatches.drainTo(batches);
+                for (MetricBatch batch : batches) {
+                    if (batch == CLOSE) {
+                        closeWriter();
+                        return;
+                    }
+                    writeBatch(batch);
+                }
+                batches.clear();
+                try {
+                    flushAndPublishIndex();
+                } catch (Throwable e) {
+                    RecordLog.warn("[AsyncMetricWriter] Flush metric error", e);
+                }
+            }
+        }
+    }
+
+    private static final class MetricBatch {
+        private final long time;
+        private final List<MetricNode> nodes;
+
+        MetricBatch(long time, List<MetricNode> nodes) {
+            this.time = time;
+            this.nodes = nodes;
+        }
+    }
+}
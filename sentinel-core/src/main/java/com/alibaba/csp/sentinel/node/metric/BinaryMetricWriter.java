@@ -0,0 +1,285 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.node.metric;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+
+/**
+ * <p>Writes metrics in a compact binary format (enabled by {@code csp.sentinel.metric.file.format=binary}),
+ * which can be searched by {@link MetricSearcher} without text parsing. Binary metric files are named like
+ * {@code ${appName}-metrics.bin.pid${pid}.yyyy-MM-dd.[number]} and roll in the same way as text metric files.
+ * They are written asynchronously as {@link AsyncMetricWriter} does.</p>
+ *
+ * <p>A binary metric file starts with a 4-byte magic number, followed by a block for every second:</p>
+ *
+ * <pre>
+ * timestamp (8 bytes) | count (varint) | resource id column | 11 counter columns
+ * </pre>
+ *
+ * <ul>
+ * <li>Resource names are dictionary-encoded. The names are appended to the dictionary file
+ * ({@code ${metricFileName}.dict}, each name as varint length and bytes), and the id of a name is its
+ * position in the dictionary file.</li>
+ * <li>Rows in a block are sorted by the resource id, and the id column is delta-encoded.</li>
+ * <li>Counter columns (pass, block, success, exception, rt, occupied pass, concurrency, classification,
+ * rt p50, rt p90, rt p99) are zigzag varints. Counters are not delta-encoded across seconds, so that every
+ * block can be decoded independently.</li>
+ * </ul>
+ *
+ * <p>The index file has the same format as the text metric files: (second, offset of the block) of every second.</p>
+ *
+ * @since 1.8.2
+ */
+public class BinaryMetricWriter extends AsyncMetricWriter {
+
+    public static final String FORMAT_TEXT = "text";
+    public static final String FORMAT_BINARY = "binary";
+    public static final String METRIC_BINARY_FILE = "metrics.bin";
+
+    /**
+     * "SMB" and the format version.
+     */
+    static final int MAGIC = 0x534D4201;
+    static final int HEADER_SIZE = 4;
+    static final int COLUMN_COUNT = 11;
+
+    private static final int MAX_VAR_LONG_SIZE = 10;
+
+    private final Map<String, Integer> dictionary = new HashMap<>();
+    private ByteBuffer dictBuffer = ByteBuffer.allocate(16 * 1024);
+    private FileChannel dictChannel;
+    private long[] rows = new long[1024];
+
+    public BinaryMetricWriter(long singleFileSize, int totalFileCount) {
+        this(METRIC_BASE_DIR, singleFileSize, totalFileCount);
+    }
+
+    BinaryMetricWriter(String baseDir, long singleFileSize, int totalFileCount) {
+        super(baseDir, singleFileSize, totalFileCount);
+    }
+
+    /**
+     * @return whether metrics are written in binary format
+     */
+    public static boolean isEnabled() {
+        return FORMAT_BINARY.equalsIgnoreCase(SentinelConfig.metricFileFormat());
+    }
+
+    /**
+     * Form base name of the binary metric files, see {@link MetricWriter#formMetricFileName(String, int)}.
+     *
+     * @param appName app name
+     * @param pid     pid
+     * @return base name of the binary metric files
+     */
+    public static String formBinaryMetricFileName(String appName, int pid) {
+        return formMetricFileName(appName, pid, METRIC_BINARY_FILE);
+    }
+
+    static boolean isBinaryMetricFileName(String baseFileName) {
+        return baseFileName.contains("-" + METRIC_BINARY_FILE);
+    }
+
+    @Override
+    String formBaseFileName(String appName, int pid) {
+        return formBinaryMetricFileName(appName, pid);
+    }
+
+    @Override
+    void writeNodes(List<MetricNode> nodes) throws Exception {
+        int count = nodes.size();
+        if (count == 0) {
+            return;
+        }
+        if (rows.length < count) {
+            rows = new long[Math.max(count, rows.length * 2)];
+        }
+        // Sort the rows by resource id, with the row index in the lower 32 bits.
+        for (int i = 0; i < count; i++) {
+            rows[i] = ((long)resourceId(nodes.get(i).getResource()) << 32) | i;
+        }
+        Arrays.sort(rows, 0, count);
+
+        ensureRemaining(8 + MAX_VAR_LONG_SIZE);
+        buffer.putLong(nodes.get(0).getTimestamp());
+        putVarLong(count);
+        long lastId = 0;
+        for (int i = 0; i < count; i++) {
+            long id = rows[i] >>> 32;
+            putVarLong(id - lastId);
+            lastId = id;
+        }
+        for (int column = 0; column < COLUMN_COUNT; column++) {
+            for (int i = 0; i < count; i++) {
+                MetricNode node = nodes.get((int)rows[i]);
+                putVarLong(zigzag(columnValue(node, column)));
+            }
+        }
+    }
+
+    @Override
+    void openFiles(String fileName, String idxFileName) throws Exception {
+        super.openFiles(fileName, idxFileName);
+        dictChannel = FileChannel.open(Paths.get(fileName + METRIC_FILE_DICT_SUFFIX), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        dictionary.clear();
+        ((Buffer)dictBuffer).clear();
+        buffer.putInt(MAGIC);
+    }
+
+    @Override
+    void closeFiles() throws Exception {
+        try {
+            super.closeFiles();
+        } finally {
+            if (dictChannel != null) {
+                dictChannel.close();
+                dictChannel = null;
+            }
+        }
+    }
+
+    @Override
+    void flush() throws Exception {
+        // Names should be written before the blocks referring to them.
+        if (dictChannel != null && dictBuffer.position() > 0) {
+            ((Buffer)dictBuffer).flip();
+            try {
+                writeFully(dictChannel, dictBuffer);
+            } finally {
+                ((Buffer)dictBuffer).clear();
+            }
+        }
+        super.flush();
+    }
+
+    private int resourceId(String resource) {
+        // Keep the same resource name as text metric files.
+        String name = resource.replace('|', '_');
+        Integer id = dictionary.get(name);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(name, id);
+            byte[] bytes = name.getBytes(charset);
+            if (dictBuffer.remaining() < MAX_VAR_LONG_SIZE + bytes.length) {
+                ByteBuffer newBuffer = ByteBuffer.allocate(
+                    Math.max(dictBuffer.capacity() * 2, dictBuffer.position() + MAX_VAR_LONG_SIZE + bytes.length));
+                ((Buffer)dictBuffer).flip();
+                newBuffer.put(dictBuffer);
+                dictBuffer = newBuffer;
+            }
+            putVarLong(dictBuffer, bytes.length);
+            dictBuffer.put(bytes);
+        }
+        return id;
+    }
+
+    private void putVarLong(long value) throws Exception {
+        ensureRemaining(MAX_VAR_LONG_SIZE);
+        putVarLong(buffer, value);
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte)((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte)value);
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long columnValue(MetricNode node, int column) {
+        switch (column) {
+            case 0:
+                return node.getPassQps();
+            case 1:
+                return node.getBlockQps();
+            case 2:
+                return node.getSuccessQps();
+            case 3:
+                return node.getExceptionQps();
+            case 4:
+                return node.getRt();
+            case 5:
+                return node.getOccupiedPassQps();
+            case 6:
+                return node.getConcurrency();
+            case 7:
+                return node.getClassification();
+            case 8:
+                return node.getRtP50();
+            case 9:
+                return node.getRtP90();
+            default:
+                return node.getRtP99();
+        }
+    }
+
+    static void setColumnValue(MetricNode node, int column, long value) {
+        switch (column) {
+            case 0:
+                node.setPassQps(value);
+                break;
+            case 1:
+                node.setBlockQps(value);
+                break;
+            case 2:
+                node.setSuccessQps(value);
+                break;
+            case 3:
+                node.setExceptionQps(value);
+                break;
+            case 4:
+                node.setRt(value);
+                break;
+            case 5:
+                node.setOccupiedPassQps(value);
+                break;
+            case 6:
+                node.setConcurrency((int)value);
+                break;
+            case 7:
+                node.setClassification((int)value);
+                break;
+            case 8:
+                node.setRtP50(value);
+                break;
+            case 9:
+                node.setRtP90(value);
+                break;
+            default:
+                node.setRtP99(value);
+                break;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.node.metric;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads metrics from binary metric files, see {@link BinaryMetricWriter} for the format.
+ * Not thread-safe, which is guarded by {@link MetricSearcher}.
+ *
+ * @since 1.8.2
+ */
+class BinaryMetricsReader extends MetricsReader {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final Charset charset;
+    /**
+     * Loaded dictionaries of the metric files.
+     */
+    private final Map<String, Dictionary> dictionaries = new HashMap<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    BinaryMetricsReader(Charset charset) {
+        super(charset);
+        this.charset = charset;
+    }
+
+    @Override
+    List<MetricNode> readMetricsByEndTime(List<String> fileNames, int pos, long offset,
+                                          long beginTimeMs, long endTimeMs, String identity) throws Exception {
+        retainDictionaries(fileNames);
+        List<MetricNode> list = new ArrayList<MetricNode>(1024);
+        long beginSecond = beginTimeMs / 1000;
+        long endSecond = endTimeMs / 1000;
+        for (; pos < fileNames.size(); pos++, offset = 0) {
+            String fileName = fileNames.get(pos);
+            int identityId = -1;
+            if (identity != null) {
+                identityId = dictionary(fileName).idOf(identity);
+                if (identityId < 0) {
+                    // No metrics of the resource in this file.
+                    continue;
+                }
+            }
+            if (!readBlocks(list, fileName, offset, beginSecond, endSecond, identityId, MAX_LINES_RETURN)) {
+                break;
+            }
+        }
+        return list;
+    }
+
+    @Override
+    List<MetricNode> readMetrics(List<String> fileNames, int pos, long offset, int recommendLines)
+        throws Exception {
+        retainDictionaries(fileNames);
+        List<MetricNode> list = new ArrayList<MetricNode>(recommendLines);
+        for (; pos < fileNames.size() && list.size() < recommendLines; pos++, offset = 0) {
+            readBlocks(list, fileNames.get(pos), offset, 0, Long.MAX_VALUE, -1, recommendLines);
+        }
+        return list;
+    }
+
+    /**
+     * Read the blocks of seconds in [beginSecond, endSecond] from the offset. Blocks are always read as a whole,
+     * so that the metrics of a second are not split.
+     *
+     * @return whether to continue reading the next file
+     */
+    private boolean readBlocks(List<MetricNode> list, String fileName, long offset, long beginSecond,
+                               long endSecond, int identityId, int maxLines) throws Exception {
+        Dictionary dictionary = dictionary(fileName);
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(fileName);
+            BlockInput input = new BlockInput(in.getChannel(), readBuffer);
+            if (offset < BinaryMetricWriter.HEADER_SIZE) {
+                if (input.readInt() != BinaryMetricWriter.MAGIC) {
+                    return true;
+                }
+            } else {
+                input.position(offset);
+            }
+            List<MetricNode> block = new ArrayList<>();
+            while (list.size() < maxLines && input.hasRemaining()) {
+                block.clear();
+                long timestamp = input.readLong();
+                long second = timestamp / 1000;
+                if (second < beginSecond || second > endSecond) {
+                    return false;
+                }
+                if (!readBlock(input, block, timestamp, dictionary, identityId)) {
+                    return false;
+                }
+                list.addAll(block);
+            }
+            return list.size() < maxLines;
+        } catch (EOFException ex) {
+            // The last block is being written.
+            return true;
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+    }
+
+    private boolean readBlock(BlockInput input, List<MetricNode> block, long timestamp, Dictionary dictionary,
+                              int identityId) throws Exception {
+        int count = (int)input.readVarLong();
+        long[] ids = new long[count];
+        long id = 0;
+        for (int i = 0; i < count; i++) {
+            id += input.readVarLong();
+            ids[i] = id;
+        }
+        if (count > 0 && !dictionary.contains(ids[count - 1])) {
+            // Names are always written before the blocks, so they should be found after reloading.
+            dictionary.load(charset);
+            if (!dictionary.contains(ids[count - 1])) {
+                return false;
+            }
+        }
+        MetricNode[] nodes = new MetricNode[count];
+        for (int i = 0; i < count; i++) {
+            if (identityId < 0 || ids[i] == identityId) {
+                MetricNode node = new MetricNode();
+                node.setTimestamp(timestamp);
+                node.setResource(dictionary.nameOf((int)ids[i]));
+                nodes[i] = node;
+            }
+        }
+        for (int column = 0; column < BinaryMetricWriter.COLUMN_COUNT; column++) {
+            for (int i = 0; i < count; i++) {
+                long value = BinaryMetricWriter.unzigzag(input.readVarLong());
+                if (nodes[i] != null) {
+                    BinaryMetricWriter.setColumnValue(nodes[i], column, value);
+                }
+            }
+        }
+        for (MetricNode node : nodes) {
+            if (node != null) {
+                block.add(node);
+            }
+        }
+        return true;
+    }
+
+    private Dictionary dictionary(String fileName) throws Exception {
+        Dictionary dictionary = dictionaries.get(fileName);
+        if (dictionary == null) {
+            dictionary = new Dictionary(fileName + MetricWriter.METRIC_FILE_DICT_SUFFIX);
+            dictionaries.put(fileName, dictionary);
+        }
+        dictionary.load(charset);
+        return dictionary;
+    }
+
+    private void retainDictionaries(List<String> fileNames) {
+        Set<String> names = new HashSet<>(fileNames);
+        for (Iterator<String> it = dictionaries.keySet().iterator(); it.hasNext(); ) {
+            if (!names.contains(it.next())) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Resource names of a binary metric file, loaded incrementally as the file grows.
+     */
+    private static final class Dictionary {
+        private final String fileName;
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        private long loadedSize;
+
+        Dictionary(String fileName) {
+            this.fileName = fileName;
+        }
+
+        void load(Charset charset) throws Exception {
+            File file = new File(fileName);
+            if (file.length() <= loadedSize) {
+                return;
+            }
+            FileInputStream in = new FileInputStream(file);
+            try {
+                BlockInput input = new BlockInput(in.getChannel(), ByteBuffer.allocate(READ_BUFFER_SIZE));
+                input.position(loadedSize);
+                while (input.hasRemaining()) {
+                    int length = (int)input.readVarLong();
+                    String name = new String(input.readBytes(length), charset);
+                    ids.put(name, names.size());
+                    names.add(name);
+                    loadedSize = input.position();
+                }
+            } catch (EOFException ex) {
+                // The last name is being written.
+            } finally {
+                in.close();
+            }
+        }
+
+        boolean contains(long id) {
+            return id < names.size();
+        }
+
+        String nameOf(int id) {
+            return names.get(id);
+        }
+
+        int idOf(String name) {
+            Integer id = ids.get(name);
+            return id == null ? -1 : id;
+        }
+    }
+
+    /**
+     * Buffered sequential input of a file channel.
+     */
+    private static final class BlockInput {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        /**
+         * Position in the file of the end of the buffer.
+         */
+        private long bufferEnd;
+
+        BlockInput(FileChannel channel, ByteBuffer buffer) {
+            this.channel = channel;
+            this.buffer = buffer;
+            ((Buffer)buffer).clear();
+            ((Buffer)buffer).flip();
+        }
+
+        void position(long position) throws Exception {
+            channel.position(position);
+            bufferEnd = position;
+            ((Buffer)buffer).clear();
+            ((Buffer)buffer).flip();
+        }
+
+        long position() {
+            return bufferEnd - buffer.remaining();
+        }
+
+        boolean hasRemaining() throws Exception {
+            return buffer.hasRemaining() || fill();
+        }
+
+        int readInt() throws Exception {
+            require(4);
+            return buffer.getInt();
+        }
+
+        long readLong() throws Exception {
+            require(8);
+            return buffer.getLong();
+        }
+
+        long readVarLong() throws Exception {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                require(1);
+                byte b = buffer.get();
+                value |= (long)(b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed varint in binary metric file");
+        }
+
+        byte[] readBytes(int length) throws Exception {
+            byte[] bytes = new byte[length];
+            int read = 0;
+            while (read < length) {
+                require(1);
+                int n = Math.min(length - read, buffer.remaining());
+                buffer.get(bytes, read, n);
+                read += n;
+            }
+            return bytes;
+        }
+
+        private void require(int size) throws Exception {
+            while (buffer.remaining() < size) {
+                if (!fill()) {
+                    throw new EOFException();
+                }
+            }
+        }
+
+        private boolean fill() throws Exception {
+            buffer.compact();
+            int n;
+            try {
+                n = channel.read(buffer);
+            } finally {
+                ((Buffer)buffer).flip();
+            }
+            if (n <= 0) {
+                return false;
+            }
+            bufferEnd += n;
+            return true;
+        }
+    }
+}
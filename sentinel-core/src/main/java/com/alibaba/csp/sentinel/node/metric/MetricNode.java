@@ -50,6 +50,16 @@ public class MetricNode {
      */
     private int concurrency;
 
+    /**
+     * Percentiles of RT (only available when RT histogram is enabled). They are carried by the binary
+     * metric format only, as readers of the text formats expect a fixed amount of fields.
+     *
+     * @since 1.8.2
+     */
+    private long rtP50;
+    private long rtP90;
+    private long rtP99;
+
     public long getTimestamp() {
         return timestamp;
     }
@@ -132,6 +142,33 @@ public class MetricNode {
         return this;
     }
 
+    public long getRtP50() {
+        return rtP50;
+    }
+
+    public MetricNode setRtP50(long rtP50) {
+        this.rtP50 = rtP50;
+        return this;
+    }
+
+    public long getRtP90() {
+        return rtP90;
+    }
+
+    public MetricNode setRtP90(long rtP90) {
+        this.rtP90 = rtP90;
+        return this;
+    }
+
+    public long getRtP99() {
+        return rtP99;
+    }
+
+    public MetricNode setRtP99(long rtP99) {
+        this.rtP99 = rtP99;
+        return this;
+    }
+
     @Override
     public String toString() {
         return "MetricNode{" +
@@ -145,6 +182,9 @@ public class MetricNode {
             ", rt=" + rt +
             ", concurrency=" + concurrency +
             ", occupiedPassQps=" + occupiedPassQps +
+            ", rtP50=" + rtP50 +
+            ", rtP90=" + rtP90 +
+            ", rtP99=" + rtP99 +
             '}';
     }
 
@@ -0,0 +1,150 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.node.metric;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.log.RecordLog;
+
+/**
+ * <p>Keeps the aggregated metrics of the latest seconds in memory, so that live metrics can be
+ * consumed incrementally without reading metric files.</p>
+ *
+ * <p>{@link MetricTimerListener} publishes the metrics of every second, and each published second gets
+ * a sequence number. Subscribers hold a cursor (the sequence of the next second to read) and read
+ * the seconds after it. Only the latest {@code csp.sentinel.metric.stream.capacity} seconds are kept,
+ * so a subscriber which falls behind will skip the overwritten seconds.</p>
+ *
+ * <p>The buffer is inactive until it's read for the first time, and nothing is kept before that.</p>
+ *
+ * @since 1.8.2
+ */
+public final class MetricRingBuffer {
+
+    private static final MetricRingBuffer INSTANCE = new MetricRingBuffer(SentinelConfig.metricStreamCapacity());
+
+    private final List<MetricNode>[] slots;
+    /**
+     * Sequence of the next second to publish, guarded by this.
+     */
+    private long nextSequence;
+    private List<Runnable> waiters = new ArrayList<>();
+
+    private volatile boolean active;
+
+    @SuppressWarnings("unchecked")
+    MetricRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity should be positive");
+        }
+        this.slots = (List<MetricNode>[])new List<?>[capacity];
+    }
+
+    public static MetricRingBuffer getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Publish the metrics of a second and wake up the waiting subscribers.
+     *
+     * @param nodes metrics of the second
+     */
+    public void publish(List<MetricNode> nodes) {
+        if (!active) {
+            return;
+        }
+        List<Runnable> toNotify;
+        synchronized (this) {
+            slots[(int)(nextSequence % slots.length)] = Collections.unmodifiableList(nodes);
+            nextSequence++;
+            if (waiters.isEmpty()) {
+                return;
+            }
+            toNotify = waiters;
+            waiters = new ArrayList<>();
+        }
+        for (Runnable waiter : toNotify) {
+            try {
+                waiter.run();
+            } catch (Throwable ex) {
+                RecordLog.warn("[MetricRingBuffer] Error when notifying metric subscriber", ex);
+            }
+        }
+    }
+
+    /**
+     * Read the metrics of at most {@code maxSeconds} seconds from the cursor. A negative cursor
+     * (or a cursor beyond the latest second, e.g. after restarting) means reading from now on.
+     *
+     * @param cursor     sequence of the next second to read
+     * @param maxSeconds max amount of seconds to read
+     * @param out        list to add the metrics to
+     * @return the cursor to read next time
+     */
+    public long read(long cursor, int maxSeconds, List<MetricNode> out) {
+        active = true;
+        synchronized (this) {
+            if (cursor < 0 || cursor > nextSequence) {
+                return nextSequence;
+            }
+            long from = Math.max(cursor, nextSequence - slots.length);
+            long to = Math.min(nextSequence, from + Math.max(maxSeconds, 0));
+            for (long seq = from; seq < to; seq++) {
+                out.addAll(slots[(int)(seq % slots.length)]);
+            }
+            return to;
+        }
+    }
+
+    /**
+     * Register a one-off waiter which will be run (in the publishing thread) when a second after
+     * the cursor is published.
+     *
+     * @param cursor sequence of the next second to read
+     * @param waiter the waiter, which should not block
+     * @return false if the metrics after the cursor are available now, and the waiter is not registered
+     */
+    public boolean await(long cursor, Runnable waiter) {
+        active = true;
+        synchronized (this) {
+            if (cursor >= 0 && cursor < nextSequence) {
+                return false;
+            }
+            waiters.add(waiter);
+            return true;
+        }
+    }
+
+    /**
+     * Remove a registered waiter, e.g. when the subscriber has timed out.
+     *
+     * @param waiter the waiter
+     */
+    public synchronized void cancel(Runnable waiter) {
+        waiters.remove(waiter);
+    }
+
+    public synchronized long nextSequence() {
+        return nextSequence;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+}
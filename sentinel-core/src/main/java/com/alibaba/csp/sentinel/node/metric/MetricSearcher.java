@@ -69,7 +69,11 @@ public class MetricSearcher {
             this.baseDir += File.separator;
         }
         this.baseFileName = baseFileName;
-        metricsReader = new MetricsReader(charset);
+        if (BinaryMetricWriter.isBinaryMetricFileName(baseFileName)) {
+            metricsReader = new BinaryMetricsReader(charset);
+        } else {
+            metricsReader = new MetricsReader(charset);
+        }
     }
 
     /**
@@ -206,6 +210,10 @@ public class MetricSearcher {
             long second;
             lastPosition.offsetInIndex = in.getChannel().position();
             while ((second = indexIn.readLong()) < beginSecond) {
+                if (second == 0) {
+                    // Unused tail of a memory-mapped index file, see AsyncMetricWriter.
+                    return -1;
+                }
                 offset = indexIn.readLong();
                 lastPosition.offsetInIndex = in.getChannel().position();
             }
@@ -33,8 +33,7 @@ import com.alibaba.csp.sentinel.slots.clusterbuilder.ClusterBuilderSlot;
  */
 public class MetricTimerListener implements Runnable {
 
-    private static final MetricWriter metricWriter = new MetricWriter(SentinelConfig.singleMetricFileSize(),
-        SentinelConfig.totalMetricFileCount());
+    private static final MetricWriter metricWriter = newMetricWriter();
 
     @Override
     public void run() {
@@ -52,10 +51,23 @@ public class MetricTimerListener implements Runnable {
                 } catch (Exception e) {
                     RecordLog.warn("[MetricTimerListener] Write metric error", e);
                 }
+                MetricRingBuffer.getInstance().publish(entry.getValue());
             }
         }
     }
 
+    private static MetricWriter newMetricWriter() {
+        long singleFileSize = SentinelConfig.singleMetricFileSize();
+        int totalFileCount = SentinelConfig.totalMetricFileCount();
+        if (BinaryMetricWriter.isEnabled()) {
+            return new BinaryMetricWriter(singleFileSize, totalFileCount);
+        }
+        if (SentinelConfig.metricWriterAsync()) {
+            return new AsyncMetricWriter(singleFileSize, totalFileCount);
+        }
+        return new MetricWriter(singleFileSize, totalFileCount);
+    }
+
     private void aggregate(Map<Long, List<MetricNode>> maps, Map<Long, MetricNode> metrics, ClusterNode node) {
         for (Entry<Long, MetricNode> entry : metrics.entrySet()) {
             long time = entry.getKey();
@@ -56,6 +56,12 @@ public class MetricWriter {
      */
     public static final String METRIC_FILE = "metrics.log";
     public static final String METRIC_FILE_INDEX_SUFFIX = ".idx";
+    /**
+     * Suffix of the dictionary file of binary metric files, see {@link BinaryMetricWriter}.
+     *
+     * @since 1.8.2
+     */
+    public static final String METRIC_FILE_DICT_SUFFIX = ".dict";
     public static final Comparator<String> METRIC_FILE_NAME_CMP = new MetricFileNameComparator();
 
     private final DateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
@@ -89,12 +95,22 @@ public class MetricWriter {
     }
 
     public MetricWriter(long singleFileSize, int totalFileCount) {
+        this(METRIC_BASE_DIR, singleFileSize, totalFileCount);
+    }
+
+    /**
+     * @param baseDir        directory of the metric files, ending with the file separator
+     * @param singleFileSize max size of a single metric file
+     * @param totalFileCount max count of the metric files
+     * @since 1.8.2
+     */
+    MetricWriter(String baseDir, long singleFileSize, int totalFileCount) {
         if (singleFileSize <= 0 || totalFileCount <= 0) {
             throw new IllegalArgumentException();
         }
         RecordLog.info("[MetricWriter] Creating new MetricWriter, singleFileSize={}, totalFileCount={}",
             singleFileSize, totalFileCount);
-        this.baseDir = METRIC_BASE_DIR;
+        this.baseDir = baseDir;
         File dir = new File(baseDir);
         if (!dir.exists()) {
             dir.mkdirs();
@@ -131,7 +147,7 @@ public class MetricWriter {
         }
         // first write, should create file
         if (curMetricFile == null) {
-            baseFileName = formMetricFileName(appName, pid);
+            baseFileName = formBaseFileName(appName, pid);
             closeAndNewFile(nextFileNameOfDay(time));
         }
         if (!(curMetricFile.exists() && curMetricIndexFile.exists())) {
@@ -142,52 +158,75 @@ public class MetricWriter {
         if (second < lastSecond) {
             // 时间靠前的直接忽略，不应该发生。
         } else if (second == lastSecond) {
-            for (MetricNode node : nodes) {
-                outMetricBuf.write(node.toFatString().getBytes(CHARSET));
-            }
-            outMetricBuf.flush();
+            writeNodes(nodes);
             if (!validSize()) {
                 closeAndNewFile(nextFileNameOfDay(time));
             }
         } else {
-            writeIndex(second, outMetric.getChannel().position());
+            writeIndex(second, metricFileSize());
             if (isNewDay(lastSecond, second)) {
                 closeAndNewFile(nextFileNameOfDay(time));
-                for (MetricNode node : nodes) {
-                    outMetricBuf.write(node.toFatString().getBytes(CHARSET));
-                }
-                outMetricBuf.flush();
-                if (!validSize()) {
-                    closeAndNewFile(nextFileNameOfDay(time));
-                }
-            } else {
-                for (MetricNode node : nodes) {
-                    outMetricBuf.write(node.toFatString().getBytes(CHARSET));
-                }
-                outMetricBuf.flush();
-                if (!validSize()) {
-                    closeAndNewFile(nextFileNameOfDay(time));
-                }
+            }
+            writeNodes(nodes);
+            if (!validSize()) {
+                closeAndNewFile(nextFileNameOfDay(time));
             }
             lastSecond = second;
         }
     }
 
     public synchronized void close() throws Exception {
-        if (outMetricBuf != null) {
-            outMetricBuf.close();
-        }
-        if (outIndex != null) {
-            outIndex.close();
+        closeFiles();
+    }
+
+    /**
+     * Write the metric lines of the nodes to current metric file.
+     */
+    void writeNodes(List<MetricNode> nodes) throws Exception {
+        for (MetricNode node : nodes) {
+            outMetricBuf.write(node.toFatString().getBytes(CHARSET));
         }
+        outMetricBuf.flush();
     }
 
-    private void writeIndex(long time, long offset) throws Exception {
+    /**
+     * Append an index entry (second, offset of the first metric line of the second) to current index file.
+     */
+    void writeIndex(long time, long offset) throws Exception {
         outIndex.writeLong(time);
         outIndex.writeLong(offset);
         outIndex.flush();
     }
 
+    /**
+     * @return size of current metric file, including the lines that are written but not flushed yet
+     */
+    long metricFileSize() throws Exception {
+        return outMetric.getChannel().size();
+    }
+
+    /**
+     * @return base name of the metric files, see {@link #formMetricFileName(String, int)}
+     */
+    String formBaseFileName(String appName, int pid) {
+        return formMetricFileName(appName, pid);
+    }
+
+    void openFiles(String fileName, String idxFileName) throws Exception {
+        outMetric = new FileOutputStream(fileName, append);
+        outMetricBuf = new BufferedOutputStream(outMetric);
+        outIndex = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(idxFileName, append)));
+    }
+
+    void closeFiles() throws Exception {
+        if (outMetricBuf != null) {
+            outMetricBuf.close();
+        }
+        if (outIndex != null) {
+            outIndex.close();
+        }
+    }
+
     private String nextFileNameOfDay(long time) {
         List<String> list = new ArrayList<String>();
         File baseFile = new File(baseDir);
@@ -198,6 +237,7 @@ public class MetricWriter {
             String fileName = file.getName();
             if (fileName.contains(fileNameModel)
                 && !fileName.endsWith(METRIC_FILE_INDEX_SUFFIX)
+                && !fileName.endsWith(METRIC_FILE_DICT_SUFFIX)
                 && !fileName.endsWith(".lck")) {
                 list.add(file.getAbsolutePath());
             }
@@ -330,30 +370,27 @@ public class MetricWriter {
             RecordLog.info("[MetricWriter] Removing metric file: {}", fileName);
             new File(indexFile).delete();
             RecordLog.info("[MetricWriter] Removing metric index file: {}", indexFile);
+            File dictFile = new File(fileName + METRIC_FILE_DICT_SUFFIX);
+            if (dictFile.exists()) {
+                dictFile.delete();
+                RecordLog.info("[MetricWriter] Removing metric dictionary file: {}", dictFile);
+            }
         }
     }
 
     private void closeAndNewFile(String fileName) throws Exception {
         removeMoreFiles();
-        if (outMetricBuf != null) {
-            outMetricBuf.close();
-        }
-        if (outIndex != null) {
-            outIndex.close();
-        }
-        outMetric = new FileOutputStream(fileName, append);
-        outMetricBuf = new BufferedOutputStream(outMetric);
-        curMetricFile = new File(fileName);
+        closeFiles();
         String idxFile = formIndexFileName(fileName);
+        openFiles(fileName, idxFile);
+        curMetricFile = new File(fileName);
         curMetricIndexFile = new File(idxFile);
-        outIndex = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(idxFile, append)));
         RecordLog.info("[MetricWriter] New metric file created: {}", fileName);
         RecordLog.info("[MetricWriter] New metric index file created: {}", idxFile);
     }
 
     private boolean validSize() throws Exception {
-        long size = outMetric.getChannel().size();
-        return size < singleFileSize;
+        return metricFileSize() < singleFileSize;
     }
 
     private boolean isNewDay(long lastSecond, long second) {
@@ -374,6 +411,10 @@ public class MetricWriter {
      * @return metric file name.
      */
     public static String formMetricFileName(String appName, int pid) {
+        return formMetricFileName(appName, pid, METRIC_FILE);
+    }
+
+    static String formMetricFileName(String appName, int pid, String metricFile) {
         if (appName == null) {
             appName = "";
         }
@@ -383,7 +424,7 @@ public class MetricWriter {
         if (appName.contains(dot)) {
             appName = appName.replace(dot, separator);
         }
-        String name = appName + separator + METRIC_FILE;
+        String name = appName + separator + metricFile;
         if (LogBase.isLogNameUsePid()) {
             name += ".pid" + pid;
         }
@@ -30,7 +30,7 @@ class MetricsReader {
     /**
      * Avoid OOM in any cases.
      */
-    private static final int MAX_LINES_RETURN = 100000;
+    static final int MAX_LINES_RETURN = 100000;
 
     private final Charset charset;
 
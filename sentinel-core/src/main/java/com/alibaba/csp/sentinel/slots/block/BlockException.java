@@ -61,6 +61,21 @@ public abstract class BlockException extends Exception {
         this.rule = rule;
     }
 
+    /**
+     * Create a block exception with suppression disabled. Such exception carries neither
+     * stack trace nor suppressed exceptions, so it could be preallocated and shared among invocations.
+     *
+     * @param ruleLimitApp      the limit app of the rule
+     * @param rule              the triggered rule
+     * @param enableSuppression whether suppression is enabled
+     * @since 1.8.2
+     */
+    protected BlockException(String ruleLimitApp, AbstractRule rule, boolean enableSuppression) {
+        super(null, null, enableSuppression, false);
+        this.ruleLimitApp = ruleLimitApp;
+        this.rule = rule;
+    }
+
     public BlockException(String message, Throwable cause) {
         super(message, cause);
     }
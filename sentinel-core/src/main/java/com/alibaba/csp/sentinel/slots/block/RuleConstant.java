@@ -25,6 +25,20 @@ public final class RuleConstant {
 
     public static final int FLOW_GRADE_THREAD = 0;
     public static final int FLOW_GRADE_QPS = 1;
+    /**
+     * Reject requests when the response time at given percentile (see {@code FlowRule#rtPercentile})
+     * in current second exceeds the threshold count (in milliseconds).
+     *
+     * @since 1.8.2
+     */
+    public static final int FLOW_GRADE_PERCENTILE_RT = 2;
+    /**
+     * Limit the concurrency (thread count) with a limit derived from the response time continuously,
+     * where the threshold count is the max limit.
+     *
+     * @since 1.8.2
+     */
+    public static final int FLOW_GRADE_ADAPTIVE_CONCURRENCY = 3;
 
     public static final int DEGRADE_GRADE_RT = 0;
     /**
@@ -56,6 +70,12 @@ public final class RuleConstant {
     public static final int CONTROL_BEHAVIOR_WARM_UP = 1;
     public static final int CONTROL_BEHAVIOR_RATE_LIMITER = 2;
     public static final int CONTROL_BEHAVIOR_WARM_UP_RATE_LIMITER = 3;
+    /**
+     * Token bucket with burst capacity (see {@link com.alibaba.csp.sentinel.slots.block.flow.FlowRule#getBurstCount()}).
+     *
+     * @since 1.8.2
+     */
+    public static final int CONTROL_BEHAVIOR_TOKEN_BUCKET = 4;
 
     public static final int DEFAULT_BLOCK_STRATEGY = 0;
     public static final int TRY_AGAIN_BLOCK_STRATEGY = 1;
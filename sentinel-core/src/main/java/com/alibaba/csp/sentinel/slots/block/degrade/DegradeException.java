@@ -30,6 +30,13 @@ public class DegradeException extends BlockException {
         super(ruleLimitApp, rule);
     }
 
+    /**
+     * @since 1.8.2
+     */
+    protected DegradeException(String ruleLimitApp, DegradeRule rule, boolean enableSuppression) {
+        super(ruleLimitApp, rule, enableSuppression);
+    }
+
     public DegradeException(String message, Throwable cause) {
         super(message, cause);
     }
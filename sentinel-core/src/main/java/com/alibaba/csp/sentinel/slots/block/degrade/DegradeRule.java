@@ -15,6 +15,7 @@
  */
 package com.alibaba.csp.sentinel.slots.block.degrade;
 
+import com.alibaba.csp.sentinel.Constants;
 import com.alibaba.csp.sentinel.slots.block.AbstractRule;
 import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 
@@ -87,8 +88,23 @@ public class DegradeRule extends AbstractRule {
      */
     private double slowRatioThreshold = 1.0d;
 
+    /**
+     * The percentile of response time in RT mode, in [0, 100]. If positive, the circuit breaker will open
+     * when the response time at this percentile in the statistic interval exceeds {@link #count} (max allowed RT),
+     * instead of checking the slow request ratio. 0 (by default) means disabled, the same as
+     * {@code FlowRule#rtPercentile}.
+     *
+     * @since 1.8.2
+     */
+    private double rtPercentile = 0;
+
     private int statIntervalMs = 1000;
 
+    /**
+     * The preallocated block exception of this rule in recycling mode.
+     */
+    private volatile DegradeException sharedException;
+
     public int getGrade() {
         return grade;
     }
@@ -134,6 +150,15 @@ public class DegradeRule extends AbstractRule {
         return this;
     }
 
+    public double getRtPercentile() {
+        return rtPercentile;
+    }
+
+    public DegradeRule setRtPercentile(double rtPercentile) {
+        this.rtPercentile = rtPercentile;
+        return this;
+    }
+
     public int getStatIntervalMs() {
         return statIntervalMs;
     }
@@ -143,6 +168,22 @@ public class DegradeRule extends AbstractRule {
         return this;
     }
 
+    /**
+     * Get the block exception of this rule. In recycling mode (see {@link Constants#RECYCLE}) the exception
+     * is preallocated and shared, otherwise a new one is created.
+     */
+    DegradeException newBlockException() {
+        if (!Constants.RECYCLE) {
+            return new DegradeException(getLimitApp(), this);
+        }
+        DegradeException e = sharedException;
+        if (e == null) {
+            e = new DegradeException(getLimitApp(), this, false);
+            sharedException = e;
+        }
+        return e;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) { return true; }
@@ -154,13 +195,14 @@ public class DegradeRule extends AbstractRule {
             grade == rule.grade &&
             minRequestAmount == rule.minRequestAmount &&
             Double.compare(rule.slowRatioThreshold, slowRatioThreshold) == 0 &&
+            Double.compare(rule.rtPercentile, rtPercentile) == 0 &&
             statIntervalMs == rule.statIntervalMs;
     }
 
     @Override
     public int hashCode() {
         return Objects.hash(super.hashCode(), count, timeWindow, grade, minRequestAmount,
-            slowRatioThreshold, statIntervalMs);
+            slowRatioThreshold, rtPercentile, statIntervalMs);
     }
 
     @Override
@@ -173,6 +215,7 @@ public class DegradeRule extends AbstractRule {
             ", timeWindow=" + timeWindow +
             ", minRequestAmount=" + minRequestAmount +
             ", slowRatioThreshold=" + slowRatioThreshold +
+            ", rtPercentile=" + rtPercentile +
             ", statIntervalMs=" + statIntervalMs +
             '}';
     }
@@ -195,7 +195,8 @@ public final class DegradeRuleManager {
         }
         switch (rule.getGrade()) {
             case RuleConstant.DEGRADE_GRADE_RT:
-                return rule.getSlowRatioThreshold() >= 0 && rule.getSlowRatioThreshold() <= 1;
+                return rule.getSlowRatioThreshold() >= 0 && rule.getSlowRatioThreshold() <= 1
+                    && rule.getRtPercentile() >= 0 && rule.getRtPercentile() <= 100;
             case RuleConstant.DEGRADE_GRADE_EXCEPTION_RATIO:
                 return rule.getCount() <= 1;
             case RuleConstant.DEGRADE_GRADE_EXCEPTION_COUNT:
@@ -55,7 +55,7 @@ public class DegradeSlot extends AbstractLinkedProcessorSlot<DefaultNode> {
         for (CircuitBreaker cb : circuitBreakers) {
             //遍历降级规则
             if (!cb.tryPass(context)) {
-                throw new DegradeException(cb.getRule().getLimitApp(), cb.getRule());
+                throw cb.getRule().newBlockException();
             }
         }
     }
@@ -63,7 +63,7 @@ public class DegradeSlot extends AbstractLinkedProcessorSlot<DefaultNode> {
     @Override
     public void exit(Context context, ResourceWrapper r, int count, Object... args) {
         Entry curEntry = context.getCurEntry();
-        if (curEntry.getBlockError() != null) {
+        if (curEntry.getBlockError() != null || curEntry.isRolledBack()) {
             fireExit(context, r, count, args);
             return;
         }
@@ -158,8 +158,8 @@ public class ExceptionCircuitBreaker extends AbstractCircuitBreaker {
         @Override
         protected WindowWrap<SimpleErrorCounter> resetWindowTo(WindowWrap<SimpleErrorCounter> w, long startTime) {
             // Update the start time and reset value.
-            w.resetTo(startTime);
             w.value().reset();
+            w.resetTo(startTime);
             return w;
         }
     }
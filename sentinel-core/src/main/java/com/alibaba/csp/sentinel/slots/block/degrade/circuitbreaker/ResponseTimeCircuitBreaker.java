@@ -19,15 +19,21 @@ import java.util.List;
 import java.util.concurrent.atomic.LongAdder;
 
 import com.alibaba.csp.sentinel.Entry;
+import com.alibaba.csp.sentinel.config.SentinelConfig;
 import com.alibaba.csp.sentinel.context.Context;
 import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 import com.alibaba.csp.sentinel.slots.block.degrade.DegradeRule;
 import com.alibaba.csp.sentinel.slots.statistic.base.LeapArray;
 import com.alibaba.csp.sentinel.slots.statistic.base.WindowWrap;
+import com.alibaba.csp.sentinel.slots.statistic.data.RtHistogram;
 import com.alibaba.csp.sentinel.util.AssertUtil;
 import com.alibaba.csp.sentinel.util.TimeUtil;
 
 /**
+ * <p>Circuit breaker by response time. By default, the circuit breaker opens when the ratio of slow requests
+ * (whose RT exceeds the max allowed RT) exceeds the threshold. If {@link DegradeRule#getRtPercentile()}
+ * is set, the circuit breaker opens when the RT at that percentile exceeds the max allowed RT instead.</p>
+ *
  * @author Eric Zhao
  * @since 1.8.0
  */
@@ -38,11 +44,12 @@ public class ResponseTimeCircuitBreaker extends AbstractCircuitBreaker {
     private final long maxAllowedRt;
     private final double maxSlowRequestRatio;
     private final int minRequestAmount;
+    private final double rtPercentile;
 
     private final LeapArray<SlowRequestCounter> slidingCounter;
 
     public ResponseTimeCircuitBreaker(DegradeRule rule) {
-        this(rule, new SlowRequestLeapArray(1, rule.getStatIntervalMs()));
+        this(rule, new SlowRequestLeapArray(1, rule.getStatIntervalMs(), rule.getRtPercentile() > 0));
     }
 
     ResponseTimeCircuitBreaker(DegradeRule rule, LeapArray<SlowRequestCounter> stat) {
@@ -52,6 +59,7 @@ public class ResponseTimeCircuitBreaker extends AbstractCircuitBreaker {
         this.maxAllowedRt = Math.round(rule.getCount());
         this.maxSlowRequestRatio = rule.getSlowRatioThreshold();
         this.minRequestAmount = rule.getMinRequestAmount();
+        this.rtPercentile = rule.getRtPercentile();
         this.slidingCounter = stat;
     }
 
@@ -77,6 +85,9 @@ public class ResponseTimeCircuitBreaker extends AbstractCircuitBreaker {
             counter.slowCount.add(1);
         }
         counter.totalCount.add(1);
+        if (counter.rtHistogram != null) {
+            counter.rtHistogram.record(rt);
+        }
 
         handleStateChangeWhenThresholdExceeded(rt);
     }
@@ -100,13 +111,24 @@ public class ResponseTimeCircuitBreaker extends AbstractCircuitBreaker {
         List<SlowRequestCounter> counters = slidingCounter.values();
         long slowCount = 0;
         long totalCount = 0;
+        long[] rtCounts = null;
         for (SlowRequestCounter counter : counters) {
             slowCount += counter.slowCount.sum();
             totalCount += counter.totalCount.sum();
+            if (counter.rtHistogram != null) {
+                rtCounts = counter.rtHistogram.mergeTo(rtCounts);
+            }
         }
         if (totalCount < minRequestAmount) {
             return;
         }
+        if (rtPercentile > 0) {
+            long percentileRt = RtHistogram.valueAtPercentile(rtCounts, rtPercentile);
+            if (percentileRt > maxAllowedRt) {
+                transformToOpen(percentileRt);
+            }
+            return;
+        }
         double currentRatio = slowCount * 1.0d / totalCount;
         if (currentRatio > maxSlowRequestRatio) {
             transformToOpen(currentRatio);
@@ -120,10 +142,18 @@ public class ResponseTimeCircuitBreaker extends AbstractCircuitBreaker {
     static class SlowRequestCounter {
         private LongAdder slowCount;
         private LongAdder totalCount;
+        private RtHistogram rtHistogram;
 
         public SlowRequestCounter() {
+            this(false);
+        }
+
+        SlowRequestCounter(boolean recordRtHistogram) {
             this.slowCount = new LongAdder();
             this.totalCount = new LongAdder();
+            if (recordRtHistogram) {
+                this.rtHistogram = new RtHistogram(Math.max(SentinelConfig.statisticMaxRt(), 1));
+            }
         }
 
         public LongAdder getSlowCount() {
@@ -137,6 +167,9 @@ public class ResponseTimeCircuitBreaker extends AbstractCircuitBreaker {
         public SlowRequestCounter reset() {
             slowCount.reset();
             totalCount.reset();
+            if (rtHistogram != null) {
+                rtHistogram.reset();
+            }
             return this;
         }
 
@@ -151,19 +184,26 @@ public class ResponseTimeCircuitBreaker extends AbstractCircuitBreaker {
 
     static class SlowRequestLeapArray extends LeapArray<SlowRequestCounter> {
 
+        private final boolean recordRtHistogram;
+
         public SlowRequestLeapArray(int sampleCount, int intervalInMs) {
+            this(sampleCount, intervalInMs, false);
+        }
+
+        SlowRequestLeapArray(int sampleCount, int intervalInMs, boolean recordRtHistogram) {
             super(sampleCount, intervalInMs);
+            this.recordRtHistogram = recordRtHistogram;
         }
 
         @Override
         public SlowRequestCounter newEmptyBucket(long timeMillis) {
-            return new SlowRequestCounter();
+            return new SlowRequestCounter(recordRtHistogram);
         }
 
         @Override
         protected WindowWrap<SlowRequestCounter> resetWindowTo(WindowWrap<SlowRequestCounter> w, long startTime) {
-            w.resetTo(startTime);
             w.value().reset();
+            w.resetTo(startTime);
             return w;
         }
     }
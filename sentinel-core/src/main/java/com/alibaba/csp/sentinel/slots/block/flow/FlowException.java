@@ -30,6 +30,13 @@ public class FlowException extends BlockException {
         super(ruleLimitApp, rule);
     }
 
+    /**
+     * @since 1.8.2
+     */
+    protected FlowException(String ruleLimitApp, FlowRule rule, boolean enableSuppression) {
+        super(ruleLimitApp, rule, enableSuppression);
+    }
+
     public FlowException(String message, Throwable cause) {
         super(message, cause);
     }
@@ -15,6 +15,7 @@
  */
 package com.alibaba.csp.sentinel.slots.block.flow;
 
+import com.alibaba.csp.sentinel.Constants;
 import com.alibaba.csp.sentinel.slots.block.AbstractRule;
 import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 
@@ -49,7 +50,7 @@ public class FlowRule extends AbstractRule {
     }
 
     /**
-     * The threshold type of flow control (0: thread count, 1: QPS).
+     * The threshold type of flow control (0: thread count, 1: QPS, 2: percentile RT, 3: adaptive concurrency).
      * 阈值类型   默认值1 即线程数
      * 0 表示线程数
      * 1 表示QPS
@@ -62,6 +63,16 @@ public class FlowRule extends AbstractRule {
      */
     private double count;
 
+    /**
+     * The percentile of response time in (0, 100] (e.g. 99 for p99), only used in percentile RT grade
+     * ({@link RuleConstant#FLOW_GRADE_PERCENTILE_RT}), where {@link #count} is the max allowed RT.
+     * 0 (by default) means disabled, the same as {@code DegradeRule#rtPercentile}, so a rule of percentile RT
+     * grade should set it explicitly, otherwise the rule is invalid.
+     *
+     * @since 1.8.2
+     */
+    private double rtPercentile = 0;
+
     /**
      * 流控模式
      *
@@ -86,7 +97,7 @@ public class FlowRule extends AbstractRule {
 
     /**
      * Rate limiter control behavior.
-     * 0. default(reject directly), 1. warm up, 2. rate limiter, 3. warm up + rate limiter
+     * 0. default(reject directly), 1. warm up, 2. rate limiter, 3. warm up + rate limiter, 4. token bucket
      */
     private int controlBehavior = RuleConstant.CONTROL_BEHAVIOR_DEFAULT;
     /**
@@ -98,6 +109,37 @@ public class FlowRule extends AbstractRule {
      * Max queueing time in rate limiter behavior.
      */
     private int maxQueueingTimeMs = 500;
+
+    /**
+     * Max tokens of the bucket (the max burst) in token bucket behavior, where {@link #count} is the refill rate
+     * (tokens per second). If not positive, the capacity is the count of one second.
+     *
+     * @since 1.8.2
+     */
+    private int burstCount;
+
+    /**
+     * Name of the shared parent bucket (e.g. the tenant) in token bucket behavior. The rules of the same parent
+     * bucket share its tokens, and a request passes only when both buckets have enough tokens. The rules of the
+     * same parent bucket should have the same parent config; otherwise the config of the first rule is used.
+     *
+     * @since 1.8.2
+     */
+    private String parentBucket;
+
+    /**
+     * Refill rate (tokens per second) of the parent bucket.
+     *
+     * @since 1.8.2
+     */
+    private double parentCount;
+
+    /**
+     * Max tokens of the parent bucket. If not positive, the capacity is the count of one second.
+     *
+     * @since 1.8.2
+     */
+    private int parentBurstCount;
     /**
      * 是否是集群模式
      */
@@ -116,6 +158,11 @@ public class FlowRule extends AbstractRule {
      */
     private TrafficShapingController controller;
 
+    /**
+     * The preallocated block exception of this rule in recycling mode.
+     */
+    private volatile FlowException sharedException;
+
     public int getControlBehavior() {
         return controlBehavior;
     }
@@ -134,6 +181,42 @@ public class FlowRule extends AbstractRule {
         return this;
     }
 
+    public int getBurstCount() {
+        return burstCount;
+    }
+
+    public FlowRule setBurstCount(int burstCount) {
+        this.burstCount = burstCount;
+        return this;
+    }
+
+    public String getParentBucket() {
+        return parentBucket;
+    }
+
+    public FlowRule setParentBucket(String parentBucket) {
+        this.parentBucket = parentBucket;
+        return this;
+    }
+
+    public double getParentCount() {
+        return parentCount;
+    }
+
+    public FlowRule setParentCount(double parentCount) {
+        this.parentCount = parentCount;
+        return this;
+    }
+
+    public int getParentBurstCount() {
+        return parentBurstCount;
+    }
+
+    public FlowRule setParentBurstCount(int parentBurstCount) {
+        this.parentBurstCount = parentBurstCount;
+        return this;
+    }
+
     FlowRule setRater(TrafficShapingController rater) {
         this.controller = rater;
         return this;
@@ -170,6 +253,15 @@ public class FlowRule extends AbstractRule {
         return this;
     }
 
+    public double getRtPercentile() {
+        return rtPercentile;
+    }
+
+    public FlowRule setRtPercentile(double rtPercentile) {
+        this.rtPercentile = rtPercentile;
+        return this;
+    }
+
     public int getStrategy() {
         return strategy;
     }
@@ -206,6 +298,22 @@ public class FlowRule extends AbstractRule {
         return this;
     }
 
+    /**
+     * Get the block exception of this rule. In recycling mode (see {@link Constants#RECYCLE}) the exception
+     * is preallocated and shared, otherwise a new one is created.
+     */
+    FlowException newBlockException() {
+        if (!Constants.RECYCLE) {
+            return new FlowException(getLimitApp(), this);
+        }
+        FlowException e = sharedException;
+        if (e == null) {
+            e = new FlowException(getLimitApp(), this, false);
+            sharedException = e;
+        }
+        return e;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) { return true; }
@@ -216,10 +324,15 @@ public class FlowRule extends AbstractRule {
 
         if (grade != rule.grade) { return false; }
         if (Double.compare(rule.count, count) != 0) { return false; }
+        if (Double.compare(rule.rtPercentile, rtPercentile) != 0) { return false; }
         if (strategy != rule.strategy) { return false; }
         if (controlBehavior != rule.controlBehavior) { return false; }
         if (warmUpPeriodSec != rule.warmUpPeriodSec) { return false; }
         if (maxQueueingTimeMs != rule.maxQueueingTimeMs) { return false; }
+        if (burstCount != rule.burstCount) { return false; }
+        if (Double.compare(rule.parentCount, parentCount) != 0) { return false; }
+        if (parentBurstCount != rule.parentBurstCount) { return false; }
+        if (parentBucket != null ? !parentBucket.equals(rule.parentBucket) : rule.parentBucket != null) { return false; }
         if (clusterMode != rule.clusterMode) { return false; }
         if (refResource != null ? !refResource.equals(rule.refResource) : rule.refResource != null) { return false; }
         return clusterConfig != null ? clusterConfig.equals(rule.clusterConfig) : rule.clusterConfig == null;
@@ -232,11 +345,18 @@ public class FlowRule extends AbstractRule {
         result = 31 * result + grade;
         temp = Double.doubleToLongBits(count);
         result = 31 * result + (int)(temp ^ (temp >>> 32));
+        temp = Double.doubleToLongBits(rtPercentile);
+        result = 31 * result + (int)(temp ^ (temp >>> 32));
         result = 31 * result + strategy;
         result = 31 * result + (refResource != null ? refResource.hashCode() : 0);
         result = 31 * result + controlBehavior;
         result = 31 * result + warmUpPeriodSec;
         result = 31 * result + maxQueueingTimeMs;
+        result = 31 * result + burstCount;
+        result = 31 * result + (parentBucket != null ? parentBucket.hashCode() : 0);
+        temp = Double.doubleToLongBits(parentCount);
+        result = 31 * result + (int)(temp ^ (temp >>> 32));
+        result = 31 * result + parentBurstCount;
         result = 31 * result + (clusterMode ? 1 : 0);
         result = 31 * result + (clusterConfig != null ? clusterConfig.hashCode() : 0);
         return result;
@@ -249,11 +369,16 @@ public class FlowRule extends AbstractRule {
             ", limitApp=" + getLimitApp() +
             ", grade=" + grade +
             ", count=" + count +
+            ", rtPercentile=" + rtPercentile +
             ", strategy=" + strategy +
             ", refResource=" + refResource +
             ", controlBehavior=" + controlBehavior +
             ", warmUpPeriodSec=" + warmUpPeriodSec +
             ", maxQueueingTimeMs=" + maxQueueingTimeMs +
+            ", burstCount=" + burstCount +
+            ", parentBucket=" + parentBucket +
+            ", parentCount=" + parentCount +
+            ", parentBurstCount=" + parentBurstCount +
             ", clusterMode=" + clusterMode +
             ", clusterConfig=" + clusterConfig +
             ", controller=" + controller +
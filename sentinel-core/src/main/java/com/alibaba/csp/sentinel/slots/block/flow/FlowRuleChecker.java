@@ -17,6 +17,7 @@ package com.alibaba.csp.sentinel.slots.block.flow;
 
 import java.util.Collection;
 
+import com.alibaba.csp.sentinel.NonBlockingPacing;
 import com.alibaba.csp.sentinel.cluster.ClusterStateManager;
 import com.alibaba.csp.sentinel.cluster.server.EmbeddedClusterTokenServerProvider;
 import com.alibaba.csp.sentinel.cluster.client.TokenClientProvider;
@@ -65,12 +66,48 @@ public class FlowRuleChecker {
                 if (!passFlag) {
                     // 没有通过限流的规则 返回false 取反为 TRUE  进入if 语句 抛出异常
                     //没有通过 则抛出流控异常
-                    throw new FlowException(rule.getLimitApp(), rule);
+                    throw rule.newBlockException();
                 }
             }
         }
     }
 
+    /**
+     * Check the request against the compiled decision plan of the resource.
+     *
+     * @param plan        compiled decision plan of the flow rules of the resource
+     * @param context     current context
+     * @param node        current node
+     * @param count       acquire count
+     * @param prioritized whether the request is prioritized
+     * @throws BlockException if blocked by any rule
+     * @since 1.8.2
+     */
+    public void checkFlow(FlowRulePlan plan, Context context, DefaultNode node, int count, boolean prioritized)
+        throws BlockException {
+        if (plan == null) {
+            return;
+        }
+        for (FlowRulePlan.RuleDecision decision : plan.decisionsFor(context.getOrigin())) {
+            if (!canPassCheck(decision, context, node, count, prioritized)) {
+                throw decision.getRule().newBlockException();
+            }
+        }
+    }
+
+    boolean canPassCheck(/*@NonNull*/ FlowRulePlan.RuleDecision decision, Context context, DefaultNode node,
+                         int acquireCount, boolean prioritized) {
+        FlowRule rule = decision.getRule();
+        if (rule.isClusterMode()) {
+            return passClusterCheck(rule, context, node, acquireCount, prioritized);
+        }
+        Node selectedNode = decision.selectNode(context, node);
+        if (selectedNode == null) {
+            return true;
+        }
+        return rule.getRater().canPass(selectedNode, acquireCount, prioritized);
+    }
+
     public boolean canPassCheck(/*@NonNull*/ FlowRule rule, Context context, DefaultNode node,
                                                     int acquireCount) {
         return canPassCheck(rule, context, node, acquireCount, false);
@@ -227,6 +264,9 @@ public class FlowRuleChecker {
                 return true;
             case TokenResultStatus.SHOULD_WAIT:
                 // Wait for next tick.
+                if (NonBlockingPacing.deferWait(result.getWaitInMs())) {
+                    return true;
+                }
                 try {
                     Thread.sleep(result.getWaitInMs());
                 } catch (InterruptedException e) {
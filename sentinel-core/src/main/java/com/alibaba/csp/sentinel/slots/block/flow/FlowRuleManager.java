@@ -15,10 +15,14 @@
  */
 package com.alibaba.csp.sentinel.slots.block.flow;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -26,6 +30,7 @@ import java.util.concurrent.TimeUnit;
 import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
 import com.alibaba.csp.sentinel.config.SentinelConfig;
 import com.alibaba.csp.sentinel.log.RecordLog;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.TokenBucketController;
 import com.alibaba.csp.sentinel.util.AssertUtil;
 import com.alibaba.csp.sentinel.util.StringUtil;
 import com.alibaba.csp.sentinel.node.metric.MetricTimerListener;
@@ -52,6 +57,14 @@ public class FlowRuleManager {
      * 存储流控规则的Map : 资源名-->流控规则集合
      */
     private static volatile Map<String, List<FlowRule>> flowRules = new HashMap<>();
+    /**
+     * Compiled decision plans of the flow rules: resource name --> plan
+     */
+    private static volatile Map<String, FlowRulePlan> flowRulePlans = new HashMap<>();
+    /**
+     * Resources referred by the relate or chain strategy of the flow rules.
+     */
+    private static volatile Set<String> refResources = new HashSet<>();
     //流控属性监听器
     private static final FlowPropertyListener LISTENER = new FlowPropertyListener();
     private static SentinelProperty<List<FlowRule>> currentProperty = new DynamicSentinelProperty<List<FlowRule>>();
@@ -128,10 +141,115 @@ public class FlowRuleManager {
         return flowRules;
     }
 
+    /**
+     * Get the compiled decision plan of the flow rules of given resource.
+     *
+     * @param resource resource name
+     * @return the compiled plan, or null if the resource has no flow rules
+     * @since 1.8.2
+     */
+    static FlowRulePlan getFlowRulePlan(String resource) {
+        return flowRulePlans.get(resource);
+    }
+
+    private static void applyRules(Map<String, List<FlowRule>> rules,
+                                   Map<FlowRule, Deque<TokenBucketController>> formerTokenBuckets) {
+        keepTokenBuckets(formerTokenBuckets, rules);
+        Map<String, FlowRulePlan> plans = new HashMap<>(rules.size() * 2);
+        for (Map.Entry<String, List<FlowRule>> entry : rules.entrySet()) {
+            plans.put(entry.getKey(), FlowRulePlan.compile(entry.getValue()));
+        }
+        Set<String> refs = new HashSet<>();
+        for (List<FlowRule> resourceRules : rules.values()) {
+            for (FlowRule rule : resourceRules) {
+                if (StringUtil.isNotBlank(rule.getRefResource())) {
+                    refs.add(rule.getRefResource());
+                }
+            }
+        }
+        flowRulePlans = plans;
+        refResources = refs;
+        flowRules = rules;
+    }
+
+    /**
+     * Get the token bucket controllers of current rules. The controllers should be taken before building
+     * the new rules, as the same rule instances may be loaded again and get new controllers.
+     * Identical rules are kept apart, as each of them has a bucket of its own.
+     */
+    private static Map<FlowRule, Deque<TokenBucketController>> currentTokenBuckets() {
+        Map<FlowRule, Deque<TokenBucketController>> controllers = new HashMap<>();
+        for (List<FlowRule> rules : flowRules.values()) {
+            for (FlowRule rule : rules) {
+                if (rule.getRater() instanceof TokenBucketController) {
+                    Deque<TokenBucketController> sameRuleControllers = controllers.get(rule);
+                    if (sameRuleControllers == null) {
+                        sameRuleControllers = new ArrayDeque<>(1);
+                        controllers.put(rule, sameRuleControllers);
+                    }
+                    sameRuleControllers.add((TokenBucketController)rule.getRater());
+                }
+            }
+        }
+        return controllers;
+    }
+
+    /**
+     * Keep the token buckets (and the tokens left) of the rules that are not changed, and remove the
+     * shared buckets that are no longer referred by any rule. Each former bucket is kept for at most
+     * one new rule, in the order of the rules, so identical rules won't drain the same bucket.
+     */
+    private static void keepTokenBuckets(Map<FlowRule, Deque<TokenBucketController>> formerControllers,
+                                         Map<String, List<FlowRule>> newRules) {
+        Set<String> sharedBuckets = new HashSet<>();
+        for (List<FlowRule> rules : newRules.values()) {
+            for (FlowRule rule : rules) {
+                if (!(rule.getRater() instanceof TokenBucketController)) {
+                    continue;
+                }
+                if (StringUtil.isNotBlank(rule.getParentBucket())) {
+                    sharedBuckets.add(rule.getParentBucket());
+                }
+                Deque<TokenBucketController> sameRuleControllers = formerControllers.get(rule);
+                if (sameRuleControllers == null || sameRuleControllers.isEmpty()) {
+                    continue;
+                }
+                if (((TokenBucketController)rule.getRater()).isSameBucketAs(sameRuleControllers.peekFirst())) {
+                    rule.setRater(sameRuleControllers.pollFirst());
+                }
+            }
+        }
+        TokenBucketController.retainSharedBuckets(sharedBuckets);
+    }
+
     public static boolean hasConfig(String resource) {
         return flowRules.containsKey(resource);
     }
 
+    /**
+     * Whether the resource is referred by any flow rule as the related resource or entrance.
+     *
+     * @param resource resource name
+     * @return true if any flow rule refers to the resource
+     * @since 1.8.2
+     */
+    public static boolean isRefResource(String resource) {
+        return refResources.contains(resource);
+    }
+
+    /**
+     * Whether the passed requests of the resource could be rolled back (e.g. when another resource
+     * of the same batch is blocked). See {@link FlowRulePlan#isReversible()}.
+     *
+     * @param resource resource name
+     * @return true if the resource has no flow rules that reserve tokens or pass time
+     * @since 1.8.2
+     */
+    public static boolean isRollbackSupported(String resource) {
+        FlowRulePlan plan = flowRulePlans.get(resource);
+        return plan == null || plan.isReversible();
+    }
+
     public static boolean isOtherOrigin(String origin, String resourceName) {
         if (StringUtil.isEmpty(origin)) {
             return false;
@@ -157,18 +275,20 @@ public class FlowRuleManager {
 
         @Override
         public synchronized void configUpdate(List<FlowRule> value) {
+            Map<FlowRule, Deque<TokenBucketController>> formerTokenBuckets = currentTokenBuckets();
             Map<String, List<FlowRule>> rules = FlowRuleUtil.buildFlowRuleMap(value);
             if (rules != null) {
-                flowRules = rules;
+                applyRules(rules, formerTokenBuckets);
             }
             RecordLog.info("[FlowRuleManager] Flow rules received: {}", rules);
         }
 
         @Override
         public synchronized void configLoad(List<FlowRule> conf) {
+            Map<FlowRule, Deque<TokenBucketController>> formerTokenBuckets = currentTokenBuckets();
             Map<String, List<FlowRule>> rules = FlowRuleUtil.buildFlowRuleMap(conf);
             if (rules != null) {
-                flowRules = rules;
+                applyRules(rules, formerTokenBuckets);
             }
             RecordLog.info("[FlowRuleManager] Flow rules loaded: {}", rules);
         }
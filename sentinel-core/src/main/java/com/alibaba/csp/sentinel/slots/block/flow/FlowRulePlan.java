@@ -0,0 +1,229 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.alibaba.csp.sentinel.context.Context;
+import com.alibaba.csp.sentinel.node.DefaultNode;
+import com.alibaba.csp.sentinel.node.Node;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.clusterbuilder.ClusterBuilderSlot;
+import com.alibaba.csp.sentinel.util.StringUtil;
+
+/**
+ * <p>Compiled decision plan of the flow rules of a resource, built when the rules are loaded.</p>
+ *
+ * <p>The rules are grouped by the origin they apply to in advance, and the strategy of each rule is
+ * resolved to the node it checks, so checking a request only takes one lookup of the origin and the
+ * rules that actually apply. The decisions of an origin keep the order of the rules, and the result is
+ * the same as checking all rules of the resource via {@link FlowRuleChecker#canPassCheck(FlowRule, Context,
+ * DefaultNode, int, boolean)}.</p>
+ *
+ * @since 1.8.2
+ */
+public final class FlowRulePlan {
+
+    private static final RuleDecision[] EMPTY = new RuleDecision[0];
+
+    /**
+     * Decisions for the origins that are specified as the limit app of some rule.
+     */
+    private final Map<String, RuleDecision[]> originDecisions;
+    /**
+     * Decisions for other origins (non-empty origins not specified in any rule).
+     */
+    private final RuleDecision[] otherOriginDecisions;
+    /**
+     * Decisions for requests without origin.
+     */
+    private final RuleDecision[] defaultDecisions;
+    /**
+     * Whether the passed requests could be rolled back by revoking the pass count only.
+     */
+    private final boolean reversible;
+
+    private FlowRulePlan(Map<String, RuleDecision[]> originDecisions, RuleDecision[] otherOriginDecisions,
+                         RuleDecision[] defaultDecisions, boolean reversible) {
+        this.originDecisions = originDecisions;
+        this.otherOriginDecisions = otherOriginDecisions;
+        this.defaultDecisions = defaultDecisions;
+        this.reversible = reversible;
+    }
+
+    /**
+     * Compile the decision plan of the (sorted) flow rules of a resource.
+     *
+     * @param rules the flow rules of the resource
+     * @return the compiled plan
+     */
+    public static FlowRulePlan compile(List<FlowRule> rules) {
+        List<RuleDecision> decisions = new ArrayList<>();
+        Set<String> limitApps = new LinkedHashSet<>();
+        boolean reversible = true;
+        if (rules != null) {
+            for (FlowRule rule : rules) {
+                if (rule.getLimitApp() == null) {
+                    // Rules without limit app always pass.
+                    continue;
+                }
+                decisions.add(new RuleDecision(rule));
+                limitApps.add(rule.getLimitApp());
+                reversible &= isReversible(rule);
+            }
+        }
+
+        Map<String, RuleDecision[]> originDecisions = new HashMap<>(limitApps.size() * 2);
+        for (String origin : limitApps) {
+            originDecisions.put(origin, select(decisions, origin, false));
+        }
+        return new FlowRulePlan(originDecisions, select(decisions, "", true), select(decisions, "", false),
+            reversible);
+    }
+
+    /**
+     * Cluster rules acquire tokens from the token server, and traffic shaping rules reserve their future
+     * pass time or tokens, none of which could be given back.
+     */
+    private static boolean isReversible(FlowRule rule) {
+        if (rule.isClusterMode()) {
+            return false;
+        }
+        int behavior = rule.getControlBehavior();
+        return behavior == RuleConstant.CONTROL_BEHAVIOR_DEFAULT || behavior == RuleConstant.CONTROL_BEHAVIOR_WARM_UP;
+    }
+
+    /**
+     * Select the decisions that apply to given origin, in the same way as
+     * {@link FlowRuleChecker#selectNodeByRequesterAndStrategy(FlowRule, Context, DefaultNode)}.
+     */
+    private static RuleDecision[] select(List<RuleDecision> decisions, String origin, boolean otherOrigin) {
+        List<RuleDecision> selected = new ArrayList<>();
+        for (RuleDecision decision : decisions) {
+            FlowRule rule = decision.rule;
+            String limitApp = rule.getLimitApp();
+            // Cluster rules request the token server regardless of the origin.
+            if (rule.isClusterMode()
+                || (limitApp.equals(origin) && isSpecificOrigin(origin))
+                || RuleConstant.LIMIT_APP_DEFAULT.equals(limitApp)
+                || (otherOrigin && RuleConstant.LIMIT_APP_OTHER.equals(limitApp))) {
+                selected.add(decision);
+            }
+        }
+        return selected.isEmpty() ? EMPTY : selected.toArray(new RuleDecision[0]);
+    }
+
+    private static boolean isSpecificOrigin(String origin) {
+        // Origin cannot be `default` or `other`.
+        return !RuleConstant.LIMIT_APP_DEFAULT.equals(origin) && !RuleConstant.LIMIT_APP_OTHER.equals(origin);
+    }
+
+    /**
+     * Whether a passed request could be rolled back by revoking its pass count, i.e. none of the rules
+     * is a cluster rule or a traffic shaping rule (rate limiter or token bucket).
+     *
+     * @return true if the passed requests could be rolled back
+     */
+    public boolean isReversible() {
+        return reversible;
+    }
+
+    /**
+     * Get the decisions to check for the request from given origin.
+     *
+     * @param origin origin of the request
+     * @return the decisions in order
+     */
+    public RuleDecision[] decisionsFor(String origin) {
+        if (StringUtil.isEmpty(origin)) {
+            return defaultDecisions;
+        }
+        RuleDecision[] decisions = originDecisions.get(origin);
+        return decisions == null ? otherOriginDecisions : decisions;
+    }
+
+    /**
+     * A flow rule with the node it checks resolved in advance.
+     */
+    public static final class RuleDecision {
+
+        private static final int NODE_ORIGIN = 0;
+        private static final int NODE_CLUSTER = 1;
+        private static final int NODE_RELATE = 2;
+        private static final int NODE_CHAIN = 3;
+        private static final int NODE_NONE = 4;
+
+        private final FlowRule rule;
+        private final int nodeType;
+        private final String refResource;
+
+        RuleDecision(FlowRule rule) {
+            this.rule = rule;
+            this.refResource = rule.getRefResource();
+            this.nodeType = resolveNodeType(rule);
+        }
+
+        private static int resolveNodeType(FlowRule rule) {
+            int strategy = rule.getStrategy();
+            if (strategy == RuleConstant.STRATEGY_DIRECT) {
+                return RuleConstant.LIMIT_APP_DEFAULT.equals(rule.getLimitApp()) ? NODE_CLUSTER : NODE_ORIGIN;
+            }
+            if (StringUtil.isEmpty(rule.getRefResource())) {
+                return NODE_NONE;
+            }
+            if (strategy == RuleConstant.STRATEGY_RELATE) {
+                return NODE_RELATE;
+            }
+            if (strategy == RuleConstant.STRATEGY_CHAIN) {
+                return NODE_CHAIN;
+            }
+            return NODE_NONE;
+        }
+
+        public FlowRule getRule() {
+            return rule;
+        }
+
+        /**
+         * Select the node to check for the request.
+         *
+         * @param context current context
+         * @param node    current node
+         * @return the node to check, or null if the rule does not apply
+         */
+        Node selectNode(Context context, DefaultNode node) {
+            switch (nodeType) {
+                case NODE_ORIGIN:
+                    return context.getOriginNode();
+                case NODE_CLUSTER:
+                    return node.getClusterNode();
+                case NODE_RELATE:
+                    // Looked up on each check as the node of the related resource may be created later
+                    // or reclaimed when the resource goes idle.
+                    return ClusterBuilderSlot.getClusterNode(refResource);
+                case NODE_CHAIN:
+                    return refResource.equals(context.getName()) ? node : null;
+                default:
+                    return null;
+            }
+        }
+    }
+}
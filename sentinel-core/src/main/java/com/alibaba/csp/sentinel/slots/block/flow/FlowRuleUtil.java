@@ -18,8 +18,12 @@ package com.alibaba.csp.sentinel.slots.block.flow;
 import com.alibaba.csp.sentinel.log.RecordLog;
 import com.alibaba.csp.sentinel.slots.block.ClusterRuleConstant;
 import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.AdaptiveConcurrencyController;
 import com.alibaba.csp.sentinel.slots.block.flow.controller.DefaultController;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.PercentileRtController;
 import com.alibaba.csp.sentinel.slots.block.flow.controller.RateLimiterController;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.TokenBucket;
+import com.alibaba.csp.sentinel.slots.block.flow.controller.TokenBucketController;
 import com.alibaba.csp.sentinel.slots.block.flow.controller.WarmUpController;
 import com.alibaba.csp.sentinel.slots.block.flow.controller.WarmUpRateLimiterController;
 import com.alibaba.csp.sentinel.util.StringUtil;
@@ -87,6 +91,8 @@ public final class FlowRuleUtil {
             return newRuleMap;
         }
         Map<K, Set<FlowRule>> tmpMap = new ConcurrentHashMap<>();
+        // Shared parent buckets of this load: name --> bucket. The first rule decides the config of the bucket.
+        Map<String, TokenBucket> parentBuckets = new HashMap<>();
 
         for (FlowRule rule : list) {
             if (!isValidRule(rule)) {
@@ -99,7 +105,7 @@ public final class FlowRuleUtil {
             if (StringUtil.isBlank(rule.getLimitApp())) {
                 rule.setLimitApp(RuleConstant.LIMIT_APP_DEFAULT);
             }
-            TrafficShapingController rater = generateRater(rule);
+            TrafficShapingController rater = generateRater(rule, parentBuckets);
             rule.setRater(rater);
 
             K key = groupFunction.apply(rule);
@@ -129,7 +135,14 @@ public final class FlowRuleUtil {
         return newRuleMap;
     }
 
-    private static TrafficShapingController generateRater(/*@Valid*/ FlowRule rule) {
+    private static TrafficShapingController generateRater(/*@Valid*/ FlowRule rule,
+                                                          Map<String, TokenBucket> parentBuckets) {
+        if (rule.getGrade() == RuleConstant.FLOW_GRADE_PERCENTILE_RT) {
+            return new PercentileRtController(rule.getCount(), rule.getRtPercentile());
+        }
+        if (rule.getGrade() == RuleConstant.FLOW_GRADE_ADAPTIVE_CONCURRENCY) {
+            return new AdaptiveConcurrencyController(rule.getCount());
+        }
         if (rule.getGrade() == RuleConstant.FLOW_GRADE_QPS) {
             switch (rule.getControlBehavior()) {
                 case RuleConstant.CONTROL_BEHAVIOR_WARM_UP:
@@ -140,6 +153,13 @@ public final class FlowRuleUtil {
                 case RuleConstant.CONTROL_BEHAVIOR_WARM_UP_RATE_LIMITER:
                     return new WarmUpRateLimiterController(rule.getCount(), rule.getWarmUpPeriodSec(),
                             rule.getMaxQueueingTimeMs(), ColdFactorProperty.coldFactor);
+                case RuleConstant.CONTROL_BEHAVIOR_TOKEN_BUCKET:
+                    TokenBucket parent = null;
+                    if (StringUtil.isNotBlank(rule.getParentBucket())) {
+                        parent = getParentBucket(rule, parentBuckets);
+                    }
+                    return new TokenBucketController(rule.getCount(),
+                        bucketCapacity(rule.getCount(), rule.getBurstCount()), parent);
                 case RuleConstant.CONTROL_BEHAVIOR_DEFAULT:
                 default:
                     // Default mode or unknown mode: default traffic shaping controller (fast-reject).
@@ -148,6 +168,34 @@ public final class FlowRuleUtil {
         return new DefaultController(rule.getCount(), rule.getGrade());
     }
 
+    /**
+     * Get the shared parent bucket of the rule. All rules of the same load that name the same parent bucket
+     * share the bucket configured by the first of them, as a later config would otherwise replace the bucket
+     * and leave the former rules with an orphaned parent.
+     */
+    private static TokenBucket getParentBucket(/*@Valid*/ FlowRule rule, Map<String, TokenBucket> parentBuckets) {
+        String name = rule.getParentBucket();
+        long capacity = bucketCapacity(rule.getParentCount(), rule.getParentBurstCount());
+        TokenBucket parent = parentBuckets.get(name);
+        if (parent == null) {
+            parent = TokenBucketController.getOrCreateSharedBucket(name, rule.getParentCount(), capacity);
+            parentBuckets.put(name, parent);
+        } else if (Double.compare(parent.getRate(), rule.getParentCount()) != 0 || parent.getCapacity() != capacity) {
+            RecordLog.warn("[FlowRuleManager] Conflicting config of parent bucket <{}> (parentCount={}, "
+                    + "parentBurstCount={}) in rule {}, the former config (rate={}, capacity={}) is used", name,
+                rule.getParentCount(), rule.getParentBurstCount(), rule, parent.getRate(), parent.getCapacity());
+        }
+        return parent;
+    }
+
+    private static long bucketCapacity(double count, int burstCount) {
+        if (burstCount > 0) {
+            return burstCount;
+        }
+        // The tokens of one second by default.
+        return Math.max(1, (long)Math.ceil(count));
+    }
+
     /**
      * Check whether provided ID can be a valid cluster flow ID.
      *
@@ -175,6 +223,13 @@ public final class FlowRuleUtil {
             return checkClusterField(rule) && checkStrategyField(rule) && checkControlBehaviorField(rule);
         } else if (rule.getGrade() == RuleConstant.FLOW_GRADE_THREAD) {
             return checkClusterConcurrentField(rule);
+        } else if (rule.getGrade() == RuleConstant.FLOW_GRADE_PERCENTILE_RT) {
+            // Percentile RT is only available in local mode.
+            return !rule.isClusterMode() && rule.getRtPercentile() > 0 && rule.getRtPercentile() <= 100
+                && checkStrategyField(rule);
+        } else if (rule.getGrade() == RuleConstant.FLOW_GRADE_ADAPTIVE_CONCURRENCY) {
+            // The limit is adapted locally, so it's not available in cluster mode.
+            return !rule.isClusterMode() && rule.getCount() >= 1 && checkStrategyField(rule);
         } else {
             return false;
         }
@@ -245,11 +300,20 @@ public final class FlowRuleUtil {
                 return rule.getMaxQueueingTimeMs() > 0;
             case RuleConstant.CONTROL_BEHAVIOR_WARM_UP_RATE_LIMITER:
                 return rule.getWarmUpPeriodSec() > 0 && rule.getMaxQueueingTimeMs() > 0;
+            case RuleConstant.CONTROL_BEHAVIOR_TOKEN_BUCKET:
+                return rule.getCount() > 0 && isValidBucketCapacity(rule.getCount(), rule.getBurstCount())
+                    && (StringUtil.isBlank(rule.getParentBucket())
+                    || (rule.getParentCount() > 0
+                    && isValidBucketCapacity(rule.getParentCount(), rule.getParentBurstCount())));
             default:
                 return true;
         }
     }
 
+    private static boolean isValidBucketCapacity(double count, int burstCount) {
+        return bucketCapacity(count, burstCount) <= TokenBucket.MAX_CAPACITY;
+    }
+
     private static final Function<FlowRule, String> extractResource = new Function<FlowRule, String>() {
         @Override
         public String apply(FlowRule rule) {
@@ -23,11 +23,6 @@ import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
 import com.alibaba.csp.sentinel.slots.block.BlockException;
 import com.alibaba.csp.sentinel.spi.Spi;
 import com.alibaba.csp.sentinel.util.AssertUtil;
-import com.alibaba.csp.sentinel.util.function.Function;
-
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
 
 /**
  * <p>
@@ -141,18 +136,6 @@ import java.util.Map;
 @Spi(order = Constants.ORDER_FLOW_SLOT)
 public class FlowSlot extends AbstractLinkedProcessorSlot<DefaultNode> {
 
-    /**
-     * 流控规则获取器 用于check的时候获取流控规则
-     */
-    private final Function<String, Collection<FlowRule>> ruleProvider = new Function<String, Collection<FlowRule>>() {
-        @Override
-        public Collection<FlowRule> apply(String resource) {
-            // Flow rule map should not be null.
-            Map<String, List<FlowRule>> flowRules = FlowRuleManager.getFlowRuleMap();
-            //获取指定资源的流控规则
-            return flowRules.get(resource);
-        }
-    };
     /**
      * 流控规则检查器
      */
@@ -194,7 +177,7 @@ public class FlowSlot extends AbstractLinkedProcessorSlot<DefaultNode> {
     void checkFlow(ResourceWrapper resource, Context context, DefaultNode node, int count, boolean prioritized)
         throws BlockException {
         //流控检测
-        checker.checkFlow(ruleProvider, resource, context, node, count, prioritized);
+        checker.checkFlow(FlowRuleManager.getFlowRulePlan(resource.getName()), context, node, count, prioritized);
     }
 
     @Override
@@ -0,0 +1,161 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.csp.sentinel.node.Node;
+import com.alibaba.csp.sentinel.slots.block.flow.TrafficShapingController;
+import com.alibaba.csp.sentinel.util.AssertUtil;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+/**
+ * <p>Adaptive concurrency limit (see {@link com.alibaba.csp.sentinel.slots.block.RuleConstant#FLOW_GRADE_ADAPTIVE_CONCURRENCY}).
+ * Requests are rejected when the concurrency (thread count) of the node reaches the current limit, which is
+ * derived from the response time continuously with the gradient algorithm:</p>
+ *
+ * <pre>
+ * gradient = clamp(noLoadRt / avgRt, 0.5, 1)
+ * newLimit = limit * gradient + sqrt(limit)
+ * </pre>
+ *
+ * <p>where the no-load RT is the min RT of the node, which drifts up slowly so that the limit can follow
+ * a slower service (e.g. after deploy). When the service queues requests, the average RT grows and the limit
+ * shrinks to the concurrency the service could actually handle, with a small queue ({@code sqrt(limit)}) to
+ * probe for more capacity.</p>
+ *
+ * <p>The limit is updated at most once per update interval by the request that wins the update, reading the
+ * second-level statistics of the node, so the hot path only compares the thread count ({@code curThreadNum})
+ * with the limit. The limit does not grow when the requested concurrency stays far below it.</p>
+ *
+ * @since 1.8.2
+ */
+public class AdaptiveConcurrencyController implements TrafficShapingController {
+
+    static final int DEFAULT_INITIAL_LIMIT = 20;
+    static final long DEFAULT_UPDATE_INTERVAL_MS = 500;
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+    /**
+     * Ratio of the no-load RT drifting up in every update, so that it follows the RT changes of the service.
+     */
+    private static final double NO_LOAD_RT_DRIFT = 0.05;
+
+    private final double minLimit;
+    private final double maxLimit;
+    private final long updateIntervalMs;
+
+    private volatile double limit;
+    private volatile double noLoadRt;
+    /**
+     * Max concurrency requested since last update. Updated without synchronization, as it is only a hint
+     * of whether the limit is used.
+     */
+    private volatile int maxInflight;
+    private final AtomicLong lastUpdateTime = new AtomicLong(0);
+
+    /**
+     * @param maxLimit max concurrency limit
+     */
+    public AdaptiveConcurrencyController(double maxLimit) {
+        this(1, maxLimit, Math.min(maxLimit, DEFAULT_INITIAL_LIMIT), DEFAULT_UPDATE_INTERVAL_MS);
+    }
+
+    public AdaptiveConcurrencyController(double minLimit, double maxLimit, double initialLimit,
+                                         long updateIntervalMs) {
+        AssertUtil.isTrue(minLimit >= 1 && minLimit <= maxLimit, "minLimit should be in [1, maxLimit]");
+        AssertUtil.isTrue(initialLimit >= minLimit && initialLimit <= maxLimit,
+            "initialLimit should be in [minLimit, maxLimit]");
+        AssertUtil.isTrue(updateIntervalMs > 0, "updateIntervalMs should be positive");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.updateIntervalMs = updateIntervalMs;
+    }
+
+    @Override
+    public boolean canPass(Node node, int acquireCount) {
+        return canPass(node, acquireCount, false);
+    }
+
+    @Override
+    public boolean canPass(Node node, int acquireCount, boolean prioritized) {
+        if (node == null) {
+            return true;
+        }
+        tryUpdateLimit(node);
+        int inflight = node.curThreadNum() + acquireCount;
+        if (inflight > maxInflight) {
+            maxInflight = inflight;
+        }
+        return inflight <= (int)limit;
+    }
+
+    private void tryUpdateLimit(Node node) {
+        long now = TimeUtil.currentTimeMillis();
+        long last = lastUpdateTime.get();
+        if (now - last < updateIntervalMs || !lastUpdateTime.compareAndSet(last, now)) {
+            return;
+        }
+        int inflight = maxInflight;
+        maxInflight = 0;
+        if (node.successQps() <= 0) {
+            // No response time samples.
+            return;
+        }
+        updateLimit(node.minRt(), node.avgRt(), inflight);
+    }
+
+    /**
+     * Update the limit with the statistics of current second.
+     *
+     * @param minRt    min response time
+     * @param avgRt    average response time
+     * @param inflight max concurrency requested since last update
+     */
+    void updateLimit(double minRt, double avgRt, int inflight) {
+        double curLimit = this.limit;
+        double baseRt = noLoadRt <= 0 ? minRt : Math.min(minRt, noLoadRt * (1 + NO_LOAD_RT_DRIFT));
+        this.noLoadRt = baseRt;
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1, baseRt / Math.max(avgRt, 1)));
+        double newLimit = curLimit * gradient + Math.sqrt(curLimit);
+        if (newLimit > curLimit && inflight < curLimit / 2) {
+            // Do not grow the limit when it is not used, or it will grow up without bound when the traffic is low.
+            newLimit = curLimit;
+        }
+        newLimit = curLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    /**
+     * @return current concurrency limit
+     */
+    public int getLimit() {
+        return (int)limit;
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveConcurrencyController{" +
+            "minLimit=" + minLimit +
+            ", maxLimit=" + maxLimit +
+            ", limit=" + limit +
+            ", noLoadRt=" + noLoadRt +
+            '}';
+    }
+}
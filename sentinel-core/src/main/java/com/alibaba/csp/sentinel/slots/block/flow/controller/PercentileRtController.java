@@ -0,0 +1,59 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow.controller;
+
+import com.alibaba.csp.sentinel.node.Node;
+import com.alibaba.csp.sentinel.node.StatisticNode;
+import com.alibaba.csp.sentinel.slots.block.flow.TrafficShapingController;
+
+/**
+ * <p>Rejects requests when the response time at given percentile of current second exceeds the max allowed RT
+ * (see {@link com.alibaba.csp.sentinel.slots.block.RuleConstant#FLOW_GRADE_PERCENTILE_RT}).</p>
+ *
+ * <p>As rejected requests record no RT, the requests will be allowed again once the slow requests
+ * slide out of the statistic window.</p>
+ *
+ * <p>The RT histogram of a node is enabled when the node is checked for the first time, so the rule takes
+ * effect from the next statistic window on.</p>
+ *
+ * @since 1.8.2
+ */
+public class PercentileRtController implements TrafficShapingController {
+
+    private final double maxRt;
+    private final double percentile;
+
+    public PercentileRtController(double maxRt, double percentile) {
+        this.maxRt = maxRt;
+        this.percentile = percentile;
+    }
+
+    @Override
+    public boolean canPass(Node node, int acquireCount, boolean prioritized) {
+        if (node == null) {
+            return true;
+        }
+        if (node instanceof StatisticNode) {
+            ((StatisticNode)node).enableRtHistogram();
+        }
+        return node.percentileRt(percentile) <= maxRt;
+    }
+
+    @Override
+    public boolean canPass(Node node, int acquireCount) {
+        return canPass(node, acquireCount, false);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow.controller;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.alibaba.csp.sentinel.util.AssertUtil;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+/**
+ * <p>A lock-free token bucket. The bucket holds at most {@code capacity} tokens (the burst), and is refilled
+ * at {@code rate} tokens per second.</p>
+ *
+ * <p>The amount of tokens and the last refill time are packed in a single long, so acquiring tokens takes
+ * a single CAS: the high 40 bits hold the last refill time (milliseconds since the bucket is created)
+ * and the low 24 bits hold the tokens. The refill time only advances by the time of the whole tokens
+ * added, so partial tokens of slow buckets are not lost.</p>
+ *
+ * @since 1.8.2
+ */
+public class TokenBucket {
+
+    private static final int TOKEN_BITS = 24;
+    /**
+     * Max capacity of a bucket.
+     */
+    public static final long MAX_CAPACITY = (1L << TOKEN_BITS) - 1;
+    private static final long TOKEN_MASK = MAX_CAPACITY;
+
+    private final double rate;
+    private final long capacity;
+    private final long startTime;
+    private final TokenBucket parent;
+
+    private final AtomicLong state;
+
+    public TokenBucket(double rate, long capacity) {
+        this(rate, capacity, null);
+    }
+
+    /**
+     * @param rate     refill rate (tokens per second)
+     * @param capacity max tokens of the bucket, which is the max burst
+     * @param parent   the parent bucket that should also be acquired from (e.g. bucket of the tenant), nullable
+     */
+    public TokenBucket(double rate, long capacity, TokenBucket parent) {
+        AssertUtil.isTrue(rate > 0, "rate should be positive");
+        AssertUtil.isTrue(capacity > 0 && capacity <= MAX_CAPACITY, "capacity should be in (0, 16777215]");
+        this.rate = rate;
+        this.capacity = capacity;
+        this.parent = parent;
+        this.startTime = TimeUtil.currentTimeMillis();
+        // Start with a full bucket.
+        this.state = new AtomicLong(capacity);
+    }
+
+    /**
+     * Acquire tokens from this bucket and all its ancestors in one pass. If any bucket does not have enough
+     * tokens, nothing is acquired.
+     *
+     * @param permits amount of tokens to acquire
+     * @return true if acquired, otherwise false
+     */
+    public boolean tryAcquire(int permits) {
+        if (permits <= 0) {
+            return true;
+        }
+        long now = TimeUtil.currentTimeMillis();
+        TokenBucket bucket = this;
+        while (bucket != null) {
+            if (!bucket.tryAcquireLocal(permits, now - bucket.startTime)) {
+                // Give back the tokens acquired from the descendants.
+                for (TokenBucket b = this; b != bucket; b = b.parent) {
+                    b.release(permits);
+                }
+                return false;
+            }
+            bucket = bucket.parent;
+        }
+        return true;
+    }
+
+    private boolean tryAcquireLocal(int permits, long now) {
+        if (permits > capacity) {
+            return false;
+        }
+        while (true) {
+            long current = state.get();
+            long lastTime = current >>> TOKEN_BITS;
+            long tokens = current & TOKEN_MASK;
+            if (now > lastTime && tokens < capacity) {
+                long refill = (long)((now - lastTime) * rate / 1000);
+                if (refill > 0) {
+                    if (tokens + refill >= capacity) {
+                        tokens = capacity;
+                        lastTime = now;
+                    } else {
+                        tokens += refill;
+                        // Only advance the time of the whole tokens added.
+                        lastTime += (long)Math.ceil(refill * 1000 / rate);
+                        if (lastTime > now) {
+                            lastTime = now;
+                        }
+                    }
+                }
+            } else if (tokens >= capacity) {
+                // Nothing to refill for a full bucket.
+                lastTime = Math.max(lastTime, now);
+            }
+            if (tokens < permits) {
+                return false;
+            }
+            long next = (lastTime << TOKEN_BITS) | (tokens - permits);
+            if (state.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back tokens to this bucket (not including its ancestors), e.g. when the request is rejected
+     * by other buckets.
+     *
+     * @param permits amount of tokens to give back
+     */
+    public void release(int permits) {
+        while (true) {
+            long current = state.get();
+            long tokens = Math.min(capacity, (current & TOKEN_MASK) + permits);
+            long next = (current & ~TOKEN_MASK) | tokens;
+            if (state.compareAndSet(current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return tokens currently in this bucket, without the refill since the last acquiring
+     */
+    public long storedTokens() {
+        return state.get() & TOKEN_MASK;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public TokenBucket getParent() {
+        return parent;
+    }
+
+    @Override
+    public String toString() {
+        return "TokenBucket{" +
+            "rate=" + rate +
+            ", capacity=" + capacity +
+            ", parent=" + parent +
+            '}';
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow.controller;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.alibaba.csp.sentinel.node.Node;
+import com.alibaba.csp.sentinel.slots.block.flow.TrafficShapingController;
+import com.alibaba.csp.sentinel.util.AssertUtil;
+
+/**
+ * <p>Token bucket traffic shaping (see {@link com.alibaba.csp.sentinel.slots.block.RuleConstant#CONTROL_BEHAVIOR_TOKEN_BUCKET}).
+ * Requests pass as long as the bucket has tokens, so bursts up to the capacity are allowed, while the
+ * long-term rate is limited by the refill rate.</p>
+ *
+ * <p>The bucket may have a shared parent bucket (e.g. the bucket of a tenant that is shared by all its APIs),
+ * and a request passes only when both buckets have enough tokens.</p>
+ *
+ * @since 1.8.2
+ */
+public class TokenBucketController implements TrafficShapingController {
+
+    /**
+     * Shared parent buckets: name --> bucket
+     */
+    private static final ConcurrentMap<String, TokenBucket> SHARED_BUCKETS = new ConcurrentHashMap<>();
+
+    private final TokenBucket bucket;
+
+    public TokenBucketController(double rate, long capacity) {
+        this(new TokenBucket(rate, capacity));
+    }
+
+    public TokenBucketController(double rate, long capacity, TokenBucket parent) {
+        this(new TokenBucket(rate, capacity, parent));
+    }
+
+    public TokenBucketController(TokenBucket bucket) {
+        AssertUtil.notNull(bucket, "bucket cannot be null");
+        this.bucket = bucket;
+    }
+
+    /**
+     * Get the shared bucket of given name. The existing bucket (with its tokens) is kept if the config
+     * is not changed, otherwise a new bucket is created.
+     *
+     * @param name     name of the shared bucket
+     * @param rate     refill rate (tokens per second)
+     * @param capacity max tokens of the bucket
+     * @return the shared bucket
+     */
+    public static TokenBucket getOrCreateSharedBucket(String name, double rate, long capacity) {
+        AssertUtil.notEmpty(name, "bucket name cannot be empty");
+        while (true) {
+            TokenBucket existing = SHARED_BUCKETS.get(name);
+            if (existing != null && Double.compare(existing.getRate(), rate) == 0
+                && existing.getCapacity() == capacity) {
+                return existing;
+            }
+            TokenBucket created = new TokenBucket(rate, capacity);
+            if (existing == null) {
+                if (SHARED_BUCKETS.putIfAbsent(name, created) == null) {
+                    return created;
+                }
+            } else if (SHARED_BUCKETS.replace(name, existing, created)) {
+                return created;
+            }
+        }
+    }
+
+    /**
+     * Remove the shared bucket of given name.
+     *
+     * @param name name of the shared bucket
+     */
+    public static void removeSharedBucket(String name) {
+        SHARED_BUCKETS.remove(name);
+    }
+
+    /**
+     * Remove the shared buckets that are not referred by any rule any more. Controllers of the former rules
+     * keep their own reference to the bucket, so they are not affected.
+     *
+     * @param names names of the shared buckets that are still in use
+     */
+    public static void retainSharedBuckets(Set<String> names) {
+        SHARED_BUCKETS.keySet().retainAll(names);
+    }
+
+    /**
+     * Whether this controller could be replaced by the former one to keep its tokens, i.e. both controllers
+     * are generated from the same rule and share the same parent bucket.
+     *
+     * @param former the controller of the former rule
+     * @return true if the former controller could be kept
+     */
+    public boolean isSameBucketAs(TokenBucketController former) {
+        if (former == null) {
+            return false;
+        }
+        TokenBucket other = former.bucket;
+        return Double.compare(bucket.getRate(), other.getRate()) == 0 && bucket.getCapacity() == other.getCapacity()
+            && bucket.getParent() == other.getParent();
+    }
+
+    public TokenBucket getBucket() {
+        return bucket;
+    }
+
+    @Override
+    public boolean canPass(Node node, int acquireCount) {
+        return canPass(node, acquireCount, false);
+    }
+
+    @Override
+    public boolean canPass(Node node, int acquireCount, boolean prioritized) {
+        return bucket.tryAcquire(acquireCount);
+    }
+}
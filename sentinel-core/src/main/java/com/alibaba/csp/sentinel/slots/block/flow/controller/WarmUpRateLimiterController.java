@@ -17,6 +17,7 @@ package com.alibaba.csp.sentinel.slots.block.flow.controller;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.alibaba.csp.sentinel.NonBlockingPacing;
 import com.alibaba.csp.sentinel.node.Node;
 import com.alibaba.csp.sentinel.util.TimeUtil;
 
@@ -75,7 +76,7 @@ public class WarmUpRateLimiterController extends WarmUpController {
                         latestPassedTime.addAndGet(-costTime);
                         return false;
                     }
-                    if (waitTime > 0) {
+                    if (waitTime > 0 && !NonBlockingPacing.deferWait(waitTime)) {
                         Thread.sleep(waitTime);
                     }
                     return true;
@@ -15,7 +15,12 @@
  */
 package com.alibaba.csp.sentinel.slots.nodeselector;
 
+import java.util.Collection;
+import java.util.Collections;
+
 import com.alibaba.csp.sentinel.Constants;
+import com.alibaba.csp.sentinel.ResourceHandle;
+import com.alibaba.csp.sentinel.ResourceHandle.HandleResourceWrapper;
 import com.alibaba.csp.sentinel.context.Context;
 import com.alibaba.csp.sentinel.context.ContextUtil;
 import com.alibaba.csp.sentinel.node.ClusterNode;
@@ -24,9 +29,8 @@ import com.alibaba.csp.sentinel.node.EntranceNode;
 import com.alibaba.csp.sentinel.slotchain.AbstractLinkedProcessorSlot;
 import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
 import com.alibaba.csp.sentinel.spi.Spi;
-
-import java.util.HashMap;
-import java.util.Map;
+import com.alibaba.csp.sentinel.util.ConcurrentRegistry;
+import com.alibaba.csp.sentinel.util.function.Function;
 
 /**
  * </p>
@@ -130,7 +134,7 @@ public class NodeSelectorSlot extends AbstractLinkedProcessorSlot<Object> {
     /**
      * {@link DefaultNode}s of the same resource in different context.
      */
-    private volatile Map<String, DefaultNode> map = new HashMap<String, DefaultNode>(10);
+    private final ConcurrentRegistry<String, DefaultNode> map = new ConcurrentRegistry<String, DefaultNode>();
 
     @Override
     public void entry(Context context, ResourceWrapper resourceWrapper, Object obj, int count, boolean prioritized, Object... args)
@@ -154,20 +158,14 @@ public class NodeSelectorSlot extends AbstractLinkedProcessorSlot<Object> {
          * {@link ClusterNode}. See {@link ClusterBuilderSlot} for detail.
          */
         //这个DefaultNode 是一个统计数据的封装类 用于传给后续保存统计数据使用
-        DefaultNode node = map.get(context.getName());
+        // Entries made through a resource handle take the node cached in the handle first.
+        ResourceHandle handle = resourceWrapper instanceof HandleResourceWrapper
+            ? ((HandleResourceWrapper)resourceWrapper).getHandle() : null;
+        DefaultNode node = handle != null ? handle.getDefaultNode(context.getName()) : null;
         if (node == null) {
-            synchronized (this) {
-                node = map.get(context.getName());
-                if (node == null) {
-                    node = new DefaultNode(resourceWrapper, null);
-                    HashMap<String, DefaultNode> cacheMap = new HashMap<String, DefaultNode>(map.size());
-                    cacheMap.putAll(map);
-                    cacheMap.put(context.getName(), node);
-                    map = cacheMap;
-                    // Build invocation tree
-                    ((DefaultNode) context.getLastNode()).addChild(node);
-                }
-
+            node = getOrCreateNode(context, resourceWrapper);
+            if (handle != null) {
+                handle.cacheDefaultNode(context.getName(), node);
             }
         }
         //为上下文绑定统计的节点
@@ -175,8 +173,36 @@ public class NodeSelectorSlot extends AbstractLinkedProcessorSlot<Object> {
         fireEntry(context, resourceWrapper, node, count, prioritized, args);
     }
 
+    private DefaultNode getOrCreateNode(Context context, ResourceWrapper resourceWrapper) {
+        DefaultNode node = map.get(context.getName());
+        if (node == null) {
+            final Context ctx = context;
+            final ResourceWrapper resource = resourceWrapper;
+            node = map.getOrCreate(context.getName(), new Function<String, DefaultNode>() {
+                @Override
+                public DefaultNode apply(String contextName) {
+                    DefaultNode newNode = new DefaultNode(resource, null);
+                    // Build invocation tree
+                    ((DefaultNode) ctx.getLastNode()).addChild(newNode);
+                    return newNode;
+                }
+            });
+        }
+        return node;
+    }
+
     @Override
     public void exit(Context context, ResourceWrapper resourceWrapper, int count, Object... args) {
         fireExit(context, resourceWrapper, count, args);
     }
+
+    /**
+     * Get the {@link DefaultNode}s of the resource in all contexts.
+     *
+     * @return unmodifiable view of the nodes
+     * @since 1.8.2
+     */
+    public Collection<DefaultNode> getDefaultNodes() {
+        return Collections.unmodifiableCollection(map.values());
+    }
 }
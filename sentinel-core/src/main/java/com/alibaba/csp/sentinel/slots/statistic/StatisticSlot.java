@@ -135,7 +135,14 @@ public class StatisticSlot extends AbstractLinkedProcessorSlot<DefaultNode> {
     public void exit(Context context, ResourceWrapper resourceWrapper, int count, Object... args) {
         Node node = context.getCurNode();
 
-        if (context.getCurEntry().getBlockError() == null) {
+        if (context.getCurEntry().isRolledBack()) {
+            // Passed but given up, so revoke the pass and thread count.
+            rollbackFor(node, count);
+            rollbackFor(context.getCurEntry().getOriginNode(), count);
+            if (resourceWrapper.getEntryType() == EntryType.IN) {
+                rollbackFor(Constants.ENTRY_NODE, count);
+            }
+        } else if (context.getCurEntry().getBlockError() == null) {
             // Calculate response time (use completeStatTime as the time of completion).
             long completeStatTime = TimeUtil.currentTimeMillis();
             context.getCurEntry().setCompleteTimestamp(completeStatTime);
@@ -160,6 +167,18 @@ public class StatisticSlot extends AbstractLinkedProcessorSlot<DefaultNode> {
         fireExit(context, resourceWrapper, count);
     }
 
+    /**
+     * Revoke the pass and thread count of a rolled-back entry. This is approximate, as the pass is revoked
+     * from current window, which may not be the window it was recorded in.
+     */
+    private void rollbackFor(Node node, int batchCount) {
+        if (node == null) {
+            return;
+        }
+        node.addPassRequest(-batchCount);
+        node.decreaseThreadNum();
+    }
+
     private void recordCompleteFor(Node node, int batchCount, long rt, Throwable error) {
         if (node == null) {
             return;
@@ -18,7 +18,6 @@ package com.alibaba.csp.sentinel.slots.statistic.base;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicReferenceArray;
-import java.util.concurrent.locks.ReentrantLock;
 
 import com.alibaba.csp.sentinel.util.AssertUtil;
 import com.alibaba.csp.sentinel.util.TimeUtil;
@@ -50,11 +49,6 @@ public abstract class LeapArray<T> {
     //创建容量为2的时间窗口 juc下数组
     protected final AtomicReferenceArray<WindowWrap<T>> array;
 
-    /**
-     * The conditional (predicate) update lock is used only when current bucket is deprecated.
-     */
-    private final ReentrantLock updateLock = new ReentrantLock();
-
     /**
      * The total bucket count is: {@code sampleCount = intervalInMs / windowLengthInMs}.
      *
@@ -96,6 +90,9 @@ public abstract class LeapArray<T> {
 
     /**
      * Reset given bucket to provided start time and reset the value.
+     * When a deprecated bucket is replaced, it's invoked on the new bucket before the bucket is published,
+     * and the new bucket is dropped if another thread replaces the deprecated bucket first. So it should not
+     * move any state out of shared structures; use {@link #onWindowRotated(WindowWrap)} for that.
      *
      * @param startTime  the start time of the bucket in milliseconds
      * @param windowWrap current bucket
@@ -103,6 +100,16 @@ public abstract class LeapArray<T> {
      */
     protected abstract WindowWrap<T> resetWindowTo(WindowWrap<T> windowWrap, long startTime);
 
+    /**
+     * Invoked by the only thread that has published a new bucket in place of a deprecated one.
+     * Other threads may be counting in the bucket already, so the value should only be added to.
+     *
+     * @param windowWrap the published bucket
+     * @since 1.8.2
+     */
+    protected void onWindowRotated(WindowWrap<T> windowWrap) {
+    }
+
     /**
      * 根据时间戳计算当前时间窗口的下标
      * @param timeMillis
@@ -146,6 +153,9 @@ public abstract class LeapArray<T> {
          * (1) Bucket is absent, then just create a new bucket and CAS update to circular array.
          * (2) Bucket is up-to-date, then just return the bucket.
          * (3) Bucket is deprecated, then reset current bucket and clean all deprecated buckets.
+         *
+         * A thread that loses a CAS just reads the bucket installed by the winner in the next loop,
+         * so no thread ever waits for another one.
          */
         while (true) {
             //获取老的时间窗口
@@ -172,10 +182,8 @@ public abstract class LeapArray<T> {
                     //时间窗口更新成功 则返回
                     // Successfully updated, return the created bucket.
                     return window;
-                } else {
-                    // Contention failed, the thread will yield its time slice to wait for bucket available.
-                    Thread.yield();
                 }
+                // Contention failed, another thread has installed the bucket, so just read it again.
             } else if (windowStart == old.windowStart()) {
                 //根据当前时间计算出来的时间窗口开始时间与获取的时间窗口的开始时间相同
                 // 则说明暂时还是处于同一个时间窗口 直接返回原有的时间窗口就行
@@ -205,24 +213,19 @@ public abstract class LeapArray<T> {
                  *
                  * If the start timestamp of old bucket is behind provided time, that means
                  * the bucket is deprecated. We have to reset the bucket to current {@code windowStart}.
-                 * Note that the reset and clean-up operations are hard to be atomic,
-                 * so we need a update lock to guarantee the correctness of bucket update.
-                 *
-                 * The update lock is conditional (tiny scope) and will take effect only when
-                 * bucket is deprecated, so in most cases it won't lead to performance loss.
+                 * Rather than resetting the bucket in place, a new bucket is prepared and replaces the deprecated
+                 * one via a CAS, so no thread ever sees (or counts in) a bucket that is half reset, and no lock
+                 * is needed. Threads that still hold the deprecated bucket only count in the dropped bucket.
                  */
-                if (updateLock.tryLock()) {
-                    try {
-                        //进行重置
-                        // Successfully get the update lock, now we reset the bucket.
-                        return resetWindowTo(old, windowStart);
-                    } finally {
-                        updateLock.unlock();
-                    }
-                } else {
-                    // Contention failed, the thread will yield its time slice to wait for bucket available.
-                    Thread.yield();
+                WindowWrap<T> window = resetWindowTo(new WindowWrap<T>(windowLengthInMs, windowStart,
+                    newEmptyBucket(timeMillis)), windowStart);
+                if (array.compareAndSet(idx, old, window)) {
+                    //进行重置
+                    // Successfully replaced the deprecated bucket.
+                    onWindowRotated(window);
+                    return window;
                 }
+                // Contention failed, another thread has replaced the bucket, so just read it again.
             } else if (windowStart < old.windowStart()) {
                 //只有发生时间回拨的时候才会到这里
                 // Should not go through here, as the provided time is already behind.
@@ -33,8 +33,8 @@ public class UnaryLeapArray extends LeapArray<LongAdder> {
 
     @Override
     protected WindowWrap<LongAdder> resetWindowTo(WindowWrap<LongAdder> windowWrap, long startTime) {
-        windowWrap.resetTo(startTime);
         windowWrap.value().reset();
+        windowWrap.resetTo(startTime);
         return windowWrap;
     }
 }
@@ -26,37 +26,64 @@ import java.util.concurrent.atomic.LongAdder;
  * @author Eric Zhao
  */
 public class MetricBucket {
+
+    /**
+     * Cached copy of {@link MetricEvent#values()}, so that resetting a bucket won't clone the enum array.
+     */
+    static final MetricEvent[] EVENTS = MetricEvent.values();
+
     //统计数组
     private final LongAdder[] counters;
 
     private volatile long minRt;
 
+    /**
+     * The histogram of RT, created on the first RT recorded via {@link #recordRtHistogram(long)}.
+     */
+    private volatile RtHistogram rtHistogram;
+
     public MetricBucket() {
         /**
          * 这里将需要统计的数据封装为枚举 然后枚举转为数组
          * 再获取各个枚举值的下标位作为索引位
          * 最后初始化数组的各个索引位
          */
-        MetricEvent[] events = MetricEvent.values();
-        this.counters = new LongAdder[events.length];
-        for (MetricEvent event : events) {
-            counters[event.ordinal()] = new LongAdder();
-        }
+        this(newAdders());
+    }
+
+    /**
+     * For subclasses that keep the counters in their own storage. Such subclasses should pass {@code null}
+     * and override all counter accessors ({@link #get}, {@link #add}, {@link #reset()}
+     * and {@link #reset(MetricBucket)}).
+     *
+     * @param counters the adder of each event indexed by ordinal, or null
+     */
+    MetricBucket(LongAdder[] counters) {
+        this.counters = counters;
         initMinRt();
     }
 
+    private static LongAdder[] newAdders() {
+        LongAdder[] adders = new LongAdder[EVENTS.length];
+        for (MetricEvent event : EVENTS) {
+            adders[event.ordinal()] = new LongAdder();
+        }
+        return adders;
+    }
+
     public MetricBucket reset(MetricBucket bucket) {
 
-        for (MetricEvent event : MetricEvent.values()) {
+        for (MetricEvent event : EVENTS) {
             //对应索引位的值进行重置
             counters[event.ordinal()].reset();
             counters[event.ordinal()].add(bucket.get(event));
         }
         initMinRt();
+        resetRtHistogram();
         return this;
     }
 
-    private void initMinRt() {
+    void initMinRt() {
         //重置minRt
         this.minRt = SentinelConfig.statisticMaxRt();
     }
@@ -68,11 +95,64 @@ public class MetricBucket {
      */
     public MetricBucket reset() {
         //重置统计位数据
-        for (MetricEvent event : MetricEvent.values()) {
+        for (MetricEvent event : EVENTS) {
             counters[event.ordinal()].reset();
         }
         //
         initMinRt();
+        resetRtHistogram();
+        return this;
+    }
+
+    void resetRtHistogram() {
+        RtHistogram histogram = rtHistogram;
+        if (histogram != null) {
+            histogram.reset();
+        }
+    }
+
+    private RtHistogram getOrCreateRtHistogram() {
+        RtHistogram histogram = rtHistogram;
+        if (histogram == null) {
+            synchronized (this) {
+                histogram = rtHistogram;
+                if (histogram == null) {
+                    histogram = new RtHistogram();
+                    rtHistogram = histogram;
+                }
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Get the histogram of RT recorded in this bucket.
+     *
+     * @return the RT histogram, or null if no RT is recorded since RT histogram is enabled
+     * @since 1.8.2
+     */
+    public RtHistogram rtHistogram() {
+        return rtHistogram;
+    }
+
+    /**
+     * Add all statistics of given bucket to this bucket.
+     *
+     * @param bucket the bucket to merge
+     * @return this bucket
+     * @since 1.8.2
+     */
+    public MetricBucket merge(MetricBucket bucket) {
+        for (MetricEvent event : EVENTS) {
+            add(event, bucket.get(event));
+        }
+        if (bucket.minRt() < minRt) {
+            minRt = bucket.minRt();
+        }
+        RtHistogram histogram = bucket.rtHistogram();
+        if (histogram != null) {
+            getOrCreateRtHistogram().add(histogram);
+        }
         return this;
     }
 
@@ -147,6 +227,16 @@ public class MetricBucket {
         }
     }
 
+    /**
+     * Record the RT into the histogram of this bucket.
+     *
+     * @param rt response time in milliseconds
+     * @since 1.8.2
+     */
+    public void recordRtHistogram(long rt) {
+        getOrCreateRtHistogram().record(rt);
+    }
+
     @Override
     public String toString() {
         return "p: " + pass() + ", b: " + block() + ", w: " + occupiedPass();
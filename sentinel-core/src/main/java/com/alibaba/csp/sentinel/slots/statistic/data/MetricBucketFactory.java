@@ -0,0 +1,50 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.data;
+
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+
+/**
+ * Creates {@link MetricBucket}s according to the bucket type configured
+ * in {@link SentinelConfig#STATISTIC_BUCKET_TYPE}.
+ *
+ * @since 1.8.2
+ */
+public final class MetricBucketFactory {
+
+    /**
+     * Buckets backed by one {@link java.util.concurrent.atomic.LongAdder} per event (the default).
+     */
+    public static final String TYPE_ADDER = "adder";
+    /**
+     * Buckets backed by a cache-line padded primitive array striped by thread (see {@link StripedMetricBucket}).
+     */
+    public static final String TYPE_STRIPED = "striped";
+
+    /**
+     * Create a new empty bucket of the configured type.
+     *
+     * @return a new empty bucket
+     */
+    public static MetricBucket newBucket() {
+        if (TYPE_STRIPED.equalsIgnoreCase(SentinelConfig.statisticBucketType())) {
+            return new StripedMetricBucket(SentinelConfig.statisticBucketStripes());
+        }
+        return new MetricBucket();
+    }
+
+    private MetricBucketFactory() {}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.data;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.util.AssertUtil;
+
+/**
+ * <p>A compact log-linear histogram of response time (in milliseconds), similar to HdrHistogram.</p>
+ *
+ * <p>Values below 16 are counted exactly. Above that, every power-of-two range is divided into 8 linear
+ * sub-buckets, so the relative error of a recorded value is below 12.5%. All counters are kept in a fixed
+ * primitive array sized by the max value, and recording a value does not allocate. Values above the
+ * max value are recorded as the max value.</p>
+ *
+ * <p>Statistic nodes do not record the histogram by default. The histogram of a node is enabled when a rule
+ * triggering on percentile RT checks the node, or for all nodes via
+ * {@link SentinelConfig#STATISTIC_RT_HISTOGRAM_ENABLED}.</p>
+ *
+ * @since 1.8.2
+ */
+public class RtHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * Values below this are counted exactly.
+     */
+    private static final int LINEAR_LIMIT = SUB_BUCKET_COUNT << 1;
+
+    private static final boolean ENABLED_FOR_ALL = SentinelConfig.statisticRtHistogramEnabled();
+
+    /**
+     * Buffer of current thread for merging histogram counts on the request path.
+     */
+    private static final ThreadLocal<long[]> LOCAL_COUNTS = new ThreadLocal<long[]>();
+
+    private final AtomicLongArray counts;
+    private final long maxValue;
+
+    public RtHistogram() {
+        this(SentinelConfig.statisticMaxRt());
+    }
+
+    public RtHistogram(long maxValue) {
+        AssertUtil.isTrue(maxValue > 0, "maxValue should be positive");
+        this.maxValue = maxValue;
+        this.counts = new AtomicLongArray(indexOf(maxValue) + 1);
+    }
+
+    /**
+     * @return whether all statistic nodes record RT histograms
+     */
+    public static boolean isEnabledForAll() {
+        return ENABLED_FOR_ALL;
+    }
+
+    /**
+     * Get the zeroed counts buffer of current thread, so that merging histograms (see {@link #mergeTo(long[])})
+     * on the request path won't allocate. The buffer should not be kept after use.
+     *
+     * @return the zeroed counts buffer
+     */
+    public static long[] localCounts() {
+        long[] counts = LOCAL_COUNTS.get();
+        if (counts == null) {
+            counts = new long[indexOf(SentinelConfig.statisticMaxRt()) + 1];
+            LOCAL_COUNTS.set(counts);
+        } else {
+            Arrays.fill(counts, 0);
+        }
+        return counts;
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int)value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int)(value >>> shift);
+    }
+
+    /**
+     * Get the highest value that is counted by the sub-bucket of given index.
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = index - ((long)shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Record a response time.
+     *
+     * @param value response time in milliseconds
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > maxValue) {
+            value = maxValue;
+        }
+        counts.incrementAndGet(indexOf(value));
+    }
+
+    /**
+     * Add all counts of given histogram to this histogram.
+     *
+     * @param other the histogram to add
+     */
+    public void add(RtHistogram other) {
+        int n = Math.min(counts.length(), other.counts.length());
+        for (int i = 0; i < n; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(i, c);
+            }
+        }
+        // Values of the other histogram beyond the max value are recorded as the max value.
+        for (int i = n; i < other.counts.length(); i++) {
+            long c = other.counts.get(i);
+            if (c != 0) {
+                counts.addAndGet(counts.length() - 1, c);
+            }
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+    }
+
+    /**
+     * @return total count of recorded values
+     */
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Get the value at given percentile of the recorded values.
+     *
+     * @param percentile the percentile in (0, 100]
+     * @return the value at given percentile, or 0 if nothing is recorded
+     */
+    public long valueAtPercentile(double percentile) {
+        return valueAtPercentile(mergeTo(null), percentile);
+    }
+
+    /**
+     * Add the counts of this histogram to given array, which will be grown if not large enough.
+     *
+     * @param target the counts to add to, nullable
+     * @return the array that holds the merged counts
+     */
+    public long[] mergeTo(long[] target) {
+        int n = counts.length();
+        if (target == null) {
+            target = new long[n];
+        } else if (target.length < n) {
+            long[] grown = new long[n];
+            System.arraycopy(target, 0, grown, 0, target.length);
+            target = grown;
+        }
+        for (int i = 0; i < n; i++) {
+            target[i] += counts.get(i);
+        }
+        return target;
+    }
+
+    /**
+     * Get the value at given percentile of merged histogram counts (see {@link #mergeTo(long[])}).
+     *
+     * @param counts     merged histogram counts, nullable
+     * @param percentile the percentile in (0, 100]
+     * @return the value at given percentile, or 0 if nothing is recorded
+     */
+    public static long valueAtPercentile(long[] counts, double percentile) {
+        if (counts == null) {
+            return 0;
+        }
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long)Math.ceil(Math.min(percentile, 100) / 100 * total);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestEquivalentValue(i);
+            }
+        }
+        return highestEquivalentValue(counts.length - 1);
+    }
+}
@@ -23,6 +23,7 @@ import com.alibaba.csp.sentinel.node.metric.MetricNode;
 import com.alibaba.csp.sentinel.slots.statistic.MetricEvent;
 import com.alibaba.csp.sentinel.slots.statistic.base.LeapArray;
 import com.alibaba.csp.sentinel.slots.statistic.data.MetricBucket;
+import com.alibaba.csp.sentinel.slots.statistic.data.RtHistogram;
 import com.alibaba.csp.sentinel.slots.statistic.base.WindowWrap;
 import com.alibaba.csp.sentinel.slots.statistic.metric.occupy.OccupiableBucketLeapArray;
 import com.alibaba.csp.sentinel.util.function.Predicate;
@@ -38,6 +39,8 @@ public class ArrayMetric implements Metric {
     //OccupiableBucketLeapArray
     private final LeapArray<MetricBucket> data;
 
+    private volatile boolean rtHistogramEnabled = RtHistogram.isEnabledForAll();
+
     public ArrayMetric(int sampleCount, int intervalInMs) {
         this.data = new OccupiableBucketLeapArray(sampleCount, intervalInMs);
     }
@@ -163,7 +166,7 @@ public class ArrayMetric implements Metric {
                 continue;
             }
 
-            details.add(fromBucket(window));
+            details.add(fromBucket(window.windowStart(), window.value()));
         }
 
         return details;
@@ -182,29 +185,58 @@ public class ArrayMetric implements Metric {
                 continue;
             }
 
-            details.add(fromBucket(window));
+            details.add(fromBucket(window.windowStart(), window.value()));
         }
 
         return details;
     }
 
-    private MetricNode fromBucket(WindowWrap<MetricBucket> wrap) {
+    static MetricNode fromBucket(long windowStart, MetricBucket bucket) {
         MetricNode node = new MetricNode();
-        node.setBlockQps(wrap.value().block());
-        node.setExceptionQps(wrap.value().exception());
-        node.setPassQps(wrap.value().pass());
-        long successQps = wrap.value().success();
+        node.setBlockQps(bucket.block());
+        node.setExceptionQps(bucket.exception());
+        node.setPassQps(bucket.pass());
+        long successQps = bucket.success();
         node.setSuccessQps(successQps);
         if (successQps != 0) {
-            node.setRt(wrap.value().rt() / successQps);
+            node.setRt(bucket.rt() / successQps);
         } else {
-            node.setRt(wrap.value().rt());
+            node.setRt(bucket.rt());
+        }
+        node.setTimestamp(windowStart);
+        node.setOccupiedPassQps(bucket.occupiedPass());
+        RtHistogram histogram = bucket.rtHistogram();
+        if (histogram != null) {
+            long[] counts = histogram.mergeTo(null);
+            node.setRtP50(RtHistogram.valueAtPercentile(counts, 50));
+            node.setRtP90(RtHistogram.valueAtPercentile(counts, 90));
+            node.setRtP99(RtHistogram.valueAtPercentile(counts, 99));
         }
-        node.setTimestamp(wrap.windowStart());
-        node.setOccupiedPassQps(wrap.value().occupiedPass());
         return node;
     }
 
+    @Override
+    public long[] mergeRtHistogram(long[] target) {
+        data.currentWindow();
+        for (MetricBucket bucket : data.values()) {
+            RtHistogram histogram = bucket.rtHistogram();
+            if (histogram != null) {
+                target = histogram.mergeTo(target);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Get the bucket of the window starting at given time, without rolling the windows.
+     *
+     * @param windowStart start time of the window
+     * @return the bucket, or null if the window has been deprecated or not created yet
+     */
+    MetricBucket windowValue(long windowStart) {
+        return data.getWindowValue(windowStart);
+    }
+
     @Override
     public MetricBucket[] windows() {
         data.currentWindow();
@@ -252,6 +284,18 @@ public class ArrayMetric implements Metric {
     public void addRT(long rt) {
         WindowWrap<MetricBucket> wrap = data.currentWindow();
         wrap.value().addRT(rt);
+        if (rtHistogramEnabled) {
+            wrap.value().recordRtHistogram(rt);
+        }
+    }
+
+    @Override
+    public void enableRtHistogram() {
+        this.rtHistogramEnabled = true;
+    }
+
+    public boolean isRtHistogramEnabled() {
+        return rtHistogramEnabled;
     }
 
     @Override
@@ -78,6 +78,25 @@ public interface Metric extends DebugSupport {
      */
     long minRt();
 
+    /**
+     * Add the RT histogram counts of all valid windows to given array (see {@code RtHistogram#mergeTo(long[])}).
+     *
+     * @param target the counts to add to, nullable
+     * @return the array that holds the merged counts, or {@code target} if no RT histogram is recorded
+     * @since 1.8.2
+     */
+    default long[] mergeRtHistogram(long[] target) {
+        return target;
+    }
+
+    /**
+     * Record the RT histogram from now on, which is required by percentile RT.
+     *
+     * @since 1.8.2
+     */
+    default void enableRtHistogram() {
+    }
+
     /**
      * Get aggregated metric nodes of all resources.
      *
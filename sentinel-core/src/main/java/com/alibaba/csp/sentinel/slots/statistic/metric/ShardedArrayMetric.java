@@ -0,0 +1,335 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.metric;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.node.metric.MetricNode;
+import com.alibaba.csp.sentinel.slots.statistic.data.MetricBucket;
+import com.alibaba.csp.sentinel.util.AssertUtil;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+import com.alibaba.csp.sentinel.util.function.Predicate;
+
+/**
+ * <p>A metric that keeps several {@link ArrayMetric} shards of the same sample count and interval.
+ * Each writing thread records into the shard picked by its thread id, so that threads of a hot resource
+ * do not compete for the same windows, while the reading methods aggregate all shards.</p>
+ *
+ * <p>The waiting (borrowed) tokens are always kept in the first shard, as they are checked against
+ * the threshold of the whole resource.</p>
+ *
+ * <p>The windows of the same start time are merged slot by slot, so {@link #maxSuccess()} reads the shards
+ * in place without allocation.</p>
+ *
+ * @since 1.8.2
+ */
+public class ShardedArrayMetric implements Metric {
+
+    private final ArrayMetric[] shards;
+    private final int mask;
+    private final int sampleCount;
+    private final int windowLengthInMs;
+
+    public ShardedArrayMetric(int shardCount, int sampleCount, int intervalInMs, boolean enableOccupy) {
+        this(new ArrayMetric(sampleCount, intervalInMs, enableOccupy), shardCount, sampleCount, intervalInMs,
+            enableOccupy);
+    }
+
+    /**
+     * Create a sharded metric whose first shard is an existing metric, so that the statistics already
+     * recorded are kept.
+     *
+     * @param first        the existing metric used as the first shard
+     * @param shardCount   amount of shards, which will be rounded up to a power of two
+     * @param sampleCount  sample count of each shard, should be the same as the existing metric
+     * @param intervalInMs interval of each shard, should be the same as the existing metric
+     * @param enableOccupy whether the new shards support occupying future windows
+     */
+    public ShardedArrayMetric(ArrayMetric first, int shardCount, int sampleCount, int intervalInMs,
+                              boolean enableOccupy) {
+        AssertUtil.notNull(first, "the first shard cannot be null");
+        AssertUtil.isTrue(shardCount > 0, "shardCount should be positive");
+        int size = 1;
+        while (size < shardCount) {
+            size <<= 1;
+        }
+        this.shards = new ArrayMetric[size];
+        this.mask = size - 1;
+        this.sampleCount = sampleCount;
+        this.windowLengthInMs = intervalInMs / sampleCount;
+        shards[0] = first;
+        for (int i = 1; i < size; i++) {
+            shards[i] = new ArrayMetric(sampleCount, intervalInMs, enableOccupy);
+            if (first.isRtHistogramEnabled()) {
+                shards[i].enableRtHistogram();
+            }
+        }
+    }
+
+    private ArrayMetric currentShard() {
+        return shards[(int)Thread.currentThread().getId() & mask];
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public long success() {
+        long success = 0;
+        for (ArrayMetric shard : shards) {
+            success += shard.success();
+        }
+        return success;
+    }
+
+    @Override
+    public long maxSuccess() {
+        long currentWindowStart = currentWindowStart();
+        long success = 0;
+        for (int i = 0; i < sampleCount; i++) {
+            long windowStart = currentWindowStart - (long)i * windowLengthInMs;
+            long windowSuccess = 0;
+            for (ArrayMetric shard : shards) {
+                MetricBucket bucket = shard.windowValue(windowStart);
+                if (bucket != null) {
+                    windowSuccess += bucket.success();
+                }
+            }
+            if (windowSuccess > success) {
+                success = windowSuccess;
+            }
+        }
+        return Math.max(success, 1);
+    }
+
+    @Override
+    public long exception() {
+        long exception = 0;
+        for (ArrayMetric shard : shards) {
+            exception += shard.exception();
+        }
+        return exception;
+    }
+
+    @Override
+    public long block() {
+        long block = 0;
+        for (ArrayMetric shard : shards) {
+            block += shard.block();
+        }
+        return block;
+    }
+
+    @Override
+    public long pass() {
+        long pass = 0;
+        for (ArrayMetric shard : shards) {
+            pass += shard.pass();
+        }
+        return pass;
+    }
+
+    @Override
+    public long rt() {
+        long rt = 0;
+        for (ArrayMetric shard : shards) {
+            rt += shard.rt();
+        }
+        return rt;
+    }
+
+    @Override
+    public long minRt() {
+        long rt = Long.MAX_VALUE;
+        for (ArrayMetric shard : shards) {
+            rt = Math.min(rt, shard.minRt());
+        }
+        return rt;
+    }
+
+    @Override
+    public long[] mergeRtHistogram(long[] target) {
+        for (ArrayMetric shard : shards) {
+            target = shard.mergeRtHistogram(target);
+        }
+        return target;
+    }
+
+    @Override
+    public void enableRtHistogram() {
+        for (ArrayMetric shard : shards) {
+            shard.enableRtHistogram();
+        }
+    }
+
+    @Override
+    public List<MetricNode> details() {
+        return detailsOnCondition(null);
+    }
+
+    @Override
+    public List<MetricNode> detailsOnCondition(Predicate<Long> timePredicate) {
+        long currentWindowStart = currentWindowStart();
+        MetricBucket[] merged = mergeWindows(currentWindowStart, timePredicate);
+        List<MetricNode> details = new ArrayList<>(sampleCount);
+        // From the earliest window to the current one.
+        for (int i = sampleCount - 1; i >= 0; i--) {
+            if (merged[i] != null) {
+                details.add(ArrayMetric.fromBucket(currentWindowStart - (long)i * windowLengthInMs, merged[i]));
+            }
+        }
+        return details;
+    }
+
+    @Override
+    public MetricBucket[] windows() {
+        MetricBucket[] merged = mergeWindows(currentWindowStart(), null);
+        int count = 0;
+        for (int i = sampleCount - 1; i >= 0; i--) {
+            if (merged[i] != null) {
+                merged[count++] = merged[i];
+            }
+        }
+        MetricBucket[] windows = new MetricBucket[count];
+        System.arraycopy(merged, 0, windows, 0, count);
+        return windows;
+    }
+
+    private long currentWindowStart() {
+        long timeMillis = TimeUtil.currentTimeMillis();
+        return timeMillis - timeMillis % windowLengthInMs;
+    }
+
+    /**
+     * Merge the valid windows of all shards by window slot, where slot {@code i} is the window starting
+     * {@code i} windows before the current one.
+     */
+    private MetricBucket[] mergeWindows(long currentWindowStart, Predicate<Long> timePredicate) {
+        MetricBucket[] merged = new MetricBucket[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            long windowStart = currentWindowStart - (long)i * windowLengthInMs;
+            if (timePredicate != null && !timePredicate.test(windowStart)) {
+                continue;
+            }
+            for (ArrayMetric shard : shards) {
+                MetricBucket bucket = shard.windowValue(windowStart);
+                if (bucket == null) {
+                    continue;
+                }
+                if (merged[i] == null) {
+                    merged[i] = new MetricBucket();
+                }
+                merged[i].merge(bucket);
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void addException(int n) {
+        currentShard().addException(n);
+    }
+
+    @Override
+    public void addBlock(int n) {
+        currentShard().addBlock(n);
+    }
+
+    @Override
+    public void addSuccess(int n) {
+        currentShard().addSuccess(n);
+    }
+
+    @Override
+    public void addPass(int n) {
+        currentShard().addPass(n);
+    }
+
+    @Override
+    public void addRT(long rt) {
+        currentShard().addRT(rt);
+    }
+
+    @Override
+    public double getWindowIntervalInSec() {
+        return shards[0].getWindowIntervalInSec();
+    }
+
+    @Override
+    public int getSampleCount() {
+        return shards[0].getSampleCount();
+    }
+
+    @Override
+    public long getWindowPass(long timeMillis) {
+        long pass = 0;
+        for (ArrayMetric shard : shards) {
+            pass += shard.getWindowPass(timeMillis);
+        }
+        return pass;
+    }
+
+    @Override
+    public void addOccupiedPass(int acquireCount) {
+        currentShard().addOccupiedPass(acquireCount);
+    }
+
+    @Override
+    public void addWaiting(long futureTime, int acquireCount) {
+        shards[0].addWaiting(futureTime, acquireCount);
+    }
+
+    @Override
+    public long waiting() {
+        return shards[0].waiting();
+    }
+
+    @Override
+    public long occupiedPass() {
+        long pass = 0;
+        for (ArrayMetric shard : shards) {
+            pass += shard.occupiedPass();
+        }
+        return pass;
+    }
+
+    @Override
+    public long previousWindowBlock() {
+        long block = 0;
+        for (ArrayMetric shard : shards) {
+            block += shard.previousWindowBlock();
+        }
+        return block;
+    }
+
+    @Override
+    public long previousWindowPass() {
+        long pass = 0;
+        for (ArrayMetric shard : shards) {
+            pass += shard.previousWindowPass();
+        }
+        return pass;
+    }
+
+    @Override
+    public void debug() {
+        for (ArrayMetric shard : shards) {
+            shard.debug();
+        }
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.alibaba.csp.sentinel.util.function.BiConsumer;
+import com.alibaba.csp.sentinel.util.function.Function;
+import com.alibaba.csp.sentinel.util.function.Predicate;
+
+/**
+ * <p>A concurrent registry of long-living objects (e.g. slot chains, statistic nodes) keyed by resource
+ * or context name.</p>
+ *
+ * <p>Reads are lock-free and insertion is O(1) without any global lock: values are created at most once per key
+ * via {@link #getOrCreate(Object, Function)}. The registry could be bounded: when the amount of entries
+ * reaches the capacity, no new entry will be created until an entry is evicted, either in the background via
+ * {@link #evictIdle(long, Predicate)} or by the owner via {@link #evictEldest(int, long, Predicate)} to make room for
+ * a new one. Pinned entries are never evicted. Access time is only tracked for bounded registries.</p>
+ *
+ * <p>The registry also works as a {@link Map} so that it can be iterated or modified directly
+ * (e.g. in tests); entries put via {@link #put(Object, Object)} are not pinned.</p>
+ *
+ * @param <K> type of the key
+ * @param <V> type of the value
+ * @since 1.8.2
+ */
+public class ConcurrentRegistry<K, V> extends AbstractMap<K, V> {
+
+    private final ConcurrentHashMap<K, Holder<V>> map;
+
+    private final int capacity;
+
+    private volatile BiConsumer<K, V> evictionListener;
+
+    /**
+     * Create an unbounded registry.
+     */
+    public ConcurrentRegistry() {
+        this(0);
+    }
+
+    /**
+     * Create a registry bounded by given capacity.
+     *
+     * @param capacity max amount of entries, non-positive means unbounded
+     */
+    public ConcurrentRegistry(int capacity) {
+        this.capacity = capacity;
+        this.map = new ConcurrentHashMap<>(capacity > 0 ? Math.min(capacity, 256) : 16);
+    }
+
+    private boolean isBounded() {
+        return capacity > 0;
+    }
+
+    private void touch(Holder<V> holder) {
+        if (isBounded()) {
+            long now = TimeUtil.currentTimeMillis();
+            // Avoid writing the shared field more than once per millisecond.
+            if (holder.lastAccess != now) {
+                holder.lastAccess = now;
+            }
+        }
+    }
+
+    @Override
+    public V get(Object key) {
+        Holder<V> holder = map.get(key);
+        if (holder == null) {
+            return null;
+        }
+        touch(holder);
+        return holder.value;
+    }
+
+    /**
+     * Get the value of the key, or create and register one if absent. The factory is invoked
+     * at most once per key, so side effects in the factory are safe.
+     *
+     * @param key     the key
+     * @param factory creates the value if absent
+     * @return the value of the key, or null if the registry is full
+     */
+    public V getOrCreate(K key, Function<? super K, ? extends V> factory) {
+        return getOrCreate(key, factory, false);
+    }
+
+    /**
+     * Get the value of the key, or create and register one if absent. The factory is invoked
+     * at most once per key, so side effects in the factory are safe.
+     *
+     * @param key     the key
+     * @param factory creates the value if absent
+     * @param pin     whether the entry should never be evicted
+     * @return the value of the key, or null if the registry is full
+     */
+    public V getOrCreate(final K key, final Function<? super K, ? extends V> factory, boolean pin) {
+        Holder<V> holder = map.get(key);
+        if (holder == null) {
+            // The check is not atomic with the insertion, so the capacity might be exceeded slightly
+            // under contention, which is acceptable for a soft limit.
+            if (isBounded() && map.size() >= capacity) {
+                return null;
+            }
+            // Only the bin of the key is locked, so creating values for different keys won't block each other.
+            holder = map.computeIfAbsent(key, new java.util.function.Function<K, Holder<V>>() {
+                @Override
+                public Holder<V> apply(K k) {
+                    return new Holder<V>(factory.apply(k), TimeUtil.currentTimeMillis());
+                }
+            });
+        } else {
+            touch(holder);
+        }
+        if (pin) {
+            holder.pinned = true;
+        }
+        return holder.value;
+    }
+
+    private boolean evict(K key, Holder<V> holder) {
+        if (!map.remove(key, holder)) {
+            return false;
+        }
+        BiConsumer<K, V> listener = evictionListener;
+        if (listener != null) {
+            listener.accept(key, holder.value);
+        }
+        return true;
+    }
+
+    /**
+     * Evict the least-recently-accessed entries that are not pinned, have been idle for at least given time
+     * and are accepted by the filter, e.g. to make room for new entries when the registry is full.
+     * All entries are scanned, so it should not be called on hot paths.
+     *
+     * @param count     max amount of entries to evict
+     * @param minIdleMs minimal idle time in milliseconds
+     * @param filter    decides whether an idle entry could be evicted, null means all idle entries could be evicted
+     * @return amount of evicted entries
+     */
+    public int evictEldest(int count, long minIdleMs, Predicate<? super K> filter) {
+        if (count <= 0) {
+            return 0;
+        }
+        long now = TimeUtil.currentTimeMillis();
+        // Max-heap by access time, holding the eldest entries found so far.
+        PriorityQueue<Map.Entry<K, Holder<V>>> eldest = new PriorityQueue<>(Math.min(count, 64),
+            new Comparator<Map.Entry<K, Holder<V>>>() {
+                @Override
+                public int compare(Map.Entry<K, Holder<V>> o1, Map.Entry<K, Holder<V>> o2) {
+                    return Long.compare(o2.getValue().lastAccess, o1.getValue().lastAccess);
+                }
+            });
+        for (Map.Entry<K, Holder<V>> e : map.entrySet()) {
+            Holder<V> holder = e.getValue();
+            if (holder.pinned || now - holder.lastAccess < minIdleMs) {
+                continue;
+            }
+            if (eldest.size() >= count && holder.lastAccess >= eldest.peek().getValue().lastAccess) {
+                continue;
+            }
+            if (filter == null || filter.test(e.getKey())) {
+                eldest.offer(new SimpleImmutableEntry<K, Holder<V>>(e.getKey(), holder));
+                if (eldest.size() > count) {
+                    eldest.poll();
+                }
+            }
+        }
+        int evicted = 0;
+        for (Map.Entry<K, Holder<V>> e : eldest) {
+            if (evict(e.getKey(), e.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Evict all entries that are not pinned and have been idle for at least given time.
+     *
+     * @param idleMs idle time in milliseconds
+     * @return amount of evicted entries
+     */
+    public int evictIdle(long idleMs) {
+        return evictIdle(idleMs, null);
+    }
+
+    /**
+     * Evict all entries that are not pinned, have been idle for at least given time and are accepted
+     * by the filter.
+     *
+     * @param idleMs idle time in milliseconds
+     * @param filter decides whether an idle entry could be evicted, null means all idle entries could be evicted
+     * @return amount of evicted entries
+     */
+    public int evictIdle(long idleMs, Predicate<? super K> filter) {
+        long now = TimeUtil.currentTimeMillis();
+        int evicted = 0;
+        for (Map.Entry<K, Holder<V>> e : map.entrySet()) {
+            Holder<V> holder = e.getValue();
+            if (holder.pinned || now - holder.lastAccess < idleMs) {
+                continue;
+            }
+            if ((filter == null || filter.test(e.getKey())) && evict(e.getKey(), holder)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Set the listener to be notified after an entry is evicted (but not after being removed explicitly).
+     *
+     * @param evictionListener the listener, or null
+     */
+    public void setEvictionListener(BiConsumer<K, V> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Get last access time of the key. Access time is only tracked for bounded registries.
+     *
+     * @param key the key
+     * @return last access time in milliseconds, or -1 if absent
+     */
+    public long getLastAccessTime(K key) {
+        Holder<V> holder = map.get(key);
+        return holder == null ? -1 : holder.lastAccess;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        AssertUtil.notNull(value, "value cannot be null");
+        Holder<V> old = map.put(key, new Holder<V>(value, TimeUtil.currentTimeMillis()));
+        return old == null ? null : old.value;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Holder<V> old = map.remove(key);
+        return old == null ? null : old.value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public void clear() {
+        map.clear();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                final Iterator<Entry<K, Holder<V>>> it = map.entrySet().iterator();
+                return new Iterator<Entry<K, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        Entry<K, Holder<V>> e = it.next();
+                        return new SimpleImmutableEntry<K, V>(e.getKey(), e.getValue().value);
+                    }
+
+                    @Override
+                    public void remove() {
+                        it.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return map.size();
+            }
+        };
+    }
+
+    private static final class Holder<V> {
+        private final V value;
+        private volatile long lastAccess;
+        private volatile boolean pinned;
+
+        Holder(V value, long lastAccess) {
+            AssertUtil.notNull(value, "value cannot be null");
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+}
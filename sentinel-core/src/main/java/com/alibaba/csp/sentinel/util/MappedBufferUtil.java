@@ -0,0 +1,95 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+import com.alibaba.csp.sentinel.log.RecordLog;
+
+/**
+ * Util class for releasing mapped file regions.
+ *
+ * @since 1.8.2
+ */
+public final class MappedBufferUtil {
+
+    private static final Unmapper UNMAPPER = createUnmapper();
+
+    /**
+     * Release the mapped region right away rather than on GC, so that the mappings of rolled or expired
+     * files do not pile up and the file can be truncated or deleted. The region must not be accessed
+     * any more after being unmapped.
+     *
+     * @param region the mapped region
+     * @return true if the region is unmapped; false if it's left to GC
+     */
+    public static boolean unmap(MappedByteBuffer region) {
+        if (region == null || UNMAPPER == null) {
+            return false;
+        }
+        try {
+            UNMAPPER.unmap(region);
+            return true;
+        } catch (Throwable e) {
+            RecordLog.info("[MappedBufferUtil] Failed to unmap the mapped region", e);
+            return false;
+        }
+    }
+
+    private static Unmapper createUnmapper() {
+        try {
+            // JDK 9+
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            final Object unsafe = theUnsafe.get(null);
+            return new Unmapper() {
+                @Override
+                public void unmap(MappedByteBuffer region) throws Exception {
+                    invokeCleaner.invoke(unsafe, region);
+                }
+            };
+        } catch (Throwable ignored) {
+            // Fall back to the cleaner of JDK 8.
+        }
+        try {
+            final Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            final Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return new Unmapper() {
+                @Override
+                public void unmap(MappedByteBuffer region) throws Exception {
+                    Object c = cleaner.invoke(region);
+                    if (c != null) {
+                        clean.invoke(c);
+                    }
+                }
+            };
+        } catch (Throwable e) {
+            RecordLog.info("[MappedBufferUtil] Mapped regions will be released on GC", e);
+            return null;
+        }
+    }
+
+    private interface Unmapper {
+        void unmap(MappedByteBuffer region) throws Exception;
+    }
+
+    private MappedBufferUtil() {}
+}
@@ -16,25 +16,124 @@
 package com.alibaba.csp.sentinel.util;
 
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.alibaba.csp.sentinel.config.SentinelConfig;
 
 /**
- * Provides millisecond-level time of OS.
+ * <p>Provides millisecond-level time of OS.</p>
+ *
+ * <p>The time source is resolved from {@link SentinelConfig#TIME_TICK_MODE}:</p>
+ * <ul>
+ * <li>{@code adaptive} (default): reads are counted cheaply. When the read rate is high, the time is
+ * served from a value cached by a tick thread every millisecond; when it is low, the tick thread
+ * sleeps and the time is read from {@link System#currentTimeMillis()} directly.</li>
+ * <li>{@code tick}: the time is always served from the value cached every millisecond.</li>
+ * <li>{@code system}: the time is always read from {@link System#currentTimeMillis()}, no tick thread.</li>
+ * </ul>
+ *
+ * <p>A deterministic {@link Clock} can be injected via {@link #setClock(Clock)} (e.g. in tests).</p>
  *
  * @author qinan.qn
  */
 public final class TimeUtil {
 
+    public static final String MODE_ADAPTIVE = "adaptive";
+    public static final String MODE_TICK = "tick";
+    public static final String MODE_SYSTEM = "system";
+
+    /**
+     * Read rate (per second) above which the cached tick is used in adaptive mode.
+     */
+    static final long HOT_READS_PER_SECOND = 1200;
+    /**
+     * Read rate (per second) below which the time is read directly in adaptive mode.
+     */
+    static final long IDLE_READS_PER_SECOND = 800;
+
+    private static final long CHECK_INTERVAL_MS = 1000;
+
     private static volatile long currentTimeMillis;
 
+    private static final LongAdder READS = new LongAdder();
+
+    private static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    private static final Clock TICK_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return currentTimeMillis;
+        }
+    };
+
+    /**
+     * Adaptive mode with low read rate: count the read and read the system time directly.
+     */
+    static final Clock IDLE_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            READS.increment();
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Adaptive mode with high read rate: count the read and serve the cached tick.
+     */
+    static final Clock BUSY_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            READS.increment();
+            return currentTimeMillis;
+        }
+    };
+
+    private static final AtomicReference<Clock> CLOCK = new AtomicReference<>();
+
+    private static Clock defaultClock;
+
     static {
         currentTimeMillis = System.currentTimeMillis();
+        String mode = SentinelConfig.timeTickMode();
+        if (MODE_SYSTEM.equalsIgnoreCase(mode)) {
+            defaultClock = SYSTEM_CLOCK;
+        } else if (MODE_TICK.equalsIgnoreCase(mode)) {
+            defaultClock = TICK_CLOCK;
+            startTickThread(false);
+        } else {
+            defaultClock = IDLE_CLOCK;
+            startTickThread(true);
+        }
+        CLOCK.set(defaultClock);
+    }
+
+    private static void startTickThread(final boolean adaptive) {
         Thread daemon = new Thread(new Runnable() {
             @Override
             public void run() {
+                long lastCheck = System.currentTimeMillis();
                 while (true) {
-                    currentTimeMillis = System.currentTimeMillis();
+                    long now = System.currentTimeMillis();
+                    currentTimeMillis = now;
+                    long sleepMs = 1;
+                    if (adaptive) {
+                        if (now - lastCheck >= CHECK_INTERVAL_MS) {
+                            adapt(READS.sumThenReset() * 1000 / (now - lastCheck));
+                            lastCheck = now;
+                        }
+                        if (CLOCK.get() != BUSY_CLOCK) {
+                            // Nobody reads the tick, so just wake up for the next check.
+                            sleepMs = CHECK_INTERVAL_MS;
+                        }
+                    }
                     try {
-                        TimeUnit.MILLISECONDS.sleep(1);
+                        TimeUnit.MILLISECONDS.sleep(sleepMs);
                     } catch (Throwable e) {
 
                     }
@@ -46,7 +145,52 @@ public final class TimeUtil {
         daemon.start();
     }
 
+    /**
+     * Switch the adaptive clock according to the recent read rate. An injected clock is never replaced.
+     * Package-private for test.
+     *
+     * @param readsPerSecond recent read rate per second
+     */
+    static void adapt(long readsPerSecond) {
+        if (readsPerSecond > HOT_READS_PER_SECOND) {
+            // Refresh the tick before it's served.
+            currentTimeMillis = System.currentTimeMillis();
+            CLOCK.compareAndSet(IDLE_CLOCK, BUSY_CLOCK);
+        } else if (readsPerSecond < IDLE_READS_PER_SECOND) {
+            CLOCK.compareAndSet(BUSY_CLOCK, IDLE_CLOCK);
+        }
+    }
+
     public static long currentTimeMillis() {
-        return currentTimeMillis;
+        return CLOCK.get().currentTimeMillis();
+    }
+
+    /**
+     * Replace the time source with given clock, e.g. a deterministic clock in tests.
+     *
+     * @param clock a non-null clock
+     * @since 1.8.2
+     */
+    public static void setClock(Clock clock) {
+        AssertUtil.notNull(clock, "clock cannot be null");
+        CLOCK.set(clock);
+    }
+
+    /**
+     * Restore the time source resolved from {@link SentinelConfig#TIME_TICK_MODE}.
+     *
+     * @since 1.8.2
+     */
+    public static void resetClock() {
+        CLOCK.set(defaultClock);
     }
+
+    /**
+     * Package-private for test.
+     */
+    static Clock currentClock() {
+        return CLOCK.get();
+    }
+
+    private TimeUtil() {}
 }
@@ -0,0 +1,186 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.alibaba.csp.sentinel.context.ContextUtil;
+import com.alibaba.csp.sentinel.node.ClusterNode;
+import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowException;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
+import com.alibaba.csp.sentinel.slots.clusterbuilder.ClusterBuilderSlot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for {@link BatchEntry}.
+ */
+public class BatchEntryTest {
+
+    @Before
+    public void setUp() {
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+    }
+
+    @After
+    public void tearDown() {
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+    }
+
+    @Test
+    public void testEntryBatchPass() throws Exception {
+        String[] names = {"batchPassA", "batchPassB", "batchPassC"};
+        BatchEntry batchEntry = SphU.entryBatch(names);
+        assertEquals(3, batchEntry.size());
+        assertSame(batchEntry.getEntry(2), ContextUtil.getContext().getCurEntry());
+        for (String name : names) {
+            assertEquals(1, ClusterBuilderSlot.getClusterNode(name).curThreadNum());
+        }
+
+        batchEntry.exit();
+        assertNull(ContextUtil.getContext());
+        for (String name : names) {
+            ClusterNode node = ClusterBuilderSlot.getClusterNode(name);
+            assertEquals(0, node.curThreadNum());
+            assertEquals(1, node.totalSuccess());
+        }
+        // Exiting twice takes no effect.
+        batchEntry.exit();
+    }
+
+    @Test
+    public void testDropRecycledEntriesOnExit() throws Exception {
+        Constants.RECYCLE = true;
+        try {
+            BatchEntry batchEntry = SphU.entryBatch(new String[] {"batchRecycleA", "batchRecycleB"});
+            Entry first = batchEntry.getEntry(0);
+            batchEntry.exit();
+            assertNull(batchEntry.getEntry(0));
+            assertNull(batchEntry.getEntry(1));
+
+            // The recycled entry now belongs to another invocation, which the batch must not touch.
+            Entry other = SphU.entry("batchRecycleOther");
+            assertSame(first, other);
+            batchEntry.setError(new IllegalStateException());
+            batchEntry.exit();
+            assertNull(other.getError());
+            assertSame(other, ContextUtil.getContext().getCurEntry());
+            other.exit();
+        } finally {
+            Constants.RECYCLE = false;
+        }
+    }
+
+    @Test
+    public void testEntryBatchBlockedRollback() throws Exception {
+        FlowRuleManager.loadRules(Collections.singletonList(new FlowRule("batchBlockC").setCount(0)));
+        String[] names = {"batchBlockA", "batchBlockB", "batchBlockC"};
+        try {
+            SphU.entryBatch(names);
+            fail("The batch should be blocked");
+        } catch (BlockException ex) {
+            assertEquals("batchBlockC", ex.getRule().getResource());
+        }
+        assertNull(ContextUtil.getContext());
+
+        for (String name : new String[] {"batchBlockA", "batchBlockB"}) {
+            ClusterNode node = ClusterBuilderSlot.getClusterNode(name);
+            assertEquals(0, node.curThreadNum());
+            assertEquals(0, node.totalPass());
+            assertEquals(0, node.totalSuccess());
+        }
+        assertEquals(1, ClusterBuilderSlot.getClusterNode("batchBlockC").blockRequest());
+    }
+
+    @Test
+    public void testNotRollbackShapingResource() throws Exception {
+        FlowRule shapingRule = new FlowRule("batchShapingA").setCount(10);
+        shapingRule.setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER);
+        FlowRuleManager.loadRules(Arrays.asList(shapingRule, new FlowRule("batchShapingC").setCount(0)));
+        assertFalse(FlowRuleManager.isRollbackSupported("batchShapingA"));
+        assertTrue(FlowRuleManager.isRollbackSupported("batchShapingB"));
+
+        try {
+            SphU.entryBatch(new String[] {"batchShapingA", "batchShapingB", "batchShapingC"});
+            fail("The batch should be blocked");
+        } catch (BlockException ex) {
+            assertEquals("batchShapingC", ex.getRule().getResource());
+        }
+
+        // The pass time reserved by the rate limiter cannot be given back, so the entry is completed.
+        ClusterNode shapingNode = ClusterBuilderSlot.getClusterNode("batchShapingA");
+        assertEquals(0, shapingNode.curThreadNum());
+        assertEquals(1, shapingNode.totalPass());
+        assertEquals(1, shapingNode.totalSuccess());
+        ClusterNode node = ClusterBuilderSlot.getClusterNode("batchShapingB");
+        assertEquals(0, node.curThreadNum());
+        assertEquals(0, node.totalPass());
+    }
+
+    @Test
+    public void testDefaultEntryBatch() throws Exception {
+        Sph sph = mock(Sph.class, CALLS_REAL_METHODS);
+        Entry entryA = mock(Entry.class);
+        doReturn(entryA).when(sph).entryWithType(eq("defaultBatchA"), anyInt(), any(EntryType.class), eq(1),
+            eq(false), any(Object[].class));
+        doThrow(new FlowException("defaultBatchB")).when(sph).entryWithType(eq("defaultBatchB"), anyInt(),
+            any(EntryType.class), eq(1), eq(false), any(Object[].class));
+
+        BatchEntry batchEntry = sph.entryBatch(new String[] {"defaultBatchA"}, ResourceTypeConstants.COMMON,
+            EntryType.OUT, 1);
+        assertSame(entryA, batchEntry.getEntry(0));
+        try {
+            sph.entryBatch(new String[] {"defaultBatchA", "defaultBatchB"}, ResourceTypeConstants.COMMON,
+                EntryType.OUT, 1);
+            fail("The batch should be blocked");
+        } catch (FlowException ex) {
+            verify(entryA).exit(1);
+        }
+    }
+
+    @Test
+    public void testEntryBatchInCustomContext() throws Exception {
+        ContextUtil.enter("batchContext");
+        Entry outer = SphU.entry("batchOuter");
+        BatchEntry batchEntry = SphU.entryBatch(new String[] {"batchInnerA", "batchInnerB"});
+        batchEntry.exit();
+        assertSame(outer, ContextUtil.getContext().getCurEntry());
+        outer.exit();
+        ContextUtil.exit();
+    }
+
+    @Test
+    public void testEntryBatchWithHandles() throws Exception {
+        ResourceHandle a = SphU.resource("batchHandleA", EntryType.OUT);
+        ResourceHandle b = SphU.resource("batchHandleB", EntryType.OUT);
+        BatchEntry batchEntry = SphU.entryBatch(a, b);
+        assertEquals(1, a.getClusterNode().curThreadNum());
+        assertEquals(1, b.getClusterNode().curThreadNum());
+        batchEntry.close();
+        assertEquals(0, a.getClusterNode().curThreadNum());
+        assertEquals(0, b.getClusterNode().curThreadNum());
+    }
+}
@@ -12,6 +12,8 @@ import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
 import com.alibaba.csp.sentinel.slotchain.SlotChainProvider;
 import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
 import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.util.Clock;
+import com.alibaba.csp.sentinel.util.TimeUtil;
 
 import org.junit.After;
 import org.junit.Before;
@@ -29,6 +31,8 @@ public class CtSphTest {
 
     private final CtSph ctSph = new CtSph();
 
+    private long currentTime = 100000L;
+
     private void testCustomContextEntryWithFullContextSize(String resourceName, boolean async) {
         fillFullContext();
         ResourceWrapper resourceWrapper = new StringResourceWrapper(resourceName, EntryType.IN);
@@ -265,10 +269,30 @@ public class CtSphTest {
         fillFullResources();
         ResourceWrapper r2 = new StringResourceWrapper("secondRes", EntryType.IN);
         assertFalse(CtSph.getChainMap().containsKey(r2));
-        assertNull("The slot chain for r2 should not be created because amount exceeded", ctSph.lookProcessChain(r2));
+        assertNull("The slot chain for r2 should not be created because no chain is idle", ctSph.lookProcessChain(r2));
         assertNull(ctSph.lookProcessChain(r2));
     }
 
+    @Test
+    public void testLookUpSlotChainEvictsIdlestWhenFull() {
+        ResourceWrapper r1 = new StringResourceWrapper("firstRes", EntryType.IN);
+        fillFullResources();
+        currentTime += 1000;
+        ResourceWrapper r0 = new StringResourceWrapper("test-resource-0", EntryType.IN);
+        assertNotNull(ctSph.lookProcessChain(r0));
+        currentTime += 1000;
+
+        // Idle chains are evicted in the background, rather than on the entering thread.
+        assertNull(ctSph.lookProcessChain(r1));
+        assertTrue(IdleResourceReclaimer.evictForNewResources() > 0);
+        ProcessorSlot<Object> chainR1 = ctSph.lookProcessChain(r1);
+        assertNotNull("The slot chain for r1 should be created after evicting idle ones", chainR1);
+        assertSame(chainR1, ctSph.lookProcessChain(r1));
+        assertTrue(CtSph.entrySize() <= Constants.MAX_SLOT_CHAIN_SIZE);
+        // The recently accessed chain is kept.
+        assertTrue(CtSph.getChainMap().containsKey(r0));
+    }
+
     private void fillFullContext() {
         for (int i = 0; i < Constants.MAX_CONTEXT_NAME_SIZE; i++) {
             ContextUtil.enter("test-context-" + i);
@@ -351,6 +375,14 @@ public class CtSphTest {
 
     @Before
     public void setUp() throws Exception {
+        // Time is frozen unless a test moves it, so that no slot chain becomes idle by accident.
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return currentTime;
+            }
+        });
+        IdleResourceReclaimer.resetStatistics();
         ContextTestUtil.cleanUpContext();
         ContextTestUtil.resetContextMap();
         CtSph.resetChainMap();
@@ -361,5 +393,6 @@ public class CtSphTest {
         ContextTestUtil.cleanUpContext();
         ContextTestUtil.resetContextMap();
         CtSph.resetChainMap();
+        TimeUtil.resetClock();
     }
 }
\ No newline at end of file
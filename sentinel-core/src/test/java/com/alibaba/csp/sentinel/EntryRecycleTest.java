@@ -0,0 +1,150 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import com.alibaba.csp.sentinel.context.Context;
+import com.alibaba.csp.sentinel.context.ContextUtil;
+import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for object recycling on the synchronous entry path.
+ */
+public class EntryRecycleTest {
+
+    @Before
+    public void setUp() {
+        Constants.RECYCLE = true;
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+    }
+
+    @After
+    public void tearDown() {
+        Constants.RECYCLE = false;
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+    }
+
+    @Test
+    public void testEntryRecycled() throws Exception {
+        Entry first = SphU.entry("recycleEntryA");
+        first.exit();
+        assertNull(first.getResourceWrapper());
+        assertNull(first.getCurNode());
+
+        Entry second = SphU.entry("recycleEntryB");
+        assertSame(first, second);
+        assertEquals("recycleEntryB", second.getResourceWrapper().getName());
+        assertNotNull(second.getCurNode());
+        second.exit();
+        assertNull(ContextUtil.getContext());
+    }
+
+    @Test
+    public void testNestedEntriesRecycled() throws Exception {
+        ContextUtil.enter("recycleContext");
+        Entry outer = SphU.entry("recycleOuter");
+        Entry inner = SphU.entry("recycleInner");
+        inner.exit();
+        outer.exit();
+        ContextUtil.exit();
+
+        ContextUtil.enter("recycleContext");
+        Entry newOuter = SphU.entry("recycleOuter");
+        Entry newInner = SphU.entry("recycleInner");
+        assertNotSame(newOuter, newInner);
+        assertSame(newInner, ContextUtil.getContext().getCurEntry());
+        newInner.exit();
+        assertSame(newOuter, ContextUtil.getContext().getCurEntry());
+        newOuter.exit();
+        ContextUtil.exit();
+    }
+
+    @Test
+    public void testEntryWithAsyncChildNotRecycled() throws Exception {
+        ContextUtil.enter("recycleAsyncContext");
+        Entry parent = SphU.entry("recycleAsyncParent");
+        AsyncEntry asyncEntry = SphU.asyncEntry("recycleAsyncChild");
+        parent.exit();
+        ContextUtil.exit();
+
+        Entry next = SphU.entry("recycleAsyncNext");
+        assertNotSame(parent, next);
+        next.exit();
+        // The parent of the async entry is untouched.
+        assertEquals("recycleAsyncParent", parent.getResourceWrapper().getName());
+        assertSame(parent.getCurNode(), asyncEntry.getLastNode());
+        asyncEntry.exit();
+    }
+
+    @Test
+    public void testContextRecycled() {
+        Context first = ContextUtil.enter("recycleContextA", "appA");
+        ContextUtil.exit();
+        assertNull(first.getName());
+
+        Context second = ContextUtil.enter("recycleContextB", "appB");
+        assertSame(first, second);
+        assertEquals("recycleContextB", second.getName());
+        assertEquals("appB", second.getOrigin());
+        assertNull(second.getCurEntry());
+        ContextUtil.exit();
+    }
+
+    @Test
+    public void testSharedBlockException() {
+        FlowRuleManager.loadRules(Collections.singletonList(new FlowRule("recycleBlocked").setCount(0)));
+        BlockException first = blockedException("recycleBlocked");
+        BlockException second = blockedException("recycleBlocked");
+        assertSame(first, second);
+        assertEquals("recycleBlocked", first.getRule().getResource());
+
+        first.addSuppressed(new RuntimeException());
+        assertEquals(0, first.getSuppressed().length);
+    }
+
+    @Test
+    public void testRecycleDisabled() throws Exception {
+        Constants.RECYCLE = false;
+        Entry first = SphU.entry("recycleDisabled");
+        first.exit();
+        Entry second = SphU.entry("recycleDisabled");
+        assertNotSame(first, second);
+        second.exit();
+
+        FlowRuleManager.loadRules(Collections.singletonList(new FlowRule("recycleDisabledBlocked").setCount(0)));
+        assertNotSame(blockedException("recycleDisabledBlocked"), blockedException("recycleDisabledBlocked"));
+    }
+
+    private BlockException blockedException(String resource) {
+        try {
+            SphU.entry(resource).exit();
+            fail("Should be blocked");
+            return null;
+        } catch (BlockException ex) {
+            return ex;
+        }
+    }
+}
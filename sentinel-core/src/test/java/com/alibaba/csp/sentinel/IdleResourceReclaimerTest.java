@@ -0,0 +1,170 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import com.alibaba.csp.sentinel.context.ContextUtil;
+import com.alibaba.csp.sentinel.node.DefaultNode;
+import com.alibaba.csp.sentinel.node.Node;
+import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
+import com.alibaba.csp.sentinel.slots.clusterbuilder.ClusterBuilderSlot;
+import com.alibaba.csp.sentinel.util.Clock;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link IdleResourceReclaimer}.
+ */
+public class IdleResourceReclaimerTest {
+
+    private static final String CONTEXT_NAME = "reclaimer-test-context";
+
+    private long currentTime = 100000L;
+
+    @Before
+    public void setUp() {
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return currentTime;
+            }
+        });
+        CtSph.resetChainMap();
+        IdleResourceReclaimer.resetStatistics();
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+    }
+
+    @After
+    public void tearDown() {
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+        CtSph.resetChainMap();
+        TimeUtil.resetClock();
+    }
+
+    @Test
+    public void testReclaimIdleResource() throws Exception {
+        FlowRule rule = new FlowRule("reclaimRuledResource").setCount(100);
+        FlowRuleManager.loadRules(Collections.singletonList(rule));
+
+        ContextUtil.enter(CONTEXT_NAME);
+        SphU.entry("reclaimIdleResource").exit();
+        SphU.entry("reclaimRuledResource").exit();
+        DefaultNode entranceNode = ContextUtil.getContext().getEntranceNode();
+        ContextUtil.exit();
+        assertTrue(hasChild(entranceNode, "reclaimIdleResource"));
+
+        currentTime += 10000;
+        assertEquals(1, IdleResourceReclaimer.reclaim(5000));
+
+        assertFalse(CtSph.getChainMap().containsKey(new StringResourceWrapper("reclaimIdleResource", EntryType.OUT)));
+        assertTrue(CtSph.getChainMap().containsKey(new StringResourceWrapper("reclaimRuledResource", EntryType.OUT)));
+        assertNull(ClusterBuilderSlot.getClusterNode("reclaimIdleResource"));
+        assertNotNull(ClusterBuilderSlot.getClusterNode("reclaimRuledResource"));
+        assertFalse(hasChild(entranceNode, "reclaimIdleResource"));
+        assertTrue(hasChild(entranceNode, "reclaimRuledResource"));
+
+        assertEquals(1, IdleResourceReclaimer.getReclaimedResourceCount());
+        // The cluster node and the default node.
+        assertEquals(2, IdleResourceReclaimer.getReclaimedNodeCount());
+        assertTrue(IdleResourceReclaimer.getEstimatedReclaimedBytes() > 0);
+        assertEquals(currentTime, IdleResourceReclaimer.getLastReclaimTime());
+        assertEquals(currentTime, IdleResourceReclaimer.getLastSweepTime());
+    }
+
+    @Test
+    public void testKeepEntranceNodeOfSameName() throws Exception {
+        // RPC adapters name the context after the resource.
+        String name = "reclaimRpcMethod";
+        ContextUtil.enter(name);
+        SphU.entry(name, EntryType.IN).exit();
+        DefaultNode entranceNode = ContextUtil.getContext().getEntranceNode();
+        ContextUtil.exit();
+        assertTrue(Constants.ROOT.getChildList().contains(entranceNode));
+        assertTrue(hasChild(entranceNode, name));
+
+        currentTime += 10000;
+        assertEquals(1, IdleResourceReclaimer.reclaim(5000));
+
+        assertTrue(Constants.ROOT.getChildList().contains(entranceNode));
+        assertFalse(hasChild(entranceNode, name));
+        assertEquals(2, IdleResourceReclaimer.getReclaimedNodeCount());
+
+        ContextUtil.enter(name);
+        assertSame(entranceNode, ContextUtil.getContext().getEntranceNode());
+        SphU.entry(name, EntryType.IN).exit();
+        ContextUtil.exit();
+        assertTrue(hasChild(entranceNode, name));
+    }
+
+    @Test
+    public void testNotReclaimRecentlyAccessedResource() throws Exception {
+        SphU.entry("reclaimRecentResource").exit();
+
+        currentTime += 3000;
+        SphU.entry("reclaimRecentResource").exit();
+        currentTime += 3000;
+        assertEquals(0, IdleResourceReclaimer.reclaim(5000));
+        assertNotNull(ClusterBuilderSlot.getClusterNode("reclaimRecentResource"));
+
+        currentTime += 3000;
+        assertEquals(1, IdleResourceReclaimer.reclaim(5000));
+        assertNull(ClusterBuilderSlot.getClusterNode("reclaimRecentResource"));
+    }
+
+    @Test
+    public void testNotReclaimResourceInUse() throws Exception {
+        Entry entry = SphU.entry("reclaimBusyResource");
+
+        currentTime += 10000;
+        assertEquals(0, IdleResourceReclaimer.reclaim(5000));
+
+        entry.exit();
+        assertEquals(1, IdleResourceReclaimer.reclaim(5000));
+    }
+
+    @Test
+    public void testNotReclaimResourceReferencedByRelatedRule() throws Exception {
+        FlowRule rule = new FlowRule("reclaimSomeResource").setCount(100);
+        rule.setStrategy(RuleConstant.STRATEGY_RELATE);
+        rule.setRefResource("reclaimRefResource");
+        FlowRuleManager.loadRules(Collections.singletonList(rule));
+
+        SphU.entry("reclaimRefResource").exit();
+
+        currentTime += 10000;
+        assertEquals(0, IdleResourceReclaimer.reclaim(5000));
+        assertNotNull(ClusterBuilderSlot.getClusterNode("reclaimRefResource"));
+    }
+
+    private boolean hasChild(DefaultNode node, String name) {
+        for (Node child : node.getChildList()) {
+            if (name.equals(((DefaultNode)child).getId().getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
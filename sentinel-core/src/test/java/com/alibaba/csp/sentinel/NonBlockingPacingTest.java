@@ -0,0 +1,112 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import com.alibaba.csp.sentinel.context.ContextUtil;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
+import com.alibaba.csp.sentinel.util.Clock;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link NonBlockingPacing}.
+ */
+public class NonBlockingPacingTest {
+
+    private volatile long currentTime = 100000L;
+
+    @Before
+    public void setUp() {
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return currentTime;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+        TimeUtil.resetClock();
+    }
+
+    @Test
+    public void testNestedEnterAndExit() {
+        assertFalse(NonBlockingPacing.isEnabled());
+        NonBlockingPacing.enter();
+        NonBlockingPacing.enter();
+        NonBlockingPacing.exit();
+        assertTrue(NonBlockingPacing.isEnabled());
+        NonBlockingPacing.exit();
+        assertFalse(NonBlockingPacing.isEnabled());
+        // Unpaired exit should not break later scopes.
+        NonBlockingPacing.exit();
+        NonBlockingPacing.enter();
+        assertTrue(NonBlockingPacing.isEnabled());
+        NonBlockingPacing.exit();
+    }
+
+    @Test
+    public void testDeferWaitWithoutEntry() {
+        assertFalse(NonBlockingPacing.deferWait(100));
+        NonBlockingPacing.enter();
+        try {
+            ContextUtil.exit();
+            // No entry is being checked.
+            assertFalse(NonBlockingPacing.deferWait(100));
+        } finally {
+            NonBlockingPacing.exit();
+        }
+    }
+
+    @Test
+    public void testRateLimiterWaitDeferredToCaller() throws Exception {
+        String resourceName = "testRateLimiterWaitDeferredToCaller";
+        FlowRule rule = new FlowRule(resourceName).setCount(10)
+            .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER)
+            .setMaxQueueingTimeMs(1000);
+        FlowRuleManager.loadRules(Collections.singletonList(rule));
+
+        NonBlockingPacing.enter();
+        try {
+            Entry first = SphU.asyncEntry(resourceName);
+            assertEquals(0, first.getWaitMs());
+            first.exit();
+
+            // The wait is returned to the caller instead of sleeping in current thread.
+            Entry second = SphU.asyncEntry(resourceName);
+            assertEquals(100, second.getWaitMs());
+            second.exit();
+
+            Entry third = SphU.asyncEntry(resourceName);
+            assertEquals(200, third.getWaitMs());
+            third.exit();
+        } finally {
+            NonBlockingPacing.exit();
+        }
+    }
+}
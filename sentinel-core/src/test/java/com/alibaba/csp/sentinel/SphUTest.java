@@ -16,6 +16,7 @@
 package com.alibaba.csp.sentinel;
 
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 import java.lang.reflect.Method;
 
@@ -23,6 +24,7 @@ import org.junit.Test;
 
 import com.alibaba.csp.sentinel.util.StringUtil;
 import com.alibaba.csp.sentinel.context.ContextUtil;
+import com.alibaba.csp.sentinel.node.DefaultNode;
 import com.alibaba.csp.sentinel.slots.block.BlockException;
 
 /**
@@ -59,6 +61,67 @@ public class SphUTest {
         e.exit();
     }
 
+    @Test
+    public void testResourceHandleEntry() throws BlockException {
+        ResourceHandle handle = SphU.resource("handleResource", ResourceTypeConstants.COMMON_RPC, EntryType.IN);
+        assertEquals("handleResource", handle.getName());
+
+        Entry e = handle.entry();
+        assertNotNull(e);
+        assertSame(handle.getResourceWrapper(), e.resourceWrapper);
+        assertEquals(EntryType.IN, e.resourceWrapper.getEntryType());
+        assertEquals(ResourceTypeConstants.COMMON_RPC, e.resourceWrapper.getResourceType());
+        assertEquals(ContextUtil.getContext().getName(), Constants.CONTEXT_DEFAULT_NAME);
+        e.exit();
+
+        assertNotNull(handle.getClusterNode());
+        assertEquals(1, handle.getClusterNode().totalRequest());
+
+        // Entries via resource name share the same slot chain and cluster node with the handle.
+        Entry e1 = SphU.entry("handleResource", ResourceTypeConstants.COMMON_RPC, EntryType.IN);
+        e1.exit();
+        assertEquals(2, handle.getClusterNode().totalRequest());
+    }
+
+    @Test
+    public void testResourceHandleCachesDefaultNode() throws BlockException {
+        ResourceHandle handle = SphU.resource("handleNodeResource", EntryType.IN);
+        assertNull(handle.getDefaultNode(Constants.CONTEXT_DEFAULT_NAME));
+
+        Entry e = handle.entry();
+        DefaultNode defaultNode = (DefaultNode)e.getCurNode();
+        e.exit();
+        assertSame(defaultNode, handle.getDefaultNode(Constants.CONTEXT_DEFAULT_NAME));
+
+        ContextUtil.enter("handleNodeContext");
+        Entry e1 = handle.entry();
+        DefaultNode contextNode = (DefaultNode)e1.getCurNode();
+        e1.exit();
+        ContextUtil.exit();
+        assertNotSame(defaultNode, contextNode);
+        assertSame(contextNode, handle.getDefaultNode("handleNodeContext"));
+
+        // Nodes of the former contexts are still cached, and shared with entries via resource name.
+        Entry e2 = handle.entry();
+        assertSame(defaultNode, e2.getCurNode());
+        e2.exit();
+        Entry e3 = SphU.entry("handleNodeResource", EntryType.IN);
+        assertSame(defaultNode, e3.getCurNode());
+        e3.exit();
+    }
+
+    @Test
+    public void testResourceHandleOfOtherSph() throws BlockException {
+        Sph sph = mock(Sph.class, CALLS_REAL_METHODS);
+        Entry entry = mock(Entry.class);
+        doReturn(entry).when(sph).entryWithType("otherSphResource", ResourceTypeConstants.COMMON_WEB, EntryType.IN,
+            2, true, new Object[] {"a"});
+
+        ResourceHandle handle = sph.resource("otherSphResource", ResourceTypeConstants.COMMON_WEB, EntryType.IN);
+        assertNull(handle.getChain());
+        assertSame(entry, handle.entryWithPriority(2, "a"));
+    }
+
     @Test(expected = ErrorEntryFreeException.class)
     public void testStringEntryNotPairedException() throws BlockException {
         Entry e = SphU.entry("resourceName");
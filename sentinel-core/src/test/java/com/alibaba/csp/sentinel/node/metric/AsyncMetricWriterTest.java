@@ -0,0 +1,138 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.node.metric;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.util.PidUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link AsyncMetricWriter}.
+ */
+public class AsyncMetricWriterTest {
+
+    private File syncDir;
+    private File asyncDir;
+
+    @Before
+    public void setUp() throws Exception {
+        syncDir = Files.createTempDirectory("sentinel-metric-sync").toFile();
+        asyncDir = Files.createTempDirectory("sentinel-metric-async").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        deleteDir(syncDir);
+        deleteDir(asyncDir);
+    }
+
+    @Test
+    public void testSameOutputAsSyncWriter() throws Exception {
+        MetricWriter syncWriter = new MetricWriter(syncDir.getAbsolutePath() + File.separator, 1024 * 1024, 6);
+        MetricWriter asyncWriter = new AsyncMetricWriter(asyncDir.getAbsolutePath() + File.separator,
+            1024 * 1024, 6);
+        long beginTime = (System.currentTimeMillis() / 1000 + 1) * 1000;
+        for (int i = 0; i < 5; i++) {
+            long time = beginTime + i * 1000;
+            syncWriter.write(time, metricsOf(time));
+            asyncWriter.write(time, metricsOf(time));
+        }
+        syncWriter.close();
+        asyncWriter.close();
+
+        String baseFileName = MetricWriter.formMetricFileName(SentinelConfig.getAppName(), PidUtil.getPid());
+        List<String> syncFiles = MetricWriter.listMetricFiles(syncDir.getAbsolutePath(), baseFileName);
+        List<String> asyncFiles = MetricWriter.listMetricFiles(asyncDir.getAbsolutePath(), baseFileName);
+        assertEquals(1, syncFiles.size());
+        assertEquals(1, asyncFiles.size());
+        assertArrayEquals(readBytes(syncFiles.get(0)), readBytes(asyncFiles.get(0)));
+        assertArrayEquals(readBytes(MetricWriter.formIndexFileName(syncFiles.get(0))),
+            readBytes(MetricWriter.formIndexFileName(asyncFiles.get(0))));
+
+        MetricSearcher searcher = new MetricSearcher(asyncDir.getAbsolutePath(), baseFileName);
+        List<MetricNode> found = searcher.findByTimeAndResource(beginTime + 1000, beginTime + 2000, "res_1");
+        assertEquals(2, found.size());
+        assertEquals("res_1", found.get(0).getResource());
+        assertEquals(beginTime + 1000, found.get(0).getTimestamp());
+        assertEquals(1, found.get(0).getClassification());
+        assertEquals(1, found.get(0).getConcurrency());
+    }
+
+    @Test
+    public void testMemoryMappedIndexWhileWriting() throws Exception {
+        MetricWriter asyncWriter = new AsyncMetricWriter(asyncDir.getAbsolutePath() + File.separator,
+            1024 * 1024, 6);
+        long beginTime = (System.currentTimeMillis() / 1000 + 1) * 1000;
+        for (int i = 0; i < 3; i++) {
+            long time = beginTime + i * 1000;
+            asyncWriter.write(time, metricsOf(time));
+        }
+        String baseFileName = MetricWriter.formMetricFileName(SentinelConfig.getAppName(), PidUtil.getPid());
+        MetricSearcher searcher = new MetricSearcher(asyncDir.getAbsolutePath(), baseFileName);
+        // The index file is not truncated yet, and the searcher should skip the zero-filled tail.
+        List<MetricNode> found = null;
+        for (int i = 0; i < 100 && found == null; i++) {
+            found = searcher.find(beginTime + 1000, 100);
+            Thread.sleep(10);
+        }
+        assertNotNull(found);
+        assertEquals(beginTime + 1000, found.get(0).getTimestamp());
+        assertNull(searcher.find(beginTime + 10000, 100));
+        asyncWriter.close();
+    }
+
+    private static List<MetricNode> metricsOf(long time) {
+        List<MetricNode> nodes = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            MetricNode node = new MetricNode();
+            node.setResource("res|" + i);
+            node.setPassQps(i * 1000L);
+            node.setBlockQps(i);
+            node.setSuccessQps(time % 7);
+            node.setExceptionQps(-i);
+            node.setRt(i * 3L);
+            node.setOccupiedPassQps(0);
+            node.setConcurrency(i).setClassification(i % 3)
+                .setRtP50(i).setRtP90(i * 10L).setRtP99(Long.MAX_VALUE);
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static byte[] readBytes(String fileName) throws Exception {
+        return Files.readAllBytes(new File(fileName).toPath());
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
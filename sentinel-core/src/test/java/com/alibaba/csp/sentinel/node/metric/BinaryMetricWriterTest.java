@@ -0,0 +1,166 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.node.metric;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.util.PidUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link BinaryMetricWriter} and {@link BinaryMetricsReader}.
+ */
+public class BinaryMetricWriterTest {
+
+    private File textDir;
+    private File binaryDir;
+
+    @Before
+    public void setUp() throws Exception {
+        textDir = Files.createTempDirectory("sentinel-metric-text").toFile();
+        binaryDir = Files.createTempDirectory("sentinel-metric-binary").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        deleteDir(textDir);
+        deleteDir(binaryDir);
+    }
+
+    @Test
+    public void testSearchSameAsTextFormat() throws Exception {
+        // Small files, so that the metrics are written to several files.
+        long singleFileSize = 256 * 1024;
+        MetricWriter textWriter = new MetricWriter(textDir.getAbsolutePath() + File.separator, singleFileSize, 100);
+        MetricWriter binaryWriter = new BinaryMetricWriter(binaryDir.getAbsolutePath() + File.separator,
+            singleFileSize, 100);
+        long beginTime = (System.currentTimeMillis() / 1000 + 1) * 1000;
+        for (int i = 0; i < 10; i++) {
+            long time = beginTime + i * 1000;
+            textWriter.write(time, metricsOf(time, 3000, false));
+            binaryWriter.write(time, metricsOf(time, 3000, false));
+        }
+        textWriter.close();
+        binaryWriter.close();
+
+        String appName = SentinelConfig.getAppName();
+        String textFileName = MetricWriter.formMetricFileName(appName, PidUtil.getPid());
+        String binaryFileName = BinaryMetricWriter.formBinaryMetricFileName(appName, PidUtil.getPid());
+        List<String> textFiles = MetricWriter.listMetricFiles(textDir.getAbsolutePath(), textFileName);
+        List<String> binaryFiles = MetricWriter.listMetricFiles(binaryDir.getAbsolutePath(), binaryFileName);
+        assertTrue(textFiles.size() > 1);
+        assertTrue(binaryFiles.size() > 1);
+        long textSize = 0;
+        for (String file : textFiles) {
+            textSize += new File(file).length();
+        }
+        long binarySize = 0;
+        for (String file : binaryFiles) {
+            binarySize += new File(file).length() + new File(file + MetricWriter.METRIC_FILE_DICT_SUFFIX).length();
+        }
+        assertTrue(binarySize * 3 < textSize);
+
+        MetricSearcher textSearcher = new MetricSearcher(textDir.getAbsolutePath(), textFileName);
+        MetricSearcher binarySearcher = new MetricSearcher(binaryDir.getAbsolutePath(), binaryFileName);
+        assertSameMetrics(textSearcher.findByTimeAndResource(beginTime + 2000, beginTime + 7000, null),
+            binarySearcher.findByTimeAndResource(beginTime + 2000, beginTime + 7000, null));
+        assertSameMetrics(textSearcher.findByTimeAndResource(beginTime, beginTime + 9000, "res_42"),
+            binarySearcher.findByTimeAndResource(beginTime, beginTime + 9000, "res_42"));
+        assertEquals(10, binarySearcher.findByTimeAndResource(beginTime, beginTime + 9000, "res_42").size());
+        assertTrue(binarySearcher.findByTimeAndResource(beginTime, beginTime + 9000, "absent").isEmpty());
+        assertSameMetrics(textSearcher.find(beginTime + 1000, 5000), binarySearcher.find(beginTime + 1000, 5000));
+        assertSameMetrics(textSearcher.find(beginTime + 4000, 100), binarySearcher.find(beginTime + 4000, 100));
+        assertNull(binarySearcher.find(beginTime + 20000, 100));
+    }
+
+    @Test
+    public void testSearchWhileWriting() throws Exception {
+        BinaryMetricWriter binaryWriter = new BinaryMetricWriter(binaryDir.getAbsolutePath() + File.separator,
+            1024 * 1024, 6);
+        String binaryFileName = BinaryMetricWriter.formBinaryMetricFileName(SentinelConfig.getAppName(),
+            PidUtil.getPid());
+        MetricSearcher binarySearcher = new MetricSearcher(binaryDir.getAbsolutePath(), binaryFileName);
+        long beginTime = (System.currentTimeMillis() / 1000 + 1) * 1000;
+        for (int i = 0; i < 5; i++) {
+            long time = beginTime + i * 1000;
+            binaryWriter.write(time, metricsOf(time, 10 + i, true));
+            List<MetricNode> found = null;
+            for (int retry = 0; retry < 100; retry++) {
+                found = binarySearcher.findByTimeAndResource(time, time, null);
+                if (found != null && !found.isEmpty()) {
+                    break;
+                }
+                Thread.sleep(10);
+            }
+            // Resources added in the later seconds should be found as well.
+            assertNotNull(found);
+            assertEquals(10 + i, found.size());
+            assertEquals("res_" + (9 + i), found.get(9 + i).getResource());
+            // RT percentiles are only carried by the binary format.
+            assertEquals((9 + i) * 10L, found.get(9 + i).getRtP90());
+            assertEquals(Long.MAX_VALUE, found.get(9 + i).getRtP99());
+        }
+        binaryWriter.close();
+    }
+
+    private static void assertSameMetrics(List<MetricNode> expected, List<MetricNode> actual) {
+        assertNotNull(expected);
+        assertNotNull(actual);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).toThinString(), actual.get(i).toThinString());
+        }
+    }
+
+    private static List<MetricNode> metricsOf(long time, int resourceCount, boolean withPercentiles) {
+        List<MetricNode> nodes = new ArrayList<>();
+        for (int i = 0; i < resourceCount; i++) {
+            MetricNode node = new MetricNode();
+            node.setResource("res|" + i);
+            node.setPassQps(i * 1000L + time % 1000);
+            node.setBlockQps(i);
+            node.setSuccessQps(time % 7);
+            node.setExceptionQps(-i);
+            node.setRt(i * 3L);
+            node.setConcurrency(i).setClassification(i % 3);
+            if (withPercentiles) {
+                node.setRtP50(i).setRtP90(i * 10L).setRtP99(Long.MAX_VALUE);
+            }
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+}
@@ -34,4 +34,28 @@ public class MetricNodeTest {
         assertEquals(2, node.getConcurrency());
         assertEquals(1, node.getSuccessQps());
     }
+
+    @Test
+    public void testRtPercentilesNotInTextFormats() {
+        MetricNode node = new MetricNode();
+        node.setTimestamp(1564382218000L);
+        node.setResource("foo");
+        node.setPassQps(10);
+        node.setRt(12);
+        node.setClassification(ResourceTypeConstants.COMMON_WEB);
+        node.setRtP50(10).setRtP90(23).setRtP99(47);
+
+        // Readers of the text formats expect exactly 10 (thin) or 11 (fat) fields.
+        String thinLine = node.toThinString();
+        assertEquals(10, thinLine.split("\\|").length);
+        MetricNode thin = MetricNode.fromThinString(thinLine);
+        assertEquals(ResourceTypeConstants.COMMON_WEB, thin.getClassification());
+        assertEquals(0, thin.getRtP99());
+
+        String fatLine = node.toFatString().trim();
+        assertEquals(11, fatLine.split("\\|").length);
+        MetricNode fat = MetricNode.fromFatString(fatLine);
+        assertEquals(10, fat.getPassQps());
+        assertEquals(ResourceTypeConstants.COMMON_WEB, fat.getClassification());
+    }
 }
@@ -0,0 +1,113 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.node.metric;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link MetricRingBuffer}.
+ */
+public class MetricRingBufferTest {
+
+    @Test
+    public void testInactiveUntilRead() {
+        MetricRingBuffer ringBuffer = new MetricRingBuffer(4);
+        ringBuffer.publish(metricsOf(1000, 2));
+        assertEquals(0, ringBuffer.nextSequence());
+
+        List<MetricNode> out = new ArrayList<>();
+        long cursor = ringBuffer.read(-1, 10, out);
+        assertEquals(0, cursor);
+        assertTrue(out.isEmpty());
+
+        ringBuffer.publish(metricsOf(2000, 2));
+        cursor = ringBuffer.read(cursor, 10, out);
+        assertEquals(1, cursor);
+        assertEquals(2, out.size());
+        assertEquals(2000, out.get(0).getTimestamp());
+    }
+
+    @Test
+    public void testReadIncrementally() {
+        MetricRingBuffer ringBuffer = new MetricRingBuffer(4);
+        long cursor = ringBuffer.read(-1, 10, new ArrayList<MetricNode>());
+        for (int i = 0; i < 6; i++) {
+            ringBuffer.publish(metricsOf(i * 1000, i + 1));
+        }
+        // Only the latest 4 seconds are kept.
+        List<MetricNode> out = new ArrayList<>();
+        cursor = ringBuffer.read(cursor, 3, out);
+        assertEquals(5, cursor);
+        assertEquals(3 + 4 + 5, out.size());
+        assertEquals(2000, out.get(0).getTimestamp());
+
+        out.clear();
+        cursor = ringBuffer.read(cursor, 3, out);
+        assertEquals(6, cursor);
+        assertEquals(6, out.size());
+        assertEquals(5000, out.get(0).getTimestamp());
+
+        out.clear();
+        assertEquals(6, ringBuffer.read(cursor, 3, out));
+        assertTrue(out.isEmpty());
+        // A cursor from the future (e.g. before restarting) restarts the stream.
+        assertEquals(6, ringBuffer.read(100, 3, out));
+        assertTrue(out.isEmpty());
+    }
+
+    @Test
+    public void testAwait() {
+        MetricRingBuffer ringBuffer = new MetricRingBuffer(4);
+        final AtomicInteger notified = new AtomicInteger();
+        Runnable waiter = new Runnable() {
+            @Override
+            public void run() {
+                notified.incrementAndGet();
+            }
+        };
+        assertTrue(ringBuffer.await(0, waiter));
+        ringBuffer.publish(metricsOf(1000, 1));
+        assertEquals(1, notified.get());
+        // Waiters are one-off.
+        ringBuffer.publish(metricsOf(2000, 1));
+        assertEquals(1, notified.get());
+
+        assertFalse(ringBuffer.await(1, waiter));
+        assertTrue(ringBuffer.await(2, waiter));
+        ringBuffer.cancel(waiter);
+        ringBuffer.publish(metricsOf(3000, 1));
+        assertEquals(1, notified.get());
+    }
+
+    private static List<MetricNode> metricsOf(long time, int count) {
+        List<MetricNode> nodes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            MetricNode node = new MetricNode();
+            node.setTimestamp(time);
+            node.setResource("res_" + i);
+            node.setPassQps(i);
+            nodes.add(node);
+        }
+        return Collections.unmodifiableList(nodes);
+    }
+}
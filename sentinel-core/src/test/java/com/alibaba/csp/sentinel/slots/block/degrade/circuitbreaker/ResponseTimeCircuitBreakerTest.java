@@ -55,4 +55,29 @@ public class ResponseTimeCircuitBreakerTest extends AbstractTimeBasedTest {
         assertTrue(entryAndSleepFor(resource, 20));
     }
 
+    @Test
+    public void testPercentileRtThreshold() {
+        String resource = "testPercentileRtThreshold";
+        DegradeRule rule = new DegradeRule(resource)
+                .setCount(10)
+                .setGrade(RuleConstant.DEGRADE_GRADE_RT)
+                .setMinRequestAmount(4)
+                .setSlowRatioThreshold(1)
+                .setRtPercentile(50)
+                .setStatIntervalMs(5000)
+                .setTimeWindow(5);
+        DegradeRuleManager.loadRules(Collections.singletonList(rule));
+
+        assertTrue(entryAndSleepFor(resource, 5));
+        assertTrue(entryAndSleepFor(resource, 5));
+        assertTrue(entryAndSleepFor(resource, 20));
+        assertTrue(entryAndSleepFor(resource, 20));
+        // p50 of (5, 5, 20, 20) is 5, still closed.
+        assertTrue(entryAndSleepFor(resource, 20));
+
+        // p50 of (5, 5, 20, 20, 20) is 20, while the slow ratio (3/5) does not reach the threshold.
+        assertFalse(entryAndSleepFor(resource, 5));
+        sleep(5000);
+        assertTrue(entryAndSleepFor(resource, 5));
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.context.Context;
+import com.alibaba.csp.sentinel.node.ClusterNode;
+import com.alibaba.csp.sentinel.node.DefaultNode;
+import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.clusterbuilder.ClusterBuilderSlot;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for {@link FlowRulePlan}.
+ */
+public class FlowRulePlanTest {
+
+    @After
+    public void tearDown() {
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+    }
+
+    @Test
+    public void testDecisionsIndexedByOrigin() {
+        String resourceName = "testDecisionsIndexedByOrigin";
+        FlowRule ruleA = new FlowRule(resourceName).setCount(1);
+        ruleA.setLimitApp("appA");
+        FlowRule ruleB = new FlowRule(resourceName).setCount(2);
+        ruleB.setLimitApp("appB");
+        FlowRule ruleDefault = new FlowRule(resourceName).setCount(3);
+        FlowRule ruleOther = new FlowRule(resourceName).setCount(4);
+        ruleOther.setLimitApp(RuleConstant.LIMIT_APP_OTHER);
+        FlowRule ruleCluster = new FlowRule(resourceName).setCount(5).setClusterMode(true);
+        ruleCluster.setLimitApp("appB");
+        List<FlowRule> rules = Arrays.asList(ruleA, ruleB, ruleDefault, ruleOther, ruleCluster);
+        FlowRuleManager.loadRules(rules);
+
+        FlowRulePlan plan = FlowRulePlan.compile(rules);
+        assertRules(plan.decisionsFor("appA"), ruleA, ruleDefault, ruleCluster);
+        assertRules(plan.decisionsFor("appB"), ruleB, ruleDefault, ruleCluster);
+        assertRules(plan.decisionsFor("appC"), ruleDefault, ruleOther, ruleCluster);
+        assertRules(plan.decisionsFor(""), ruleDefault, ruleCluster);
+        assertRules(plan.decisionsFor(null), ruleDefault, ruleCluster);
+
+        // The selected rules should be the same as checking all rules one by one.
+        DefaultNode node = mock(DefaultNode.class);
+        when(node.getClusterNode()).thenReturn(mock(ClusterNode.class));
+        Context context = mock(Context.class);
+        when(context.getOriginNode()).thenReturn(mock(DefaultNode.class));
+        for (String origin : new String[] {"appA", "appB", "appC", "", RuleConstant.LIMIT_APP_DEFAULT,
+            RuleConstant.LIMIT_APP_OTHER}) {
+            when(context.getOrigin()).thenReturn(origin);
+            List<FlowRule> expected = new ArrayList<>();
+            for (FlowRule rule : rules) {
+                if (rule.isClusterMode()
+                    || FlowRuleChecker.selectNodeByRequesterAndStrategy(rule, context, node) != null) {
+                    expected.add(rule);
+                }
+            }
+            assertRules(plan.decisionsFor(origin), expected.toArray(new FlowRule[0]));
+        }
+    }
+
+    @Test
+    public void testSelectNodeByStrategy() {
+        String resourceName = "testSelectNodeByStrategy";
+        String refResource = "testSelectNodeByStrategy_refResource";
+        String contextName = "testSelectNodeByStrategy_context";
+
+        DefaultNode node = mock(DefaultNode.class);
+        ClusterNode cn = mock(ClusterNode.class);
+        when(node.getClusterNode()).thenReturn(cn);
+        DefaultNode originNode = mock(DefaultNode.class);
+        Context context = mock(Context.class);
+        when(context.getOrigin()).thenReturn("appA");
+        when(context.getOriginNode()).thenReturn(originNode);
+        when(context.getName()).thenReturn(contextName);
+
+        FlowRule directRule = new FlowRule(resourceName).setCount(1);
+        FlowRule originRule = new FlowRule(resourceName).setCount(1);
+        originRule.setLimitApp("appA");
+        FlowRule relateRule = new FlowRule(resourceName).setCount(1)
+            .setStrategy(RuleConstant.STRATEGY_RELATE)
+            .setRefResource(refResource);
+        FlowRule chainRule = new FlowRule(resourceName).setCount(1)
+            .setStrategy(RuleConstant.STRATEGY_CHAIN)
+            .setRefResource(contextName);
+        FlowRule otherChainRule = new FlowRule(resourceName).setCount(1)
+            .setStrategy(RuleConstant.STRATEGY_CHAIN)
+            .setRefResource("another_context");
+
+        assertSame(cn, new FlowRulePlan.RuleDecision(directRule).selectNode(context, node));
+        assertSame(originNode, new FlowRulePlan.RuleDecision(originRule).selectNode(context, node));
+        assertSame(node, new FlowRulePlan.RuleDecision(chainRule).selectNode(context, node));
+        assertNull(new FlowRulePlan.RuleDecision(otherChainRule).selectNode(context, node));
+
+        // The related node is looked up on each check.
+        FlowRulePlan.RuleDecision relateDecision = new FlowRulePlan.RuleDecision(relateRule);
+        assertNull(relateDecision.selectNode(context, node));
+        ClusterNode refCn = mock(ClusterNode.class);
+        ClusterBuilderSlot.getClusterNodeMap().put(new StringResourceWrapper(refResource, EntryType.IN), refCn);
+        assertSame(refCn, relateDecision.selectNode(context, node));
+        // A reclaimed and recreated node should replace the previous one.
+        ClusterNode newRefCn = mock(ClusterNode.class);
+        ClusterBuilderSlot.getClusterNodeMap().put(new StringResourceWrapper(refResource, EntryType.IN), newRefCn);
+        assertSame(newRefCn, relateDecision.selectNode(context, node));
+    }
+
+    private static void assertRules(FlowRulePlan.RuleDecision[] decisions, FlowRule... expected) {
+        assertEquals(expected.length, decisions.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i], decisions[i].getRule());
+        }
+    }
+}
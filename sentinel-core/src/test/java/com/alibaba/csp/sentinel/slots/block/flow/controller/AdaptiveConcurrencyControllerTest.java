@@ -0,0 +1,132 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow.controller;
+
+import com.alibaba.csp.sentinel.node.Node;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleUtil;
+import com.alibaba.csp.sentinel.util.Clock;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test cases for {@link AdaptiveConcurrencyController}.
+ */
+public class AdaptiveConcurrencyControllerTest {
+
+    private volatile long currentTime = 100000L;
+
+    @Before
+    public void setUp() {
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return currentTime;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        TimeUtil.resetClock();
+    }
+
+    @Test
+    public void testConvergeWithCapacityChanges() {
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(1000);
+        assertEquals(AdaptiveConcurrencyController.DEFAULT_INITIAL_LIMIT, controller.getLimit());
+
+        // The limit should converge to the capacity plus a small queue (sqrt(limit)).
+        simulateSaturated(controller, 50, 200);
+        assertLimitBetween(controller, 50, 65);
+        // The service gets slower (e.g. after deploy).
+        simulateSaturated(controller, 20, 200);
+        assertLimitBetween(controller, 20, 30);
+        simulateSaturated(controller, 80, 200);
+        assertLimitBetween(controller, 80, 100);
+    }
+
+    @Test
+    public void testLimitBoundsAndIdleTraffic() {
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(30);
+        simulateSaturated(controller, 100, 200);
+        assertEquals(30, controller.getLimit());
+
+        controller = new AdaptiveConcurrencyController(1000);
+        // Low traffic should not grow the limit.
+        for (int i = 0; i < 100; i++) {
+            controller.updateLimit(10, 10, 1);
+        }
+        assertEquals(AdaptiveConcurrencyController.DEFAULT_INITIAL_LIMIT, controller.getLimit());
+    }
+
+    @Test
+    public void testCanPassWithThreadCount() {
+        AdaptiveConcurrencyController controller = new AdaptiveConcurrencyController(1, 100, 10, 500);
+        Node node = mock(Node.class);
+        when(node.successQps()).thenReturn(0d);
+        when(node.curThreadNum()).thenReturn(9);
+        assertTrue(controller.canPass(node, 1));
+        assertFalse(controller.canPass(node, 2));
+        when(node.curThreadNum()).thenReturn(10);
+        assertFalse(controller.canPass(node, 1));
+
+        // The limit is updated from the node statistics at most once per interval.
+        when(node.successQps()).thenReturn(100d);
+        when(node.minRt()).thenReturn(10d);
+        when(node.avgRt()).thenReturn(40d);
+        currentTime += 500;
+        controller.canPass(node, 1);
+        int shrunk = controller.getLimit();
+        assertTrue(shrunk < 10);
+        controller.canPass(node, 1);
+        assertEquals(shrunk, controller.getLimit());
+    }
+
+    @Test
+    public void testValidRule() {
+        FlowRule rule = new FlowRule("testValidRule").setCount(100)
+            .setGrade(RuleConstant.FLOW_GRADE_ADAPTIVE_CONCURRENCY);
+        assertTrue(FlowRuleUtil.isValidRule(rule));
+        assertFalse(FlowRuleUtil.isValidRule(rule.setCount(0.5)));
+        assertFalse(FlowRuleUtil.isValidRule(rule.setCount(100).setClusterMode(true)));
+    }
+
+    /**
+     * A service of given capacity (concurrency) that queues the requests beyond the capacity,
+     * under traffic that always uses up the limit.
+     */
+    private void simulateSaturated(AdaptiveConcurrencyController controller, int capacity, int rounds) {
+        double serviceRt = 10;
+        for (int i = 0; i < rounds; i++) {
+            int inflight = controller.getLimit();
+            double avgRt = serviceRt * Math.max(1, (double)inflight / capacity);
+            controller.updateLimit(serviceRt, avgRt, inflight);
+        }
+    }
+
+    private void assertLimitBetween(AdaptiveConcurrencyController controller, int min, int max) {
+        int limit = controller.getLimit();
+        assertTrue("limit " + limit + " should be in [" + min + ", " + max + "]", limit >= min && limit <= max);
+    }
+}
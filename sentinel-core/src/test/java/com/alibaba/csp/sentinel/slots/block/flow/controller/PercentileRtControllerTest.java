@@ -0,0 +1,108 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow.controller;
+
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.node.ClusterNode;
+import com.alibaba.csp.sentinel.node.DefaultNode;
+import com.alibaba.csp.sentinel.node.EntranceNode;
+import com.alibaba.csp.sentinel.node.Node;
+import com.alibaba.csp.sentinel.node.StatisticNode;
+import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleUtil;
+import com.alibaba.csp.sentinel.slots.block.flow.TrafficShapingController;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Test cases for {@link PercentileRtController}.
+ */
+public class PercentileRtControllerTest {
+
+    @Test
+    public void testCanPass() {
+        TrafficShapingController controller = new PercentileRtController(100, 99);
+        Node node = mock(Node.class);
+        when(node.percentileRt(99)).thenReturn(80d).thenReturn(120d);
+
+        assertTrue(controller.canPass(node, 1));
+        assertFalse(controller.canPass(node, 1));
+    }
+
+    @Test
+    public void testCanPassWithNodeHistogram() {
+        StatisticNode node = new StatisticNode();
+        StatisticNode otherNode = new StatisticNode();
+        TrafficShapingController controller = new PercentileRtController(50, 90);
+        // The histogram of the node is enabled on first check.
+        assertTrue(controller.canPass(node, 1));
+        assertTrue(node.isRtHistogramEnabled());
+        assertFalse(otherNode.isRtHistogramEnabled());
+
+        for (int i = 0; i < 9; i++) {
+            node.addRtAndSuccess(10, 1);
+            otherNode.addRtAndSuccess(10, 1);
+        }
+        assertTrue(controller.canPass(node, 1));
+        assertEquals(0, otherNode.percentileRt(50), 0.01);
+
+        node.addRtAndSuccess(200, 1);
+        node.addRtAndSuccess(200, 1);
+        assertFalse(controller.canPass(node, 1));
+        assertEquals(10, node.percentileRt(50), 0.01);
+    }
+
+    @Test
+    public void testCanPassWithEntranceNode() {
+        EntranceNode entranceNode = new EntranceNode(new StringResourceWrapper("percentileEntrance", EntryType.IN),
+            new ClusterNode("percentileEntrance"));
+        DefaultNode child = new DefaultNode(new StringResourceWrapper("percentileChildA", EntryType.IN),
+            new ClusterNode("percentileChildA"));
+        entranceNode.addChild(child);
+        TrafficShapingController controller = new PercentileRtController(50, 90);
+        // The histograms of the children are enabled on first check, including the children added later.
+        assertTrue(controller.canPass(entranceNode, 1));
+        assertTrue(child.isRtHistogramEnabled());
+        DefaultNode laterChild = new DefaultNode(new StringResourceWrapper("percentileChildB", EntryType.IN),
+            new ClusterNode("percentileChildB"));
+        entranceNode.addChild(laterChild);
+        assertTrue(laterChild.isRtHistogramEnabled());
+
+        for (int i = 0; i < 9; i++) {
+            child.addRtAndSuccess(10, 1);
+        }
+        laterChild.addRtAndSuccess(200, 1);
+        laterChild.addRtAndSuccess(200, 1);
+        assertEquals(10, entranceNode.percentileRt(50), 0.01);
+        assertFalse(controller.canPass(entranceNode, 1));
+    }
+
+    @Test
+    public void testValidRule() {
+        FlowRule rule = new FlowRule("percentileRule").setGrade(RuleConstant.FLOW_GRADE_PERCENTILE_RT).setCount(100);
+        // Percentile RT is disabled by default.
+        assertFalse(FlowRuleUtil.isValidRule(rule));
+        assertTrue(FlowRuleUtil.isValidRule(rule.setRtPercentile(99)));
+        assertFalse(FlowRuleUtil.isValidRule(rule.setRtPercentile(0)));
+        assertFalse(FlowRuleUtil.isValidRule(rule.setRtPercentile(99).setClusterMode(true)));
+    }
+}
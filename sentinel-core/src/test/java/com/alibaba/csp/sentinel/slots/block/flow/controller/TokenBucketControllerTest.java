@@ -0,0 +1,250 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.Entry;
+import com.alibaba.csp.sentinel.SphU;
+import com.alibaba.csp.sentinel.node.Node;
+import com.alibaba.csp.sentinel.slots.block.BlockException;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
+import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleUtil;
+import com.alibaba.csp.sentinel.util.Clock;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test cases for {@link TokenBucketController}.
+ */
+public class TokenBucketControllerTest {
+
+    private volatile long currentTime = 100000L;
+
+    @Before
+    public void setUp() {
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return currentTime;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        TimeUtil.resetClock();
+    }
+
+    @Test
+    public void testBurstAndRefill() {
+        TokenBucketController controller = new TokenBucketController(10, 5);
+        Node node = mock(Node.class);
+
+        // The full bucket allows a burst of its capacity.
+        for (int i = 0; i < 5; i++) {
+            assertTrue(controller.canPass(node, 1));
+        }
+        assertFalse(controller.canPass(node, 1));
+
+        // 10 tokens per second: one token per 100ms.
+        currentTime += 99;
+        assertFalse(controller.canPass(node, 1));
+        currentTime += 1;
+        assertTrue(controller.canPass(node, 1));
+        assertFalse(controller.canPass(node, 1));
+
+        // Partial tokens are not lost.
+        currentTime += 150;
+        assertTrue(controller.canPass(node, 1));
+        currentTime += 50;
+        assertTrue(controller.canPass(node, 1));
+        assertFalse(controller.canPass(node, 1));
+
+        // Refill never exceeds the capacity.
+        currentTime += 10000;
+        assertTrue(controller.canPass(node, 5));
+        assertFalse(controller.canPass(node, 1));
+        // Acquiring more than the capacity always fails.
+        currentTime += 10000;
+        assertFalse(controller.canPass(node, 6));
+        assertTrue(controller.canPass(node, 5));
+    }
+
+    @Test
+    public void testSlowRefillRate() {
+        TokenBucketController controller = new TokenBucketController(0.5, 1);
+        Node node = mock(Node.class);
+
+        assertTrue(controller.canPass(node, 1));
+        currentTime += 1999;
+        assertFalse(controller.canPass(node, 1));
+        currentTime += 1;
+        assertTrue(controller.canPass(node, 1));
+    }
+
+    @Test
+    public void testNestedBuckets() {
+        TokenBucket tenant = new TokenBucket(10, 3);
+        TokenBucketController apiA = new TokenBucketController(10, 2, tenant);
+        TokenBucketController apiB = new TokenBucketController(10, 2, tenant);
+        Node node = mock(Node.class);
+
+        assertTrue(apiA.canPass(node, 1));
+        assertTrue(apiA.canPass(node, 1));
+        // Limited by the API bucket.
+        assertFalse(apiA.canPass(node, 1));
+        assertTrue(apiB.canPass(node, 1));
+        // Limited by the tenant bucket, and the tokens of the API bucket are given back.
+        assertFalse(apiB.canPass(node, 1));
+        assertEquals(1, apiB.getBucket().storedTokens());
+        assertEquals(0, tenant.storedTokens());
+
+        currentTime += 100;
+        assertTrue(apiB.canPass(node, 1));
+    }
+
+    @Test
+    public void testGenerateFromRules() {
+        String tenant = "testGenerateFromRules_tenant";
+        FlowRule ruleA = new FlowRule("testGenerateFromRulesA").setCount(100)
+            .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_TOKEN_BUCKET)
+            .setBurstCount(20)
+            .setParentBucket(tenant)
+            .setParentCount(150)
+            .setParentBurstCount(30);
+        FlowRule ruleB = new FlowRule("testGenerateFromRulesB").setCount(100)
+            .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_TOKEN_BUCKET)
+            .setParentBucket(tenant)
+            .setParentCount(150)
+            .setParentBurstCount(30);
+        FlowRule invalidRule = new FlowRule("testGenerateFromRulesC").setCount(100)
+            .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_TOKEN_BUCKET)
+            .setParentBucket(tenant);
+        assertTrue(FlowRuleUtil.isValidRule(ruleA));
+        assertTrue(FlowRuleUtil.isValidRule(ruleB));
+        assertFalse(FlowRuleUtil.isValidRule(invalidRule));
+
+        List<FlowRule> rules = new ArrayList<>();
+        rules.add(ruleA);
+        rules.add(ruleB);
+        FlowRuleManager.loadRules(rules);
+        TokenBucket shared = TokenBucketController.getOrCreateSharedBucket(tenant, 150, 30);
+        // Load again, the shared bucket should be kept.
+        FlowRuleManager.loadRules(rules);
+        assertSame(shared, TokenBucketController.getOrCreateSharedBucket(tenant, 150, 30));
+
+        assertEquals(20, passCount(ruleA.getResource(), 50));
+        // Capacity of the rule is 100 by default, but the tenant only has 10 tokens left.
+        assertEquals(10, passCount(ruleB.getResource(), 50));
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+        TokenBucketController.removeSharedBucket(tenant);
+    }
+
+    @Test
+    public void testKeepTokensOnReload() {
+        String tenant = "testKeepTokensOnReload_tenant";
+        List<FlowRule> rules = new ArrayList<>();
+        rules.add(bucketRule("testKeepTokensOnReloadA", 0, tenant));
+        rules.add(bucketRule("testKeepTokensOnReloadB", 0, tenant));
+        FlowRuleManager.loadRules(rules);
+        assertEquals(10, passCount("testKeepTokensOnReloadA", 20));
+        assertEquals(10, passCount("testKeepTokensOnReloadB", 20));
+
+        // Only the bucket of the changed rule is created again, and the unchanged rule keeps its tokens.
+        List<FlowRule> newRules = new ArrayList<>();
+        newRules.add(bucketRule("testKeepTokensOnReloadA", 0, tenant));
+        newRules.add(bucketRule("testKeepTokensOnReloadB", 5, tenant));
+        FlowRuleManager.loadRules(newRules);
+        assertEquals(0, passCount("testKeepTokensOnReloadA", 20));
+        assertEquals(5, passCount("testKeepTokensOnReloadB", 20));
+
+        // The shared bucket is removed once no rule refers to it.
+        TokenBucket shared = TokenBucketController.getOrCreateSharedBucket(tenant, 100, 100);
+        newRules = new ArrayList<>();
+        newRules.add(bucketRule("testKeepTokensOnReloadA", 0, null));
+        FlowRuleManager.loadRules(newRules);
+        assertNotSame(shared, TokenBucketController.getOrCreateSharedBucket(tenant, 100, 100));
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+        TokenBucketController.removeSharedBucket(tenant);
+    }
+
+    @Test
+    public void testConflictingParentBucketConfig() {
+        String tenant = "testConflictingParentBucketConfig_tenant";
+        List<FlowRule> rules = new ArrayList<>();
+        rules.add(bucketRule("testConflictingParentBucketConfigA", 0, tenant));
+        rules.add(bucketRule("testConflictingParentBucketConfigB", 0, tenant).setParentCount(50)
+            .setParentBurstCount(5));
+        FlowRuleManager.loadRules(rules);
+
+        // The first config wins, and both rules share the same parent bucket.
+        TokenBucket shared = TokenBucketController.getOrCreateSharedBucket(tenant, 100, 100);
+        assertEquals(100, shared.getCapacity());
+        assertEquals(10, passCount("testConflictingParentBucketConfigA", 20));
+        assertEquals(10, passCount("testConflictingParentBucketConfigB", 20));
+        // Tokens of both rules are taken from the same parent bucket.
+        assertTrue(shared.tryAcquire(80));
+        assertFalse(shared.tryAcquire(1));
+
+        // Changing the config of all rules replaces the shared bucket for all of them.
+        rules = new ArrayList<>();
+        rules.add(bucketRule("testConflictingParentBucketConfigA", 0, tenant).setParentBurstCount(15));
+        rules.add(bucketRule("testConflictingParentBucketConfigB", 0, tenant).setParentBurstCount(15));
+        FlowRuleManager.loadRules(rules);
+        assertEquals(10, passCount("testConflictingParentBucketConfigA", 20));
+        assertEquals(5, passCount("testConflictingParentBucketConfigB", 20));
+        FlowRuleManager.loadRules(new ArrayList<FlowRule>());
+        TokenBucketController.removeSharedBucket(tenant);
+    }
+
+    private static FlowRule bucketRule(String resourceName, int burstCount, String parentBucket) {
+        FlowRule rule = new FlowRule(resourceName).setCount(10)
+            .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_TOKEN_BUCKET)
+            .setBurstCount(burstCount);
+        if (parentBucket != null) {
+            rule.setParentBucket(parentBucket).setParentCount(100).setParentBurstCount(100);
+        }
+        return rule;
+    }
+
+    private static int passCount(String resourceName, int requests) {
+        int pass = 0;
+        for (int i = 0; i < requests; i++) {
+            Entry entry = null;
+            try {
+                entry = SphU.entry(resourceName);
+                pass++;
+            } catch (BlockException ex) {
+                // Blocked.
+            } finally {
+                if (entry != null) {
+                    entry.exit();
+                }
+            }
+        }
+        return pass;
+    }
+}
@@ -15,7 +15,11 @@
  */
 package com.alibaba.csp.sentinel.slots.statistic.base;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
@@ -62,4 +66,59 @@ public class LeapArrayTest extends AbstractTimeBasedTest {
         assertSame(expected2, leapArray.getValidHead());
     }
 
+    @Test
+    public void testRotationNotBlockedBySlowReset() throws Exception {
+        final int intervalInMs = 1000;
+        final int sampleCount = 2;
+        final CountDownLatch resetStarted = new CountDownLatch(1);
+        final CountDownLatch resetRelease = new CountDownLatch(1);
+        final AtomicBoolean firstReset = new AtomicBoolean(true);
+        final LeapArray<AtomicInteger> leapArray = new LeapArray<AtomicInteger>(sampleCount, intervalInMs) {
+            @Override
+            public AtomicInteger newEmptyBucket(long time) {
+                return new AtomicInteger(0);
+            }
+
+            @Override
+            protected WindowWrap<AtomicInteger> resetWindowTo(WindowWrap<AtomicInteger> windowWrap, long startTime) {
+                windowWrap.value().set(0);
+                if (firstReset.compareAndSet(true, false)) {
+                    resetStarted.countDown();
+                    try {
+                        resetRelease.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                windowWrap.resetTo(startTime);
+                return windowWrap;
+            }
+        };
+        final long time = 1000;
+        final long nextTime = time + intervalInMs;
+        leapArray.currentWindow(time).value().addAndGet(5);
+
+        final AtomicReference<WindowWrap<AtomicInteger>> resetterWindow = new AtomicReference<>();
+        Thread resetter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                resetterWindow.set(leapArray.currentWindow(nextTime));
+            }
+        });
+        resetter.start();
+        assertTrue(resetStarted.await(1, TimeUnit.SECONDS));
+
+        // A descheduled resetter does not stall other threads, which replace the bucket themselves.
+        WindowWrap<AtomicInteger> window = leapArray.currentWindow(nextTime);
+        window.value().incrementAndGet();
+        assertEquals(nextTime, window.windowStart());
+
+        resetRelease.countDown();
+        resetter.join();
+        // The resetter lost the race, so it counts in the bucket published by the other thread.
+        assertSame(window, resetterWindow.get());
+        assertSame(window, leapArray.currentWindow(nextTime));
+        assertEquals(1, window.value().get());
+    }
+
 }
\ No newline at end of file
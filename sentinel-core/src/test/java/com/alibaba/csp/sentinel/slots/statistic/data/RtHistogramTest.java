@@ -0,0 +1,117 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.data;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link RtHistogram}.
+ */
+public class RtHistogramTest {
+
+    @Test
+    public void testIndexAndEquivalentValue() {
+        int lastIndex = -1;
+        for (long v = 0; v <= 5000; v++) {
+            int index = RtHistogram.indexOf(v);
+            assertTrue(index == lastIndex || index == lastIndex + 1);
+            lastIndex = index;
+
+            long highest = RtHistogram.highestEquivalentValue(index);
+            assertTrue(highest >= v);
+            // Relative error is below 12.5%.
+            assertTrue(highest - v <= v / 8 + 1);
+            assertEquals(index, RtHistogram.indexOf(highest));
+        }
+        for (long v = 0; v < 16; v++) {
+            assertEquals(v, RtHistogram.highestEquivalentValue(RtHistogram.indexOf(v)));
+        }
+    }
+
+    @Test
+    public void testValueAtPercentile() {
+        RtHistogram histogram = new RtHistogram(5000);
+        assertEquals(0, histogram.valueAtPercentile(99));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.count());
+        assertEquals(50, histogram.valueAtPercentile(50), 50 / 8);
+        assertEquals(90, histogram.valueAtPercentile(90), 90 / 8);
+        assertEquals(99, histogram.valueAtPercentile(99), 99 / 8);
+        assertEquals(1, histogram.valueAtPercentile(0.1));
+
+        histogram.record(100000);
+        assertEquals(RtHistogram.highestEquivalentValue(RtHistogram.indexOf(5000)),
+            histogram.valueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+    }
+
+    @Test
+    public void testMerge() {
+        RtHistogram a = new RtHistogram(100);
+        RtHistogram b = new RtHistogram(1000);
+        a.record(10);
+        b.record(10);
+        b.record(500);
+
+        long[] counts = b.mergeTo(a.mergeTo(null));
+        assertEquals(500, RtHistogram.valueAtPercentile(counts, 100), 500 / 8);
+        assertEquals(10, RtHistogram.valueAtPercentile(counts, 50));
+
+        // Values beyond the max value of the target are counted as the max value.
+        a.add(b);
+        assertEquals(3, a.count());
+        assertEquals(RtHistogram.highestEquivalentValue(RtHistogram.indexOf(100)), a.valueAtPercentile(100));
+    }
+
+    @Test
+    public void testBucketRecordsHistogram() {
+        MetricBucket bucket = new MetricBucket();
+        bucket.addRT(5);
+        bucket.addRT(7);
+        assertNull(bucket.rtHistogram());
+        bucket.recordRtHistogram(5);
+        bucket.recordRtHistogram(7);
+        assertNotNull(bucket.rtHistogram());
+        assertEquals(7, bucket.rtHistogram().valueAtPercentile(100));
+
+        MetricBucket merged = new MetricBucket().merge(bucket);
+        assertEquals(12, merged.rt());
+        assertEquals(5, merged.minRt());
+        assertEquals(2, merged.rtHistogram().count());
+
+        bucket.reset();
+        assertEquals(0, bucket.rtHistogram().count());
+    }
+
+    @Test
+    public void testLocalCounts() {
+        long[] counts = RtHistogram.localCounts();
+        RtHistogram histogram = new RtHistogram();
+        histogram.record(10);
+        assertSame(counts, histogram.mergeTo(counts));
+        assertEquals(10, RtHistogram.valueAtPercentile(counts, 50));
+
+        // The buffer is reused and cleared.
+        assertSame(counts, RtHistogram.localCounts());
+        assertEquals(0, RtHistogram.valueAtPercentile(counts, 50));
+    }
+}
@@ -146,6 +146,46 @@ public class BucketLeapArrayTest {
         assertEquals(nThreads, leapArray.currentWindow(time).value().pass());
     }
 
+    @Test
+    public void testMultiThreadResetDeprecatedWindow() throws Exception {
+        final long time = TimeUtil.currentTimeMillis();
+        final long nextTime = time + intervalInMs;
+        final int nThreads = 16;
+        final BucketLeapArray leapArray = new BucketLeapArray(sampleCount, intervalInMs);
+        final WindowWrap<MetricBucket> oldWindow = leapArray.currentWindow(time);
+        oldWindow.value().addPass(100);
+
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(nThreads);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    startLatch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                WindowWrap<MetricBucket> w = leapArray.currentWindow(nextTime);
+                if (w.windowStart() == nextTime - nextTime % windowLengthInMs) {
+                    latch.countDown();
+                }
+            }
+        };
+
+        for (int i = 0; i < nThreads; i++) {
+            new Thread(task).start();
+        }
+        startLatch.countDown();
+        latch.await();
+
+        WindowWrap<MetricBucket> window = leapArray.currentWindow(nextTime);
+        // The deprecated bucket is replaced rather than reset in place.
+        assertNotSame(oldWindow, window);
+        assertEquals(100L, oldWindow.value().pass());
+        assertEquals(nextTime - nextTime % windowLengthInMs, window.windowStart());
+        assertEquals(0L, window.value().pass());
+    }
+
     @Test
     public void testGetPreviousWindow() {
         BucketLeapArray leapArray = new BucketLeapArray(sampleCount, intervalInMs);
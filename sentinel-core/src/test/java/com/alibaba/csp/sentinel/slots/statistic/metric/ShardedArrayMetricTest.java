@@ -0,0 +1,180 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.metric;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import com.alibaba.csp.sentinel.node.StatisticNode;
+import com.alibaba.csp.sentinel.node.metric.MetricNode;
+import com.alibaba.csp.sentinel.util.Clock;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ShardedArrayMetric}.
+ */
+public class ShardedArrayMetricTest {
+
+    private volatile long currentTime = 100000L;
+
+    @Before
+    public void setUp() {
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return currentTime;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        TimeUtil.resetClock();
+    }
+
+    @Test
+    public void testShardCountRoundedUp() {
+        assertEquals(4, new ShardedArrayMetric(3, 2, 1000, true).getShardCount());
+        assertEquals(1, new ShardedArrayMetric(1, 2, 1000, true).getShardCount());
+    }
+
+    @Test
+    public void testAggregateAcrossThreads() throws Exception {
+        final ShardedArrayMetric metric = new ShardedArrayMetric(8, 2, 1000, true);
+        final int threadCount = 8;
+        final int perThread = 100;
+        final CountDownLatch latch = new CountDownLatch(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            final int rt = 10 + i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < perThread; j++) {
+                        metric.addPass(1);
+                        metric.addSuccess(1);
+                        metric.addRT(rt);
+                    }
+                    metric.addBlock(1);
+                    metric.addException(1);
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+
+        assertEquals(threadCount * perThread, metric.pass());
+        assertEquals(threadCount * perThread, metric.success());
+        assertEquals(threadCount, metric.block());
+        assertEquals(threadCount, metric.exception());
+        assertEquals(perThread * (10 + 17) * threadCount / 2, metric.rt());
+        assertEquals(10, metric.minRt());
+        assertEquals(threadCount * perThread, metric.maxSuccess());
+        assertEquals(threadCount * perThread, metric.getWindowPass(currentTime));
+    }
+
+    @Test
+    public void testMergeDetailsByWindow() {
+        ShardedArrayMetric metric = new ShardedArrayMetric(2, 2, 1000, true);
+        metric.addPass(3);
+        metric.addSuccess(2);
+        metric.addRT(30);
+        currentTime += 500;
+        metric.addPass(1);
+
+        List<MetricNode> details = metric.details();
+        assertEquals(2, details.size());
+        assertEquals(100000L, details.get(0).getTimestamp());
+        assertEquals(3, details.get(0).getPassQps());
+        assertEquals(15, details.get(0).getRt());
+        assertEquals(1, details.get(1).getPassQps());
+        assertEquals(3, metric.previousWindowPass());
+        assertEquals(2, metric.windows().length);
+    }
+
+    @Test
+    public void testMaxSuccessOfMergedWindows() {
+        ShardedArrayMetric metric = new ShardedArrayMetric(2, 2, 1000, true);
+        metric.addSuccess(3);
+        currentTime += 500;
+        metric.addSuccess(5);
+        assertEquals(5, metric.maxSuccess());
+        // The first window is deprecated.
+        currentTime += 500;
+        metric.addSuccess(1);
+        assertEquals(5, metric.maxSuccess());
+        currentTime += 1000;
+        assertEquals(1, metric.maxSuccess());
+    }
+
+    @Test
+    public void testMaxSuccessWithoutAllocation() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)threadBean;
+        if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        ShardedArrayMetric metric = new ShardedArrayMetric(8, 2, 1000, true);
+        metric.addSuccess(10);
+        long sum = 0;
+        for (int i = 0; i < 1000; i++) {
+            sum += metric.maxSuccess();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10000; i++) {
+            sum += metric.maxSuccess();
+        }
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+        assertEquals(11000 * 10, sum);
+        // Only a few bytes of the measuring itself, rather than bytes of every call.
+        assertTrue("allocated " + allocated + " bytes", allocated < 10000);
+    }
+
+    @Test
+    public void testStatisticNodeKeepsCountsWhenSharding() {
+        StatisticNode node = new StatisticNode();
+        node.addPassRequest(5);
+        node.addRtAndSuccess(20, 1);
+        node.increaseBlockQps(2);
+
+        node.enableSharding();
+        if (!node.isSharded()) {
+            // Sharding is not available with a single shard (e.g. on a single-core machine).
+            return;
+        }
+        node.addPassRequest(5);
+        node.addRtAndSuccess(40, 1);
+
+        assertEquals(10, node.passQps(), 0.01);
+        assertEquals(2, node.blockQps(), 0.01);
+        assertEquals(30, node.avgRt(), 0.01);
+        assertEquals(20, node.minRt(), 0.01);
+        assertEquals(10, node.totalPass());
+        assertEquals(2, node.totalSuccess());
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alibaba.csp.sentinel.util.function.BiConsumer;
+import com.alibaba.csp.sentinel.util.function.Function;
+import com.alibaba.csp.sentinel.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ConcurrentRegistry}.
+ */
+public class ConcurrentRegistryTest {
+
+    private long currentTime = 1000L;
+
+    private final Clock mockClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return currentTime;
+        }
+    };
+
+    private final Function<String, Object> factory = new Function<String, Object>() {
+        @Override
+        public Object apply(String s) {
+            return new Object();
+        }
+    };
+
+    @After
+    public void tearDown() {
+        TimeUtil.resetClock();
+    }
+
+    @Test
+    public void testGetOrCreateOnlyOnce() throws Exception {
+        final ConcurrentRegistry<String, Object> registry = new ConcurrentRegistry<>();
+        final AtomicInteger created = new AtomicInteger();
+        final Function<String, Object> countingFactory = new Function<String, Object>() {
+            @Override
+            public Object apply(String s) {
+                created.incrementAndGet();
+                return new Object();
+            }
+        };
+        int threadCount = 16;
+        final CountDownLatch latch = new CountDownLatch(threadCount);
+        final List<Object> values = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Object v = registry.getOrCreate("a", countingFactory);
+                    synchronized (values) {
+                        values.add(v);
+                    }
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        assertEquals(1, created.get());
+        for (Object v : values) {
+            assertSame(registry.get("a"), v);
+        }
+    }
+
+    @Test
+    public void testRejectWhenFull() {
+        TimeUtil.setClock(mockClock);
+        ConcurrentRegistry<String, Object> registry = new ConcurrentRegistry<>(2);
+        final List<String> evicted = new ArrayList<>();
+        registry.setEvictionListener(new BiConsumer<String, Object>() {
+            @Override
+            public void accept(String key, Object value) {
+                evicted.add(key);
+            }
+        });
+
+        registry.getOrCreate("a", factory);
+        registry.getOrCreate("b", factory);
+        currentTime += 1000;
+
+        // Nothing is evicted by getOrCreate itself.
+        assertNull(registry.getOrCreate("c", factory));
+        assertTrue(evicted.isEmpty());
+        assertTrue(registry.containsKey("a"));
+
+        registry.get("b");
+        assertEquals(1, registry.evictIdle(500));
+        assertEquals(1, evicted.size());
+        assertEquals("a", evicted.get(0));
+        assertNotNull(registry.getOrCreate("c", factory));
+        assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testEvictEldestWhenFull() {
+        TimeUtil.setClock(mockClock);
+        ConcurrentRegistry<String, Object> registry = new ConcurrentRegistry<>(4);
+        registry.getOrCreate("a", factory, true);
+        currentTime += 10;
+        registry.getOrCreate("b", factory);
+        currentTime += 10;
+        registry.getOrCreate("c", factory);
+        currentTime += 10;
+        registry.getOrCreate("d", factory);
+        assertNull(registry.getOrCreate("e", factory));
+
+        // Nothing has been idle long enough.
+        assertEquals(0, registry.evictEldest(1, 100, null));
+
+        currentTime += 200;
+        registry.get("b");
+        Predicate<String> keepC = new Predicate<String>() {
+            @Override
+            public boolean test(String key) {
+                return !"c".equals(key);
+            }
+        };
+        // "a" is pinned, "b" has just been accessed and "c" is rejected by the filter.
+        assertEquals(1, registry.evictEldest(2, 100, keepC));
+        assertFalse(registry.containsKey("d"));
+        assertNotNull(registry.getOrCreate("e", factory));
+        assertEquals(4, registry.size());
+    }
+
+    @Test
+    public void testPinnedNeverEvicted() {
+        TimeUtil.setClock(mockClock);
+        ConcurrentRegistry<String, Object> registry = new ConcurrentRegistry<>(1);
+        registry.getOrCreate("a", factory, true);
+        currentTime += 1000;
+        assertNull(registry.getOrCreate("b", factory));
+        assertEquals(0, registry.evictIdle(0));
+        assertTrue(registry.containsKey("a"));
+    }
+
+    @Test
+    public void testEvictIdle() {
+        TimeUtil.setClock(mockClock);
+        ConcurrentRegistry<String, Object> registry = new ConcurrentRegistry<>(10);
+        registry.getOrCreate("a", factory);
+        registry.getOrCreate("b", factory);
+        currentTime += 500;
+        registry.get("b");
+        assertEquals(1, registry.evictIdle(300));
+        assertFalse(registry.containsKey("a"));
+        assertTrue(registry.containsKey("b"));
+        assertEquals(currentTime, registry.getLastAccessTime("b"));
+        assertEquals(-1, registry.getLastAccessTime("a"));
+    }
+
+    @Test
+    public void testMapView() {
+        ConcurrentRegistry<String, Object> registry = new ConcurrentRegistry<>();
+        Object value = new Object();
+        assertNull(registry.put("a", value));
+        assertSame(value, registry.get("a"));
+        assertEquals(1, registry.entrySet().size());
+        assertSame(value, registry.values().iterator().next());
+        assertSame(value, registry.remove("a"));
+        assertTrue(registry.isEmpty());
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.util;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link TimeUtil}.
+ */
+public class TimeUtilTest {
+
+    @After
+    public void tearDown() {
+        TimeUtil.resetClock();
+    }
+
+    @Test
+    public void testInjectClock() {
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return 123L;
+            }
+        });
+        assertEquals(123L, TimeUtil.currentTimeMillis());
+
+        TimeUtil.resetClock();
+        long now = System.currentTimeMillis();
+        assertTrue(Math.abs(TimeUtil.currentTimeMillis() - now) < 100);
+    }
+
+    @Test
+    public void testAdaptClock() {
+        TimeUtil.setClock(TimeUtil.IDLE_CLOCK);
+        TimeUtil.adapt(TimeUtil.IDLE_READS_PER_SECOND);
+        assertSame(TimeUtil.IDLE_CLOCK, TimeUtil.currentClock());
+
+        TimeUtil.adapt(TimeUtil.HOT_READS_PER_SECOND + 1);
+        assertSame(TimeUtil.BUSY_CLOCK, TimeUtil.currentClock());
+        assertTrue(Math.abs(TimeUtil.currentTimeMillis() - System.currentTimeMillis()) < 100);
+
+        // Keep the current clock between the thresholds.
+        TimeUtil.adapt(TimeUtil.HOT_READS_PER_SECOND);
+        assertSame(TimeUtil.BUSY_CLOCK, TimeUtil.currentClock());
+
+        TimeUtil.adapt(TimeUtil.IDLE_READS_PER_SECOND - 1);
+        assertSame(TimeUtil.IDLE_CLOCK, TimeUtil.currentClock());
+    }
+
+    @Test
+    public void testInjectedClockNotReplacedByAdapt() {
+        Clock clock = new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return 1L;
+            }
+        };
+        TimeUtil.setClock(clock);
+        TimeUtil.adapt(TimeUtil.HOT_READS_PER_SECOND + 1);
+        TimeUtil.adapt(0);
+        assertSame(clock, TimeUtil.currentClock());
+    }
+}
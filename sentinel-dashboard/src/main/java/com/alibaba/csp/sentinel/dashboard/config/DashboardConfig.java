@@ -63,6 +63,34 @@ public class DashboardConfig {
      * Auto remove unhealthy machine after specific period in millisecond.
      */
     public static final String CONFIG_AUTO_REMOVE_MACHINE_MILLIS = "sentinel.dashboard.autoRemoveMachineMillis";
+    /**
+     * Type of the metrics repository: {@code simple} (default), {@code striped} or {@code disk}.
+     */
+    public static final String CONFIG_METRIC_REPOSITORY_TYPE = "sentinel.dashboard.metric.repository";
+    /**
+     * Directory of the metric files of the {@code disk} metrics repository.
+     */
+    public static final String CONFIG_METRIC_DISK_DIR = "sentinel.dashboard.metric.disk.dir";
+    /**
+     * Retention hours of the metrics of every second in the {@code disk} metrics repository.
+     */
+    public static final String CONFIG_METRIC_DISK_RAW_RETENTION_HOURS = "sentinel.dashboard.metric.disk.rawRetentionHours";
+    /**
+     * Retention hours of the metrics rolled up by minute in the {@code disk} metrics repository.
+     */
+    public static final String CONFIG_METRIC_DISK_ROLLUP_RETENTION_HOURS
+        = "sentinel.dashboard.metric.disk.rollupRetentionHours";
+    /**
+     * Max time interval of a metric query in millisecond.
+     */
+    public static final String CONFIG_METRIC_MAX_QUERY_INTERVAL_MILLIS = "sentinel.dashboard.metric.maxQueryIntervalMillis";
+
+    public static final String METRIC_REPOSITORY_STRIPED = "striped";
+    public static final String METRIC_REPOSITORY_SIMPLE = "simple";
+    public static final String METRIC_REPOSITORY_DISK = "disk";
+
+    public static final int DEFAULT_METRIC_DISK_RAW_RETENTION_HOURS = 3;
+    public static final int DEFAULT_METRIC_DISK_ROLLUP_RETENTION_HOURS = 24 * 7;
 
     private static final ConcurrentMap<String, Object> cacheMap = new ConcurrentHashMap<>();
     
@@ -134,6 +162,34 @@ public class DashboardConfig {
         return getConfigInt(CONFIG_UNHEALTHY_MACHINE_MILLIS, DEFAULT_MACHINE_HEALTHY_TIMEOUT_MS, 30000);
     }
     
+    public static String getMetricRepositoryType() {
+        String type = getConfigStr(CONFIG_METRIC_REPOSITORY_TYPE);
+        return type == null ? METRIC_REPOSITORY_SIMPLE : type.trim();
+    }
+
+    public static String getMetricDiskDir() {
+        String dir = getConfigStr(CONFIG_METRIC_DISK_DIR);
+        return dir == null ? System.getProperty("user.home") + "/logs/csp/sentinel-dashboard-metrics" : dir.trim();
+    }
+
+    public static int getMetricDiskRawRetentionHours() {
+        return getConfigInt(CONFIG_METRIC_DISK_RAW_RETENTION_HOURS, DEFAULT_METRIC_DISK_RAW_RETENTION_HOURS, 1);
+    }
+
+    public static int getMetricDiskRollupRetentionHours() {
+        return getConfigInt(CONFIG_METRIC_DISK_ROLLUP_RETENTION_HOURS, DEFAULT_METRIC_DISK_ROLLUP_RETENTION_HOURS, 1);
+    }
+
+    /**
+     * @return max time interval of a metric query, 24 hours for the {@code disk} metrics repository
+     * and 1 hour for the in-memory ones by default
+     */
+    public static int getMetricMaxQueryIntervalMillis() {
+        int defaultVal = METRIC_REPOSITORY_DISK.equalsIgnoreCase(getMetricRepositoryType())
+            ? 1000 * 60 * 60 * 24 : 1000 * 60 * 60;
+        return getConfigInt(CONFIG_METRIC_MAX_QUERY_INTERVAL_MILLIS, defaultVal, 60000);
+    }
+
     public static void clearCache() {
         cacheMap.clear();
     }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.config;
+
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.DiskMetricsRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.InMemoryMetricsRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricsRepository;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.StripedInMemoryMetricsRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Opts in to another metrics repository by {@code sentinel.dashboard.metric.repository}, which takes
+ * precedence over the default {@link InMemoryMetricsRepository} component.
+ *
+ * @since 1.8.2
+ */
+@Configuration
+public class MetricsRepositoryConfiguration {
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = DashboardConfig.CONFIG_METRIC_REPOSITORY_TYPE,
+        havingValue = DashboardConfig.METRIC_REPOSITORY_STRIPED)
+    public MetricsRepository<MetricEntity> stripedMetricsRepository() {
+        return new StripedInMemoryMetricsRepository();
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = DashboardConfig.CONFIG_METRIC_REPOSITORY_TYPE,
+        havingValue = DashboardConfig.METRIC_REPOSITORY_DISK)
+    public MetricsRepository<MetricEntity> diskMetricsRepository() {
+        return new DiskMetricsRepository(DashboardConfig.getMetricDiskDir(),
+            TimeUnit.HOURS.toMillis(DashboardConfig.getMetricDiskRawRetentionHours()),
+            TimeUnit.HOURS.toMillis(DashboardConfig.getMetricDiskRollupRetentionHours()));
+    }
+}
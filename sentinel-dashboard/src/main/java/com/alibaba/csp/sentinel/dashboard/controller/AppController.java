@@ -27,6 +27,8 @@ import com.alibaba.csp.sentinel.dashboard.discovery.AppManagement;
 import com.alibaba.csp.sentinel.dashboard.discovery.MachineInfo;
 import com.alibaba.csp.sentinel.dashboard.domain.Result;
 import com.alibaba.csp.sentinel.dashboard.domain.vo.MachineInfoVo;
+import com.alibaba.csp.sentinel.dashboard.metric.MachineFetchStats;
+import com.alibaba.csp.sentinel.dashboard.metric.MetricFetcher;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -43,6 +45,8 @@ public class AppController {
 
     @Autowired
     private AppManagement appManagement;
+    @Autowired
+    private MetricFetcher metricFetcher;
 
     @GetMapping("/names.json")
     public Result<List<String>> queryApps(HttpServletRequest request) {
@@ -64,7 +68,17 @@ public class AppController {
         }
         List<MachineInfo> list = new ArrayList<>(appInfo.getMachines());
         Collections.sort(list, Comparator.comparing(MachineInfo::getApp).thenComparing(MachineInfo::getIp).thenComparingInt(MachineInfo::getPort));
-        return Result.ofSuccess(MachineInfoVo.fromMachineInfoList(list));
+        List<MachineInfoVo> vos = MachineInfoVo.fromMachineInfoList(list);
+        long now = System.currentTimeMillis();
+        for (MachineInfoVo vo : vos) {
+            MachineFetchStats stats = metricFetcher.getMachineFetchStats(app, vo.getIp(), vo.getPort());
+            if (stats != null) {
+                vo.setFetchLatencyMs(stats.getLastLatencyMs());
+                vo.setFetchLagMs(stats.getLagMs(now));
+                vo.setFetchFailCount(stats.getFailCount());
+            }
+        }
+        return Result.ofSuccess(vos);
     }
     
     @RequestMapping(value = "/{app}/machine/remove.json")
@@ -24,6 +24,7 @@ import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.alibaba.csp.sentinel.dashboard.config.DashboardConfig;
 import com.alibaba.csp.sentinel.dashboard.domain.Result;
 import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricsRepository;
 import org.slf4j.Logger;
@@ -48,8 +49,6 @@ public class MetricController {
 
     private static Logger logger = LoggerFactory.getLogger(MetricController.class);
 
-    private static final long maxQueryIntervalMs = 1000 * 60 * 60;
-
     @Autowired
     private MetricsRepository<MetricEntity> metricStore;
 
@@ -81,8 +80,9 @@ public class MetricController {
         if (startTime == null) {
             startTime = endTime - 1000 * 60 * 5;
         }
+        long maxQueryIntervalMs = DashboardConfig.getMetricMaxQueryIntervalMillis();
         if (endTime - startTime > maxQueryIntervalMs) {
-            return Result.ofFail(-1, "time intervalMs is too big, must <= 1h");
+            return Result.ofFail(-1, "time intervalMs is too big, must <= " + maxQueryIntervalMs + "ms");
         }
         List<String> resources = metricStore.listResourcesOfApp(app);
         logger.debug("queryTopResourceMetric(), resources.size()={}", resources.size());
@@ -150,8 +150,9 @@ public class MetricController {
         if (startTime == null) {
             startTime = endTime - 1000 * 60;
         }
+        long maxQueryIntervalMs = DashboardConfig.getMetricMaxQueryIntervalMillis();
         if (endTime - startTime > maxQueryIntervalMs) {
-            return Result.ofFail(-1, "time intervalMs is too big, must <= 1h");
+            return Result.ofFail(-1, "time intervalMs is too big, must <= " + maxQueryIntervalMs + "ms");
         }
         List<MetricEntity> entities = metricStore.queryByAppAndResourceBetween(
             app, identity, startTime, endTime);
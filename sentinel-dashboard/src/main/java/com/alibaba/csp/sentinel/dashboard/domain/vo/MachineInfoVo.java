@@ -35,6 +35,16 @@ public class MachineInfoVo {
 
     private String version;
 
+    /**
+     * Time cost of the latest successful metric fetch in ms, -1 if unknown.
+     */
+    private long fetchLatencyMs = -1;
+    /**
+     * How far the fetched metrics fall behind now in ms, -1 if unknown.
+     */
+    private long fetchLagMs = -1;
+    private long fetchFailCount;
+
     public static List<MachineInfoVo> fromMachineInfoList(List<MachineInfo> machines) {
         List<MachineInfoVo> list = new ArrayList<>();
         for (MachineInfo machine : machines) {
@@ -120,4 +130,28 @@ public class MachineInfoVo {
     public void setHealthy(boolean healthy) {
         this.healthy = healthy;
     }
+
+    public long getFetchLatencyMs() {
+        return fetchLatencyMs;
+    }
+
+    public void setFetchLatencyMs(long fetchLatencyMs) {
+        this.fetchLatencyMs = fetchLatencyMs;
+    }
+
+    public long getFetchLagMs() {
+        return fetchLagMs;
+    }
+
+    public void setFetchLagMs(long fetchLagMs) {
+        this.fetchLagMs = fetchLagMs;
+    }
+
+    public long getFetchFailCount() {
+        return fetchFailCount;
+    }
+
+    public void setFetchFailCount(long fetchFailCount) {
+        this.fetchFailCount = fetchFailCount;
+    }
 }
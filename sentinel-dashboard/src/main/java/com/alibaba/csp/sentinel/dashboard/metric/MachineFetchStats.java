@@ -0,0 +1,67 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric;
+
+/**
+ * Statistics of fetching the metrics of a machine.
+ *
+ * @since 1.8.2
+ */
+public class MachineFetchStats {
+
+    private long lastLatencyMs = -1;
+    private long lastSuccessTime;
+    private long fetchedUntil;
+    private long successCount;
+    private long failCount;
+
+    synchronized void onSuccess(long requestTime, long now, long windowEndTime) {
+        lastLatencyMs = now - requestTime;
+        lastSuccessTime = now;
+        fetchedUntil = Math.max(fetchedUntil, windowEndTime);
+        successCount++;
+    }
+
+    synchronized void onFailure() {
+        failCount++;
+    }
+
+    /**
+     * @return time cost of the latest successful fetch in ms, or -1 if never succeeded
+     */
+    public synchronized long getLastLatencyMs() {
+        return lastLatencyMs;
+    }
+
+    public synchronized long getLastSuccessTime() {
+        return lastSuccessTime;
+    }
+
+    /**
+     * @return how far the fetched metrics fall behind the given time in ms, or -1 if never succeeded
+     */
+    public synchronized long getLagMs(long now) {
+        return fetchedUntil == 0 ? -1 : Math.max(0, now - fetchedUntil);
+    }
+
+    public synchronized long getSuccessCount() {
+        return successCount;
+    }
+
+    public synchronized long getFailCount() {
+        return failCount;
+    }
+}
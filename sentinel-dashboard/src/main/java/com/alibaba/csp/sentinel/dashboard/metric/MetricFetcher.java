@@ -15,9 +15,12 @@
  */
 package com.alibaba.csp.sentinel.dashboard.metric;
 
+import java.io.IOException;
 import java.net.ConnectException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -25,15 +28,16 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.ThreadPoolExecutor.DiscardPolicy;
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.alibaba.csp.sentinel.Constants;
 import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
@@ -54,15 +58,23 @@ import org.apache.http.impl.client.DefaultRedirectStrategy;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
 import org.apache.http.protocol.HTTP;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 /**
- * Fetch metric of machines.
+ * <p>Fetch metric of machines.</p>
+ *
+ * <p>Responses are parsed line by line as the bytes arrive, and merged into the metrics to save directly.
+ * Each app has at most one fetch round in flight: the next round of an app starts from where the
+ * last one ends after it's saved, so a slow app or a full write queue delays its rounds instead of
+ * dropping the metrics.</p>
  *
  * @author leyou
  */
@@ -73,12 +85,17 @@ public class MetricFetcher {
     private static final int HTTP_OK = 200;
     private static final long MAX_LAST_FETCH_INTERVAL_MS = 1000 * 15;
     private static final long FETCH_INTERVAL_SECOND = 6;
+    /**
+     * Pending requests of a round are cancelled after the timeout.
+     */
+    private static final long FETCH_TIMEOUT_MS = 1000 * 10;
+    private static final int RESPONSE_BUFFER_SIZE = 8 * 1024;
     private static final Charset DEFAULT_CHARSET = Charset.forName(SentinelConfig.charset());
     private final static String METRIC_URL_PATH = "metric";
     private static Logger logger = LoggerFactory.getLogger(MetricFetcher.class);
     private final long intervalSecond = 1;
 
-    private Map<String, AtomicLong> appLastFetchTime = new ConcurrentHashMap<>();
+    private final Map<String, AppFetchState> appFetchStates = new ConcurrentHashMap<>();
 
     @Autowired
     private MetricsRepository<MetricEntity> metricStore;
@@ -90,20 +107,15 @@ public class MetricFetcher {
     @SuppressWarnings("PMD.ThreadPoolCreationRule")
     private ScheduledExecutorService fetchScheduleService = Executors.newScheduledThreadPool(1,
         new NamedThreadFactory("sentinel-dashboard-metrics-fetch-task"));
-    private ExecutorService fetchService;
     private ExecutorService fetchWorker;
 
     public MetricFetcher() {
         int cores = Runtime.getRuntime().availableProcessors() * 2;
         long keepAliveTime = 0;
         int queueSize = 2048;
-        RejectedExecutionHandler handler = new DiscardPolicy();
-        fetchService = new ThreadPoolExecutor(cores, cores,
-            keepAliveTime, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
-            new NamedThreadFactory("sentinel-dashboard-metrics-fetchService"), handler);
         fetchWorker = new ThreadPoolExecutor(cores, cores,
             keepAliveTime, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
-            new NamedThreadFactory("sentinel-dashboard-metrics-fetchWorker"), handler);
+            new NamedThreadFactory("sentinel-dashboard-metrics-fetchWorker"), new AbortPolicy());
         IOReactorConfig ioConfig = IOReactorConfig.custom()
             .setConnectTimeout(3000)
             .setSoTimeout(3000)
@@ -134,16 +146,24 @@ public class MetricFetcher {
         }, 10, intervalSecond, TimeUnit.SECONDS);
     }
 
-    private void writeMetric(Map<String, MetricEntity> map) {
-        if (map.isEmpty()) {
+    /**
+     * @return statistics of fetching the metrics of the machine, or null if never fetched
+     */
+    public MachineFetchStats getMachineFetchStats(String app, String ip, int port) {
+        AppFetchState state = appFetchStates.get(app);
+        return state == null ? null : state.machineStats.get(ip + ":" + port);
+    }
+
+    private void writeMetric(List<MetricEntity> entities) {
+        if (entities.isEmpty()) {
             return;
         }
         Date date = new Date();
-        for (MetricEntity entity : map.values()) {
+        for (MetricEntity entity : entities) {
             entity.setGmtCreate(date);
             entity.setGmtModified(date);
         }
-        metricStore.saveAll(map.values());
+        metricStore.saveAll(entities);
     }
 
     /**
@@ -155,221 +175,288 @@ public class MetricFetcher {
             return;
         }
         for (final String app : apps) {
-            fetchService.submit(() -> {
-                try {
-                    doFetchAppMetric(app);
-                } catch (Exception e) {
-                    logger.error("fetchAppMetric error", e);
-                }
-            });
+            try {
+                doFetchAppMetric(app);
+            } catch (Exception e) {
+                logger.error("fetchAppMetric error", e);
+            }
+        }
+    }
+
+    private void doFetchAppMetric(final String app) {
+        AppFetchState state = appFetchStates.computeIfAbsent(app, a -> new AppFetchState());
+        long now = System.currentTimeMillis();
+        if (!state.inFlight.compareAndSet(false, true)) {
+            // The next round waits for the one in flight.
+            FetchRound round = state.round;
+            if (round != null && now - round.requestTime > FETCH_TIMEOUT_MS) {
+                round.cancel();
+            }
+            return;
+        }
+        long lastFetchMs = now - MAX_LAST_FETCH_INTERVAL_MS;
+        if (state.lastFetchTime > 0) {
+            lastFetchMs = Math.max(lastFetchMs, state.lastFetchTime + 1000);
+        }
+        // trim milliseconds
+        lastFetchMs = lastFetchMs / 1000 * 1000;
+        long endTime = lastFetchMs + FETCH_INTERVAL_SECOND * 1000;
+        if (endTime > now - 1000 * 2) {
+            // to near
+            state.inFlight.set(false);
+            return;
+        }
+        try {
+            fetchOnce(app, state, lastFetchMs, endTime);
+        } catch (Exception e) {
+            state.inFlight.set(false);
+            logger.info("fetchOnce(" + app + ") error", e);
         }
     }
 
     /**
      * fetch metric between [startTime, endTime], both side inclusive
      */
-    private void fetchOnce(String app, long startTime, long endTime, int maxWaitSeconds) {
-        if (maxWaitSeconds <= 0) {
-            throw new IllegalArgumentException("maxWaitSeconds must > 0, but " + maxWaitSeconds);
-        }
+    private void fetchOnce(String app, AppFetchState state, long startTime, long endTime) {
         AppInfo appInfo = appManagement.getDetailApp(app);
+        if (appInfo == null) {
+            appFetchStates.remove(app);
+            return;
+        }
         // auto remove for app
         if (appInfo.isDead()) {
             logger.info("Dead app removed: {}", app);
             appManagement.removeApp(app);
+            appFetchStates.remove(app);
             return;
         }
         Set<MachineInfo> machines = appInfo.getMachines();
         logger.debug("enter fetchOnce(" + app + "), machines.size()=" + machines.size()
             + ", time intervalMs [" + startTime + ", " + endTime + "]");
-        if (machines.isEmpty()) {
-            return;
-        }
-        final String msg = "fetch";
-        AtomicLong unhealthy = new AtomicLong();
-        final AtomicLong success = new AtomicLong();
-        final AtomicLong fail = new AtomicLong();
-
-        long start = System.currentTimeMillis();
-        /** app_resource_timeSecond -> metric */
-        final Map<String, MetricEntity> metricMap = new ConcurrentHashMap<>(16);
-        final CountDownLatch latch = new CountDownLatch(machines.size());
+        List<MachineInfo> healthyMachines = new ArrayList<>(machines.size());
+        Set<String> machineKeys = new HashSet<>();
         for (final MachineInfo machine : machines) {
             // auto remove
             if (machine.isDead()) {
-                latch.countDown();
                 appManagement.getDetailApp(app).removeMachine(machine.getIp(), machine.getPort());
                 logger.info("Dead machine removed: {}:{} of {}", machine.getIp(), machine.getPort(), app);
                 continue;
             }
-            if (!machine.isHealthy()) {
-                latch.countDown();
-                unhealthy.incrementAndGet();
-                continue;
+            machineKeys.add(machine.toHostPort());
+            if (machine.isHealthy()) {
+                healthyMachines.add(machine);
             }
-            final String url = "http://" + machine.getIp() + ":" + machine.getPort() + "/" + METRIC_URL_PATH
-                + "?startTime=" + startTime + "&endTime=" + endTime + "&refetch=" + false;
-            final HttpGet httpGet = new HttpGet(url);
-            httpGet.setHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
-            httpclient.execute(httpGet, new FutureCallback<HttpResponse>() {
-                @Override
-                public void completed(final HttpResponse response) {
-                    try {
-                        handleResponse(response, machine, metricMap);
-                        success.incrementAndGet();
-                    } catch (Exception e) {
-                        logger.error(msg + " metric " + url + " error:", e);
-                    } finally {
-                        latch.countDown();
-                    }
-                }
-
-                @Override
-                public void failed(final Exception ex) {
-                    latch.countDown();
-                    fail.incrementAndGet();
-                    httpGet.abort();
-                    if (ex instanceof SocketTimeoutException) {
-                        logger.error("Failed to fetch metric from <{}>: socket timeout", url);
-                    } else if (ex instanceof ConnectException) {
-                        logger.error("Failed to fetch metric from <{}> (ConnectionException: {})", url, ex.getMessage());
-                    } else {
-                        logger.error(msg + " metric " + url + " error", ex);
-                    }
-                }
-
-                @Override
-                public void cancelled() {
-                    latch.countDown();
-                    fail.incrementAndGet();
-                    httpGet.abort();
-                }
-            });
         }
-        try {
-            latch.await(maxWaitSeconds, TimeUnit.SECONDS);
-        } catch (Exception e) {
-            logger.info(msg + " metric, wait http client error:", e);
+        state.machineStats.keySet().retainAll(machineKeys);
+        if (healthyMachines.isEmpty()) {
+            state.lastFetchTime = endTime;
+            state.inFlight.set(false);
+            return;
+        }
+        FetchRound round = new FetchRound(app, state, startTime, endTime, healthyMachines.size());
+        state.round = round;
+        for (final MachineInfo machine : healthyMachines) {
+            round.fetch(machine);
         }
-        //long cost = System.currentTimeMillis() - start;
-        //logger.info("finished " + msg + " metric for " + app + ", time intervalMs [" + startTime + ", " + endTime
-        //    + "], total machines=" + machines.size() + ", dead=" + dead + ", fetch success="
-        //    + success + ", fetch fail=" + fail + ", time cost=" + cost + " ms");
-        writeMetric(metricMap);
     }
 
-    private void doFetchAppMetric(final String app) {
-        long now = System.currentTimeMillis();
-        long lastFetchMs = now - MAX_LAST_FETCH_INTERVAL_MS;
-        if (appLastFetchTime.containsKey(app)) {
-            lastFetchMs = Math.max(lastFetchMs, appLastFetchTime.get(app).get() + 1000);
-        }
-        // trim milliseconds
-        lastFetchMs = lastFetchMs / 1000 * 1000;
-        long endTime = lastFetchMs + FETCH_INTERVAL_SECOND * 1000;
-        if (endTime > now - 1000 * 2) {
-            // to near
+    private void handleLine(String line, MachineInfo machine, MetricMerger merger) {
+        if (line.startsWith(NO_METRICS)) {
             return;
         }
-        // update last_fetch in advance.
-        appLastFetchTime.computeIfAbsent(app, a -> new AtomicLong()).set(endTime);
-        final long finalLastFetchMs = lastFetchMs;
-        final long finalEndTime = endTime;
         try {
-            // do real fetch async
-            fetchWorker.submit(() -> {
-                try {
-                    fetchOnce(app, finalLastFetchMs, finalEndTime, 5);
-                } catch (Exception e) {
-                    logger.info("fetchOnce(" + app + ") error", e);
-                }
-            });
+            MetricNode node = MetricNode.fromThinString(line);
+            if (shouldFilterOut(node.getResource())) {
+                return;
+            }
+            /*
+             * aggregation metrics by app_resource_timeSecond, ignore ip and port.
+             */
+            merger.merge(node);
         } catch (Exception e) {
-            logger.info("submit fetchOnce(" + app + ") fail, intervalMs [" + lastFetchMs + ", " + endTime + "]", e);
+            logger.warn("handleBody line exception, machine: {}, line: {}", machine.toLogString(), line);
         }
     }
 
-    private void handleResponse(final HttpResponse response, MachineInfo machine,
-                                Map<String, MetricEntity> metricMap) throws Exception {
-        int code = response.getStatusLine().getStatusCode();
-        if (code != HTTP_OK) {
-            return;
+    private boolean shouldFilterOut(String resource) {
+        return RES_EXCLUSION_SET.contains(resource);
+    }
+
+    private static final Set<String> RES_EXCLUSION_SET = new HashSet<String>() {{
+       add(Constants.TOTAL_IN_RESOURCE_NAME);
+       add(Constants.SYSTEM_LOAD_RESOURCE_NAME);
+       add(Constants.CPU_USAGE_RESOURCE_NAME);
+    }};
+
+    private static final class AppFetchState {
+        private final AtomicBoolean inFlight = new AtomicBoolean();
+        private final Map<String, MachineFetchStats> machineStats = new ConcurrentHashMap<>();
+        /**
+         * End time of the last saved round.
+         */
+        private volatile long lastFetchTime;
+        private volatile FetchRound round;
+    }
+
+    /**
+     * Fetches the metrics of all healthy machines of an app in the window, and saves them
+     * after all the requests complete.
+     */
+    private final class FetchRound {
+        private final String app;
+        private final AppFetchState state;
+        private final long startTime;
+        private final long endTime;
+        private final long requestTime = System.currentTimeMillis();
+        private final MetricMerger merger;
+        private final AtomicInteger pending;
+        private final List<Future<Integer>> futures = new ArrayList<>();
+
+        FetchRound(String app, AppFetchState state, long startTime, long endTime, int machineCount) {
+            this.app = app;
+            this.state = state;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.merger = new MetricMerger(app, startTime, endTime);
+            this.pending = new AtomicInteger(machineCount);
         }
-        Charset charset = null;
-        try {
-            String contentTypeStr = response.getFirstHeader("Content-type").getValue();
-            if (StringUtil.isNotEmpty(contentTypeStr)) {
-                ContentType contentType = ContentType.parse(contentTypeStr);
-                charset = contentType.getCharset();
+
+        void fetch(final MachineInfo machine) {
+            final String url = "http://" + machine.getIp() + ":" + machine.getPort() + "/" + METRIC_URL_PATH
+                + "?startTime=" + startTime + "&endTime=" + endTime + "&refetch=" + false;
+            final HttpGet httpGet = new HttpGet(url);
+            httpGet.setHeader(HTTP.CONN_DIRECTIVE, HTTP.CONN_CLOSE);
+            final MachineFetchStats stats = state.machineStats.computeIfAbsent(machine.toHostPort(),
+                k -> new MachineFetchStats());
+            Future<Integer> future = httpclient.execute(HttpAsyncMethods.create(httpGet),
+                new MetricResponseConsumer(machine, merger), new FutureCallback<Integer>() {
+                    @Override
+                    public void completed(final Integer lines) {
+                        if (lines >= 0) {
+                            stats.onSuccess(requestTime, System.currentTimeMillis(), endTime);
+                        } else {
+                            stats.onFailure();
+                        }
+                        machineDone();
+                    }
+
+                    @Override
+                    public void failed(final Exception ex) {
+                        stats.onFailure();
+                        httpGet.abort();
+                        if (ex instanceof SocketTimeoutException) {
+                            logger.error("Failed to fetch metric from <{}>: socket timeout", url);
+                        } else if (ex instanceof ConnectException) {
+                            logger.error("Failed to fetch metric from <{}> (ConnectionException: {})", url, ex.getMessage());
+                        } else {
+                            logger.error("fetch metric " + url + " error", ex);
+                        }
+                        machineDone();
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        stats.onFailure();
+                        httpGet.abort();
+                        machineDone();
+                    }
+                });
+            synchronized (futures) {
+                futures.add(future);
             }
-        } catch (Exception ignore) {
-        }
-        String body = EntityUtils.toString(response.getEntity(), charset != null ? charset : DEFAULT_CHARSET);
-        if (StringUtil.isEmpty(body) || body.startsWith(NO_METRICS)) {
-            //logger.info(machine.getApp() + ":" + machine.getIp() + ":" + machine.getPort() + ", bodyStr is empty");
-            return;
         }
-        String[] lines = body.split("\n");
-        //logger.info(machine.getApp() + ":" + machine.getIp() + ":" + machine.getPort() +
-        //    ", bodyStr.length()=" + body.length() + ", lines=" + lines.length);
-        handleBody(lines, machine, metricMap);
-    }
 
-    private void handleBody(String[] lines, MachineInfo machine, Map<String, MetricEntity> map) {
-        //logger.info("handleBody() lines=" + lines.length + ", machine=" + machine);
-        if (lines.length < 1) {
-            return;
+        void cancel() {
+            logger.info("Cancel fetching metric of {}, time intervalMs [{}, {}]", app, startTime, endTime);
+            synchronized (futures) {
+                for (Future<Integer> future : futures) {
+                    future.cancel(true);
+                }
+            }
         }
 
-        for (String line : lines) {
+        private void machineDone() {
+            if (pending.decrementAndGet() != 0) {
+                return;
+            }
             try {
-                MetricNode node = MetricNode.fromThinString(line);
-                if (shouldFilterOut(node.getResource())) {
-                    continue;
-                }
-                /*
-                 * aggregation metrics by app_resource_timeSecond, ignore ip and port.
-                 */
-                String key = buildMetricKey(machine.getApp(), node.getResource(), node.getTimestamp());
-
-                MetricEntity metricEntity = map.computeIfAbsent(key, s -> {
-                    MetricEntity initMetricEntity = new MetricEntity();
-                    initMetricEntity.setApp(machine.getApp());
-                    initMetricEntity.setTimestamp(new Date(node.getTimestamp()));
-                    initMetricEntity.setPassQps(0L);
-                    initMetricEntity.setBlockQps(0L);
-                    initMetricEntity.setRtAndSuccessQps(0, 0L);
-                    initMetricEntity.setExceptionQps(0L);
-                    initMetricEntity.setCount(0);
-                    initMetricEntity.setResource(node.getResource());
-                    return initMetricEntity;
+                fetchWorker.execute(() -> {
+                    try {
+                        writeMetric(merger.entities());
+                    } catch (Exception e) {
+                        logger.error("Failed to save metric of " + app, e);
+                    } finally {
+                        finish(true);
+                    }
                 });
-                metricEntity.addPassQps(node.getPassQps());
-                metricEntity.addBlockQps(node.getBlockQps());
-                metricEntity.addRtAndSuccessQps(node.getRt(), node.getSuccessQps());
-                metricEntity.addExceptionQps(node.getExceptionQps());
-                metricEntity.addCount(1);
-            } catch (Exception e) {
-                logger.warn("handleBody line exception, machine: {}, line: {}", machine.toLogString(), line);
+            } catch (RejectedExecutionException e) {
+                // Fetch the window again in the next round.
+                logger.warn("Too many metrics to save, delay fetching metric of {}", app);
+                finish(false);
             }
         }
-    }
 
-    private String buildMetricKey(String app, String resource, long timestamp) {
-        return app + "__" + resource + "__" + (timestamp / 1000);
+        private void finish(boolean saved) {
+            if (saved) {
+                state.lastFetchTime = endTime;
+            }
+            state.round = null;
+            state.inFlight.set(false);
+        }
     }
 
-    private boolean shouldFilterOut(String resource) {
-        return RES_EXCLUSION_SET.contains(resource);
-    }
+    /**
+     * Parses the lines of the response as the bytes arrive, the result is the amount of lines,
+     * or -1 if the response is not OK.
+     */
+    private final class MetricResponseConsumer extends AsyncByteConsumer<Integer> {
+        private final MachineInfo machine;
+        private final MetricMerger merger;
+        private MetricLineDecoder decoder;
+        private int lines;
 
-    private static final Set<String> RES_EXCLUSION_SET = new HashSet<String>() {{
-       add(Constants.TOTAL_IN_RESOURCE_NAME);
-       add(Constants.SYSTEM_LOAD_RESOURCE_NAME);
-       add(Constants.CPU_USAGE_RESOURCE_NAME);
-    }};
+        MetricResponseConsumer(MachineInfo machine, MetricMerger merger) {
+            super(RESPONSE_BUFFER_SIZE);
+            this.machine = machine;
+            this.merger = merger;
+        }
 
-}
+        @Override
+        protected void onResponseReceived(HttpResponse response) {
+            if (response.getStatusLine().getStatusCode() != HTTP_OK) {
+                return;
+            }
+            Charset charset = null;
+            try {
+                String contentTypeStr = response.getFirstHeader("Content-type").getValue();
+                if (StringUtil.isNotEmpty(contentTypeStr)) {
+                    ContentType contentType = ContentType.parse(contentTypeStr);
+                    charset = contentType.getCharset();
+                }
+            } catch (Exception ignore) {
+            }
+            decoder = new MetricLineDecoder(charset != null ? charset : DEFAULT_CHARSET);
+        }
 
+        @Override
+        protected void onByteReceived(ByteBuffer buf, IOControl ioctrl) throws IOException {
+            if (decoder != null) {
+                decoder.decode(buf, this::onLine);
+            }
+        }
 
+        @Override
+        protected Integer buildResult(HttpContext context) {
+            if (decoder == null) {
+                return -1;
+            }
+            decoder.finish(this::onLine);
+            return lines;
+        }
 
+        private void onLine(String line) {
+            lines++;
+            handleLine(line, machine, merger);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Splits the bytes of a response into lines as they arrive, so that the whole body is never buffered.
+ * Lines are split by the byte {@code '\n'}, which never occurs inside a multi-byte character of UTF-8 or GBK,
+ * and a line split across chunks is kept until its end arrives.
+ *
+ * @since 1.8.2
+ */
+final class MetricLineDecoder {
+
+    private final Charset charset;
+    private byte[] pending = new byte[256];
+    private int pendingLength;
+
+    MetricLineDecoder(Charset charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * Decode the complete lines in the chunk, the trailing partial line is kept for the next chunk.
+     */
+    void decode(ByteBuffer chunk, LineHandler handler) {
+        while (chunk.hasRemaining()) {
+            byte b = chunk.get();
+            if (b == '\n') {
+                emit(handler);
+            } else {
+                if (pendingLength == pending.length) {
+                    pending = Arrays.copyOf(pending, pendingLength * 2);
+                }
+                pending[pendingLength++] = b;
+            }
+        }
+    }
+
+    /**
+     * Decode the last line without a line separator at the end of the response.
+     */
+    void finish(LineHandler handler) {
+        if (pendingLength > 0) {
+            emit(handler);
+        }
+    }
+
+    private void emit(LineHandler handler) {
+        int length = pendingLength;
+        if (length > 0 && pending[length - 1] == '\r') {
+            length--;
+        }
+        pendingLength = 0;
+        if (length > 0) {
+            handler.handle(new String(pending, 0, length, charset));
+        }
+    }
+
+    interface LineHandler {
+        void handle(String line);
+    }
+}
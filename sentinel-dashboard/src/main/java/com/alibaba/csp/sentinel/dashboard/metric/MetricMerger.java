@@ -0,0 +1,96 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.node.metric.MetricNode;
+
+/**
+ * Aggregates the metrics of all machines of an app in a fetch window by resource and second, ignoring
+ * ip and port. Metrics are merged into the entities to save directly, and the entities of a resource are
+ * indexed by the second in the window, so the memory is bounded by the resources and the window
+ * rather than the size of the responses.
+ *
+ * @since 1.8.2
+ */
+final class MetricMerger {
+
+    private final String app;
+    private final long startSecond;
+    private final int seconds;
+    private final Map<String, MetricEntity[]> resourceMetrics = new HashMap<>();
+    private int size;
+
+    /**
+     * @param app       app of the metrics
+     * @param startTime start time of the window (inclusive)
+     * @param endTime   end time of the window (inclusive)
+     */
+    MetricMerger(String app, long startTime, long endTime) {
+        this.app = app;
+        this.startSecond = startTime / 1000;
+        this.seconds = (int)(endTime / 1000 - startSecond) + 1;
+    }
+
+    /**
+     * @return false if the metric is out of the window
+     */
+    synchronized boolean merge(MetricNode node) {
+        long offset = node.getTimestamp() / 1000 - startSecond;
+        if (offset < 0 || offset >= seconds) {
+            return false;
+        }
+        MetricEntity[] metrics = resourceMetrics.computeIfAbsent(node.getResource(), r -> new MetricEntity[seconds]);
+        MetricEntity entity = metrics[(int)offset];
+        if (entity == null) {
+            entity = new MetricEntity();
+            entity.setApp(app);
+            entity.setTimestamp(new Date(node.getTimestamp()));
+            entity.setPassQps(0L);
+            entity.setBlockQps(0L);
+            entity.setRtAndSuccessQps(0, 0L);
+            entity.setExceptionQps(0L);
+            entity.setCount(0);
+            entity.setResource(node.getResource());
+            metrics[(int)offset] = entity;
+            size++;
+        }
+        entity.addPassQps(node.getPassQps());
+        entity.addBlockQps(node.getBlockQps());
+        entity.addRtAndSuccessQps(node.getRt(), node.getSuccessQps());
+        entity.addExceptionQps(node.getExceptionQps());
+        entity.addCount(1);
+        return true;
+    }
+
+    synchronized List<MetricEntity> entities() {
+        List<MetricEntity> entities = new ArrayList<>(size);
+        for (MetricEntity[] metrics : resourceMetrics.values()) {
+            for (MetricEntity entity : metrics) {
+                if (entity != null) {
+                    entities.add(entity);
+                }
+            }
+        }
+        return entities;
+    }
+}
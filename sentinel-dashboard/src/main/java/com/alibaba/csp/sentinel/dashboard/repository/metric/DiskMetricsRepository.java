@@ -0,0 +1,834 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.alibaba.csp.sentinel.concurrent.NamedThreadFactory;
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricSegment.Record;
+import com.alibaba.csp.sentinel.dashboard.repository.metric.MetricSegment.RecordBuffer;
+import com.alibaba.csp.sentinel.util.StringUtil;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>Persists metrics in local files, so that hours of history are kept without an external storage
+ * and survive restarting. Every app has its own directory:</p>
+ *
+ * <ul>
+ * <li>{@code resources.dict}: resource names of the app, and the id of a resource is its position.</li>
+ * <li>{@code raw-${hourStart}.seg}: metrics of every second within an hour, kept for
+ * {@code rawRetentionMs}.</li>
+ * <li>{@code minute-${dayStart}.seg}: metrics rolled up by minute (downsampled) within a day,
+ * kept for {@code rollupRetentionMs}. A minute is rolled up when it's older than 2 minutes, and the values
+ * of a rolled up metric are the average per second in the minute.</li>
+ * </ul>
+ *
+ * <p>Segments are append-only memory-mapped files, see {@link MetricSegment}. Querying a period longer than
+ * an hour (or older than the raw metrics) reads the minute rollups, and the raw metrics only for the rest,
+ * so that a query over 24 hours reads at most 1440 metrics of a resource.</p>
+ *
+ * <p>Resources are listed from an in-memory ranking index of the pass and block QPS in the latest minutes,
+ * without reading the files.</p>
+ *
+ * @since 1.8.2
+ */
+public class DiskMetricsRepository implements MetricsRepository<MetricEntity>, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskMetricsRepository.class);
+
+    static final String DICT_FILE = "resources.dict";
+    static final String RAW_SEGMENT_PREFIX = "raw-";
+    static final String ROLLUP_SEGMENT_PREFIX = "minute-";
+    static final String SEGMENT_SUFFIX = ".seg";
+
+    static final long RAW_PARTITION_MS = 1000 * 60 * 60;
+    static final long ROLLUP_PARTITION_MS = 1000 * 60 * 60 * 24;
+    static final long ROLLUP_INTERVAL_MS = 1000 * 60;
+    /**
+     * Metrics may be fetched with delay, so a minute is rolled up after the delay.
+     */
+    static final long ROLLUP_DELAY_MS = 1000 * 60 * 2;
+    private static final long RAW_QUERY_MAX_INTERVAL_MS = 1000 * 60 * 60;
+    private static final long RESOURCE_STATISTIC_TIME_MS = 1000 * 60;
+    private static final int DEFAULT_REGION_SIZE = 8 * 1024 * 1024;
+    private static final long MAINTAIN_INTERVAL_SEC = 30;
+
+    private final File baseDir;
+    private final long rawRetentionMs;
+    private final long rollupRetentionMs;
+    private final int regionSize;
+    private final int maxRecordsPerBlock;
+
+    private final Map<String, AppStore> apps = new ConcurrentHashMap<>();
+    private ScheduledExecutorService maintainService;
+
+    /**
+     * @param baseDir           directory of the metric files
+     * @param rawRetentionMs    retention time of the metrics of every second
+     * @param rollupRetentionMs retention time of the metrics rolled up by minute
+     */
+    @SuppressWarnings("PMD.ThreadPoolCreationRule")
+    public DiskMetricsRepository(String baseDir, long rawRetentionMs, long rollupRetentionMs) {
+        this(baseDir, rawRetentionMs, rollupRetentionMs, DEFAULT_REGION_SIZE);
+        maintainService = Executors.newSingleThreadScheduledExecutor(
+            new NamedThreadFactory("sentinel-dashboard-metrics-maintain", true));
+        maintainService.scheduleWithFixedDelay(() -> {
+            try {
+                maintain(TimeUtil.currentTimeMillis());
+            } catch (Throwable e) {
+                logger.warn("Failed to maintain metric files", e);
+            }
+        }, MAINTAIN_INTERVAL_SEC, MAINTAIN_INTERVAL_SEC, TimeUnit.SECONDS);
+    }
+
+    DiskMetricsRepository(String baseDir, long rawRetentionMs, long rollupRetentionMs, int regionSize) {
+        this.baseDir = new File(baseDir);
+        this.rawRetentionMs = rawRetentionMs;
+        this.rollupRetentionMs = rollupRetentionMs;
+        this.regionSize = regionSize;
+        this.maxRecordsPerBlock = MetricSegment.maxRecordsPerBlock(regionSize);
+        if (!this.baseDir.exists() && !this.baseDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create metric directory: " + baseDir);
+        }
+        load();
+    }
+
+    @Override
+    public void save(MetricEntity metric) {
+        saveAll(Collections.singletonList(metric));
+    }
+
+    @Override
+    public void saveAll(Iterable<MetricEntity> metrics) {
+        if (metrics == null) {
+            return;
+        }
+        long minTime = TimeUtil.currentTimeMillis() - rawRetentionMs;
+        Map<String, List<MetricEntity>> metricsOfApps = new LinkedHashMap<>();
+        for (MetricEntity entity : metrics) {
+            if (entity == null || StringUtil.isBlank(entity.getApp()) || entity.getTimestamp() == null
+                || entity.getTimestamp().getTime() < minTime) {
+                continue;
+            }
+            metricsOfApps.computeIfAbsent(entity.getApp(), e -> new ArrayList<>()).add(entity);
+        }
+        for (Map.Entry<String, List<MetricEntity>> e : metricsOfApps.entrySet()) {
+            AppStore store = apps.computeIfAbsent(e.getKey(), app -> new AppStore(app, new File(baseDir,
+                encodeAppName(app))));
+            store.lock.writeLock().lock();
+            try {
+                store.append(e.getValue());
+            } catch (IOException ex) {
+                logger.warn("Failed to save metrics of app: {}", e.getKey(), ex);
+            } finally {
+                store.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<MetricEntity> queryByAppAndResourceBetween(String app, String resource,
+                                                           long startTime, long endTime) {
+        List<MetricEntity> results = new ArrayList<>();
+        if (StringUtil.isBlank(app)) {
+            return results;
+        }
+        AppStore store = apps.get(app);
+        if (store == null) {
+            return results;
+        }
+        store.lock.readLock().lock();
+        try {
+            store.query(resource, startTime, endTime, results);
+            return results;
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> listResourcesOfApp(String app) {
+        if (StringUtil.isBlank(app)) {
+            return new ArrayList<>();
+        }
+        AppStore store = apps.get(app);
+        if (store == null) {
+            return new ArrayList<>();
+        }
+        store.lock.readLock().lock();
+        try {
+            return store.ranking.topResources(TimeUtil.currentTimeMillis() - RESOURCE_STATISTIC_TIME_MS,
+                store.dictionary);
+        } finally {
+            store.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Roll up the metrics by minute and remove the expired segments.
+     *
+     * @param now current time
+     */
+    void maintain(long now) {
+        for (AppStore store : apps.values()) {
+            store.lock.writeLock().lock();
+            try {
+                store.rollup(now);
+                store.expire(now);
+            } catch (IOException ex) {
+                logger.warn("Failed to maintain metric files of app: {}", store.app, ex);
+            } finally {
+                store.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (maintainService != null) {
+            maintainService.shutdownNow();
+        }
+        for (AppStore store : apps.values()) {
+            store.lock.writeLock().lock();
+            try {
+                store.close();
+            } catch (IOException ex) {
+                logger.warn("Failed to close metric files of app: {}", store.app, ex);
+            } finally {
+                store.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void load() {
+        File[] dirs = baseDir.listFiles(File::isDirectory);
+        if (dirs == null) {
+            return;
+        }
+        for (File dir : dirs) {
+            String app = decodeAppName(dir.getName());
+            if (app == null) {
+                continue;
+            }
+            AppStore store = new AppStore(app, dir);
+            try {
+                store.load();
+                apps.put(app, store);
+            } catch (IOException ex) {
+                logger.warn("Failed to load metric files of app: {}", app, ex);
+            }
+        }
+    }
+
+    /**
+     * Encode the app name as a directory name, with the bytes other than letters, digits, '-' and '_'
+     * encoded as {@code %XX}.
+     */
+    static String encodeAppName(String app) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : app.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char)(b & 0xFF);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_') {
+                sb.append(c);
+            } else {
+                sb.append('%').append(Character.toUpperCase(Character.forDigit((b >> 4) & 0xF, 16)))
+                    .append(Character.toUpperCase(Character.forDigit(b & 0xF, 16)));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return the app name, or null if the name is not encoded by {@link #encodeAppName(String)}
+     */
+    static String decodeAppName(String name) {
+        byte[] bytes = new byte[name.length()];
+        int n = 0;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= name.length()) {
+                    return null;
+                }
+                int high = Character.digit(name.charAt(i + 1), 16);
+                int low = Character.digit(name.charAt(i + 2), 16);
+                if (high < 0 || low < 0) {
+                    return null;
+                }
+                bytes[n++] = (byte)((high << 4) | low);
+                i += 2;
+            } else if (c < 0x80) {
+                bytes[n++] = (byte)c;
+            } else {
+                return null;
+            }
+        }
+        return new String(bytes, 0, n, StandardCharsets.UTF_8);
+    }
+
+    private static long valueOf(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static long floor(long time, long unit) {
+        return time - time % unit;
+    }
+
+    /**
+     * Metric files of an app, guarded by the read-write lock.
+     */
+    private final class AppStore {
+
+        private final String app;
+        private final File dir;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private final ResourceDictionary dictionary;
+        private final TreeMap<Long, MetricSegment> rawSegments = new TreeMap<>();
+        private final TreeMap<Long, MetricSegment> rollupSegments = new TreeMap<>();
+        private final ResourceRanking ranking = new ResourceRanking();
+        private final RecordBuffer buffer = new RecordBuffer();
+        private final Record record = new Record();
+        private final MinuteAggregator aggregator = new MinuteAggregator();
+
+        /**
+         * Start time of the next minute to roll up, 0 if unknown.
+         */
+        private long rollupWatermark;
+
+        AppStore(String app, File dir) {
+            this.app = app;
+            this.dir = dir;
+            this.dictionary = new ResourceDictionary(new File(dir, DICT_FILE));
+        }
+
+        void load() throws IOException {
+            dictionary.load();
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    String name = file.getName();
+                    if (!name.endsWith(SEGMENT_SUFFIX)) {
+                        continue;
+                    }
+                    try {
+                        if (name.startsWith(RAW_SEGMENT_PREFIX)) {
+                            long partition = Long.parseLong(name.substring(RAW_SEGMENT_PREFIX.length(),
+                                name.length() - SEGMENT_SUFFIX.length()));
+                            rawSegments.put(partition, new MetricSegment(file, partition, regionSize));
+                        } else if (name.startsWith(ROLLUP_SEGMENT_PREFIX)) {
+                            long partition = Long.parseLong(name.substring(ROLLUP_SEGMENT_PREFIX.length(),
+                                name.length() - SEGMENT_SUFFIX.length()));
+                            rollupSegments.put(partition, new MetricSegment(file, partition, regionSize));
+                        }
+                    } catch (NumberFormatException ex) {
+                        logger.warn("Ignore unknown metric file: {}", file);
+                    }
+                }
+            }
+            for (MetricSegment segment : rollupSegments.descendingMap().values()) {
+                if (!segment.isEmpty()) {
+                    rollupWatermark = segment.lastTimestamp() + ROLLUP_INTERVAL_MS;
+                    break;
+                }
+            }
+            // Rebuild the ranking index from the latest raw metrics.
+            long now = TimeUtil.currentTimeMillis();
+            scanRaw(now - RESOURCE_STATISTIC_TIME_MS * 2, now, -1,
+                r -> ranking.add(r.id, r.timestamp, r.passQps, r.blockQps));
+        }
+
+        void append(List<MetricEntity> metrics) throws IOException {
+            if (!dir.exists() && !dir.mkdirs()) {
+                throw new IOException("Cannot create metric directory: " + dir);
+            }
+            int[] ids = new int[metrics.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = dictionary.idOf(metrics.get(i).getResource(), true);
+            }
+            // Names should be persisted before the metrics referring to them.
+            dictionary.flush();
+
+            Integer[] order = new Integer[ids.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingLong(i -> metrics.get(i).getTimestamp().getTime()));
+            int from = 0;
+            while (from < order.length) {
+                long timestamp = metrics.get(order[from]).getTimestamp().getTime();
+                long gmtCreate = 0;
+                buffer.clear();
+                int to = from;
+                for (; to < order.length && buffer.size() < maxRecordsPerBlock; to++) {
+                    MetricEntity entity = metrics.get(order[to]);
+                    if (entity.getTimestamp().getTime() != timestamp) {
+                        break;
+                    }
+                    int id = ids[order[to]];
+                    buffer.add(id, valueOf(entity.getPassQps()), valueOf(entity.getBlockQps()),
+                        valueOf(entity.getSuccessQps()), valueOf(entity.getExceptionQps()), entity.getRt(),
+                        entity.getCount());
+                    ranking.add(id, timestamp, valueOf(entity.getPassQps()), valueOf(entity.getBlockQps()));
+                    if (entity.getGmtCreate() != null) {
+                        gmtCreate = Math.max(gmtCreate, entity.getGmtCreate().getTime());
+                    }
+                }
+                buffer.sort();
+                segmentOf(rawSegments, RAW_SEGMENT_PREFIX, floor(timestamp, RAW_PARTITION_MS))
+                    .append(timestamp, gmtCreate == 0 ? timestamp : gmtCreate, buffer);
+                from = to;
+            }
+        }
+
+        void query(String resource, long startTime, long endTime, List<MetricEntity> results) {
+            int id = dictionary.idOf(resource, false);
+            if (id < 0 || startTime > endTime) {
+                return;
+            }
+            // Metrics before the boundary are read from the minute rollups.
+            long boundary;
+            if (endTime - startTime > RAW_QUERY_MAX_INTERVAL_MS) {
+                boundary = rollupWatermark;
+            } else {
+                boundary = Long.MAX_VALUE;
+                for (MetricSegment segment : rawSegments.values()) {
+                    if (!segment.isEmpty()) {
+                        boundary = segment.firstTimestamp();
+                        break;
+                    }
+                }
+            }
+            if (startTime < boundary) {
+                long rollupEnd = Math.min(endTime, boundary - 1);
+                for (MetricSegment segment : segmentsBetween(rollupSegments, ROLLUP_PARTITION_MS, startTime,
+                    rollupEnd)) {
+                    segment.scan(startTime, rollupEnd, id, record, r -> results.add(toRollupEntity(resource, r)));
+                }
+            }
+            if (endTime >= boundary || boundary == Long.MAX_VALUE) {
+                scanRaw(Math.max(startTime, boundary == Long.MAX_VALUE ? startTime : boundary), endTime, id, r -> {
+                    MetricEntity entity = toEntity(resource, r);
+                    int last = results.size() - 1;
+                    if (last >= 0 && results.get(last).getTimestamp().getTime() == r.timestamp) {
+                        // The later saved metric of the same timestamp wins.
+                        results.set(last, entity);
+                    } else {
+                        results.add(entity);
+                    }
+                });
+            }
+        }
+
+        void rollup(long now) throws IOException {
+            long limit = now - ROLLUP_DELAY_MS;
+            if (rollupWatermark == 0) {
+                long first = nextRawTimestamp(0);
+                if (first < 0) {
+                    return;
+                }
+                rollupWatermark = floor(first, ROLLUP_INTERVAL_MS);
+            }
+            while (rollupWatermark + ROLLUP_INTERVAL_MS <= limit) {
+                long next = nextRawTimestamp(rollupWatermark);
+                if (next < 0) {
+                    // Metrics arriving later than the delay are not rolled up.
+                    rollupWatermark = floor(limit, ROLLUP_INTERVAL_MS);
+                    return;
+                }
+                if (next >= rollupWatermark + ROLLUP_INTERVAL_MS) {
+                    // Skip the minutes without metrics.
+                    rollupWatermark = floor(next, ROLLUP_INTERVAL_MS);
+                    continue;
+                }
+                aggregator.reset(dictionary.size());
+                scanRaw(rollupWatermark, rollupWatermark + ROLLUP_INTERVAL_MS - 1, -1, aggregator::add);
+                for (int fromId = 0; fromId >= 0; ) {
+                    fromId = aggregator.drainTo(buffer, fromId, maxRecordsPerBlock);
+                    if (buffer.size() > 0) {
+                        segmentOf(rollupSegments, ROLLUP_SEGMENT_PREFIX, floor(rollupWatermark, ROLLUP_PARTITION_MS))
+                            .append(rollupWatermark, now, buffer);
+                    }
+                }
+                rollupWatermark += ROLLUP_INTERVAL_MS;
+            }
+        }
+
+        void expire(long now) throws IOException {
+            // Raw metrics are kept until rolled up.
+            long rawExpireTime = Math.min(now - rawRetentionMs, rollupWatermark);
+            removeSegmentsBefore(rawSegments, RAW_PARTITION_MS, rawExpireTime);
+            removeSegmentsBefore(rollupSegments, ROLLUP_PARTITION_MS, now - rollupRetentionMs);
+        }
+
+        void close() throws IOException {
+            for (MetricSegment segment : rawSegments.values()) {
+                segment.close();
+            }
+            for (MetricSegment segment : rollupSegments.values()) {
+                segment.close();
+            }
+            dictionary.close();
+        }
+
+        private void scanRaw(long startTime, long endTime, int id, MetricSegment.RecordVisitor visitor) {
+            for (MetricSegment segment : segmentsBetween(rawSegments, RAW_PARTITION_MS, startTime, endTime)) {
+                segment.scan(startTime, endTime, id, record, visitor);
+            }
+        }
+
+        private long nextRawTimestamp(long time) {
+            for (MetricSegment segment : rawSegments.tailMap(floor(time, RAW_PARTITION_MS), true).values()) {
+                long timestamp = segment.ceilingTimestamp(time);
+                if (timestamp >= 0) {
+                    return timestamp;
+                }
+            }
+            return -1;
+        }
+
+        private MetricSegment segmentOf(TreeMap<Long, MetricSegment> segments, String prefix, long partition)
+            throws IOException {
+            MetricSegment segment = segments.get(partition);
+            if (segment == null) {
+                segment = new MetricSegment(new File(dir, prefix + partition + SEGMENT_SUFFIX), partition,
+                    regionSize);
+                segments.put(partition, segment);
+            }
+            return segment;
+        }
+
+        private MetricEntity toEntity(String resource, Record r) {
+            MetricEntity entity = new MetricEntity();
+            entity.setApp(app);
+            entity.setResource(resource);
+            entity.setTimestamp(new Date(r.timestamp));
+            Date gmtCreate = new Date(r.gmtCreate);
+            entity.setGmtCreate(gmtCreate);
+            entity.setGmtModified(gmtCreate);
+            entity.setPassQps(r.passQps);
+            entity.setBlockQps(r.blockQps);
+            entity.setSuccessQps(r.successQps);
+            entity.setExceptionQps(r.exceptionQps);
+            entity.setRt(r.rt);
+            entity.setCount(r.count);
+            return entity;
+        }
+
+        private MetricEntity toRollupEntity(String resource, Record r) {
+            MetricEntity entity = toEntity(resource, r);
+            long seconds = ROLLUP_INTERVAL_MS / 1000;
+            entity.setPassQps(Math.round((double)r.passQps / seconds));
+            entity.setBlockQps(Math.round((double)r.blockQps / seconds));
+            entity.setSuccessQps(Math.round((double)r.successQps / seconds));
+            entity.setExceptionQps(Math.round((double)r.exceptionQps / seconds));
+            // Keep the average RT: rt / successQps.
+            entity.setRt(r.successQps == 0 ? 0 : r.rt * entity.getSuccessQps() / r.successQps);
+            return entity;
+        }
+    }
+
+    private static List<MetricSegment> segmentsBetween(TreeMap<Long, MetricSegment> segments, long partitionMs,
+                                                       long startTime, long endTime) {
+        if (startTime > endTime) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(segments.subMap(floor(startTime, partitionMs), true, endTime, true).values());
+    }
+
+    private static void removeSegmentsBefore(TreeMap<Long, MetricSegment> segments, long partitionMs,
+                                             long expireTime) throws IOException {
+        for (Iterator<MetricSegment> it = segments.values().iterator(); it.hasNext(); ) {
+            MetricSegment segment = it.next();
+            if (segment.partitionStart() + partitionMs > expireTime) {
+                break;
+            }
+            it.remove();
+            segment.close();
+            if (!segment.file().delete()) {
+                logger.warn("Failed to delete expired metric file: {}", segment.file());
+            }
+        }
+    }
+
+    /**
+     * Sums of the raw metrics of every resource in a minute, indexed by resource id.
+     */
+    private static final class MinuteAggregator {
+        private long[] passQps = new long[0];
+        private long[] blockQps = new long[0];
+        private long[] successQps = new long[0];
+        private long[] exceptionQps = new long[0];
+        private double[] rt = new double[0];
+        private int[] counts = new int[0];
+        private boolean[] touched = new boolean[0];
+
+        void reset(int resourceCount) {
+            if (passQps.length < resourceCount) {
+                int capacity = Math.max(resourceCount, passQps.length * 2);
+                passQps = new long[capacity];
+                blockQps = new long[capacity];
+                successQps = new long[capacity];
+                exceptionQps = new long[capacity];
+                rt = new double[capacity];
+                counts = new int[capacity];
+                touched = new boolean[capacity];
+            }
+        }
+
+        void add(Record r) {
+            int id = r.id;
+            if (id >= touched.length) {
+                return;
+            }
+            touched[id] = true;
+            passQps[id] += r.passQps;
+            blockQps[id] += r.blockQps;
+            successQps[id] += r.successQps;
+            exceptionQps[id] += r.exceptionQps;
+            rt[id] += r.rt;
+            // Max amount of the machines in the minute.
+            counts[id] = Math.max(counts[id], r.count);
+        }
+
+        /**
+         * Move the sums of the resources from the given id to the buffer, and clear them.
+         *
+         * @return the id to continue from when the buffer is full, or -1 if all drained
+         */
+        int drainTo(RecordBuffer buffer, int fromId, int maxRecords) {
+            buffer.clear();
+            for (int id = fromId; id < touched.length; id++) {
+                if (!touched[id]) {
+                    continue;
+                }
+                if (buffer.size() == maxRecords) {
+                    buffer.sort();
+                    return id;
+                }
+                buffer.add(id, passQps[id], blockQps[id], successQps[id], exceptionQps[id], rt[id], counts[id]);
+                touched[id] = false;
+                passQps[id] = 0;
+                blockQps[id] = 0;
+                successQps[id] = 0;
+                exceptionQps[id] = 0;
+                rt[id] = 0;
+                counts[id] = 0;
+            }
+            buffer.sort();
+            return -1;
+        }
+    }
+
+    /**
+     * Ranking index of the resources by the block and pass QPS in the latest minutes, indexed by resource id.
+     * Metrics are accumulated by minute, and the minutes overlapping the statistic time are counted.
+     */
+    static final class ResourceRanking {
+        private long[][] minutes = new long[2][0];
+        private long[][] passQps = new long[2][0];
+        private long[][] blockQps = new long[2][0];
+
+        void add(int id, long timestamp, long pass, long block) {
+            if (id >= minutes[0].length) {
+                int capacity = Math.max(id + 1, minutes[0].length * 2);
+                for (int slot = 0; slot < 2; slot++) {
+                    minutes[slot] = Arrays.copyOf(minutes[slot], capacity);
+                    passQps[slot] = Arrays.copyOf(passQps[slot], capacity);
+                    blockQps[slot] = Arrays.copyOf(blockQps[slot], capacity);
+                }
+            }
+            long minute = timestamp / ROLLUP_INTERVAL_MS;
+            int slot = (int)(minute & 1);
+            if (minutes[slot][id] != minute) {
+                if (minutes[slot][id] > minute) {
+                    // Too old.
+                    return;
+                }
+                minutes[slot][id] = minute;
+                passQps[slot][id] = 0;
+                blockQps[slot][id] = 0;
+            }
+            passQps[slot][id] += pass;
+            blockQps[slot][id] += block;
+        }
+
+        List<String> topResources(long minTime, ResourceDictionary dictionary) {
+            long minMinute = minTime / ROLLUP_INTERVAL_MS;
+            List<long[]> stats = new ArrayList<>();
+            for (int id = 0; id < minutes[0].length; id++) {
+                long pass = 0;
+                long block = 0;
+                boolean active = false;
+                for (int slot = 0; slot < 2; slot++) {
+                    if (minutes[slot][id] >= minMinute && minutes[slot][id] > 0) {
+                        active = true;
+                        pass += passQps[slot][id];
+                        block += blockQps[slot][id];
+                    }
+                }
+                if (active) {
+                    stats.add(new long[] {id, block, pass});
+                }
+            }
+            // Order by b_qps DESC, then p_qps DESC.
+            stats.sort((s1, s2) -> {
+                int t = Long.compare(s2[1], s1[1]);
+                return t != 0 ? t : Long.compare(s2[2], s1[2]);
+            });
+            List<String> results = new ArrayList<>(stats.size());
+            for (long[] stat : stats) {
+                String name = dictionary.nameOf((int)stat[0]);
+                if (name != null) {
+                    results.add(name);
+                }
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Resource names of an app persisted in an append-only file.
+     */
+    static final class ResourceDictionary implements Closeable {
+        private final File file;
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> ids = new HashMap<>();
+        private int persistedCount;
+        private DataOutputStream out;
+
+        ResourceDictionary(File file) {
+            this.file = file;
+        }
+
+        void load() throws IOException {
+            if (!file.exists()) {
+                return;
+            }
+            long validLength = 0;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (true) {
+                    String name = in.readUTF();
+                    ids.put(name, names.size());
+                    names.add(name);
+                    validLength += 2 + utfLength(name);
+                }
+            } catch (EOFException ex) {
+                // End of the dictionary, a partially written name is dropped.
+            }
+            if (validLength < file.length()) {
+                // Cut the partially written name, or the names appended later would be read from a wrong offset.
+                logger.warn("Truncating the partially written resource dictionary: {}", file);
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+            }
+            persistedCount = names.size();
+        }
+
+        /**
+         * @return length of the name in modified UTF-8, as written by {@link DataOutputStream#writeUTF(String)}
+         */
+        private static int utfLength(String name) {
+            int length = 0;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c >= 0x0001 && c <= 0x007F) {
+                    length++;
+                } else if (c > 0x07FF) {
+                    length += 3;
+                } else {
+                    length += 2;
+                }
+            }
+            return length;
+        }
+
+        int idOf(String name, boolean create) {
+            Integer id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            if (!create) {
+                return -1;
+            }
+            id = names.size();
+            ids.put(name, id);
+            names.add(name);
+            return id;
+        }
+
+        String nameOf(int id) {
+            return id < names.size() ? names.get(id) : null;
+        }
+
+        int size() {
+            return names.size();
+        }
+
+        void flush() throws IOException {
+            if (persistedCount == names.size()) {
+                return;
+            }
+            if (out == null) {
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+            }
+            for (int i = persistedCount; i < names.size(); i++) {
+                out.writeUTF(names.get(i));
+            }
+            out.flush();
+            persistedCount = names.size();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out != null) {
+                out.close();
+                out = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,371 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.util.MappedBufferUtil;
+
+/**
+ * <p>An append-only memory-mapped file of metric blocks within a time partition, see {@link DiskMetricsRepository}.
+ * The file grows by regions, and a block never spans two regions. Each block holds the metrics of the resources
+ * at a timestamp:</p>
+ *
+ * <pre>
+ * timestamp (8 bytes) | gmtCreate (8 bytes) | count (4 bytes) | records sorted by resource id
+ * record: id (4 bytes) | pass | block | success | exception (8 bytes each) | rt (double) | count (4 bytes)
+ * </pre>
+ *
+ * <p>The timestamp of a block is written last, so a partially written block is treated as the end of data
+ * (the file is zero-filled). The timestamps and addresses of the blocks are indexed in memory.</p>
+ *
+ * <p>Not thread-safe, which is guarded by the lock of the app.</p>
+ *
+ * @since 1.8.2
+ */
+final class MetricSegment implements Closeable {
+
+    static final int BLOCK_HEADER_SIZE = 20;
+    static final int RECORD_SIZE = 48;
+
+    private final File file;
+    private final long partitionStart;
+    private final int regionSize;
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+
+    private int writeRegion;
+    private int writePosition;
+
+    /**
+     * Block index sorted by timestamp, blocks of the same timestamp are in the written order.
+     */
+    private long[] blockTimes = new long[64];
+    private long[] blockAddresses = new long[64];
+    private int blockCount;
+
+    MetricSegment(File file, long partitionStart, int regionSize) throws IOException {
+        this.file = file;
+        this.partitionStart = partitionStart;
+        this.regionSize = regionSize;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        long regionCount = channel.size() / regionSize;
+        for (int i = 0; i < regionCount; i++) {
+            regions.add(channel.map(FileChannel.MapMode.READ_WRITE, (long)i * regionSize, regionSize));
+        }
+        if (regions.isEmpty()) {
+            addRegion();
+        }
+        recover();
+    }
+
+    static int maxRecordsPerBlock(int regionSize) {
+        return (regionSize - BLOCK_HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    long partitionStart() {
+        return partitionStart;
+    }
+
+    File file() {
+        return file;
+    }
+
+    boolean isEmpty() {
+        return blockCount == 0;
+    }
+
+    long firstTimestamp() {
+        return blockTimes[0];
+    }
+
+    long lastTimestamp() {
+        return blockTimes[blockCount - 1];
+    }
+
+    /**
+     * Append a block of the sorted records in the buffer, which should not be more than
+     * {@link #maxRecordsPerBlock(int)}.
+     */
+    void append(long timestamp, long gmtCreate, RecordBuffer records) throws IOException {
+        int size = BLOCK_HEADER_SIZE + records.size() * RECORD_SIZE;
+        if (writePosition + size > regionSize) {
+            writeRegion++;
+            writePosition = 0;
+            if (writeRegion == regions.size()) {
+                addRegion();
+            }
+        }
+        MappedByteBuffer buffer = regions.get(writeRegion);
+        int offset = writePosition;
+        buffer.putLong(offset + 8, gmtCreate);
+        buffer.putInt(offset + 16, records.size());
+        int recordOffset = offset + BLOCK_HEADER_SIZE;
+        for (int i = 0; i < records.size(); i++) {
+            records.write(i, buffer, recordOffset);
+            recordOffset += RECORD_SIZE;
+        }
+        // Written last to publish the block.
+        buffer.putLong(offset, timestamp);
+        writePosition += size;
+        index(timestamp, (long)writeRegion * regionSize + offset);
+    }
+
+    /**
+     * Visit the records of the resource (or all resources if the id is negative) in the blocks
+     * whose timestamp is in [startTime, endTime], in the order of timestamp.
+     */
+    void scan(long startTime, long endTime, int resourceId, Record record, RecordVisitor visitor) {
+        for (int i = lowerBound(startTime); i < blockCount && blockTimes[i] <= endTime; i++) {
+            long address = blockAddresses[i];
+            MappedByteBuffer buffer = regions.get((int)(address / regionSize));
+            int offset = (int)(address % regionSize);
+            record.timestamp = blockTimes[i];
+            record.gmtCreate = buffer.getLong(offset + 8);
+            int count = buffer.getInt(offset + 16);
+            int recordsOffset = offset + BLOCK_HEADER_SIZE;
+            if (resourceId >= 0) {
+                int pos = findRecord(buffer, recordsOffset, count, resourceId);
+                if (pos >= 0) {
+                    record.read(buffer, recordsOffset + pos * RECORD_SIZE);
+                    visitor.visit(record);
+                }
+            } else {
+                for (int j = 0; j < count; j++) {
+                    record.read(buffer, recordsOffset + j * RECORD_SIZE);
+                    visitor.visit(record);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the timestamp of the first block not earlier than the given time, or -1 if absent
+     */
+    long ceilingTimestamp(long time) {
+        int i = lowerBound(time);
+        return i < blockCount ? blockTimes[i] : -1;
+    }
+
+    /**
+     * Flush and unmap the regions, so that the file could be deleted and its space reclaimed at once.
+     * The segment should not be accessed any more after being closed.
+     */
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+        // Drop the index first, so that nothing could reach the unmapped regions.
+        blockCount = 0;
+        List<MappedByteBuffer> mapped = new ArrayList<>(regions);
+        regions.clear();
+        for (MappedByteBuffer region : mapped) {
+            MappedBufferUtil.unmap(region);
+        }
+        channel.close();
+    }
+
+    private void recover() {
+        int region = 0;
+        int offset = 0;
+        while (region < regions.size()) {
+            MappedByteBuffer buffer = regions.get(region);
+            long timestamp = offset + BLOCK_HEADER_SIZE <= regionSize ? buffer.getLong(offset) : 0;
+            int size = timestamp == 0 ? 0 : BLOCK_HEADER_SIZE + buffer.getInt(offset + 16) * RECORD_SIZE;
+            if (timestamp != 0 && offset + size <= regionSize) {
+                index(timestamp, (long)region * regionSize + offset);
+                offset += size;
+                continue;
+            }
+            // End of the region, blocks may continue in the next region.
+            if (region + 1 < regions.size() && regions.get(region + 1).getLong(0) != 0) {
+                region++;
+                offset = 0;
+                continue;
+            }
+            break;
+        }
+        writeRegion = Math.min(region, regions.size() - 1);
+        writePosition = offset;
+    }
+
+    private void addRegion() throws IOException {
+        regions.add(channel.map(FileChannel.MapMode.READ_WRITE, (long)regions.size() * regionSize, regionSize));
+    }
+
+    private void index(long timestamp, long address) {
+        if (blockCount == blockTimes.length) {
+            blockTimes = Arrays.copyOf(blockTimes, blockCount * 2);
+            blockAddresses = Arrays.copyOf(blockAddresses, blockCount * 2);
+        }
+        // Usually appended in order, otherwise shift the later blocks.
+        int pos = blockCount;
+        while (pos > 0 && blockTimes[pos - 1] > timestamp) {
+            pos--;
+        }
+        System.arraycopy(blockTimes, pos, blockTimes, pos + 1, blockCount - pos);
+        System.arraycopy(blockAddresses, pos, blockAddresses, pos + 1, blockCount - pos);
+        blockTimes[pos] = timestamp;
+        blockAddresses[pos] = address;
+        blockCount++;
+    }
+
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = blockCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (blockTimes[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int findRecord(MappedByteBuffer buffer, int recordsOffset, int count, int resourceId) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int id = buffer.getInt(recordsOffset + mid * RECORD_SIZE);
+            if (id < resourceId) {
+                low = mid + 1;
+            } else if (id > resourceId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    interface RecordVisitor {
+        void visit(Record record);
+    }
+
+    /**
+     * A metric record, reused when scanning.
+     */
+    static final class Record {
+        long timestamp;
+        long gmtCreate;
+        int id;
+        long passQps;
+        long blockQps;
+        long successQps;
+        long exceptionQps;
+        double rt;
+        int count;
+
+        void read(MappedByteBuffer buffer, int offset) {
+            id = buffer.getInt(offset);
+            passQps = buffer.getLong(offset + 4);
+            blockQps = buffer.getLong(offset + 12);
+            successQps = buffer.getLong(offset + 20);
+            exceptionQps = buffer.getLong(offset + 28);
+            rt = buffer.getDouble(offset + 36);
+            count = buffer.getInt(offset + 44);
+        }
+    }
+
+    /**
+     * Records of a block to append, in columns of primitive arrays.
+     */
+    static final class RecordBuffer {
+        private int size;
+        private int[] ids = new int[256];
+        private long[] passQps = new long[256];
+        private long[] blockQps = new long[256];
+        private long[] successQps = new long[256];
+        private long[] exceptionQps = new long[256];
+        private double[] rt = new double[256];
+        private int[] counts = new int[256];
+        private long[] order = new long[256];
+
+        void clear() {
+            size = 0;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void add(int id, long pass, long block, long success, long exception, double rtSum, int count) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                passQps = Arrays.copyOf(passQps, capacity);
+                blockQps = Arrays.copyOf(blockQps, capacity);
+                successQps = Arrays.copyOf(successQps, capacity);
+                exceptionQps = Arrays.copyOf(exceptionQps, capacity);
+                rt = Arrays.copyOf(rt, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                order = Arrays.copyOf(order, capacity);
+            }
+            ids[size] = id;
+            passQps[size] = pass;
+            blockQps[size] = block;
+            successQps[size] = success;
+            exceptionQps[size] = exception;
+            rt[size] = rtSum;
+            counts[size] = count;
+            size++;
+        }
+
+        /**
+         * Sort the records by resource id before appending. Only the last added record of a resource
+         * is kept, and no more records should be added until cleared.
+         */
+        void sort() {
+            // Sort with the row index in the lower 32 bits.
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long)ids[i] << 32) | i;
+            }
+            Arrays.sort(order, 0, size);
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if (i + 1 < size && (order[i] >>> 32) == (order[i + 1] >>> 32)) {
+                    continue;
+                }
+                order[n++] = order[i];
+            }
+            size = n;
+        }
+
+        private void write(int i, MappedByteBuffer buffer, int offset) {
+            int row = (int)order[i];
+            buffer.putInt(offset, ids[row]);
+            buffer.putLong(offset + 4, passQps[row]);
+            buffer.putLong(offset + 12, blockQps[row]);
+            buffer.putLong(offset + 20, successQps[row]);
+            buffer.putLong(offset + 28, exceptionQps[row]);
+            buffer.putDouble(offset + 36, rt[row]);
+            buffer.putInt(offset + 44, counts[row]);
+        }
+    }
+}
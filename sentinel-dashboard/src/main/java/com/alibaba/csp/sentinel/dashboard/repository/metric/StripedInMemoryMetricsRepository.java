@@ -0,0 +1,420 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.util.StringUtil;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+/**
+ * <p>Caches metrics data in a period of time in memory, with less memory and lock contention
+ * than {@link InMemoryMetricsRepository}:</p>
+ *
+ * <ul>
+ * <li>Metrics of a resource are kept in a ring buffer of primitive arrays sorted by timestamp,
+ * so that querying a period of time is a binary search instead of a full scan.</li>
+ * <li>Apps are guarded by striped read-write locks, so that querying or saving the metrics of an app
+ * doesn't block the other apps.</li>
+ * </ul>
+ *
+ * @since 1.8.2
+ */
+public class StripedInMemoryMetricsRepository implements MetricsRepository<MetricEntity> {
+
+    private static final long MAX_METRIC_LIVE_TIME_MS = 1000 * 60 * 5;
+    private static final long RESOURCE_STATISTIC_TIME_MS = 1000 * 60;
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * {@code app -> resource -> metrics}, resource maps are guarded by the lock stripe of the app.
+     */
+    private final Map<String, AppMetrics> allMetrics = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[LOCK_STRIPES];
+    /**
+     * Last time of removing the apps without any metrics in the live time, e.g. the apps that have gone away.
+     */
+    private final AtomicLong lastAppSweepTime = new AtomicLong(TimeUtil.currentTimeMillis());
+
+    public StripedInMemoryMetricsRepository() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    @Override
+    public void save(MetricEntity entity) {
+        if (entity == null || StringUtil.isBlank(entity.getApp())) {
+            return;
+        }
+        long now = TimeUtil.currentTimeMillis();
+        Lock lock = lockOf(entity.getApp()).writeLock();
+        lock.lock();
+        try {
+            doSave(entity, now);
+        } finally {
+            lock.unlock();
+        }
+        sweepApps(now);
+    }
+
+    @Override
+    public void saveAll(Iterable<MetricEntity> metrics) {
+        if (metrics == null) {
+            return;
+        }
+        long now = TimeUtil.currentTimeMillis();
+        // Metrics are usually from the same app, so the lock is held until the app changes.
+        Lock heldLock = null;
+        try {
+            for (MetricEntity entity : metrics) {
+                if (entity == null || StringUtil.isBlank(entity.getApp())) {
+                    continue;
+                }
+                Lock lock = lockOf(entity.getApp()).writeLock();
+                if (lock != heldLock) {
+                    if (heldLock != null) {
+                        heldLock.unlock();
+                        heldLock = null;
+                    }
+                    lock.lock();
+                    heldLock = lock;
+                }
+                doSave(entity, now);
+            }
+        } finally {
+            if (heldLock != null) {
+                heldLock.unlock();
+            }
+        }
+        sweepApps(now);
+    }
+
+    @Override
+    public List<MetricEntity> queryByAppAndResourceBetween(String app, String resource,
+                                                           long startTime, long endTime) {
+        List<MetricEntity> results = new ArrayList<>();
+        if (StringUtil.isBlank(app)) {
+            return results;
+        }
+        AppMetrics appMetrics = allMetrics.get(app);
+        if (appMetrics == null) {
+            return results;
+        }
+        Lock lock = lockOf(app).readLock();
+        lock.lock();
+        try {
+            MetricSeries series = appMetrics.resources.get(resource);
+            if (series != null) {
+                series.collect(app, resource, startTime, endTime, results);
+            }
+            return results;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<String> listResourcesOfApp(String app) {
+        List<String> results = new ArrayList<>();
+        if (StringUtil.isBlank(app)) {
+            return results;
+        }
+        AppMetrics appMetrics = allMetrics.get(app);
+        if (appMetrics == null) {
+            return results;
+        }
+        final long minTimeMs = TimeUtil.currentTimeMillis() - RESOURCE_STATISTIC_TIME_MS;
+        List<ResourceStat> stats = new ArrayList<>();
+        Lock lock = lockOf(app).readLock();
+        lock.lock();
+        try {
+            for (Map.Entry<String, MetricSeries> e : appMetrics.resources.entrySet()) {
+                ResourceStat stat = e.getValue().sumSince(e.getKey(), minTimeMs);
+                if (stat != null) {
+                    stats.add(stat);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Order by last minute b_qps DESC.
+        stats.sort((s1, s2) -> {
+            int t = Long.compare(s2.blockQps, s1.blockQps);
+            if (t != 0) {
+                return t;
+            }
+            return Long.compare(s2.passQps, s1.passQps);
+        });
+        for (ResourceStat stat : stats) {
+            results.add(stat.resource);
+        }
+        return results;
+    }
+
+    private void doSave(MetricEntity entity, long now) {
+        AppMetrics appMetrics = allMetrics.computeIfAbsent(entity.getApp(), e -> new AppMetrics());
+        long expireTime = now - MAX_METRIC_LIVE_TIME_MS;
+        appMetrics.resources.computeIfAbsent(entity.getResource(), e -> new MetricSeries())
+            .put(entity, expireTime);
+        if (now - appMetrics.lastSweepTime >= MAX_METRIC_LIVE_TIME_MS) {
+            appMetrics.expire(now, expireTime);
+        }
+    }
+
+    /**
+     * Remove the apps without any metrics in the live time. The apps are swept one by one under their own
+     * locks, so this should be called without holding any lock.
+     */
+    private void sweepApps(long now) {
+        long lastTime = lastAppSweepTime.get();
+        if (now - lastTime < MAX_METRIC_LIVE_TIME_MS || !lastAppSweepTime.compareAndSet(lastTime, now)) {
+            return;
+        }
+        long expireTime = now - MAX_METRIC_LIVE_TIME_MS;
+        for (Map.Entry<String, AppMetrics> e : allMetrics.entrySet()) {
+            Lock lock = lockOf(e.getKey()).writeLock();
+            lock.lock();
+            try {
+                if (e.getValue().expire(now, expireTime)) {
+                    allMetrics.remove(e.getKey(), e.getValue());
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    boolean containsApp(String app) {
+        return allMetrics.containsKey(app);
+    }
+
+    private ReentrantReadWriteLock lockOf(String app) {
+        int h = app.hashCode();
+        h ^= h >>> 16;
+        return locks[h & (LOCK_STRIPES - 1)];
+    }
+
+    private static final class AppMetrics {
+        private final Map<String, MetricSeries> resources = new HashMap<>();
+        private long lastSweepTime = TimeUtil.currentTimeMillis();
+
+        /**
+         * Remove the resources without any metrics in the live time.
+         *
+         * @return true if no resource is left
+         */
+        boolean expire(long now, long expireTime) {
+            lastSweepTime = now;
+            for (Iterator<MetricSeries> it = resources.values().iterator(); it.hasNext(); ) {
+                MetricSeries series = it.next();
+                series.expire(expireTime);
+                if (series.size == 0) {
+                    it.remove();
+                }
+            }
+            return resources.isEmpty();
+        }
+    }
+
+    private static final class ResourceStat {
+        private final String resource;
+        private final long passQps;
+        private final long blockQps;
+
+        ResourceStat(String resource, long passQps, long blockQps) {
+            this.resource = resource;
+            this.passQps = passQps;
+            this.blockQps = blockQps;
+        }
+    }
+
+    /**
+     * Metrics of a resource in a ring buffer of primitive arrays, sorted by timestamp.
+     * Not thread-safe, which is guarded by the lock of the app.
+     */
+    static final class MetricSeries {
+
+        private static final int INITIAL_CAPACITY = 16;
+
+        private long[] timestamps = new long[INITIAL_CAPACITY];
+        private long[] gmtCreates = new long[INITIAL_CAPACITY];
+        private long[] passQps = new long[INITIAL_CAPACITY];
+        private long[] blockQps = new long[INITIAL_CAPACITY];
+        private long[] successQps = new long[INITIAL_CAPACITY];
+        private long[] exceptionQps = new long[INITIAL_CAPACITY];
+        private double[] rt = new double[INITIAL_CAPACITY];
+        private int[] counts = new int[INITIAL_CAPACITY];
+
+        /**
+         * Physical index of the oldest metric, the capacity is always a power of two.
+         */
+        private int head;
+        private int size;
+
+        void put(MetricEntity entity, long expireTime) {
+            expire(expireTime);
+            long timestamp = entity.getTimestamp().getTime();
+            if (timestamp < expireTime) {
+                return;
+            }
+            int pos = size == 0 || timestamp > timestamps[index(size - 1)] ? size : lowerBound(timestamp);
+            if (pos < size && timestamps[index(pos)] == timestamp) {
+                // Replace the metric of the same timestamp.
+                set(index(pos), entity);
+                return;
+            }
+            if (size == timestamps.length) {
+                grow();
+            }
+            // Shift the later metrics for the out-of-order one, which is rare.
+            for (int i = size; i > pos; i--) {
+                move(index(i - 1), index(i));
+            }
+            size++;
+            set(index(pos), entity);
+        }
+
+        void expire(long expireTime) {
+            while (size > 0 && timestamps[head] < expireTime) {
+                head = (head + 1) & (timestamps.length - 1);
+                size--;
+            }
+        }
+
+        void collect(String app, String resource, long startTime, long endTime, List<MetricEntity> results) {
+            for (int i = lowerBound(startTime); i < size; i++) {
+                int idx = index(i);
+                if (timestamps[idx] > endTime) {
+                    break;
+                }
+                results.add(toEntity(app, resource, idx));
+            }
+        }
+
+        ResourceStat sumSince(String resource, long minTime) {
+            int from = lowerBound(minTime);
+            if (from >= size) {
+                return null;
+            }
+            long pass = 0;
+            long block = 0;
+            for (int i = from; i < size; i++) {
+                int idx = index(i);
+                pass += passQps[idx];
+                block += blockQps[idx];
+            }
+            return new ResourceStat(resource, pass, block);
+        }
+
+        /**
+         * @return logical position of the first metric whose timestamp is not less than the given time
+         */
+        private int lowerBound(long time) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (timestamps[index(mid)] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private int index(int pos) {
+            return (head + pos) & (timestamps.length - 1);
+        }
+
+        private void set(int idx, MetricEntity entity) {
+            timestamps[idx] = entity.getTimestamp().getTime();
+            gmtCreates[idx] = entity.getGmtCreate() == null ? timestamps[idx] : entity.getGmtCreate().getTime();
+            passQps[idx] = valueOf(entity.getPassQps());
+            blockQps[idx] = valueOf(entity.getBlockQps());
+            successQps[idx] = valueOf(entity.getSuccessQps());
+            exceptionQps[idx] = valueOf(entity.getExceptionQps());
+            rt[idx] = entity.getRt();
+            counts[idx] = entity.getCount();
+        }
+
+        private void move(int from, int to) {
+            timestamps[to] = timestamps[from];
+            gmtCreates[to] = gmtCreates[from];
+            passQps[to] = passQps[from];
+            blockQps[to] = blockQps[from];
+            successQps[to] = successQps[from];
+            exceptionQps[to] = exceptionQps[from];
+            rt[to] = rt[from];
+            counts[to] = counts[from];
+        }
+
+        private MetricEntity toEntity(String app, String resource, int idx) {
+            MetricEntity entity = new MetricEntity();
+            entity.setApp(app);
+            entity.setResource(resource);
+            entity.setTimestamp(new Date(timestamps[idx]));
+            Date gmtCreate = new Date(gmtCreates[idx]);
+            entity.setGmtCreate(gmtCreate);
+            entity.setGmtModified(gmtCreate);
+            entity.setPassQps(passQps[idx]);
+            entity.setBlockQps(blockQps[idx]);
+            entity.setSuccessQps(successQps[idx]);
+            entity.setExceptionQps(exceptionQps[idx]);
+            entity.setRt(rt[idx]);
+            entity.setCount(counts[idx]);
+            return entity;
+        }
+
+        private void grow() {
+            int oldCapacity = timestamps.length;
+            int newCapacity = oldCapacity << 1;
+            timestamps = unwrap(timestamps, new long[newCapacity], oldCapacity);
+            gmtCreates = unwrap(gmtCreates, new long[newCapacity], oldCapacity);
+            passQps = unwrap(passQps, new long[newCapacity], oldCapacity);
+            blockQps = unwrap(blockQps, new long[newCapacity], oldCapacity);
+            successQps = unwrap(successQps, new long[newCapacity], oldCapacity);
+            exceptionQps = unwrap(exceptionQps, new long[newCapacity], oldCapacity);
+            rt = unwrap(rt, new double[newCapacity], oldCapacity);
+            counts = unwrap(counts, new int[newCapacity], oldCapacity);
+            head = 0;
+        }
+
+        /**
+         * Copy the elements of the ring buffer (which is full) to the new array from the head.
+         */
+        private <A> A unwrap(A src, A dest, int capacity) {
+            System.arraycopy(src, head, dest, 0, capacity - head);
+            System.arraycopy(src, 0, dest, capacity - head, head);
+            return dest;
+        }
+
+        private static long valueOf(Long value) {
+            return value == null ? 0 : value;
+        }
+    }
+}
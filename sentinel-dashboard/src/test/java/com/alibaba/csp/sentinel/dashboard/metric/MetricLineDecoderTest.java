@@ -0,0 +1,62 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link MetricLineDecoder}.
+ */
+public class MetricLineDecoderTest {
+
+    @Test
+    public void testDecodeLinesAcrossChunks() {
+        byte[] body = "1000|资源A|1\r\n\n2000|resB|2\n3000|资源C|3".getBytes(StandardCharsets.UTF_8);
+        for (int chunkSize = 1; chunkSize <= body.length; chunkSize++) {
+            MetricLineDecoder decoder = new MetricLineDecoder(StandardCharsets.UTF_8);
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < body.length; i += chunkSize) {
+                ByteBuffer chunk = ByteBuffer.wrap(body, i, Math.min(chunkSize, body.length - i));
+                decoder.decode(chunk, lines::add);
+                assertFalse(chunk.hasRemaining());
+            }
+            decoder.finish(lines::add);
+            assertEquals(Arrays.asList("1000|资源A|1", "2000|resB|2", "3000|资源C|3"), lines);
+        }
+    }
+
+    @Test
+    public void testDecodeLongLine() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append(i);
+        }
+        String line = sb.toString();
+        MetricLineDecoder decoder = new MetricLineDecoder(StandardCharsets.UTF_8);
+        List<String> lines = new ArrayList<>();
+        decoder.decode(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)), lines::add);
+        decoder.finish(lines::add);
+        assertEquals(Arrays.asList(line), lines);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.metric;
+
+import java.util.Comparator;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.node.metric.MetricNode;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link MetricMerger}.
+ */
+public class MetricMergerTest {
+
+    @Test
+    public void testMergeMachines() {
+        MetricMerger merger = new MetricMerger("app", 10000, 15000);
+        // Two machines.
+        for (int machine = 0; machine < 2; machine++) {
+            for (long time = 10000; time <= 15000; time += 1000) {
+                assertTrue(merger.merge(newNode("resA", time, 10, 2)));
+            }
+            assertTrue(merger.merge(newNode("resB", 12000, 1, 1)));
+        }
+        assertFalse(merger.merge(newNode("resA", 9000, 10, 2)));
+        assertFalse(merger.merge(newNode("resA", 16000, 10, 2)));
+
+        List<MetricEntity> entities = merger.entities();
+        assertEquals(7, entities.size());
+        entities.sort(Comparator.comparing(MetricEntity::getResource).thenComparing(MetricEntity::getTimestamp));
+        for (int i = 0; i < 6; i++) {
+            MetricEntity entity = entities.get(i);
+            assertEquals("app", entity.getApp());
+            assertEquals("resA", entity.getResource());
+            assertEquals(10000 + i * 1000L, entity.getTimestamp().getTime());
+            assertEquals(20, entity.getPassQps().longValue());
+            assertEquals(20, entity.getSuccessQps().longValue());
+            assertEquals(4, entity.getBlockQps().longValue());
+            // rt = avgRt * successQps
+            assertEquals(5 * 20, entity.getRt(), 0.0001);
+            assertEquals(2, entity.getCount());
+        }
+        assertEquals("resB", entities.get(6).getResource());
+        assertEquals(2, entities.get(6).getPassQps().longValue());
+    }
+
+    private static MetricNode newNode(String resource, long timestamp, long passQps, long blockQps) {
+        MetricNode node = new MetricNode();
+        node.setResource(resource);
+        node.setTimestamp(timestamp);
+        node.setPassQps(passQps);
+        node.setSuccessQps(passQps);
+        node.setBlockQps(blockQps);
+        node.setRt(5);
+        return node;
+    }
+}
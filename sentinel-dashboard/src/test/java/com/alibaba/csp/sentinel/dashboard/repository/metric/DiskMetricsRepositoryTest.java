@@ -0,0 +1,257 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link DiskMetricsRepository}.
+ */
+public class DiskMetricsRepositoryTest {
+
+    private static final String DEFAULT_APP = "defaultApp";
+    private static final String DEFAULT_RESOURCE = "defaultResource";
+    private static final long RAW_RETENTION_MS = TimeUnit.HOURS.toMillis(3);
+    private static final long ROLLUP_RETENTION_MS = TimeUnit.DAYS.toMillis(7);
+    /**
+     * Small regions, so that blocks are split and continue in the next regions.
+     */
+    private static final int REGION_SIZE = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String dir;
+    private DiskMetricsRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = folder.newFolder("metrics").getAbsolutePath();
+        repository = newRepository();
+    }
+
+    @After
+    public void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    public void testQueryAndReopen() {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        List<MetricEntity> entities = new ArrayList<>();
+        for (int i = 100; i > 0; i--) {
+            // More than the records of a block.
+            for (int r = 0; r < 100; r++) {
+                entities.add(newEntity(DEFAULT_APP, "res" + r, now - i * 1000L, i, 0));
+            }
+        }
+        repository.saveAll(entities);
+        assertQueryBetween(now);
+
+        repository.close();
+        repository = newRepository();
+        assertQueryBetween(now);
+        assertEquals(100, repository.listResourcesOfApp(DEFAULT_APP).size());
+
+        assertTrue(repository.queryByAppAndResourceBetween(DEFAULT_APP, "absent", now - 30000, now).isEmpty());
+        assertTrue(repository.queryByAppAndResourceBetween("absent", "res0", now - 30000, now).isEmpty());
+        assertTrue(repository.queryByAppAndResourceBetween(DEFAULT_APP, "res0", now, now + 1000).isEmpty());
+    }
+
+    @Test
+    public void testOutOfOrderAndDuplicateSave() {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        for (long offset : Arrays.asList(5L, 1L, 3L, 2L, 4L, 3L)) {
+            repository.save(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, now - offset * 1000, offset * 10, 0));
+        }
+        // Replace the metric of the same timestamp.
+        repository.save(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, now - 2000, 200, 0));
+        List<MetricEntity> list = repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE,
+            now - 10000, now);
+        assertEquals(5, list.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(now - (5 - i) * 1000L, list.get(i).getTimestamp().getTime());
+        }
+        assertEquals(50, list.get(0).getPassQps().longValue());
+        assertEquals(200, list.get(3).getPassQps().longValue());
+    }
+
+    @Test
+    public void testRollupByMinute() {
+        long now = System.currentTimeMillis();
+        long start = (now - TimeUnit.MINUTES.toMillis(10)) / 60000 * 60000;
+        List<MetricEntity> entities = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // 1 and 2 in turn, 90 per minute.
+            entities.add(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, start + i * 1000L, 1 + i % 2, i % 2));
+        }
+        repository.saveAll(entities);
+        repository.maintain(now);
+
+        // Long queries read the minute rollups.
+        List<MetricEntity> list = repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE,
+            now - TimeUnit.HOURS.toMillis(2), now);
+        assertEquals(5, list.size());
+        for (int i = 0; i < 5; i++) {
+            MetricEntity entity = list.get(i);
+            assertEquals(start + i * 60000L, entity.getTimestamp().getTime());
+            assertEquals(2, entity.getPassQps().longValue());
+            assertEquals(1, entity.getBlockQps().longValue());
+            assertEquals(2, entity.getSuccessQps().longValue());
+            // Average RT is kept.
+            assertEquals(2.0 * 2, entity.getRt(), 0.0001);
+            assertEquals(1, entity.getCount());
+        }
+        // Short queries read the raw metrics.
+        list = repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE, start, start + 10000);
+        assertEquals(11, list.size());
+        assertEquals(1, list.get(0).getPassQps().longValue());
+
+        // Not rolled up again after reopening.
+        repository.close();
+        repository = newRepository();
+        repository.maintain(now + 60000);
+        assertEquals(5, repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE,
+            now - TimeUnit.HOURS.toMillis(2), now).size());
+    }
+
+    @Test
+    public void testExpireSegments() {
+        long now = System.currentTimeMillis();
+        repository.save(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, now - 1000, 1, 0));
+        File appDir = new File(dir, DEFAULT_APP);
+        assertEquals(1, segmentFiles(appDir, DiskMetricsRepository.RAW_SEGMENT_PREFIX));
+
+        repository.maintain(now + RAW_RETENTION_MS + DiskMetricsRepository.RAW_PARTITION_MS);
+        assertEquals(0, segmentFiles(appDir, DiskMetricsRepository.RAW_SEGMENT_PREFIX));
+        assertEquals(1, segmentFiles(appDir, DiskMetricsRepository.ROLLUP_SEGMENT_PREFIX));
+        assertEquals(1, repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE,
+            now - TimeUnit.HOURS.toMillis(2), now).size());
+
+        repository.maintain(now + ROLLUP_RETENTION_MS + DiskMetricsRepository.ROLLUP_PARTITION_MS);
+        assertEquals(0, segmentFiles(appDir, DiskMetricsRepository.ROLLUP_SEGMENT_PREFIX));
+        assertTrue(repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE,
+            now - TimeUnit.HOURS.toMillis(2), now).isEmpty());
+    }
+
+    @Test
+    public void testTruncatePartialResourceName() throws Exception {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        repository.save(newEntity(DEFAULT_APP, "资源-0", now - 2000, 1, 0));
+        repository.close();
+        // A name that was being written when the dashboard stopped.
+        File dictFile = new File(new File(dir, DEFAULT_APP), DiskMetricsRepository.DICT_FILE);
+        long validLength = dictFile.length();
+        try (FileOutputStream out = new FileOutputStream(dictFile, true)) {
+            out.write(new byte[] {0, 10, 'r', 'e'});
+        }
+
+        repository = newRepository();
+        assertEquals(validLength, dictFile.length());
+        repository.save(newEntity(DEFAULT_APP, "res1", now - 1000, 2, 0));
+        repository.close();
+
+        repository = newRepository();
+        assertEquals(1, repository.queryByAppAndResourceBetween(DEFAULT_APP, "资源-0", now - 3000, now).size());
+        List<MetricEntity> list = repository.queryByAppAndResourceBetween(DEFAULT_APP, "res1", now - 3000, now);
+        assertEquals(1, list.size());
+        assertEquals(2, list.get(0).getPassQps().longValue());
+    }
+
+    @Test
+    public void testListResourcesOfApp() {
+        long now = System.currentTimeMillis();
+        repository.save(newEntity(DEFAULT_APP, "passOnly", now - 1000, 100, 0));
+        repository.save(newEntity(DEFAULT_APP, "blocked", now - 1000, 1, 5));
+        repository.save(newEntity(DEFAULT_APP, "moreBlocked", now - 2000, 1, 5));
+        repository.save(newEntity(DEFAULT_APP, "moreBlocked", now - 1000, 1, 5));
+        // Not in the latest minutes.
+        repository.save(newEntity(DEFAULT_APP, "stale", now - 1000 * 150, 1000, 1000));
+        repository.save(newEntity("another app", "another", now - 1000, 1, 0));
+
+        assertEquals(Arrays.asList("moreBlocked", "blocked", "passOnly"), repository.listResourcesOfApp(DEFAULT_APP));
+        assertEquals(Arrays.asList("another"), repository.listResourcesOfApp("another app"));
+        assertTrue(repository.listResourcesOfApp("absent").isEmpty());
+    }
+
+    @Test
+    public void testEncodeAppName() {
+        for (String app : Arrays.asList("app", "my app", "a/b%c", "应用-1_x")) {
+            String name = DiskMetricsRepository.encodeAppName(app);
+            assertTrue(name.matches("[A-Za-z0-9_%-]+"));
+            assertEquals(app, DiskMetricsRepository.decodeAppName(name));
+        }
+        assertNull(DiskMetricsRepository.decodeAppName("bad%"));
+        assertNull(DiskMetricsRepository.decodeAppName("bad%zz"));
+    }
+
+    private void assertQueryBetween(long now) {
+        for (String resource : Arrays.asList("res0", "res99")) {
+            List<MetricEntity> list = repository.queryByAppAndResourceBetween(DEFAULT_APP, resource,
+                now - 30000, now - 21000);
+            assertEquals(10, list.size());
+            for (int i = 0; i < 10; i++) {
+                MetricEntity entity = list.get(i);
+                assertEquals(now - (30 - i) * 1000L, entity.getTimestamp().getTime());
+                assertEquals(30 - i, entity.getPassQps().longValue());
+                assertEquals(DEFAULT_APP, entity.getApp());
+                assertEquals(resource, entity.getResource());
+                assertEquals(entity.getTimestamp(), entity.getGmtCreate());
+                assertEquals(2.0 * (30 - i), entity.getRt(), 0.0001);
+                assertEquals(1, entity.getCount());
+            }
+        }
+    }
+
+    private DiskMetricsRepository newRepository() {
+        return new DiskMetricsRepository(dir, RAW_RETENTION_MS, ROLLUP_RETENTION_MS, REGION_SIZE);
+    }
+
+    private static int segmentFiles(File appDir, String prefix) {
+        File[] files = appDir.listFiles((d, name) -> name.startsWith(prefix));
+        return files == null ? 0 : files.length;
+    }
+
+    private static MetricEntity newEntity(String app, String resource, long timestamp, long passQps,
+                                          long blockQps) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp(app);
+        entity.setResource(resource);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setGmtCreate(new Date(timestamp));
+        entity.setPassQps(passQps);
+        entity.setBlockQps(blockQps);
+        entity.setExceptionQps(0L);
+        entity.setRtAndSuccessQps(2, passQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
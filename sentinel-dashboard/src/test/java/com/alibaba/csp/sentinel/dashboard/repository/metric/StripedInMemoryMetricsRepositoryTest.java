@@ -0,0 +1,217 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.dashboard.repository.metric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.alibaba.csp.sentinel.dashboard.datasource.entity.MetricEntity;
+import com.alibaba.csp.sentinel.util.Clock;
+import com.alibaba.csp.sentinel.util.TimeUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link StripedInMemoryMetricsRepository}.
+ */
+public class StripedInMemoryMetricsRepositoryTest {
+
+    private static final String DEFAULT_APP = "defaultApp";
+    private static final String DEFAULT_RESOURCE = "defaultResource";
+    private static final long EXPIRE_TIME = 1000 * 60 * 5L;
+
+    private StripedInMemoryMetricsRepository repository;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        repository = new StripedInMemoryMetricsRepository();
+        executorService = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testQueryBetween() {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        List<MetricEntity> entities = new ArrayList<>();
+        // More than the initial capacity of the ring buffer.
+        for (int i = 100; i > 0; i--) {
+            entities.add(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, now - i * 1000L, i, 0));
+        }
+        repository.saveAll(entities);
+
+        List<MetricEntity> list = repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE,
+            now - 30000, now - 21000);
+        assertEquals(10, list.size());
+        for (int i = 0; i < 10; i++) {
+            MetricEntity entity = list.get(i);
+            assertEquals(now - (30 - i) * 1000L, entity.getTimestamp().getTime());
+            assertEquals(30 - i, entity.getPassQps().longValue());
+            assertEquals(DEFAULT_APP, entity.getApp());
+            assertEquals(DEFAULT_RESOURCE, entity.getResource());
+            assertEquals(entity.getTimestamp(), entity.getGmtCreate());
+            assertEquals(2.0 * (30 - i), entity.getRt(), 0.0001);
+            assertEquals(1, entity.getCount());
+        }
+        assertTrue(repository.queryByAppAndResourceBetween(DEFAULT_APP, "absent", now - 30000, now).isEmpty());
+        assertTrue(repository.queryByAppAndResourceBetween("absent", DEFAULT_RESOURCE, now - 30000, now).isEmpty());
+        assertTrue(repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE, now, now + 1000)
+            .isEmpty());
+    }
+
+    @Test
+    public void testOutOfOrderAndDuplicateSave() {
+        long now = System.currentTimeMillis() / 1000 * 1000;
+        for (long offset : Arrays.asList(5L, 1L, 3L, 2L, 4L, 3L)) {
+            repository.save(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, now - offset * 1000, offset * 10, 0));
+        }
+        List<MetricEntity> list = repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE,
+            now - 10000, now);
+        assertEquals(5, list.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(now - (5 - i) * 1000L, list.get(i).getTimestamp().getTime());
+            assertEquals((5 - i) * 10L, list.get(i).getPassQps().longValue());
+        }
+    }
+
+    @Test
+    public void testExpireMetric() {
+        long now = System.currentTimeMillis();
+        repository.save(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, now - EXPIRE_TIME - 1000L, 1, 0));
+        repository.save(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, now, 1, 0));
+
+        List<MetricEntity> list = repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE,
+            now - EXPIRE_TIME - 2000L, now);
+        assertEquals(1, list.size());
+        assertEquals(now, list.get(0).getTimestamp().getTime());
+    }
+
+    @Test
+    public void testListResourcesOfApp() {
+        long now = System.currentTimeMillis();
+        repository.save(newEntity(DEFAULT_APP, "passOnly", now - 1000, 100, 0));
+        repository.save(newEntity(DEFAULT_APP, "blocked", now - 1000, 1, 5));
+        repository.save(newEntity(DEFAULT_APP, "moreBlocked", now - 2000, 1, 5));
+        repository.save(newEntity(DEFAULT_APP, "moreBlocked", now - 1000, 1, 5));
+        // Not in the last minute.
+        repository.save(newEntity(DEFAULT_APP, "stale", now - 1000 * 90, 1000, 1000));
+        repository.save(newEntity("anotherApp", "another", now - 1000, 1, 0));
+
+        assertEquals(Arrays.asList("moreBlocked", "blocked", "passOnly"), repository.listResourcesOfApp(DEFAULT_APP));
+        assertEquals(Arrays.asList("another"), repository.listResourcesOfApp("anotherApp"));
+        assertTrue(repository.listResourcesOfApp("absent").isEmpty());
+    }
+
+    @Test
+    public void testConcurrentSaveAndQuery() throws Exception {
+        final long now = System.currentTimeMillis() / 1000 * 1000;
+        final int seconds = 200;
+        final CountDownLatch latch = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final String app = "app" + t;
+            futures.add(executorService.submit(() -> {
+                latch.await();
+                for (int i = seconds; i > 0; i--) {
+                    List<MetricEntity> entities = new ArrayList<>();
+                    for (int r = 0; r < 10; r++) {
+                        entities.add(newEntity(app, "res" + r, now - i * 1000L, i, 0));
+                    }
+                    repository.saveAll(entities);
+                }
+                return null;
+            }));
+            futures.add(executorService.submit(() -> {
+                latch.await();
+                for (int i = 0; i < seconds; i++) {
+                    List<MetricEntity> list = repository.queryByAppAndResourceBetween(app, "res0",
+                        now - seconds * 1000L, now);
+                    for (int j = 1; j < list.size(); j++) {
+                        assertTrue(list.get(j).getTimestamp().after(list.get(j - 1).getTimestamp()));
+                    }
+                    repository.listResourcesOfApp(app);
+                }
+                return null;
+            }));
+        }
+        latch.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        for (int t = 0; t < 4; t++) {
+            assertEquals(seconds, repository.queryByAppAndResourceBetween("app" + t, "res9",
+                now - seconds * 1000L, now).size());
+            assertEquals(10, repository.listResourcesOfApp("app" + t).size());
+        }
+    }
+
+    @Test
+    public void testRemoveIdleApps() {
+        final long start = System.currentTimeMillis() / 1000 * 1000;
+        final long[] now = {start};
+        TimeUtil.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return now[0];
+            }
+        });
+        try {
+            repository = new StripedInMemoryMetricsRepository();
+            repository.save(newEntity("goneApp", DEFAULT_RESOURCE, start, 1, 0));
+            repository.save(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, start, 1, 0));
+            assertTrue(repository.containsApp("goneApp"));
+
+            // Only the metrics of the default app keep coming.
+            now[0] = start + EXPIRE_TIME + 1000;
+            repository.save(newEntity(DEFAULT_APP, DEFAULT_RESOURCE, now[0], 1, 0));
+            assertFalse(repository.containsApp("goneApp"));
+            assertTrue(repository.containsApp(DEFAULT_APP));
+            assertEquals(1, repository.queryByAppAndResourceBetween(DEFAULT_APP, DEFAULT_RESOURCE,
+                start, now[0]).size());
+        } finally {
+            TimeUtil.resetClock();
+        }
+    }
+
+    private static MetricEntity newEntity(String app, String resource, long timestamp, long passQps,
+                                          long blockQps) {
+        MetricEntity entity = new MetricEntity();
+        entity.setApp(app);
+        entity.setResource(resource);
+        entity.setTimestamp(new Date(timestamp));
+        entity.setGmtCreate(new Date(timestamp));
+        entity.setPassQps(passQps);
+        entity.setBlockQps(blockQps);
+        entity.setExceptionQps(0L);
+        entity.setRtAndSuccessQps(2, passQps);
+        entity.setCount(1);
+        return entity;
+    }
+}
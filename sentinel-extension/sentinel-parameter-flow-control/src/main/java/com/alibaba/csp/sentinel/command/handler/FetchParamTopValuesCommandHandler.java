@@ -0,0 +1,65 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.command.handler;
+
+import com.alibaba.csp.sentinel.command.CommandHandler;
+import com.alibaba.csp.sentinel.command.CommandRequest;
+import com.alibaba.csp.sentinel.command.CommandResponse;
+import com.alibaba.csp.sentinel.command.annotation.CommandMapping;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowRuleManager;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParameterMetric;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParameterMetricStorage;
+import com.alibaba.csp.sentinel.slots.statistic.metric.ParamTopValueLeapArray;
+import com.alibaba.csp.sentinel.util.StringUtil;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * Get the hottest parameter values with pass and block QPS of the parameter flow rules
+ * whose {@code topValueCount} is set.
+ *
+ * @since 1.8.2
+ */
+@CommandMapping(name = "topParamValues", desc = "get the hottest parameter values of parameter flow rules, "
+    + "accept param: resource={resourceName}")
+public class FetchParamTopValuesCommandHandler implements CommandHandler<String> {
+
+    @Override
+    public CommandResponse<String> handle(CommandRequest request) {
+        String resource = request.getParam("resource");
+        JSONArray array = new JSONArray();
+        for (ParamFlowRule rule : ParamFlowRuleManager.getRules()) {
+            if (rule.getTopValueCount() <= 0
+                || (StringUtil.isNotBlank(resource) && !resource.equals(rule.getResource()))) {
+                continue;
+            }
+            ParameterMetric metric = ParameterMetricStorage.getParamMetricForResource(rule.getResource());
+            ParamTopValueLeapArray topValues = metric == null ? null : metric.getRuleTopValues(rule);
+            if (topValues == null) {
+                continue;
+            }
+            JSONObject item = new JSONObject();
+            item.put("resource", rule.getResource());
+            item.put("paramIdx", rule.getParamIdx());
+            item.put("rule", rule);
+            item.put("topValues", topValues.topValues());
+            array.add(item);
+        }
+        return CommandResponse.ofSuccess(JSON.toJSONString(array));
+    }
+}
@@ -25,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.alibaba.csp.sentinel.NonBlockingPacing;
 import com.alibaba.csp.sentinel.cluster.ClusterStateManager;
 import com.alibaba.csp.sentinel.cluster.TokenResult;
 import com.alibaba.csp.sentinel.cluster.TokenResultStatus;
@@ -35,6 +36,9 @@ import com.alibaba.csp.sentinel.log.RecordLog;
 import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
 import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 import com.alibaba.csp.sentinel.slots.statistic.cache.CacheMap;
+import com.alibaba.csp.sentinel.slots.statistic.cache.HotParamCounterStore;
+import com.alibaba.csp.sentinel.slots.statistic.cache.SlidingWindowCountMinSketch;
+import com.alibaba.csp.sentinel.slots.statistic.metric.ParamTopValueLeapArray;
 import com.alibaba.csp.sentinel.util.TimeUtil;
 
 /**
@@ -68,11 +72,42 @@ public final class ParamFlowChecker {
             return true;
         }
 
+        boolean pass;
         if (rule.isClusterMode() && rule.getGrade() == RuleConstant.FLOW_GRADE_QPS) {
-            return passClusterCheck(resourceWrapper, rule, count, value);
+            pass = passClusterCheck(resourceWrapper, rule, count, value);
+        } else {
+            pass = passLocalCheck(resourceWrapper, rule, count, value);
+        }
+        if (rule.getTopValueCount() > 0) {
+            addTopValues(resourceWrapper, rule, count, value, pass);
         }
+        return pass;
+    }
 
-        return passLocalCheck(resourceWrapper, rule, count, value);
+    private static void addTopValues(ResourceWrapper resourceWrapper, ParamFlowRule rule, int count, Object value,
+                                     boolean pass) {
+        ParameterMetric metric = getParameterMetric(resourceWrapper);
+        ParamTopValueLeapArray topValues = metric == null ? null : metric.getRuleTopValues(rule);
+        if (topValues == null) {
+            return;
+        }
+        if (value instanceof Collection) {
+            for (Object param : (Collection<?>)value) {
+                if (param != null) {
+                    topValues.add(param, pass, count);
+                }
+            }
+        } else if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            for (int i = 0; i < length; i++) {
+                Object param = Array.get(value, i);
+                if (param != null) {
+                    topValues.add(param, pass, count);
+                }
+            }
+        } else {
+            topValues.add(value, pass, count);
+        }
     }
 
     private static boolean passLocalCheck(ResourceWrapper resourceWrapper, ParamFlowRule rule, int count,
@@ -127,10 +162,12 @@ public final class ParamFlowChecker {
     static boolean passDefaultLocalCheck(ResourceWrapper resourceWrapper, ParamFlowRule rule, int acquireCount,
                                          Object value) {
         ParameterMetric metric = getParameterMetric(resourceWrapper);
+        SlidingWindowCountMinSketch sketch = metric == null ? null : metric.getRuleSketch(rule);
+        HotParamCounterStore counterStore = metric == null ? null : metric.getRuleCounterStore(rule);
         CacheMap<Object, AtomicLong> tokenCounters = metric == null ? null : metric.getRuleTokenCounter(rule);
         CacheMap<Object, AtomicLong> timeCounters = metric == null ? null : metric.getRuleTimeCounter(rule);
 
-        if (tokenCounters == null || timeCounters == null) {
+        if (sketch == null && counterStore == null && (tokenCounters == null || timeCounters == null)) {
             return true;
         }
 
@@ -149,6 +186,13 @@ public final class ParamFlowChecker {
         if (acquireCount > maxCount) {
             return false;
         }
+        if (sketch != null) {
+            // Count the values in the sliding window instead of the token bucket of each value.
+            return sketch.tryAcquire(HotParamCounterStore.keyOf(value), acquireCount, maxCount);
+        }
+        if (counterStore != null) {
+            return passDefaultStoreCheck(counterStore, rule, acquireCount, value, tokenCount, maxCount);
+        }
 
         while (true) {
             long currentTime = TimeUtil.currentTimeMillis();
@@ -201,11 +245,49 @@ public final class ParamFlowChecker {
         }
     }
 
+    /**
+     * The same as the counter maps, but the tokens and the last time are updated together by one CAS.
+     */
+    private static boolean passDefaultStoreCheck(HotParamCounterStore counterStore, ParamFlowRule rule,
+                                                 int acquireCount, Object value, long tokenCount, long maxCount) {
+        int slot = counterStore.slotOf(HotParamCounterStore.keyOf(value));
+        long durationMs = rule.getDurationInSec() * 1000;
+        while (true) {
+            long currentTime = TimeUtil.currentTimeMillis();
+            long state = counterStore.get(slot);
+            long newState;
+            if (state == HotParamCounterStore.EMPTY) {
+                // Token never added, just replenish the tokens and consume {@code acquireCount} immediately.
+                newState = counterStore.pack(currentTime, maxCount - acquireCount);
+            } else {
+                long passTime = currentTime - counterStore.timeOf(state);
+                long restQps = HotParamCounterStore.tokensOf(state);
+                if (passTime > durationMs) {
+                    long toAddCount = (passTime * tokenCount) / durationMs;
+                    long newQps = toAddCount + restQps > maxCount ? (maxCount - acquireCount)
+                        : (restQps + toAddCount - acquireCount);
+                    if (newQps < 0) {
+                        return false;
+                    }
+                    newState = counterStore.pack(currentTime, newQps);
+                } else if (restQps - acquireCount >= 0) {
+                    newState = HotParamCounterStore.withTokens(state, restQps - acquireCount);
+                } else {
+                    return false;
+                }
+            }
+            if (counterStore.compareAndSet(slot, state, newState)) {
+                return true;
+            }
+        }
+    }
+
     static boolean passThrottleLocalCheck(ResourceWrapper resourceWrapper, ParamFlowRule rule, int acquireCount,
                                           Object value) {
         ParameterMetric metric = getParameterMetric(resourceWrapper);
+        HotParamCounterStore counterStore = metric == null ? null : metric.getRuleCounterStore(rule);
         CacheMap<Object, AtomicLong> timeRecorderMap = metric == null ? null : metric.getRuleTimeCounter(rule);
-        if (timeRecorderMap == null) {
+        if (counterStore == null && timeRecorderMap == null) {
             return true;
         }
 
@@ -221,6 +303,9 @@ public final class ParamFlowChecker {
         }
 
         long costTime = Math.round(1.0 * 1000 * acquireCount * rule.getDurationInSec() / tokenCount);
+        if (counterStore != null) {
+            return passThrottleStoreCheck(counterStore, rule, value, costTime);
+        }
         while (true) {
             long currentTime = TimeUtil.currentTimeMillis();
             AtomicLong timeRecorder = timeRecorderMap.putIfAbsent(value, new AtomicLong(currentTime));
@@ -237,6 +322,9 @@ public final class ParamFlowChecker {
                     long waitTime = expectedTime - currentTime;
                     if (waitTime > 0) {
                         lastPastTimeRef.set(expectedTime);
+                        if (NonBlockingPacing.deferWait(waitTime)) {
+                            return true;
+                        }
                         try {
                             TimeUnit.MILLISECONDS.sleep(waitTime);
                         } catch (InterruptedException e) {
@@ -253,6 +341,46 @@ public final class ParamFlowChecker {
         }
     }
 
+    /**
+     * The same as the time counter map, with the last pass time kept in the state of the counter store.
+     */
+    private static boolean passThrottleStoreCheck(HotParamCounterStore counterStore, ParamFlowRule rule,
+                                                  Object value, long costTime) {
+        int slot = counterStore.slotOf(HotParamCounterStore.keyOf(value));
+        while (true) {
+            long currentTime = TimeUtil.currentTimeMillis();
+            long state = counterStore.get(slot);
+            if (state == HotParamCounterStore.EMPTY) {
+                if (counterStore.compareAndSet(slot, state, counterStore.pack(currentTime, 0))) {
+                    return true;
+                }
+                continue;
+            }
+            long expectedTime = counterStore.timeOf(state) + costTime;
+            if (expectedTime <= currentTime || expectedTime - currentTime < rule.getMaxQueueingTimeMs()) {
+                long waitTime = expectedTime - currentTime;
+                if (!counterStore.compareAndSet(slot, state,
+                    counterStore.pack(waitTime > 0 ? expectedTime : currentTime, 0))) {
+                    Thread.yield();
+                    continue;
+                }
+                if (waitTime > 0) {
+                    if (NonBlockingPacing.deferWait(waitTime)) {
+                        return true;
+                    }
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(waitTime);
+                    } catch (InterruptedException e) {
+                        RecordLog.warn("passThrottleLocalCheck: wait interrupted", e);
+                    }
+                }
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
     private static ParameterMetric getParameterMetric(ResourceWrapper resourceWrapper) {
         // Should not be null.
         return ParameterMetricStorage.getParamMetric(resourceWrapper);
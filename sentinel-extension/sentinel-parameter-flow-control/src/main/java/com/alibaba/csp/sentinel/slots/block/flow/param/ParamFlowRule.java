@@ -82,6 +82,35 @@ public class ParamFlowRule extends AbstractRule {
      */
     private ParamFlowClusterConfig clusterConfig;
 
+    /**
+     * Whether to count the parameter values of a QPS rule with default behavior in a fixed-memory sketch
+     * rather than per value, which limits the hot values approximately regardless of the amount of the values.
+     * The rule is invalid if it's in sketch mode with other control behaviors.
+     *
+     * @since 1.8.2
+     */
+    private boolean sketchMode = false;
+    /**
+     * Counters per row of the sketch (at most 65536). Larger width means less overestimation of the values.
+     *
+     * @since 1.8.2
+     */
+    private int sketchWidth = 2048;
+    /**
+     * Rows of the sketch (at most 8). Larger depth means higher probability that the overestimation is bounded.
+     *
+     * @since 1.8.2
+     */
+    private int sketchDepth = 4;
+
+    /**
+     * Amount of the hottest parameter values to track with pass and block QPS in a sliding window,
+     * 0 (default) to disable.
+     *
+     * @since 1.8.2
+     */
+    private int topValueCount = 0;
+
     public int getControlBehavior() {
         return controlBehavior;
     }
@@ -188,6 +217,42 @@ public class ParamFlowRule extends AbstractRule {
         return this;
     }
 
+    public boolean isSketchMode() {
+        return sketchMode;
+    }
+
+    public ParamFlowRule setSketchMode(boolean sketchMode) {
+        this.sketchMode = sketchMode;
+        return this;
+    }
+
+    public int getSketchWidth() {
+        return sketchWidth;
+    }
+
+    public ParamFlowRule setSketchWidth(int sketchWidth) {
+        this.sketchWidth = sketchWidth;
+        return this;
+    }
+
+    public int getSketchDepth() {
+        return sketchDepth;
+    }
+
+    public ParamFlowRule setSketchDepth(int sketchDepth) {
+        this.sketchDepth = sketchDepth;
+        return this;
+    }
+
+    public int getTopValueCount() {
+        return topValueCount;
+    }
+
+    public ParamFlowRule setTopValueCount(int topValueCount) {
+        this.topValueCount = topValueCount;
+        return this;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) { return true; }
@@ -203,6 +268,10 @@ public class ParamFlowRule extends AbstractRule {
         if (burstCount != that.burstCount) { return false; }
         if (durationInSec != that.durationInSec) { return false; }
         if (clusterMode != that.clusterMode) { return false; }
+        if (sketchMode != that.sketchMode) { return false; }
+        if (sketchWidth != that.sketchWidth) { return false; }
+        if (sketchDepth != that.sketchDepth) { return false; }
+        if (topValueCount != that.topValueCount) { return false; }
         if (!Objects.equals(paramIdx, that.paramIdx)) { return false; }
         if (!Objects.equals(paramFlowItemList, that.paramFlowItemList)) { return false; }
         return Objects.equals(clusterConfig, that.clusterConfig);
@@ -223,6 +292,10 @@ public class ParamFlowRule extends AbstractRule {
         result = 31 * result + (paramFlowItemList != null ? paramFlowItemList.hashCode() : 0);
         result = 31 * result + (clusterMode ? 1 : 0);
         result = 31 * result + (clusterConfig != null ? clusterConfig.hashCode() : 0);
+        result = 31 * result + (sketchMode ? 1 : 0);
+        result = 31 * result + sketchWidth;
+        result = 31 * result + sketchDepth;
+        result = 31 * result + topValueCount;
         return result;
     }
 
@@ -239,6 +312,10 @@ public class ParamFlowRule extends AbstractRule {
             ", paramFlowItemList=" + paramFlowItemList +
             ", clusterMode=" + clusterMode +
             ", clusterConfig=" + clusterConfig +
+            ", sketchMode=" + sketchMode +
+            ", sketchWidth=" + sketchWidth +
+            ", sketchDepth=" + sketchDepth +
+            ", topValueCount=" + topValueCount +
             '}';
     }
 }
@@ -20,11 +20,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import com.alibaba.csp.sentinel.IdleResourceReclaimer;
 import com.alibaba.csp.sentinel.log.RecordLog;
 import com.alibaba.csp.sentinel.property.DynamicSentinelProperty;
 import com.alibaba.csp.sentinel.property.PropertyListener;
 import com.alibaba.csp.sentinel.property.SentinelProperty;
 import com.alibaba.csp.sentinel.util.AssertUtil;
+import com.alibaba.csp.sentinel.util.function.Predicate;
 
 /**
  * Manager for frequent ("hot-spot") parameter flow rules.
@@ -42,6 +44,13 @@ public final class ParamFlowRuleManager {
 
     static {
         currentProperty.addListener(PROPERTY_LISTENER);
+        // Resources with parameter flow rules should never be reclaimed when idle.
+        IdleResourceReclaimer.addRuleReferenceChecker(new Predicate<String>() {
+            @Override
+            public boolean test(String resourceName) {
+                return hasRules(resourceName);
+            }
+        });
     }
 
     /**
@@ -27,6 +27,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import com.alibaba.csp.sentinel.log.RecordLog;
 import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleUtil;
+import com.alibaba.csp.sentinel.slots.statistic.cache.SlidingWindowCountMinSketch;
+import com.alibaba.csp.sentinel.slots.statistic.metric.ParamTopValueLeapArray;
 import com.alibaba.csp.sentinel.util.AssertUtil;
 import com.alibaba.csp.sentinel.util.StringUtil;
 import com.alibaba.csp.sentinel.util.function.Function;
@@ -48,7 +50,18 @@ public final class ParamFlowRuleUtil {
             && rule.getGrade() >= 0 && rule.getParamIdx() != null
             && rule.getBurstCount() >= 0 && rule.getControlBehavior() >= 0
             && rule.getDurationInSec() > 0 && rule.getMaxQueueingTimeMs() >= 0
-            && checkCluster(rule);
+            && rule.getTopValueCount() >= 0 && rule.getTopValueCount() <= ParamTopValueLeapArray.MAX_TOP_COUNT
+            && checkCluster(rule) && checkSketch(rule);
+    }
+
+    private static boolean checkSketch(/*@PreChecked*/ ParamFlowRule rule) {
+        if (!rule.isSketchMode()) {
+            return true;
+        }
+        // The sketch only counts the values, so it does not support shaping behaviors.
+        return rule.getControlBehavior() == RuleConstant.CONTROL_BEHAVIOR_DEFAULT
+            && rule.getSketchWidth() > 0 && rule.getSketchWidth() <= SlidingWindowCountMinSketch.MAX_WIDTH
+            && rule.getSketchDepth() > 0 && rule.getSketchDepth() <= SlidingWindowCountMinSketch.MAX_DEPTH;
     }
 
     private static boolean checkCluster(/*@PreChecked*/ ParamFlowRule rule) {
@@ -16,15 +16,21 @@
 package com.alibaba.csp.sentinel.slots.block.flow.param;
 
 import java.lang.reflect.Array;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.alibaba.csp.sentinel.config.SentinelConfig;
 import com.alibaba.csp.sentinel.log.RecordLog;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 import com.alibaba.csp.sentinel.slots.statistic.cache.CacheMap;
 import com.alibaba.csp.sentinel.slots.statistic.cache.ConcurrentLinkedHashMapWrapper;
+import com.alibaba.csp.sentinel.slots.statistic.cache.HotParamCounterStore;
+import com.alibaba.csp.sentinel.slots.statistic.cache.HotParamThreadCounter;
+import com.alibaba.csp.sentinel.slots.statistic.cache.SlidingWindowCountMinSketch;
+import com.alibaba.csp.sentinel.slots.statistic.metric.ParamTopValueLeapArray;
 
 /**
  * Metrics for frequent ("hot spot") parameters.
@@ -34,9 +40,22 @@ import com.alibaba.csp.sentinel.slots.statistic.cache.ConcurrentLinkedHashMapWra
  */
 public class ParameterMetric {
 
+    /**
+     * Type of the counters of QPS rules: {@code map} (default) for the {@link CacheMap}s,
+     * or {@code primitive} for the {@link HotParamCounterStore}.
+     *
+     * @since 1.8.2
+     */
+    public static final String COUNTER_STORE_TYPE = "csp.sentinel.param.flow.counter.store";
+    public static final String COUNTER_STORE_MAP = "map";
+    public static final String COUNTER_STORE_PRIMITIVE = "primitive";
+
     private static final int THREAD_COUNT_MAX_CAPACITY = 4000;
     private static final int BASE_PARAM_MAX_CAPACITY = 4000;
     private static final int TOTAL_MAX_CAPACITY = 20_0000;
+    private static final int SKETCH_SUB_WINDOWS = 4;
+    private static final int TOP_VALUE_SAMPLE_COUNT = 2;
+    private static final int TOP_VALUE_INTERVAL_MS = 1000;
 
     private final Object lock = new Object();
 
@@ -52,7 +71,41 @@ public class ParameterMetric {
      * @since 1.6.0
      */
     private final Map<ParamFlowRule, CacheMap<Object, AtomicLong>> ruleTokenCounter = new HashMap<>();
-    private final Map<Integer, CacheMap<Object, AtomicInteger>> threadCountMap = new HashMap<>();
+    /**
+     * Thread counters of the parameter indexes of thread-grade rules, replaced as a whole when changed,
+     * so that entry and exit only walk the tracked indexes.
+     *
+     * @since 1.8.2
+     */
+    private volatile ThreadCounters threadCounters = ThreadCounters.EMPTY;
+    /**
+     * Format: (rule, counterStore), only for QPS rules when the primitive counter store is enabled.
+     *
+     * @since 1.8.2
+     */
+    private final Map<ParamFlowRule, HotParamCounterStore> ruleCounterStores = new HashMap<>();
+    /**
+     * Format: (rule, sketch), only for QPS rules with default behavior in sketch mode.
+     *
+     * @since 1.8.2
+     */
+    private final Map<ParamFlowRule, SlidingWindowCountMinSketch> ruleSketches = new HashMap<>();
+    /**
+     * Format: (rule, topValues), only for rules tracking the top values.
+     *
+     * @since 1.8.2
+     */
+    private final Map<ParamFlowRule, ParamTopValueLeapArray> ruleTopValues = new HashMap<>();
+
+    private final boolean counterStoreEnabled;
+
+    public ParameterMetric() {
+        this(COUNTER_STORE_PRIMITIVE.equalsIgnoreCase(SentinelConfig.getConfig(COUNTER_STORE_TYPE)));
+    }
+
+    ParameterMetric(boolean counterStoreEnabled) {
+        this.counterStoreEnabled = counterStoreEnabled;
+    }
 
     /**
      * Get the token counter for given parameter rule.
@@ -76,11 +129,48 @@ public class ParameterMetric {
         return ruleTimeCounters.get(rule);
     }
 
+    /**
+     * Get the primitive counter store for given parameter rule, which replaces the token counter
+     * and the time counter if present.
+     *
+     * @param rule valid parameter rule
+     * @return the associated counter store, or null if the rule uses the counter maps
+     * @since 1.8.2
+     */
+    public HotParamCounterStore getRuleCounterStore(ParamFlowRule rule) {
+        return ruleCounterStores.get(rule);
+    }
+
+    /**
+     * Get the sketch for given parameter rule, which replaces the counters of the values if present.
+     *
+     * @param rule valid parameter rule
+     * @return the associated sketch, or null if the rule is not in sketch mode
+     * @since 1.8.2
+     */
+    public SlidingWindowCountMinSketch getRuleSketch(ParamFlowRule rule) {
+        return ruleSketches.get(rule);
+    }
+
+    /**
+     * Get the sliding window of the hottest values for given parameter rule.
+     *
+     * @param rule valid parameter rule
+     * @return the associated top values, or null if the rule does not track the top values
+     * @since 1.8.2
+     */
+    public ParamTopValueLeapArray getRuleTopValues(ParamFlowRule rule) {
+        return ruleTopValues.get(rule);
+    }
+
     public void clear() {
         synchronized (lock) {
-            threadCountMap.clear();
+            threadCounters = ThreadCounters.EMPTY;
             ruleTimeCounters.clear();
             ruleTokenCounter.clear();
+            ruleCounterStores.clear();
+            ruleSketches.clear();
+            ruleTopValues.clear();
         }
     }
 
@@ -88,11 +178,44 @@ public class ParameterMetric {
         synchronized (lock) {
             ruleTimeCounters.remove(rule);
             ruleTokenCounter.remove(rule);
-            threadCountMap.remove(rule.getParamIdx());
+            ruleCounterStores.remove(rule);
+            ruleSketches.remove(rule);
+            ruleTopValues.remove(rule);
+            if (rule.getParamIdx() != null) {
+                threadCounters = threadCounters.without(rule.getParamIdx());
+            }
         }
     }
 
     public void initialize(ParamFlowRule rule) {
+        if (isSketchRule(rule) && !ruleSketches.containsKey(rule)) {
+            synchronized (lock) {
+                if (ruleSketches.get(rule) == null) {
+                    ruleSketches.put(rule, new SlidingWindowCountMinSketch(rule.getSketchWidth(),
+                        rule.getSketchDepth(), rule.getDurationInSec() * 1000, SKETCH_SUB_WINDOWS));
+                }
+            }
+        }
+
+        if (rule.getTopValueCount() > 0 && !ruleTopValues.containsKey(rule)) {
+            synchronized (lock) {
+                if (ruleTopValues.get(rule) == null) {
+                    ruleTopValues.put(rule, new ParamTopValueLeapArray(TOP_VALUE_SAMPLE_COUNT,
+                        TOP_VALUE_INTERVAL_MS, rule.getTopValueCount()));
+                }
+            }
+        }
+
+        if (counterStoreEnabled && !isSketchRule(rule) && rule.getGrade() == RuleConstant.FLOW_GRADE_QPS
+            && !ruleCounterStores.containsKey(rule) && fitsCounterStore(rule)) {
+            synchronized (lock) {
+                if (ruleCounterStores.get(rule) == null) {
+                    long size = Math.min(BASE_PARAM_MAX_CAPACITY * rule.getDurationInSec(), TOTAL_MAX_CAPACITY);
+                    ruleCounterStores.put(rule, new HotParamCounterStore((int)size));
+                }
+            }
+        }
+
         if (!ruleTimeCounters.containsKey(rule)) {
             synchronized (lock) {
                 if (ruleTimeCounters.get(rule) == null) {
@@ -111,141 +234,99 @@ public class ParameterMetric {
             }
         }
 
-        if (!threadCountMap.containsKey(rule.getParamIdx())) {
+        if (rule.getGrade() == RuleConstant.FLOW_GRADE_THREAD && threadCounters.get(rule.getParamIdx()) == null) {
             synchronized (lock) {
-                if (threadCountMap.get(rule.getParamIdx()) == null) {
-                    threadCountMap.put(rule.getParamIdx(),
-                        new ConcurrentLinkedHashMapWrapper<Object, AtomicInteger>(THREAD_COUNT_MAX_CAPACITY));
+                if (threadCounters.get(rule.getParamIdx()) == null) {
+                    threadCounters = threadCounters.with(rule.getParamIdx(),
+                        new HotParamThreadCounter(THREAD_COUNT_MAX_CAPACITY));
                 }
             }
         }
     }
 
-    @SuppressWarnings("rawtypes")
     public void decreaseThreadCount(Object... args) {
-        if (args == null) {
+        updateThreadCount(false, args);
+    }
+
+    public void addThreadCount(Object... args) {
+        updateThreadCount(true, args);
+    }
+
+    @SuppressWarnings("rawtypes")
+    private void updateThreadCount(boolean increase, Object... args) {
+        ThreadCounters counters = this.threadCounters;
+        if (args == null || counters.indexes.length == 0) {
             return;
         }
 
         try {
-            for (int index = 0; index < args.length; index++) {
-                CacheMap<Object, AtomicInteger> threadCount = threadCountMap.get(index);
-                if (threadCount == null) {
+            for (int i = 0; i < counters.indexes.length; i++) {
+                int index = counters.indexes[i];
+                if (index < 0 || index >= args.length) {
                     continue;
                 }
-
                 Object arg = args[index];
+                if (arg instanceof ParamFlowArgument) {
+                    arg = ((ParamFlowArgument)arg).paramFlowKey();
+                }
                 if (arg == null) {
                     continue;
                 }
-                if (Collection.class.isAssignableFrom(arg.getClass())) {
 
+                HotParamThreadCounter counter = counters.counters[i];
+                if (arg instanceof Collection) {
                     for (Object value : ((Collection)arg)) {
-                        AtomicInteger oldValue = threadCount.putIfAbsent(value, new AtomicInteger());
-                        if (oldValue != null) {
-                            int currentValue = oldValue.decrementAndGet();
-                            if (currentValue <= 0) {
-                                threadCount.remove(value);
-                            }
-                        }
-
+                        updateThreadCount(counter, value, increase);
                     }
                 } else if (arg.getClass().isArray()) {
                     int length = Array.getLength(arg);
-                    for (int i = 0; i < length; i++) {
-                        Object value = Array.get(arg, i);
-                        AtomicInteger oldValue = threadCount.putIfAbsent(value, new AtomicInteger());
-                        if (oldValue != null) {
-                            int currentValue = oldValue.decrementAndGet();
-                            if (currentValue <= 0) {
-                                threadCount.remove(value);
-                            }
-                        }
-
+                    for (int j = 0; j < length; j++) {
+                        updateThreadCount(counter, Array.get(arg, j), increase);
                     }
                 } else {
-                    AtomicInteger oldValue = threadCount.putIfAbsent(arg, new AtomicInteger());
-                    if (oldValue != null) {
-                        int currentValue = oldValue.decrementAndGet();
-                        if (currentValue <= 0) {
-                            threadCount.remove(arg);
-                        }
-                    }
-
+                    updateThreadCount(counter, arg, increase);
                 }
-
             }
         } catch (Throwable e) {
             RecordLog.warn("[ParameterMetric] Param exception", e);
         }
     }
 
-    @SuppressWarnings("rawtypes")
-    public void addThreadCount(Object... args) {
-        if (args == null) {
+    private static void updateThreadCount(HotParamThreadCounter counter, Object value, boolean increase) {
+        if (value == null) {
             return;
         }
-
-        try {
-            for (int index = 0; index < args.length; index++) {
-                CacheMap<Object, AtomicInteger> threadCount = threadCountMap.get(index);
-                if (threadCount == null) {
-                    continue;
-                }
-
-                Object arg = args[index];
-
-                if (arg == null) {
-                    continue;
-                }
-
-                if (Collection.class.isAssignableFrom(arg.getClass())) {
-                    for (Object value : ((Collection)arg)) {
-                        AtomicInteger oldValue = threadCount.putIfAbsent(value, new AtomicInteger());
-                        if (oldValue != null) {
-                            oldValue.incrementAndGet();
-                        } else {
-                            threadCount.put(value, new AtomicInteger(1));
-                        }
-
-                    }
-                } else if (arg.getClass().isArray()) {
-                    int length = Array.getLength(arg);
-                    for (int i = 0; i < length; i++) {
-                        Object value = Array.get(arg, i);
-                        AtomicInteger oldValue = threadCount.putIfAbsent(value, new AtomicInteger());
-                        if (oldValue != null) {
-                            oldValue.incrementAndGet();
-                        } else {
-                            threadCount.put(value, new AtomicInteger(1));
-                        }
-
-                    }
-                } else {
-                    AtomicInteger oldValue = threadCount.putIfAbsent(arg, new AtomicInteger());
-                    if (oldValue != null) {
-                        oldValue.incrementAndGet();
-                    } else {
-                        threadCount.put(arg, new AtomicInteger(1));
-                    }
-
-                }
-
-            }
-
-        } catch (Throwable e) {
-            RecordLog.warn("[ParameterMetric] Param exception", e);
+        if (increase) {
+            counter.increment(value);
+        } else {
+            counter.decrement(value);
         }
     }
 
     public long getThreadCount(int index, Object value) {
-        CacheMap<Object, AtomicInteger> cacheMap = threadCountMap.get(index);
-        if (cacheMap == null) {
+        HotParamThreadCounter counter = threadCounters.get(index);
+        if (counter == null) {
             return 0;
         }
+        return counter.get(value);
+    }
 
-        AtomicInteger count = cacheMap.get(value);
-        return count == null ? 0L : count.get();
+    private static boolean isSketchRule(ParamFlowRule rule) {
+        return rule.isSketchMode() && rule.getGrade() == RuleConstant.FLOW_GRADE_QPS
+            && rule.getControlBehavior() == RuleConstant.CONTROL_BEHAVIOR_DEFAULT;
+    }
+
+    /**
+     * Tokens of a rule should be kept in a packed state of the counter store.
+     */
+    private static boolean fitsCounterStore(ParamFlowRule rule) {
+        long maxCount = (long)rule.getCount();
+        if (rule.getParsedHotItems() != null) {
+            for (Integer itemCount : rule.getParsedHotItems().values()) {
+                maxCount = Math.max(maxCount, itemCount);
+            }
+        }
+        return maxCount + rule.getBurstCount() <= HotParamCounterStore.MAX_TOKENS;
     }
 
     /**
@@ -257,11 +338,78 @@ public class ParameterMetric {
         return ruleTokenCounter;
     }
 
-    Map<Integer, CacheMap<Object, AtomicInteger>> getThreadCountMap() {
-        return threadCountMap;
+    Map<Integer, HotParamThreadCounter> getThreadCounterMap() {
+        ThreadCounters counters = this.threadCounters;
+        Map<Integer, HotParamThreadCounter> map = new HashMap<>();
+        for (int i = 0; i < counters.indexes.length; i++) {
+            map.put(counters.indexes[i], counters.counters[i]);
+        }
+        return map;
     }
 
     Map<ParamFlowRule, CacheMap<Object, AtomicLong>> getRuleTimeCounterMap() {
         return ruleTimeCounters;
     }
+
+    Map<ParamFlowRule, HotParamCounterStore> getRuleCounterStoreMap() {
+        return ruleCounterStores;
+    }
+
+    Map<ParamFlowRule, SlidingWindowCountMinSketch> getRuleSketchMap() {
+        return ruleSketches;
+    }
+
+    Map<ParamFlowRule, ParamTopValueLeapArray> getRuleTopValuesMap() {
+        return ruleTopValues;
+    }
+
+    /**
+     * Immutable snapshot of the thread counters by parameter index.
+     */
+    private static final class ThreadCounters {
+
+        static final ThreadCounters EMPTY = new ThreadCounters(new int[0], new HotParamThreadCounter[0]);
+
+        final int[] indexes;
+        final HotParamThreadCounter[] counters;
+
+        ThreadCounters(int[] indexes, HotParamThreadCounter[] counters) {
+            this.indexes = indexes;
+            this.counters = counters;
+        }
+
+        HotParamThreadCounter get(int index) {
+            for (int i = 0; i < indexes.length; i++) {
+                if (indexes[i] == index) {
+                    return counters[i];
+                }
+            }
+            return null;
+        }
+
+        ThreadCounters with(int index, HotParamThreadCounter counter) {
+            int n = indexes.length;
+            int[] newIndexes = Arrays.copyOf(indexes, n + 1);
+            HotParamThreadCounter[] newCounters = Arrays.copyOf(counters, n + 1);
+            newIndexes[n] = index;
+            newCounters[n] = counter;
+            return new ThreadCounters(newIndexes, newCounters);
+        }
+
+        ThreadCounters without(int index) {
+            if (get(index) == null) {
+                return this;
+            }
+            int n = indexes.length;
+            int[] newIndexes = new int[n - 1];
+            HotParamThreadCounter[] newCounters = new HotParamThreadCounter[n - 1];
+            for (int i = 0, j = 0; i < n; i++) {
+                if (indexes[i] != index) {
+                    newIndexes[j] = indexes[i];
+                    newCounters[j++] = counters[i];
+                }
+            }
+            return new ThreadCounters(newIndexes, newCounters);
+        }
+    }
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+/**
+ * <p>A lock-free counter store for hot parameters, as a replacement of a pair of
+ * {@code CacheMap<Object, AtomicLong>} (token counter and time counter) of a rule.</p>
+ *
+ * <p>Parameter values are keyed by a 64-bit fingerprint (see {@link #keyOf(Object)}) in an open-addressing
+ * table of primitive arrays, and the state of a value packs the tokens and the last time into one {@code long},
+ * so that a check is done with a single CAS without allocating anything. When all the slots probed for
+ * a new value are taken, the slot updated least recently among them is evicted (approximate LRU).</p>
+ *
+ * <p>The store is approximate: values with the same fingerprint share the state, and a value may see
+ * the state of the evicted value right after an eviction.</p>
+ *
+ * @since 1.8.2
+ */
+public final class HotParamCounterStore {
+
+    /**
+     * The state of a slot that has never been updated.
+     */
+    public static final long EMPTY = 0L;
+
+    private static final int TOKEN_BITS = 23;
+    /**
+     * Max tokens that can be kept in a state.
+     */
+    public static final long MAX_TOKENS = (1L << TOKEN_BITS) - 1;
+    private static final long MAX_RELATIVE_TIME = (1L << (Long.SIZE - TOKEN_BITS)) - 1;
+
+    private static final int MAX_PROBES = 8;
+    /**
+     * Fingerprint of the empty key is replaced by this, since 0 marks empty slots.
+     */
+    private static final long ZERO_KEY = 0x9E3779B97F4A7C15L;
+
+    private final int mask;
+    private final AtomicLongArray keys;
+    private final AtomicLongArray states;
+    /**
+     * Times are kept relative to the base time, which is positive so that states are never empty.
+     */
+    private final long baseTime;
+
+    /**
+     * @param maxCapacity max amount of the parameter values kept approximately
+     */
+    public HotParamCounterStore(int maxCapacity) {
+        if (maxCapacity <= 0) {
+            throw new IllegalArgumentException("Cache max capacity should be positive: " + maxCapacity);
+        }
+        // Keep the load factor under 0.75.
+        int capacity = Integer.highestOneBit(Math.max(MAX_PROBES, maxCapacity + (maxCapacity / 3)) - 1) << 1;
+        this.mask = capacity - 1;
+        this.keys = new AtomicLongArray(capacity);
+        this.states = new AtomicLongArray(capacity);
+        this.baseTime = TimeUtil.currentTimeMillis() - 1;
+    }
+
+    /**
+     * Get the fingerprint of a parameter value. Integral numbers are their values, and other values
+     * are hashed to 64 bits.
+     */
+    public static long keyOf(Object value) {
+        long key;
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            key = ((Number)value).longValue();
+        } else if (value instanceof String) {
+            key = hash((String)value);
+        } else if (value instanceof Character) {
+            key = (Character)value;
+        } else if (value instanceof Double || value instanceof Float) {
+            key = mix(Double.doubleToLongBits(((Number)value).doubleValue()));
+        } else {
+            key = mix(((long)value.getClass().hashCode() << 32) ^ (value.hashCode() & 0xFFFFFFFFL));
+        }
+        return key == 0 ? ZERO_KEY : key;
+    }
+
+    /**
+     * Find the slot of the key, claiming a free slot or evicting the least recently updated one
+     * among the probed slots if absent.
+     *
+     * @param key fingerprint from {@link #keyOf(Object)}
+     * @return the slot index
+     */
+    public int slotOf(long key) {
+        int start = (int)mix(key) & mask;
+        while (true) {
+            int victim = start;
+            long victimTime = Long.MAX_VALUE;
+            for (int i = 0; i < MAX_PROBES; i++) {
+                int slot = (start + i) & mask;
+                long k = keys.get(slot);
+                if (k == key) {
+                    return slot;
+                }
+                if (k == 0) {
+                    if (keys.compareAndSet(slot, 0, key)) {
+                        return slot;
+                    }
+                    if (keys.get(slot) == key) {
+                        return slot;
+                    }
+                }
+                long time = states.get(slot) >>> TOKEN_BITS;
+                if (time < victimTime) {
+                    victim = slot;
+                    victimTime = time;
+                }
+            }
+            long victimKey = keys.get(victim);
+            if (victimKey == key) {
+                return victim;
+            }
+            if (victimKey != 0 && keys.compareAndSet(victim, victimKey, key)) {
+                states.set(victim, EMPTY);
+                return victim;
+            }
+            // Lost the race of the victim, probe again.
+        }
+    }
+
+    /**
+     * @return the state of the slot, or {@link #EMPTY}
+     */
+    public long get(int slot) {
+        return states.get(slot);
+    }
+
+    public boolean compareAndSet(int slot, long expect, long update) {
+        return states.compareAndSet(slot, expect, update);
+    }
+
+    /**
+     * Pack the time and tokens into a state. Tokens are clamped into [0, {@link #MAX_TOKENS}].
+     */
+    public long pack(long time, long tokens) {
+        long relativeTime = Math.min(Math.max(time - baseTime, 1), MAX_RELATIVE_TIME);
+        return (relativeTime << TOKEN_BITS) | Math.min(Math.max(tokens, 0), MAX_TOKENS);
+    }
+
+    public long timeOf(long state) {
+        return (state >>> TOKEN_BITS) + baseTime;
+    }
+
+    public static long tokensOf(long state) {
+        return state & MAX_TOKENS;
+    }
+
+    /**
+     * @return the state with the tokens replaced, and the time kept
+     */
+    public static long withTokens(long state, long tokens) {
+        return (state & ~MAX_TOKENS) | Math.min(Math.max(tokens, 0), MAX_TOKENS);
+    }
+
+    /**
+     * @return amount of the slots
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return amount of the values kept, which is O(capacity)
+     */
+    public long size() {
+        long size = 0;
+        for (int i = 0; i < keys.length(); i++) {
+            if (keys.get(i) != 0) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < keys.length(); i++) {
+            keys.set(i, 0);
+            states.set(i, EMPTY);
+        }
+    }
+
+    private static long hash(String value) {
+        // FNV-1a.
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    static long mix(long h) {
+        // Finalizer of MurmurHash3.
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
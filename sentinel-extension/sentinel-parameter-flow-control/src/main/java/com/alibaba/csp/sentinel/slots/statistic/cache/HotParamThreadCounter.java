@@ -0,0 +1,249 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Thread counters of parameter values, as a replacement of {@code CacheMap<Object, AtomicInteger>}.</p>
+ *
+ * <p>The counters are primitive slots in fixed segments. A value is hashed once to its segment, and the
+ * segment is scanned under its own lock, so neither entry nor exit allocates anything. The slot of a value
+ * is released when its count drops to zero and reused by other values later. When all the slots of a segment
+ * are in use, the value is counted in an overflow map instead, so every value is always counted and
+ * a decrement never takes the count of another value. The overflow map only holds values with in-flight
+ * threads, so its size is bounded by the amount of concurrent threads.</p>
+ *
+ * @since 1.8.2
+ */
+public final class HotParamThreadCounter {
+
+    private static final int SEGMENT_SIZE = 16;
+
+    private final Segment[] segments;
+    private final int mask;
+
+    /**
+     * Counts of the values whose segment was full when they were counted, guarded by itself.
+     */
+    private final Map<Object, int[]> overflow = new HashMap<>();
+    private volatile int overflowSize;
+
+    /**
+     * @param maxCapacity max amount of the parameter values counted at the same time
+     */
+    public HotParamThreadCounter(int maxCapacity) {
+        if (maxCapacity <= 0) {
+            throw new IllegalArgumentException("Cache max capacity should be positive: " + maxCapacity);
+        }
+        int segmentCount = (maxCapacity + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+        segmentCount = segmentCount == 1 ? 1 : Integer.highestOneBit(segmentCount - 1) << 1;
+        this.mask = segmentCount - 1;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    public void increment(Object value) {
+        // A value that has overflowed keeps being counted in the overflow map until its count drops to zero.
+        if (overflowSize > 0 && updateOverflow(value, 1, false)) {
+            return;
+        }
+        int hash = hash(value);
+        if (!segmentOf(hash).increment(value, hash)) {
+            updateOverflow(value, 1, true);
+        }
+    }
+
+    public void decrement(Object value) {
+        int hash = hash(value);
+        if (!segmentOf(hash).decrement(value, hash) && overflowSize > 0) {
+            updateOverflow(value, -1, false);
+        }
+    }
+
+    /**
+     * @return current thread count of the value
+     */
+    public int get(Object value) {
+        int hash = hash(value);
+        int count = segmentOf(hash).get(value, hash);
+        if (overflowSize > 0) {
+            synchronized (overflow) {
+                int[] overflowCount = overflow.get(value);
+                if (overflowCount != null) {
+                    count += overflowCount[0];
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return amount of the values with positive thread count
+     */
+    public int size() {
+        int size = overflowSize;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return amount of the values counted in the overflow map
+     */
+    public int overflowSize() {
+        return overflowSize;
+    }
+
+    /**
+     * Add the delta to the count of the value in the overflow map.
+     *
+     * @param createIfAbsent whether to count an absent value
+     * @return false if the value is absent and not created
+     */
+    private boolean updateOverflow(Object value, int delta, boolean createIfAbsent) {
+        synchronized (overflow) {
+            int[] count = overflow.get(value);
+            if (count == null) {
+                if (!createIfAbsent) {
+                    return false;
+                }
+                count = new int[1];
+                overflow.put(value, count);
+            }
+            count[0] += delta;
+            if (count[0] <= 0) {
+                overflow.remove(value);
+            }
+            overflowSize = overflow.size();
+            return true;
+        }
+    }
+
+    public int capacity() {
+        return segments.length * SEGMENT_SIZE;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        synchronized (overflow) {
+            overflow.clear();
+            overflowSize = 0;
+        }
+    }
+
+    private Segment segmentOf(int hash) {
+        return segments[hash & mask];
+    }
+
+    private static int hash(Object value) {
+        int h = value.hashCode();
+        // Mix all the bits (finalizer of MurmurHash3), so that regular hash codes (e.g. integral values
+        // that are multiples of the segment count) are spread over the segments rather than one segment.
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static final class Segment {
+
+        private final Object[] values = new Object[SEGMENT_SIZE];
+        private final int[] hashes = new int[SEGMENT_SIZE];
+        private final int[] counts = new int[SEGMENT_SIZE];
+
+        /**
+         * @return false if the value is absent and all the slots are in use
+         */
+        synchronized boolean increment(Object value, int hash) {
+            int free = -1;
+            for (int i = 0; i < SEGMENT_SIZE; i++) {
+                Object v = values[i];
+                if (v == null) {
+                    if (free < 0) {
+                        free = i;
+                    }
+                } else if (hashes[i] == hash && v.equals(value)) {
+                    counts[i]++;
+                    return true;
+                }
+            }
+            if (free < 0) {
+                return false;
+            }
+            values[free] = value;
+            hashes[free] = hash;
+            counts[free] = 1;
+            return true;
+        }
+
+        /**
+         * @return false if the value is not counted in the segment
+         */
+        synchronized boolean decrement(Object value, int hash) {
+            int i = indexOf(value, hash);
+            if (i < 0) {
+                return false;
+            }
+            if (--counts[i] <= 0) {
+                // Release the slot.
+                values[i] = null;
+                counts[i] = 0;
+            }
+            return true;
+        }
+
+        synchronized int get(Object value, int hash) {
+            int i = indexOf(value, hash);
+            return i < 0 ? 0 : counts[i];
+        }
+
+        synchronized int size() {
+            int size = 0;
+            for (Object v : values) {
+                if (v != null) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        synchronized void clear() {
+            for (int i = 0; i < SEGMENT_SIZE; i++) {
+                values[i] = null;
+                counts[i] = 0;
+            }
+        }
+
+        private int indexOf(Object value, int hash) {
+            for (int i = 0; i < SEGMENT_SIZE; i++) {
+                Object v = values[i];
+                if (v != null && hashes[i] == hash && v.equals(value)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
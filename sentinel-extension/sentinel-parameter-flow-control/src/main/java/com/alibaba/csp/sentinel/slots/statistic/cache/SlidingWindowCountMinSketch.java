@@ -0,0 +1,198 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.alibaba.csp.sentinel.util.TimeUtil;
+
+/**
+ * <p>A Count-Min Sketch of the counts of parameter values in a sliding window, with a fixed memory footprint
+ * of {@code 8 * subWindows * depth * width} bytes regardless of the amount of distinct values.</p>
+ *
+ * <p>The window is split into sub-windows, each of which has {@code depth} rows of {@code width} counters,
+ * and a value is counted in one counter per row of the current sub-window. The count of a value in the window
+ * is estimated by the minimum among the rows of the sum of its counters in the valid sub-windows. The estimation
+ * never underestimates, and overestimates by at most {@code e / width} of the total count in the window
+ * with probability {@code 1 - e^(-depth)}. Counters are updated conservatively (only raised to the estimation
+ * of the sub-window), which reduces the overestimation of the light values in practice.</p>
+ *
+ * <p>The window slides by sub-windows, so the counts cover between {@code windowMs - windowMs / subWindows}
+ * and {@code windowMs}. Each counter carries the sub-window it was counted in, so the counters of a deprecated
+ * sub-window are cleared lazily when they are counted again, rather than all at once when the window slides.</p>
+ *
+ * @since 1.8.2
+ */
+public final class SlidingWindowCountMinSketch {
+
+    public static final int MAX_WIDTH = 1 << 16;
+    public static final int MAX_DEPTH = 8;
+
+    private static final long COUNT_MASK = 0xFFFFFFFFL;
+
+    private final int width;
+    private final int mask;
+    private final int depth;
+    private final int subWindows;
+    private final long subWindowMs;
+
+    /**
+     * Counters of (subWindow, row, column). The high 32 bits hold the sequence of the sub-window
+     * ({@code startTime / subWindowMs}) that the count belongs to, and the low 32 bits hold the count.
+     */
+    private final AtomicLongArray counters;
+
+    /**
+     * @param width      counters per row, rounded up to a power of two
+     * @param depth      rows, namely hash functions
+     * @param windowMs   length of the sliding window in ms
+     * @param subWindows amount of the sub-windows, at least 2
+     */
+    public SlidingWindowCountMinSketch(int width, int depth, long windowMs, int subWindows) {
+        if (width <= 0 || width > MAX_WIDTH) {
+            throw new IllegalArgumentException("Sketch width should be in (0, " + MAX_WIDTH + "]: " + width);
+        }
+        if (depth <= 0 || depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Sketch depth should be in (0, " + MAX_DEPTH + "]: " + depth);
+        }
+        if (subWindows < 2 || windowMs < subWindows || windowMs % subWindows != 0) {
+            throw new IllegalArgumentException("Window " + windowMs + "ms can't be split into "
+                + subWindows + " sub-windows");
+        }
+        this.width = width == 1 ? 1 : Integer.highestOneBit(width - 1) << 1;
+        this.mask = this.width - 1;
+        this.depth = depth;
+        this.subWindows = subWindows;
+        this.subWindowMs = windowMs / subWindows;
+        this.counters = new AtomicLongArray(subWindows * depth * this.width);
+    }
+
+    /**
+     * Count the value if its estimated count in the window plus the given count does not exceed the threshold.
+     * Concurrent calls of the same value may exceed the threshold slightly.
+     *
+     * @param key       fingerprint from {@link HotParamCounterStore#keyOf(Object)}
+     * @param count     count to add
+     * @param threshold max count of the value in the window
+     * @return true if counted, or false if the threshold would be exceeded
+     */
+    public boolean tryAcquire(long key, int count, long threshold) {
+        long now = TimeUtil.currentTimeMillis();
+        int sequence = sequenceOf(now);
+        int current = (int)((now / subWindowMs) % subWindows);
+        long h = HotParamCounterStore.mix(key);
+        int h1 = (int)h;
+        int h2 = (int)(h >>> 32) | 1;
+
+        long estimate = Long.MAX_VALUE;
+        int currentMin = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = (h1 + row * h2) & mask;
+            long sum = 0;
+            for (int w = 0; w < subWindows; w++) {
+                int value = countOf(counters.get(indexOf(w, row, column)), sequence);
+                sum += value;
+                if (w == current) {
+                    currentMin = Math.min(currentMin, value);
+                }
+            }
+            estimate = Math.min(estimate, sum);
+        }
+        if (estimate + count > threshold) {
+            return false;
+        }
+
+        // Conservative update: raise the counters of the value in the current sub-window to the new estimation.
+        int target = currentMin + count;
+        long packed = ((long)sequence << 32) | (target & COUNT_MASK);
+        for (int row = 0; row < depth; row++) {
+            int index = indexOf(current, row, (h1 + row * h2) & mask);
+            while (true) {
+                long old = counters.get(index);
+                // The count of a deprecated sub-window is dropped here.
+                if (((int)(old >>> 32) == sequence && (int)old >= target)
+                    || counters.compareAndSet(index, old, packed)) {
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param key fingerprint from {@link HotParamCounterStore#keyOf(Object)}
+     * @return the estimated count of the value in the window, which is never less than the real count
+     */
+    public long estimate(long key) {
+        int sequence = sequenceOf(TimeUtil.currentTimeMillis());
+        long h = HotParamCounterStore.mix(key);
+        int h1 = (int)h;
+        int h2 = (int)(h >>> 32) | 1;
+
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int column = (h1 + row * h2) & mask;
+            long sum = 0;
+            for (int w = 0; w < subWindows; w++) {
+                sum += countOf(counters.get(indexOf(w, row, column)), sequence);
+            }
+            estimate = Math.min(estimate, sum);
+        }
+        return estimate;
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * @return bytes of the counters
+     */
+    public long memoryBytes() {
+        return 8L * counters.length();
+    }
+
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /**
+     * Get the count of a packed counter, which is 0 if the counter does not belong to a valid sub-window
+     * at given sequence.
+     */
+    private int countOf(long counter, int sequence) {
+        // Compared in int, which could only wrap around after 2^32 sub-windows.
+        int age = sequence - (int)(counter >>> 32);
+        return age >= 0 && age < subWindows ? (int)counter : 0;
+    }
+
+    /**
+     * Get the sequence of the sub-window of given time, truncated to int.
+     */
+    private int sequenceOf(long now) {
+        return (int)(now / subWindowMs);
+    }
+
+    private int indexOf(int subWindow, int row, int column) {
+        return (subWindow * depth + row) * width + column;
+    }
+}
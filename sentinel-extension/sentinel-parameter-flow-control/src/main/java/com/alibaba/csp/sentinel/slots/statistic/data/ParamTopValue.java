@@ -0,0 +1,55 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.data;
+
+/**
+ * A hot parameter value with its pass and block QPS.
+ *
+ * @since 1.8.2
+ */
+public class ParamTopValue {
+
+    private final Object value;
+    private final double passQps;
+    private final double blockQps;
+
+    public ParamTopValue(Object value, double passQps, double blockQps) {
+        this.value = value;
+        this.passQps = passQps;
+        this.blockQps = blockQps;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public double getPassQps() {
+        return passQps;
+    }
+
+    public double getBlockQps() {
+        return blockQps;
+    }
+
+    @Override
+    public String toString() {
+        return "ParamTopValue{" +
+            "value=" + value +
+            ", passQps=" + passQps +
+            ", blockQps=" + blockQps +
+            '}';
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.alibaba.csp.sentinel.util.AssertUtil;
+
+/**
+ * <p>Metric bucket of the hottest parameter values in a period of time window, which keeps at most
+ * {@code capacity} values with the Space-Saving algorithm.</p>
+ *
+ * <p>The values are kept in a min-heap by their counts. When a new value arrives and the bucket is full,
+ * it replaces the value of the minimum count and inherits the count as its error, so that any value counted
+ * more than {@code total / capacity} times is kept, and the work of each update is {@code O(log capacity)}
+ * rather than depending on the amount of distinct values.</p>
+ *
+ * <p>The bucket is striped by threads to avoid contention on the hot path: each stripe keeps its own heap
+ * under its own lock, and the stripes are merged when queried. Resetting the bucket only increases its
+ * generation, and a stripe of a former generation is cleared by the next thread that updates it. So the
+ * bucket can be reset while other threads are still adding to it (e.g. the threads that lose the rotation
+ * of the sliding window), and their counts go to the new period.</p>
+ *
+ * @since 1.8.2
+ */
+public class ParamTopValueBucket {
+
+    private static final int STRIPES = stripesFor(Runtime.getRuntime().availableProcessors());
+
+    private final Stripe[] stripes;
+    private final AtomicInteger generation = new AtomicInteger();
+
+    public ParamTopValueBucket(int capacity) {
+        AssertUtil.isTrue(capacity > 0, "capacity should be positive");
+        this.stripes = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    public void reset() {
+        generation.incrementAndGet();
+    }
+
+    public ParamTopValueBucket add(Object value, boolean passed, int count) {
+        Stripe stripe = stripes[(int)Thread.currentThread().getId() & (STRIPES - 1)];
+        synchronized (stripe) {
+            // Read within the lock, so that a stripe never goes back to a former generation.
+            stripe.ensureGeneration(generation.get());
+            stripe.add(value, passed, count);
+        }
+        return this;
+    }
+
+    /**
+     * Add the counts of the values in this bucket to the given map.
+     *
+     * @param target format: (value, {pass, block, rank})
+     */
+    public void mergeTo(Map<Object, long[]> target) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.generation == generation.get()) {
+                    stripe.mergeTo(target);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return amount of the values kept in all the stripes, where a value may be counted in several stripes
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (stripe.generation == generation.get()) {
+                    size += stripe.size;
+                }
+            }
+        }
+        return size;
+    }
+
+    private static int stripesFor(int processors) {
+        // Power of two, at most 4.
+        return processors >= 4 ? 4 : (processors >= 2 ? 2 : 1);
+    }
+
+    private static final class Stripe {
+
+        private final Counter[] heap;
+        private final Map<Object, Counter> counters = new HashMap<>();
+        private int size;
+        private int generation;
+
+        private Stripe(int capacity) {
+            this.heap = new Counter[capacity];
+        }
+
+        private void ensureGeneration(int generation) {
+            if (this.generation != generation) {
+                counters.clear();
+                size = 0;
+                this.generation = generation;
+            }
+        }
+
+        private void add(Object value, boolean passed, int count) {
+            Counter counter = counters.get(value);
+            if (counter == null) {
+                if (size < heap.length) {
+                    counter = heap[size];
+                    if (counter == null) {
+                        counter = new Counter();
+                        heap[size] = counter;
+                    }
+                    counter.heapIndex = size++;
+                    counter.reset(value, 0);
+                } else {
+                    // Replace the value of the minimum count.
+                    counter = heap[0];
+                    counters.remove(counter.value);
+                    counter.reset(value, counter.rank());
+                }
+                counters.put(value, counter);
+            }
+            if (passed) {
+                counter.pass += count;
+            } else {
+                counter.block += count;
+            }
+            siftDown(counter.heapIndex);
+        }
+
+        private void mergeTo(Map<Object, long[]> target) {
+            for (int i = 0; i < size; i++) {
+                Counter counter = heap[i];
+                long[] counts = target.get(counter.value);
+                if (counts == null) {
+                    counts = new long[3];
+                    target.put(counter.value, counts);
+                }
+                counts[0] += counter.pass;
+                counts[1] += counter.block;
+                counts[2] += counter.rank();
+            }
+        }
+
+        private void siftDown(int index) {
+            Counter counter = heap[index];
+            long rank = counter.rank();
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1].rank() < heap[child].rank()) {
+                    child++;
+                }
+                if (heap[child].rank() >= rank) {
+                    break;
+                }
+                heap[index] = heap[child];
+                heap[index].heapIndex = index;
+                index = child;
+            }
+            heap[index] = counter;
+            counter.heapIndex = index;
+        }
+    }
+
+    private static class Counter {
+        private Object value;
+        private long pass;
+        private long block;
+        /**
+         * Max overestimation of the count, inherited from the replaced value.
+         */
+        private long error;
+        private int heapIndex;
+
+        private void reset(Object value, long error) {
+            this.value = value;
+            this.pass = 0;
+            this.block = 0;
+            this.error = error;
+        }
+
+        private long rank() {
+            return pass + block + error;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.metric;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.alibaba.csp.sentinel.slots.statistic.base.LeapArray;
+import com.alibaba.csp.sentinel.slots.statistic.base.WindowWrap;
+import com.alibaba.csp.sentinel.slots.statistic.data.ParamTopValue;
+import com.alibaba.csp.sentinel.slots.statistic.data.ParamTopValueBucket;
+
+/**
+ * Sliding window of the hottest parameter values of a rule. Each bucket keeps a bounded amount of values
+ * (see {@link ParamTopValueBucket}), so both updating and querying never scan all the distinct values.
+ *
+ * @since 1.8.2
+ */
+public class ParamTopValueLeapArray extends LeapArray<ParamTopValueBucket> {
+
+    /**
+     * Max amount of the top values of a rule.
+     */
+    public static final int MAX_TOP_COUNT = 1000;
+    /**
+     * Values kept in a bucket for each top value, so that the top values are accurate enough.
+     */
+    private static final int CAPACITY_FACTOR = 4;
+
+    private final int topCount;
+
+    /**
+     * @param sampleCount  bucket count of the sliding window
+     * @param intervalInMs total time length of the sliding window
+     * @param topCount     amount of the top values to keep
+     */
+    public ParamTopValueLeapArray(int sampleCount, int intervalInMs, int topCount) {
+        super(sampleCount, intervalInMs);
+        if (topCount <= 0 || topCount > MAX_TOP_COUNT) {
+            throw new IllegalArgumentException("Top count should be in (0, " + MAX_TOP_COUNT + "]: " + topCount);
+        }
+        this.topCount = topCount;
+    }
+
+    @Override
+    public ParamTopValueBucket newEmptyBucket(long timeMillis) {
+        return new ParamTopValueBucket(topCount * CAPACITY_FACTOR);
+    }
+
+    @Override
+    protected WindowWrap<ParamTopValueBucket> resetWindowTo(WindowWrap<ParamTopValueBucket> w, long startTime) {
+        w.value().reset();
+        w.resetTo(startTime);
+        return w;
+    }
+
+    public void add(Object value, boolean passed, int count) {
+        currentWindow().value().add(value, passed, count);
+    }
+
+    /**
+     * @return the hottest values in the sliding window, in descending order of the total QPS
+     */
+    public List<ParamTopValue> topValues() {
+        Map<Object, long[]> merged = new HashMap<>();
+        for (ParamTopValueBucket bucket : values()) {
+            bucket.mergeTo(merged);
+        }
+        List<Map.Entry<Object, long[]>> entries = new ArrayList<>(merged.entrySet());
+        Collections.sort(entries, new Comparator<Map.Entry<Object, long[]>>() {
+            @Override
+            public int compare(Map.Entry<Object, long[]> o1, Map.Entry<Object, long[]> o2) {
+                return Long.compare(o2.getValue()[2], o1.getValue()[2]);
+            }
+        });
+
+        double intervalInSec = getIntervalInSecond();
+        int size = Math.min(topCount, entries.size());
+        List<ParamTopValue> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long[] counts = entries.get(i).getValue();
+            result.add(new ParamTopValue(entries.get(i).getKey(), counts[0] / intervalInSec,
+                counts[1] / intervalInSec));
+        }
+        return result;
+    }
+
+    public int getTopCount() {
+        return topCount;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow.param;
+
+import java.util.Collections;
+
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
+import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.test.AbstractTimeBasedTest;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ParamFlowChecker} with the primitive counter store.
+ */
+public class ParamFlowCounterStoreCheckerTest extends AbstractTimeBasedTest {
+
+    @After
+    public void tearDown() {
+        ParameterMetricStorage.getMetricsMap().clear();
+    }
+
+    @Test
+    public void testDefaultCheckWithBurst() {
+        setCurrentMillis(System.currentTimeMillis());
+        ResourceWrapper resourceWrapper = new StringResourceWrapper("testDefaultCheckWithBurst", EntryType.IN);
+        ParamFlowRule rule = new ParamFlowRule(resourceWrapper.getName())
+            .setCount(5)
+            .setParamIdx(0)
+            .setBurstCount(3);
+        ParameterMetric metric = initMetric(resourceWrapper, rule);
+        assertNotNull(metric.getRuleCounterStore(rule));
+
+        String valueA = "valueA";
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, valueA));
+        }
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, valueA));
+        // Counted separately.
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, 1001L));
+
+        sleep(1002);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, valueA));
+        }
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, valueA));
+
+        sleep(2000);
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 8, valueA));
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, valueA));
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 9, "valueB"));
+
+        // 48 hours passed.
+        sleep(1000 * 60 * 60 * 48);
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, valueA));
+    }
+
+    @Test
+    public void testDefaultCheckWithHotItems() {
+        setCurrentMillis(System.currentTimeMillis());
+        ResourceWrapper resourceWrapper = new StringResourceWrapper("testDefaultCheckWithHotItems", EntryType.IN);
+        ParamFlowRule rule = new ParamFlowRule(resourceWrapper.getName())
+            .setCount(1)
+            .setParamIdx(0);
+        rule.setParsedHotItems(Collections.<Object, Integer>singletonMap("vip", 3));
+        initMetric(resourceWrapper, rule);
+
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "normal"));
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "normal"));
+        for (int i = 0; i < 3; i++) {
+            assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "vip"));
+        }
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "vip"));
+    }
+
+    @Test
+    public void testThrottleCheck() {
+        setCurrentMillis(System.currentTimeMillis());
+        ResourceWrapper resourceWrapper = new StringResourceWrapper("testThrottleCheck", EntryType.IN);
+        ParamFlowRule rule = new ParamFlowRule(resourceWrapper.getName())
+            .setCount(4)
+            .setParamIdx(0)
+            .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER)
+            .setMaxQueueingTimeMs(0);
+        initMetric(resourceWrapper, rule);
+
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "valueA"));
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "valueA"));
+        sleep(250);
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "valueA"));
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "valueA"));
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "valueB"));
+    }
+
+    @Test
+    public void testFallbackToCounterMaps() {
+        ResourceWrapper resourceWrapper = new StringResourceWrapper("testFallbackToCounterMaps", EntryType.IN);
+        // Too many tokens for the packed state.
+        ParamFlowRule hugeRule = new ParamFlowRule(resourceWrapper.getName())
+            .setCount(1e9)
+            .setParamIdx(0);
+        ParamFlowRule threadRule = new ParamFlowRule(resourceWrapper.getName())
+            .setGrade(RuleConstant.FLOW_GRADE_THREAD)
+            .setCount(1)
+            .setParamIdx(0);
+        ParameterMetric metric = initMetric(resourceWrapper, hugeRule);
+        metric.initialize(threadRule);
+        assertNull(metric.getRuleCounterStore(hugeRule));
+        assertNotNull(metric.getRuleTokenCounter(hugeRule));
+        assertNull(metric.getRuleCounterStore(threadRule));
+
+        metric.clearForRule(hugeRule);
+        metric.clear();
+        assertTrue(metric.getRuleCounterStoreMap().isEmpty());
+    }
+
+    private static ParameterMetric initMetric(ResourceWrapper resourceWrapper, ParamFlowRule rule) {
+        ParameterMetric metric = new ParameterMetric(true);
+        ParameterMetricStorage.getMetricsMap().put(resourceWrapper.getName(), metric);
+        metric.initialize(rule);
+        return metric;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.block.flow.param;
+
+import java.util.Collections;
+
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
+import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
+import com.alibaba.csp.sentinel.test.AbstractTimeBasedTest;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ParamFlowChecker} with rules in sketch mode.
+ */
+public class ParamFlowSketchCheckerTest extends AbstractTimeBasedTest {
+
+    @After
+    public void tearDown() {
+        ParameterMetricStorage.getMetricsMap().clear();
+    }
+
+    @Test
+    public void testDefaultCheck() {
+        setCurrentMillis(System.currentTimeMillis() / 1000 * 1000);
+        ResourceWrapper resourceWrapper = new StringResourceWrapper("testDefaultCheck", EntryType.IN);
+        ParamFlowRule rule = new ParamFlowRule(resourceWrapper.getName())
+            .setCount(5)
+            .setParamIdx(0)
+            .setBurstCount(2)
+            .setSketchMode(true);
+        rule.setParsedHotItems(Collections.<Object, Integer>singletonMap("vip", 10));
+        ParameterMetric metric = initMetric(resourceWrapper, rule);
+        assertNotNull(metric.getRuleSketch(rule));
+        assertNull(metric.getRuleCounterStore(rule));
+
+        for (int i = 0; i < 7; i++) {
+            assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "valueA"));
+        }
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "valueA"));
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 8, "valueB"));
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 7, "valueB"));
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 12, "vip"));
+        assertFalse(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "vip"));
+
+        sleep(1000);
+        assertTrue(ParamFlowChecker.passSingleValueCheck(resourceWrapper, rule, 1, "valueA"));
+    }
+
+    @Test
+    public void testSketchOnlyForDefaultQpsRules() {
+        ResourceWrapper resourceWrapper = new StringResourceWrapper("testSketchOnlyForDefaultQpsRules",
+            EntryType.IN);
+        ParamFlowRule throttleRule = new ParamFlowRule(resourceWrapper.getName())
+            .setCount(5)
+            .setParamIdx(0)
+            .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER)
+            .setSketchMode(true);
+        ParamFlowRule threadRule = new ParamFlowRule(resourceWrapper.getName())
+            .setGrade(RuleConstant.FLOW_GRADE_THREAD)
+            .setCount(5)
+            .setParamIdx(0)
+            .setSketchMode(true);
+        ParameterMetric metric = initMetric(resourceWrapper, throttleRule);
+        metric.initialize(threadRule);
+        assertNull(metric.getRuleSketch(throttleRule));
+        assertNotNull(metric.getRuleCounterStore(throttleRule));
+        assertNull(metric.getRuleSketch(threadRule));
+
+        ParamFlowRule rule = new ParamFlowRule(resourceWrapper.getName())
+            .setCount(5)
+            .setParamIdx(0)
+            .setSketchMode(true);
+        metric.initialize(rule);
+        metric.clearForRule(rule);
+        assertTrue(metric.getRuleSketchMap().isEmpty());
+    }
+
+    @Test
+    public void testValidSketchRule() {
+        ParamFlowRule rule = new ParamFlowRule("abc")
+            .setCount(5)
+            .setParamIdx(0)
+            .setSketchMode(true);
+        assertTrue(ParamFlowRuleUtil.isValidRule(rule));
+        assertFalse(ParamFlowRuleUtil.isValidRule(rule.setSketchWidth(0)));
+        assertFalse(ParamFlowRuleUtil.isValidRule(rule.setSketchWidth(1024).setSketchDepth(9)));
+        assertFalse(ParamFlowRuleUtil.isValidRule(rule.setSketchWidth(1 << 17).setSketchDepth(4)));
+        assertFalse(ParamFlowRuleUtil.isValidRule(rule.setSketchWidth(1024)
+            .setControlBehavior(RuleConstant.CONTROL_BEHAVIOR_RATE_LIMITER)));
+        // Ignored when not in sketch mode.
+        assertTrue(ParamFlowRuleUtil.isValidRule(rule.setSketchMode(false)));
+    }
+
+    private static ParameterMetric initMetric(ResourceWrapper resourceWrapper, ParamFlowRule rule) {
+        ParameterMetric metric = new ParameterMetric(true);
+        ParameterMetricStorage.getMetricsMap().put(resourceWrapper.getName(), metric);
+        metric.initialize(rule);
+        return metric;
+    }
+}
@@ -18,6 +18,7 @@ package com.alibaba.csp.sentinel.slots.block.flow.param;
 import com.alibaba.csp.sentinel.EntryType;
 import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
 import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 
 import org.junit.After;
 import org.junit.Before;
@@ -49,7 +50,13 @@ public class ParameterMetricStorageTest {
         ParameterMetric metric = ParameterMetricStorage.getParamMetric(resourceWrapper);
         assertNotNull(metric);
         assertNotNull(metric.getRuleTimeCounterMap().get(rule));
-        assertNotNull(metric.getThreadCountMap().get(index));
+        // Only thread-grade rules track the thread count.
+        assertNull(metric.getThreadCounterMap().get(index));
+        ParamFlowRule threadRule = new ParamFlowRule()
+            .setGrade(RuleConstant.FLOW_GRADE_THREAD)
+            .setParamIdx(index);
+        ParameterMetricStorage.initParamMetricsFor(resourceWrapper, threadRule);
+        assertNotNull(metric.getThreadCounterMap().get(index));
 
         // Duplicate init.
         ParameterMetricStorage.initParamMetricsFor(resourceWrapper, rule);
@@ -18,17 +18,18 @@ package com.alibaba.csp.sentinel.slots.block.flow.param;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 
 import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 import com.alibaba.csp.sentinel.slots.statistic.cache.CacheMap;
+import com.alibaba.csp.sentinel.slots.statistic.cache.HotParamThreadCounter;
 
 /**
  * Test cases for {@link ParameterMetric}.
@@ -46,14 +47,22 @@ public class ParameterMetricTest {
         ParamFlowRule rule = new ParamFlowRule("abc")
             .setParamIdx(1);
         metric.initialize(rule);
-        CacheMap<Object, AtomicInteger> threadCountMap = metric.getThreadCountMap().get(rule.getParamIdx());
-        assertNotNull(threadCountMap);
+        // Only thread-grade rules track the thread count.
+        assertNull(metric.getThreadCounterMap().get(rule.getParamIdx()));
         CacheMap<Object, AtomicLong> timeRecordMap = metric.getRuleTimeCounter(rule);
         assertNotNull(timeRecordMap);
         metric.initialize(rule);
-        assertSame(threadCountMap, metric.getThreadCountMap().get(rule.getParamIdx()));
         assertSame(timeRecordMap, metric.getRuleTimeCounter(rule));
 
+        ParamFlowRule threadRule = new ParamFlowRule("abc")
+            .setGrade(RuleConstant.FLOW_GRADE_THREAD)
+            .setParamIdx(1);
+        metric.initialize(threadRule);
+        HotParamThreadCounter threadCounter = metric.getThreadCounterMap().get(threadRule.getParamIdx());
+        assertNotNull(threadCounter);
+        metric.initialize(threadRule);
+        assertSame(threadCounter, metric.getThreadCounterMap().get(threadRule.getParamIdx()));
+
         ParamFlowRule rule2 = new ParamFlowRule("abc")
             .setParamIdx(1);
         metric.initialize(rule2);
@@ -71,7 +80,7 @@ public class ParameterMetricTest {
         assertNotSame(timeRecordMap, metric.getRuleTimeCounter(rule3));
 
         metric.clear();
-        assertEquals(0, metric.getThreadCountMap().size());
+        assertEquals(0, metric.getThreadCounterMap().size());
         assertEquals(0, metric.getRuleTimeCounterMap().size());
         assertEquals(0, metric.getRuleTokenCounterMap().size());
     }
@@ -86,13 +95,14 @@ public class ParameterMetricTest {
     private void testAddAndDecreaseThreadCount(int paramType) {
 
         ParamFlowRule rule = new ParamFlowRule();
+        rule.setGrade(RuleConstant.FLOW_GRADE_THREAD);
         rule.setParamIdx(0);
 
         int n = 3;
         long[] v = new long[] {19L, 3L, 8L};
         ParameterMetric metric = new ParameterMetric();
         metric.initialize(rule);
-        assertTrue(metric.getThreadCountMap().containsKey(rule.getParamIdx()));
+        assertTrue(metric.getThreadCounterMap().containsKey(rule.getParamIdx()));
 
         switch (paramType) {
             case PARAM_TYPE_ARRAY:
@@ -109,11 +119,12 @@ public class ParameterMetricTest {
                 break;
         }
 
-        assertEquals(1, metric.getThreadCountMap().size());
-        CacheMap<Object, AtomicInteger> threadCountMap = metric.getThreadCountMap().get(rule.getParamIdx());
-        assertEquals(v.length, threadCountMap.size());
+        assertEquals(1, metric.getThreadCounterMap().size());
+        HotParamThreadCounter threadCounter = metric.getThreadCounterMap().get(rule.getParamIdx());
+        assertEquals(v.length, threadCounter.size());
         for (long vs : v) {
-            assertEquals(1, threadCountMap.get(vs).get());
+            assertEquals(1, threadCounter.get(vs));
+            assertEquals(1, metric.getThreadCount(rule.getParamIdx(), vs));
         }
 
         for (int i = 1; i < n; i++) {
@@ -132,11 +143,11 @@ public class ParameterMetricTest {
                     break;
             }
         }
-        assertEquals(1, metric.getThreadCountMap().size());
-        threadCountMap = metric.getThreadCountMap().get(rule.getParamIdx());
-        assertEquals(v.length, threadCountMap.size());
+        assertEquals(1, metric.getThreadCounterMap().size());
+        threadCounter = metric.getThreadCounterMap().get(rule.getParamIdx());
+        assertEquals(v.length, threadCounter.size());
         for (long vs : v) {
-            assertEquals(n, threadCountMap.get(vs).get());
+            assertEquals(n, threadCounter.get(vs));
         }
 
         for (int i = 1; i < n; i++) {
@@ -155,11 +166,11 @@ public class ParameterMetricTest {
                     break;
             }
         }
-        assertEquals(1, metric.getThreadCountMap().size());
-        threadCountMap = metric.getThreadCountMap().get(rule.getParamIdx());
-        assertEquals(v.length, threadCountMap.size());
+        assertEquals(1, metric.getThreadCounterMap().size());
+        threadCounter = metric.getThreadCounterMap().get(rule.getParamIdx());
+        assertEquals(v.length, threadCounter.size());
         for (long vs : v) {
-            assertEquals(1, threadCountMap.get(vs).get());
+            assertEquals(1, threadCounter.get(vs));
         }
 
         switch (paramType) {
@@ -176,9 +187,10 @@ public class ParameterMetricTest {
                 metric.decreaseThreadCount(v[2]);
                 break;
         }
-        assertEquals(1, metric.getThreadCountMap().size());
-        threadCountMap = metric.getThreadCountMap().get(rule.getParamIdx());
-        assertEquals(0, threadCountMap.size());
+        assertEquals(1, metric.getThreadCounterMap().size());
+        threadCounter = metric.getThreadCounterMap().get(rule.getParamIdx());
+        assertEquals(0, threadCounter.size());
+        assertEquals(0, metric.getThreadCount(rule.getParamIdx(), v[0]));
     }
 
     private static final int PARAM_TYPE_NORMAL = 0;
@@ -0,0 +1,107 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.cache;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import com.alibaba.csp.sentinel.util.TimeUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link HotParamCounterStore}.
+ */
+public class HotParamCounterStoreTest {
+
+    @Test
+    public void testKeyOf() {
+        assertEquals(HotParamCounterStore.keyOf(42L), HotParamCounterStore.keyOf(42));
+        assertEquals(42L, HotParamCounterStore.keyOf(42L));
+        assertNotEquals(0, HotParamCounterStore.keyOf(0));
+        assertEquals(HotParamCounterStore.keyOf("user-1"), HotParamCounterStore.keyOf(new String("user-1")));
+        assertNotEquals(HotParamCounterStore.keyOf("user-1"), HotParamCounterStore.keyOf("user-2"));
+        assertEquals(HotParamCounterStore.keyOf(1.5d), HotParamCounterStore.keyOf(1.5d));
+
+        Set<Long> keys = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            keys.add(HotParamCounterStore.keyOf("user-" + i));
+        }
+        assertEquals(100000, keys.size());
+    }
+
+    @Test
+    public void testPackState() {
+        HotParamCounterStore store = new HotParamCounterStore(100);
+        long now = TimeUtil.currentTimeMillis();
+        long state = store.pack(now, 25000);
+        assertNotEquals(HotParamCounterStore.EMPTY, state);
+        assertEquals(now, store.timeOf(state));
+        assertEquals(25000, HotParamCounterStore.tokensOf(state));
+
+        state = HotParamCounterStore.withTokens(state, 3);
+        assertEquals(now, store.timeOf(state));
+        assertEquals(3, HotParamCounterStore.tokensOf(state));
+        // Clamped.
+        assertEquals(0, HotParamCounterStore.tokensOf(store.pack(now, -1)));
+        assertEquals(HotParamCounterStore.MAX_TOKENS,
+            HotParamCounterStore.tokensOf(store.pack(now, HotParamCounterStore.MAX_TOKENS + 1)));
+        // 30 days later.
+        long later = now + 1000L * 60 * 60 * 24 * 30;
+        assertEquals(later, store.timeOf(store.pack(later, 1)));
+    }
+
+    @Test
+    public void testSlotOf() {
+        HotParamCounterStore store = new HotParamCounterStore(200000);
+        assertTrue(store.capacity() >= 200000 * 4 / 3);
+        Set<Integer> slots = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            long key = HotParamCounterStore.keyOf(i);
+            int slot = store.slotOf(key);
+            assertEquals(slot, store.slotOf(key));
+            assertTrue(slots.add(slot));
+        }
+        assertEquals(1000, store.size());
+        store.clear();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUpdated() {
+        // Only one probe window of 8 slots.
+        HotParamCounterStore store = new HotParamCounterStore(6);
+        assertEquals(8, store.capacity());
+        long now = TimeUtil.currentTimeMillis();
+        int oldestSlot = -1;
+        for (int i = 1; i <= 8; i++) {
+            int slot = store.slotOf(i);
+            long time = i == 5 ? now : now + 1000 + i;
+            assertTrue(store.compareAndSet(slot, HotParamCounterStore.EMPTY, store.pack(time, i)));
+            if (i == 5) {
+                oldestSlot = slot;
+            }
+        }
+        int slot = store.slotOf(9);
+        assertEquals(oldestSlot, slot);
+        assertEquals(HotParamCounterStore.EMPTY, store.get(slot));
+        assertEquals(8, store.size());
+        assertTrue(store.compareAndSet(slot, HotParamCounterStore.EMPTY, store.pack(now + 2000, 9)));
+        // Evicted, which is taken as a new value again.
+        assertEquals(HotParamCounterStore.EMPTY, store.get(store.slotOf(5)));
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.cache;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link HotParamThreadCounter}.
+ */
+public class HotParamThreadCounterTest {
+
+    @Test
+    public void testIncrementAndDecrement() {
+        HotParamThreadCounter counter = new HotParamThreadCounter(100);
+        assertEquals(128, counter.capacity());
+        counter.increment("a");
+        counter.increment("a");
+        counter.increment(1L);
+        assertEquals(2, counter.get("a"));
+        assertEquals(1, counter.get(1L));
+        // Equal values only.
+        assertEquals(0, counter.get(1));
+        assertEquals(2, counter.size());
+
+        counter.decrement("a");
+        counter.decrement(1L);
+        // Absent values are ignored.
+        counter.decrement("absent");
+        assertEquals(1, counter.get("a"));
+        assertEquals(0, counter.get(1L));
+        assertEquals(1, counter.size());
+
+        counter.clear();
+        assertEquals(0, counter.get("a"));
+        assertEquals(0, counter.size());
+    }
+
+    @Test
+    public void testReuseReleasedSlots() {
+        HotParamThreadCounter counter = new HotParamThreadCounter(1);
+        for (int i = 0; i < 16; i++) {
+            counter.increment(i);
+        }
+        // The only segment is full, so the value is counted in the overflow map.
+        counter.increment(100);
+        assertEquals(1, counter.get(100));
+        assertEquals(1, counter.overflowSize());
+        assertEquals(17, counter.size());
+
+        counter.decrement(100);
+        assertEquals(0, counter.get(100));
+        assertEquals(0, counter.overflowSize());
+
+        counter.decrement(3);
+        counter.increment(100);
+        assertEquals(1, counter.get(100));
+        assertEquals(0, counter.overflowSize());
+        assertEquals(16, counter.size());
+    }
+
+    @Test
+    public void testCollidingValues() {
+        HotParamThreadCounter counter = new HotParamThreadCounter(64);
+        int segmentCount = counter.capacity() / 16;
+        // Multiples of the segment count used to fall into the same segment.
+        int values = 64;
+        for (int i = 0; i < values; i++) {
+            counter.increment(i * segmentCount);
+            counter.increment(i * segmentCount);
+        }
+        for (int i = 0; i < values; i++) {
+            assertEquals(2, counter.get(i * segmentCount));
+        }
+        assertEquals(values, counter.size());
+
+        // Exit of a value never lowers the count of another one.
+        for (int i = 0; i < values; i += 2) {
+            counter.decrement(i * segmentCount);
+            counter.decrement(i * segmentCount);
+        }
+        for (int i = 0; i < values; i++) {
+            assertEquals(i % 2 == 0 ? 0 : 2, counter.get(i * segmentCount));
+        }
+        counter.decrement(-1);
+        assertEquals(values / 2, counter.size());
+    }
+
+    @Test
+    public void testConcurrentUpdate() throws Exception {
+        final HotParamThreadCounter counter = new HotParamThreadCounter(4000);
+        int threads = 8;
+        final int rounds = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < rounds; i++) {
+                        long value = i % 50;
+                        counter.increment(value);
+                        counter.increment(value + 1000);
+                        counter.decrement(value);
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        pool.shutdown();
+        for (long value = 0; value < 50; value++) {
+            assertEquals(0, counter.get(value));
+            assertEquals(threads * rounds / 50, counter.get(value + 1000));
+        }
+        assertEquals(50, counter.size());
+    }
+}
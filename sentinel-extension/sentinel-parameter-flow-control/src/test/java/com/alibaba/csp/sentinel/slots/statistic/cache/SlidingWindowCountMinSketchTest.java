@@ -0,0 +1,112 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.cache;
+
+import com.alibaba.csp.sentinel.test.AbstractTimeBasedTest;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link SlidingWindowCountMinSketch}.
+ */
+public class SlidingWindowCountMinSketchTest extends AbstractTimeBasedTest {
+
+    @Test
+    public void testSlidingWindow() {
+        setCurrentMillis(System.currentTimeMillis() / 1000 * 1000);
+        SlidingWindowCountMinSketch sketch = new SlidingWindowCountMinSketch(1024, 4, 1000, 4);
+        long key = HotParamCounterStore.keyOf("valueA");
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(sketch.tryAcquire(key, 1, 5));
+        }
+        sleep(500);
+        assertTrue(sketch.tryAcquire(key, 2, 5));
+        assertFalse(sketch.tryAcquire(key, 1, 5));
+        assertEquals(5, sketch.estimate(key));
+        // Counted separately.
+        assertTrue(sketch.tryAcquire(HotParamCounterStore.keyOf("valueB"), 5, 5));
+
+        // The first sub-window slides out.
+        sleep(500);
+        assertEquals(2, sketch.estimate(key));
+        assertTrue(sketch.tryAcquire(key, 3, 5));
+        assertFalse(sketch.tryAcquire(key, 1, 5));
+
+        sleep(1000);
+        assertEquals(0, sketch.estimate(key));
+        assertTrue(sketch.tryAcquire(key, 5, 5));
+        // The counts of the deprecated sub-windows are not counted again after the window slides a round.
+        sleep(3000);
+        assertEquals(0, sketch.estimate(key));
+        assertTrue(sketch.tryAcquire(key, 1, 5));
+        assertEquals(1, sketch.estimate(key));
+        assertEquals(0, sketch.estimate(HotParamCounterStore.keyOf("valueB")));
+
+        sketch.clear();
+        assertEquals(0, sketch.estimate(key));
+    }
+
+    @Test
+    public void testEstimateWithCollisions() {
+        setCurrentMillis(System.currentTimeMillis());
+        SlidingWindowCountMinSketch sketch = new SlidingWindowCountMinSketch(1024, 4, 1000, 4);
+        long heavyKey = HotParamCounterStore.keyOf("heavy");
+        for (int i = 0; i < 200; i++) {
+            assertTrue(sketch.tryAcquire(heavyKey, 1, Long.MAX_VALUE));
+        }
+        int lightCount = 10000;
+        for (int i = 0; i < lightCount; i++) {
+            sketch.tryAcquire(HotParamCounterStore.keyOf("light-" + i), 1, Long.MAX_VALUE);
+        }
+
+        long overestimation = 0;
+        for (int i = 0; i < lightCount; i++) {
+            long estimate = sketch.estimate(HotParamCounterStore.keyOf("light-" + i));
+            // Never underestimated.
+            assertTrue(estimate >= 1);
+            overestimation += estimate - 1;
+        }
+        // Far less than e / width of the total count on average.
+        assertTrue(overestimation < lightCount * (Math.E * (lightCount + 200) / 1024));
+        long heavyEstimate = sketch.estimate(heavyKey);
+        assertTrue(heavyEstimate >= 200 && heavyEstimate <= 200 + Math.E * (lightCount + 200) / 1024);
+    }
+
+    @Test
+    public void testMemory() {
+        SlidingWindowCountMinSketch sketch = new SlidingWindowCountMinSketch(1000, 4, 2000, 4);
+        assertEquals(1024, sketch.width());
+        assertEquals(4, sketch.depth());
+        assertEquals(8L * 4 * 4 * 1024, sketch.memoryBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWidth() {
+        new SlidingWindowCountMinSketch(0, 4, 1000, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLarge() {
+        new SlidingWindowCountMinSketch(SlidingWindowCountMinSketch.MAX_WIDTH * 2, 4, 1000, 4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+        new SlidingWindowCountMinSketch(1024, 4, 1000, 3);
+    }
+}
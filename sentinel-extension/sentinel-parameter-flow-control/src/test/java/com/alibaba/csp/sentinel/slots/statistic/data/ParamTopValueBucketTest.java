@@ -0,0 +1,141 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ParamTopValueBucket}.
+ */
+public class ParamTopValueBucketTest {
+
+    @Test
+    public void testAddAndMerge() {
+        ParamTopValueBucket bucket = new ParamTopValueBucket(10);
+        bucket.add("a", true, 3)
+            .add("a", false, 2)
+            .add("b", true, 1)
+            .add(1.5d, false, 4);
+        assertEquals(3, bucket.size());
+
+        Map<Object, long[]> merged = new HashMap<>();
+        bucket.mergeTo(merged);
+        bucket.mergeTo(merged);
+        assertArrayEquals(new long[] {6, 4, 10}, merged.get("a"));
+        assertArrayEquals(new long[] {2, 0, 2}, merged.get("b"));
+        assertArrayEquals(new long[] {0, 8, 8}, merged.get(1.5d));
+
+        bucket.reset();
+        assertEquals(0, bucket.size());
+        merged.clear();
+        bucket.mergeTo(merged);
+        assertTrue(merged.isEmpty());
+    }
+
+    @Test
+    public void testKeepHeavyValuesUnderScan() {
+        int capacity = 20;
+        ParamTopValueBucket bucket = new ParamTopValueBucket(capacity);
+        for (int i = 0; i < 10000; i++) {
+            // 5 heavy values take 1/3 of the requests, the others are all distinct.
+            if (i % 3 == 0) {
+                bucket.add("heavy-" + (i % 5), true, 1);
+            } else {
+                bucket.add("scan-" + i, false, 1);
+            }
+        }
+        assertEquals(capacity, bucket.size());
+
+        Map<Object, long[]> merged = new HashMap<>();
+        bucket.mergeTo(merged);
+        for (int i = 0; i < 5; i++) {
+            long[] counts = merged.get("heavy-" + i);
+            assertNotNull(counts);
+            // Never overestimated except the inherited error.
+            assertTrue(counts[0] <= 667);
+            assertTrue(counts[2] >= 666);
+        }
+    }
+
+    @Test
+    public void testConcurrentAddAndReset() throws Exception {
+        final ParamTopValueBucket bucket = new ParamTopValueBucket(10);
+        final int threads = 8;
+        final int perThread = 10000;
+        final CountDownLatch latch = new CountDownLatch(threads);
+        final AtomicBoolean failed = new AtomicBoolean(false);
+        for (int i = 0; i < threads; i++) {
+            final int t = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < perThread; j++) {
+                            bucket.add("hot", true, 1);
+                            bucket.add("value-" + t + "-" + (j % 20), false, 1);
+                        }
+                    } catch (Throwable e) {
+                        failed.set(true);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }).start();
+        }
+        latch.await();
+        assertFalse(failed.get());
+        // The counts of the hot value in all stripes are merged.
+        Map<Object, long[]> merged = new HashMap<>();
+        bucket.mergeTo(merged);
+        assertEquals(threads * perThread, merged.get("hot")[0]);
+
+        // Reset while adding should never break the bucket.
+        final CountDownLatch resetLatch = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < perThread; j++) {
+                            bucket.add("value-" + (j % 50), j % 2 == 0, 1);
+                            if (j % 1000 == 0) {
+                                bucket.reset();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failed.set(true);
+                    } finally {
+                        resetLatch.countDown();
+                    }
+                }
+            }).start();
+        }
+        resetLatch.await();
+        assertFalse(failed.get());
+        bucket.reset();
+        assertEquals(0, bucket.size());
+        merged.clear();
+        bucket.mergeTo(merged);
+        assertTrue(merged.isEmpty());
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.slots.statistic.metric;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.EntryType;
+import com.alibaba.csp.sentinel.command.CommandRequest;
+import com.alibaba.csp.sentinel.command.CommandResponse;
+import com.alibaba.csp.sentinel.command.handler.FetchParamTopValuesCommandHandler;
+import com.alibaba.csp.sentinel.slotchain.ResourceWrapper;
+import com.alibaba.csp.sentinel.slotchain.StringResourceWrapper;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowChecker;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowRule;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParamFlowRuleManager;
+import com.alibaba.csp.sentinel.slots.block.flow.param.ParameterMetricStorage;
+import com.alibaba.csp.sentinel.slots.statistic.data.ParamTopValue;
+import com.alibaba.csp.sentinel.test.AbstractTimeBasedTest;
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for {@link ParamTopValueLeapArray}.
+ */
+public class ParamTopValueLeapArrayTest extends AbstractTimeBasedTest {
+
+    private static final String RESOURCE_NAME = "testTrackRuleAndFetchCommand";
+
+    @After
+    public void tearDown() {
+        ParamFlowRuleManager.loadRules(null);
+        ParameterMetricStorage.clearParamMetricForResource(RESOURCE_NAME);
+    }
+
+    @Test
+    public void testTopValuesInSlidingWindow() {
+        setCurrentMillis(System.currentTimeMillis() / 1000 * 1000);
+        ParamTopValueLeapArray leapArray = new ParamTopValueLeapArray(2, 1000, 2);
+        for (int i = 0; i < 5; i++) {
+            leapArray.add("a", true, 1);
+        }
+        leapArray.add("b", true, 1);
+        leapArray.add("b", false, 2);
+        leapArray.add("c", true, 1);
+        sleep(500);
+        leapArray.add("c", false, 4);
+
+        List<ParamTopValue> topValues = leapArray.topValues();
+        assertEquals(2, topValues.size());
+        assertEquals("a", topValues.get(0).getValue());
+        assertEquals(5, topValues.get(0).getPassQps(), 0.01);
+        assertEquals("c", topValues.get(1).getValue());
+        assertEquals(1, topValues.get(1).getPassQps(), 0.01);
+        assertEquals(4, topValues.get(1).getBlockQps(), 0.01);
+
+        // The first bucket slides out.
+        sleep(501);
+        topValues = leapArray.topValues();
+        assertEquals(1, topValues.size());
+        assertEquals("c", topValues.get(0).getValue());
+        assertEquals(0, topValues.get(0).getPassQps(), 0.01);
+
+        sleep(1000);
+        assertTrue(leapArray.topValues().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTopCount() {
+        new ParamTopValueLeapArray(2, 1000, 0);
+    }
+
+    @Test
+    public void testTrackRuleAndFetchCommand() {
+        setCurrentMillis(System.currentTimeMillis() / 1000 * 1000);
+        String resourceName = RESOURCE_NAME;
+        ResourceWrapper resourceWrapper = new StringResourceWrapper(resourceName, EntryType.IN);
+        ParamFlowRule rule = new ParamFlowRule(resourceName)
+            .setParamIdx(0)
+            .setCount(2)
+            .setTopValueCount(3);
+        ParamFlowRuleManager.loadRules(Collections.singletonList(rule));
+        ParameterMetricStorage.initParamMetricsFor(resourceWrapper, rule);
+
+        for (int i = 0; i < 5; i++) {
+            ParamFlowChecker.passCheck(resourceWrapper, rule, 1, "hot");
+        }
+        ParamFlowChecker.passCheck(resourceWrapper, rule, 1, Arrays.asList("x", "y"));
+        ParamFlowChecker.passCheck(resourceWrapper, rule, 1, (Object)new String[] {"x"});
+
+        List<ParamTopValue> topValues = ParameterMetricStorage.getParamMetric(resourceWrapper)
+            .getRuleTopValues(rule).topValues();
+        assertEquals(3, topValues.size());
+        assertEquals("hot", topValues.get(0).getValue());
+        assertEquals(2, topValues.get(0).getPassQps(), 0.01);
+        assertEquals(3, topValues.get(0).getBlockQps(), 0.01);
+        assertEquals("x", topValues.get(1).getValue());
+        assertEquals(2, topValues.get(1).getPassQps(), 0.01);
+
+        CommandResponse<String> response = new FetchParamTopValuesCommandHandler().handle(
+            new CommandRequest().addParam("resource", resourceName));
+        assertTrue(response.isSuccess());
+        JSONArray array = JSON.parseArray(response.getResult());
+        assertEquals(1, array.size());
+        JSONObject item = array.getJSONObject(0);
+        assertEquals(resourceName, item.getString("resource"));
+        assertEquals("hot", item.getJSONArray("topValues").getJSONObject(0).getString("value"));
+
+        response = new FetchParamTopValuesCommandHandler().handle(new CommandRequest().addParam("resource", "absent"));
+        assertTrue(JSON.parseArray(response.getResult()).isEmpty());
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.command.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.alibaba.csp.sentinel.command.CommandHandler;
+import com.alibaba.csp.sentinel.command.CommandRequest;
+import com.alibaba.csp.sentinel.command.CommandResponse;
+import com.alibaba.csp.sentinel.command.annotation.CommandMapping;
+import com.alibaba.csp.sentinel.node.metric.MetricNode;
+import com.alibaba.csp.sentinel.node.metric.MetricRingBuffer;
+import com.alibaba.csp.sentinel.util.StringUtil;
+
+/**
+ * <p>Retrieve the live metrics incrementally from the in-memory {@link MetricRingBuffer}, without
+ * reading metric files.</p>
+ *
+ * <p>The first line of the response is the cursor for the next request, followed by the metrics
+ * ({@link MetricNode#toThinString()}) of the seconds after the requested cursor. Requesting without
+ * a cursor starts the stream from now on. The netty-http command center also supports long polling
+ * with the {@code timeout} parameter (in milliseconds), which holds the request until new metrics are
+ * published or the timeout elapses.</p>
+ *
+ * @since 1.8.2
+ */
+@CommandMapping(name = FetchMetricStreamCommandHandler.COMMAND_NAME, desc = "get live metrics incrementally, "
+    + "accept param: cursor={cursor}&maxSeconds={maxSeconds}&identity={resourceName}&timeout={timeoutMs}")
+public class FetchMetricStreamCommandHandler implements CommandHandler<String> {
+
+    public static final String COMMAND_NAME = "metricStream";
+    public static final String PARAM_CURSOR = "cursor";
+    public static final String PARAM_TIMEOUT = "timeout";
+
+    @Override
+    public CommandResponse<String> handle(CommandRequest request) {
+        MetricRingBuffer ringBuffer = MetricRingBuffer.getInstance();
+        long cursor;
+        int maxSeconds = ringBuffer.capacity();
+        try {
+            cursor = parseCursor(request);
+            String maxSecondsStr = request.getParam("maxSeconds");
+            if (StringUtil.isNotBlank(maxSecondsStr)) {
+                maxSeconds = Integer.parseInt(maxSecondsStr);
+            }
+        } catch (NumberFormatException ex) {
+            return CommandResponse.ofFailure(new IllegalArgumentException("Invalid parameter", ex));
+        }
+        String identity = request.getParam("identity");
+
+        List<MetricNode> list = new ArrayList<>();
+        long nextCursor = ringBuffer.read(cursor, maxSeconds, list);
+        boolean hasMetrics = !list.isEmpty();
+        StringBuilder sb = new StringBuilder();
+        sb.append(nextCursor).append("\n");
+        for (MetricNode node : list) {
+            if (StringUtil.isBlank(identity) || identity.equals(node.getResource())) {
+                sb.append(node.toThinString()).append("\n");
+            }
+        }
+        if (hasMetrics && StringUtil.isBlank(identity)) {
+            List<MetricNode> systemNodes = new ArrayList<>(2);
+            SendMetricCommandHandler.addCpuUsageAndLoad(systemNodes);
+            for (MetricNode node : systemNodes) {
+                sb.append(node.toThinString()).append("\n");
+            }
+        }
+        return CommandResponse.ofSuccess(sb.toString());
+    }
+
+    /**
+     * @return the cursor in the request, or -1 if absent
+     */
+    public static long parseCursor(CommandRequest request) {
+        String cursorStr = request.getParam(PARAM_CURSOR);
+        return StringUtil.isBlank(cursorStr) ? -1 : Long.parseLong(cursorStr.trim());
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 1999-2020 Alibaba Group Holding Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.alibaba.csp.sentinel.command.handler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.alibaba.csp.sentinel.CtSph;
+import com.alibaba.csp.sentinel.IdleResourceReclaimer;
+import com.alibaba.csp.sentinel.command.CommandHandler;
+import com.alibaba.csp.sentinel.command.CommandRequest;
+import com.alibaba.csp.sentinel.command.CommandResponse;
+import com.alibaba.csp.sentinel.command.annotation.CommandMapping;
+import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.fastjson.JSONObject;
+
+/**
+ * Get the statistics of idle resource reclaiming.
+ *
+ * @since 1.8.2
+ */
+@CommandMapping(name = "reclaimStats", desc = "get statistics of idle resource reclaiming")
+public class FetchReclaimStatsCommandHandler implements CommandHandler<String> {
+
+    @Override
+    public CommandResponse<String> handle(CommandRequest request) {
+        Map<String, Object> stats = new HashMap<String, Object>();
+
+        stats.put("idleTtlMs", SentinelConfig.resourceIdleTtlMs());
+        stats.put("resourceCount", CtSph.entrySize());
+        stats.put("reclaimedResourceCount", IdleResourceReclaimer.getReclaimedResourceCount());
+        stats.put("reclaimedNodeCount", IdleResourceReclaimer.getReclaimedNodeCount());
+        stats.put("estimatedReclaimedBytes", IdleResourceReclaimer.getEstimatedReclaimedBytes());
+        stats.put("lastReclaimTime", IdleResourceReclaimer.getLastReclaimTime());
+        stats.put("lastSweepTime", IdleResourceReclaimer.getLastSweepTime());
+
+        return CommandResponse.ofSuccess(JSONObject.toJSONString(stats));
+    }
+}
@@ -24,6 +24,7 @@ import com.alibaba.csp.sentinel.command.CommandRequest;
 import com.alibaba.csp.sentinel.command.CommandResponse;
 import com.alibaba.csp.sentinel.command.annotation.CommandMapping;
 import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.node.metric.BinaryMetricWriter;
 import com.alibaba.csp.sentinel.node.metric.MetricNode;
 import com.alibaba.csp.sentinel.node.metric.MetricSearcher;
 import com.alibaba.csp.sentinel.node.metric.MetricWriter;
@@ -56,8 +57,10 @@ public class SendMetricCommandHandler implements CommandHandler<String> {
                     appName = "";
                 }
                 if (searcher == null) {
-                    searcher = new MetricSearcher(MetricWriter.METRIC_BASE_DIR,
-                        MetricWriter.formMetricFileName(appName, PidUtil.getPid()));
+                    String baseFileName = BinaryMetricWriter.isEnabled()
+                        ? BinaryMetricWriter.formBinaryMetricFileName(appName, PidUtil.getPid())
+                        : MetricWriter.formMetricFileName(appName, PidUtil.getPid());
+                    searcher = new MetricSearcher(MetricWriter.METRIC_BASE_DIR, baseFileName);
                 }
             }
         }
@@ -106,7 +109,7 @@ public class SendMetricCommandHandler implements CommandHandler<String> {
      *
      * @param list metric list, should not be null
      */
-    private void addCpuUsageAndLoad(List<MetricNode> list) {
+    static void addCpuUsageAndLoad(List<MetricNode> list) {
         long time = TimeUtil.currentTimeMillis() / 1000 * 1000;
         double load = SystemRuleManager.getCurrentSystemAvgLoad();
         double usage = SystemRuleManager.getCurrentCpuUsage();
@@ -132,7 +135,7 @@ public class SendMetricCommandHandler implements CommandHandler<String> {
      * @param resource resource name.
      * @return a MetricNode represents the value.
      */
-    private MetricNode toNode(double value, long ts, String resource) {
+    private static MetricNode toNode(double value, long ts, String resource) {
         MetricNode node = new MetricNode();
         node.setPassQps((long)(value * 10000));
         node.setTimestamp(ts);
@@ -17,14 +17,20 @@ package com.alibaba.csp.sentinel.transport.command.netty;
 
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import com.alibaba.csp.sentinel.command.CommandHandler;
 import com.alibaba.csp.sentinel.command.CommandRequest;
 import com.alibaba.csp.sentinel.command.CommandResponse;
+import com.alibaba.csp.sentinel.command.handler.FetchMetricStreamCommandHandler;
 import com.alibaba.csp.sentinel.config.SentinelConfig;
+import com.alibaba.csp.sentinel.node.metric.MetricRingBuffer;
 import com.alibaba.csp.sentinel.transport.log.CommandCenterLog;
 import com.alibaba.csp.sentinel.transport.command.codec.CodecRegistry;
 import com.alibaba.csp.sentinel.transport.command.codec.Encoder;
@@ -65,21 +71,63 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<Object> {
 
     private final CodecRegistry codecRegistry = new CodecRegistry();
 
+    /**
+     * The metric stream request held on this channel. A handler is created for every channel, and the
+     * fields below are only accessed in the event loop of the channel.
+     */
+    private PendingMetricStream pendingMetricStream;
+    /**
+     * Requests received while a metric stream request is held, which are handled in order after it's answered.
+     */
+    private final Deque<QueuedRequest> queuedRequests = new ArrayDeque<>();
+
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
         ctx.flush();
     }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (pendingMetricStream != null) {
+            pendingMetricStream.cancel();
+            pendingMetricStream = null;
+        }
+        queuedRequests.clear();
+        super.channelInactive(ctx);
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, Object msg) throws Exception {
         FullHttpRequest httpRequest = (FullHttpRequest)msg;
+        CommandRequest request;
+        try {
+            request = parseRequest(httpRequest);
+        } catch (Exception ex) {
+            writeErrorResponse(INTERNAL_SERVER_ERROR.code(), SERVER_ERROR_MESSAGE, ctx);
+            CommandCenterLog.warn("Internal error", ex);
+            return;
+        }
+        boolean keepAlive = HttpUtil.isKeepAlive(httpRequest);
+        if (pendingMetricStream != null) {
+            // Pipelined requests should be answered in order, so they wait for the held request.
+            if (queuedRequests.size() >= MAX_QUEUED_REQUESTS) {
+                CommandCenterLog.warn("Too many requests pipelined after a metric stream request, closing the channel");
+                ctx.close();
+                return;
+            }
+            queuedRequests.add(new QueuedRequest(request, keepAlive));
+            return;
+        }
+        processRequest(request, ctx, keepAlive);
+    }
+
+    private void processRequest(CommandRequest request, ChannelHandlerContext ctx, boolean keepAlive) {
         try {
-            CommandRequest request = parseRequest(httpRequest);
             if (StringUtil.isBlank(HttpCommandUtils.getTarget(request))) {
                 writeErrorResponse(BAD_REQUEST.code(), "Invalid command", ctx);
                 return;
             }
-            handleRequest(request, ctx, HttpUtil.isKeepAlive(httpRequest));
+            handleRequest(request, ctx, keepAlive);
 
         } catch (Exception ex) {
             writeErrorResponse(INTERNAL_SERVER_ERROR.code(), SERVER_ERROR_MESSAGE, ctx);
@@ -87,12 +135,28 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<Object> {
         }
     }
 
+    private void processQueuedRequests(ChannelHandlerContext ctx) {
+        QueuedRequest queued;
+        while (pendingMetricStream == null && (queued = queuedRequests.poll()) != null) {
+            if (!ctx.channel().isActive()) {
+                queuedRequests.clear();
+                return;
+            }
+            processRequest(queued.request, ctx, queued.keepAlive);
+        }
+    }
+
     private void handleRequest(CommandRequest request, ChannelHandlerContext ctx, boolean keepAlive)
         throws Exception {
         String commandName = HttpCommandUtils.getTarget(request);
         // Find the matching command handler.
         CommandHandler<?> commandHandler = getHandler(commandName);
         if (commandHandler != null) {
+            if (FetchMetricStreamCommandHandler.COMMAND_NAME.equals(commandName)
+                && awaitMetricStream(request, commandHandler, ctx, keepAlive)) {
+                // The response will be written when new metrics are published or timed out.
+                return;
+            }
             CommandResponse<?> response = commandHandler.handle(request);
             writeResponse(response, ctx, keepAlive);
         } else {
@@ -101,6 +165,123 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<Object> {
         }
     }
 
+    /**
+     * Hold the metric stream request (long polling) until the metrics after the cursor are published
+     * or the timeout elapses, without blocking the I/O thread.
+     *
+     * @return true if the request is held, or false if it should be handled now
+     */
+    private boolean awaitMetricStream(CommandRequest request, CommandHandler<?> commandHandler,
+                                      ChannelHandlerContext ctx, boolean keepAlive) {
+        String timeoutStr = request.getParam(FetchMetricStreamCommandHandler.PARAM_TIMEOUT);
+        long timeout;
+        long cursor;
+        try {
+            timeout = StringUtil.isBlank(timeoutStr) ? 0 : Long.parseLong(timeoutStr.trim());
+            cursor = FetchMetricStreamCommandHandler.parseCursor(request);
+        } catch (NumberFormatException ex) {
+            // Let the command handler report the invalid parameter.
+            return false;
+        }
+        if (timeout <= 0) {
+            return false;
+        }
+        MetricRingBuffer ringBuffer = MetricRingBuffer.getInstance();
+        if (cursor < 0) {
+            // Stream from now on, which should include the next published second.
+            cursor = ringBuffer.nextSequence();
+            request.addParam(FetchMetricStreamCommandHandler.PARAM_CURSOR, String.valueOf(cursor));
+        }
+        PendingMetricStream pending = new PendingMetricStream(request, commandHandler, ctx, keepAlive, ringBuffer);
+        if (!ringBuffer.await(cursor, pending.waiter)) {
+            return false;
+        }
+        pending.timeoutFuture = ctx.executor().schedule(new Runnable() {
+            @Override
+            public void run() {
+                respond(pending);
+            }
+        }, Math.min(timeout, MAX_METRIC_STREAM_TIMEOUT_MS), TimeUnit.MILLISECONDS);
+        pendingMetricStream = pending;
+        return true;
+    }
+
+    /**
+     * Answer the held metric stream request, then handle the requests queued after it.
+     * Always runs in the event loop of the channel.
+     */
+    private void respond(PendingMetricStream pending) {
+        if (pendingMetricStream != pending) {
+            // Already answered, or the channel has been closed.
+            return;
+        }
+        pendingMetricStream = null;
+        pending.cancel();
+        ChannelHandlerContext ctx = pending.ctx;
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        try {
+            writeResponse(pending.commandHandler.handle(pending.request), ctx, pending.keepAlive);
+        } catch (Exception ex) {
+            writeErrorResponse(INTERNAL_SERVER_ERROR.code(), SERVER_ERROR_MESSAGE, ctx);
+            CommandCenterLog.warn("Internal error", ex);
+        }
+        processQueuedRequests(ctx);
+    }
+
+    private final class PendingMetricStream {
+        private final CommandRequest request;
+        private final CommandHandler<?> commandHandler;
+        private final ChannelHandlerContext ctx;
+        private final boolean keepAlive;
+        private final MetricRingBuffer ringBuffer;
+        /**
+         * Run by the publishing thread of the ring buffer, so the response is written in the event loop.
+         */
+        private final Runnable waiter = new Runnable() {
+            @Override
+            public void run() {
+                ctx.executor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        respond(PendingMetricStream.this);
+                    }
+                });
+            }
+        };
+        private Future<?> timeoutFuture;
+
+        PendingMetricStream(CommandRequest request, CommandHandler<?> commandHandler, ChannelHandlerContext ctx,
+                            boolean keepAlive, MetricRingBuffer ringBuffer) {
+            this.request = request;
+            this.commandHandler = commandHandler;
+            this.ctx = ctx;
+            this.keepAlive = keepAlive;
+            this.ringBuffer = ringBuffer;
+        }
+
+        /**
+         * Stop waiting for the metrics and the timeout, so nothing of the request is kept any longer.
+         */
+        void cancel() {
+            ringBuffer.cancel(waiter);
+            if (timeoutFuture != null) {
+                timeoutFuture.cancel(false);
+            }
+        }
+    }
+
+    private static final class QueuedRequest {
+        private final CommandRequest request;
+        private final boolean keepAlive;
+
+        QueuedRequest(CommandRequest request, boolean keepAlive) {
+            this.request = request;
+            this.keepAlive = keepAlive;
+        }
+    }
+
     private Encoder<?> pickEncoder(Class<?> clazz) {
         if (clazz == null) {
             throw new IllegalArgumentException("Bad class metadata");
@@ -245,4 +426,6 @@ public class HttpServerHandler extends SimpleChannelInboundHandler<Object> {
     }
 
     private static final String SERVER_ERROR_MESSAGE = "Command server error";
+    private static final long MAX_METRIC_STREAM_TIMEOUT_MS = 30 * 1000;
+    private static final int MAX_QUEUED_REQUESTS = 16;
 }
@@ -18,6 +18,8 @@ package com.alibaba.csp.sentinel.transport.command.netty;
 import com.alibaba.csp.sentinel.Constants;
 import com.alibaba.csp.sentinel.config.SentinelConfig;
 import com.alibaba.csp.sentinel.init.InitExecutor;
+import com.alibaba.csp.sentinel.node.metric.MetricNode;
+import com.alibaba.csp.sentinel.node.metric.MetricRingBuffer;
 import com.alibaba.csp.sentinel.slots.block.RuleConstant;
 import com.alibaba.csp.sentinel.slots.block.flow.FlowRule;
 import com.alibaba.csp.sentinel.slots.block.flow.FlowRuleManager;
@@ -43,6 +45,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.OK;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test cases for {@link HttpServerHandler}.
@@ -189,6 +192,92 @@ public class HttpServerHandlerTest {
         processSuccess(httpRequestStr, expectedBody);
     }
 
+    /**
+     * {@link com.alibaba.csp.sentinel.command.handler.FetchMetricStreamCommandHandler}
+     */
+    @Test
+    public void testMetricStreamCommand() {
+        MetricRingBuffer ringBuffer = MetricRingBuffer.getInstance();
+        // Read for the first time to activate the ring buffer.
+        long cursor = ringBuffer.read(-1, 0, new ArrayList<MetricNode>());
+        ringBuffer.publish(metricsOf(1000));
+
+        String httpRequestStr = "GET /metricStream?cursor=" + cursor + "&identity=streamRes HTTP/1.1" + CRLF
+                              + "Host: localhost:8719" + CRLF
+                              + CRLF;
+        String expectedBody = (cursor + 1) + "\n" + metricsOf(1000).get(0).toThinString() + "\n";
+
+        processSuccess(httpRequestStr, expectedBody);
+    }
+
+    @Test
+    public void testMetricStreamCommandLongPolling() throws Exception {
+        MetricRingBuffer ringBuffer = MetricRingBuffer.getInstance();
+        long cursor = ringBuffer.read(-1, 0, new ArrayList<MetricNode>());
+
+        String httpRequestStr = "GET /metricStream?identity=streamRes&timeout=10000 HTTP/1.1" + CRLF
+                              + "Host: localhost:8719" + CRLF
+                              + CRLF;
+        // No metrics after now, the request should be held.
+        assertEquals("", processResponse(httpRequestStr));
+
+        ringBuffer.publish(metricsOf(2000));
+        embeddedChannel.runPendingTasks();
+        String expectedBody = (cursor + 1) + "\n" + metricsOf(2000).get(0).toThinString() + "\n";
+        assertStatusAndBody(OK, expectedBody, readOutbound());
+    }
+
+    @Test
+    public void testMetricStreamCommandPipelinedRequest() throws Exception {
+        MetricRingBuffer ringBuffer = MetricRingBuffer.getInstance();
+        long cursor = ringBuffer.read(-1, 0, new ArrayList<MetricNode>());
+
+        String streamRequestStr = "GET /metricStream?identity=streamRes&timeout=10000 HTTP/1.1" + CRLF
+                                + "Host: localhost:8719" + CRLF
+                                + CRLF;
+        String versionRequestStr = "GET /version HTTP/1.1" + CRLF
+                                 + "Host: localhost:8719" + CRLF
+                                 + CRLF;
+        assertEquals("", processResponse(streamRequestStr));
+        // The pipelined request must not be answered before the held one.
+        assertEquals("", processResponse(versionRequestStr));
+
+        ringBuffer.publish(metricsOf(3000));
+        embeddedChannel.runPendingTasks();
+        String expectedBody = (cursor + 1) + "\n" + metricsOf(3000).get(0).toThinString() + "\n";
+        assertStatusAndBody(OK, expectedBody, readOutbound());
+    }
+
+    @Test
+    public void testMetricStreamCommandLongPollingTimeout() throws Exception {
+        MetricRingBuffer ringBuffer = MetricRingBuffer.getInstance();
+        long cursor = ringBuffer.read(-1, 0, new ArrayList<MetricNode>());
+
+        String httpRequestStr = "GET /metricStream?cursor=" + cursor + "&timeout=50 HTTP/1.1" + CRLF
+                              + "Host: localhost:8719" + CRLF
+                              + CRLF;
+        assertEquals("", processResponse(httpRequestStr));
+
+        String response = "";
+        for (int i = 0; i < 100 && response.isEmpty(); i++) {
+            Thread.sleep(10);
+            embeddedChannel.runScheduledPendingTasks();
+            response = readOutbound();
+        }
+        assertStatusAndBody(OK, cursor + "\n", response);
+        assertTrue(!embeddedChannel.isActive());
+    }
+
+    private static List<MetricNode> metricsOf(long time) {
+        MetricNode node = new MetricNode();
+        node.setTimestamp(time);
+        node.setResource("streamRes");
+        node.setPassQps(time / 100);
+        List<MetricNode> nodes = new ArrayList<MetricNode>();
+        nodes.add(node);
+        return nodes;
+    }
+
     private void processError(String httpRequestStr, String expectedBody) {
         processError(httpRequestStr, BAD_REQUEST, expectedBody);
     }
@@ -214,6 +303,10 @@ public class HttpServerHandlerTest {
     private String processResponse(String httpRequestStr) {
         embeddedChannel.writeInbound(Unpooled.wrappedBuffer(httpRequestStr.getBytes(SENTINEL_CHARSET)));
 
+        return readOutbound();
+    }
+
+    private String readOutbound() {
         StringBuilder sb = new StringBuilder();
 
         ByteBuf byteBuf;